@@ -0,0 +1,159 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package software.amazon.awssdk.services.sqs;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchRequest;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchRequestEntry;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchResponse;
+import software.amazon.awssdk.services.sqs.model.MessageAttributeValue;
+import software.amazon.awssdk.services.sqs.model.ReceiveMessageRequest;
+import software.amazon.awssdk.services.sqs.model.ReceiveMessageResponse;
+import software.amazon.awssdk.services.sqs.model.SendMessageRequest;
+import software.amazon.awssdk.services.sqs.model.SendMessageResponse;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the extended client's sendMessage, receiveMessage and
+ * deleteMessageBatch paths end to end, against in-memory Amazon SQS and
+ * Amazon S3 clients so that only the client's own work is timed. Payloads
+ * from 1 KB to 10 MB cover both inline messages and messages stored in S3.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExtendedSqsClientBenchmark {
+
+    private static final String S3_BUCKET_NAME = "benchmark-bucket";
+    private static final int DELETE_BATCH_SIZE = 10;
+
+    @Param({"1024", "65536", "262144", "1048576", "10485760"})
+    public int payloadSize;
+
+    @Param({"0", "5", "9"})
+    public int attributeCount;
+
+    private InMemorySqsClient sqs;
+    private InMemoryS3Client s3;
+    private ExtendedSqsClient extendedSqsClient;
+    private String queueUrl;
+    private SendMessageRequest sendMessageRequest;
+    private ReceiveMessageRequest receiveMessageRequest;
+    private DeleteMessageBatchRequest deleteMessageBatchRequest;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        sqs = new InMemorySqsClient();
+        s3 = new InMemoryS3Client();
+        s3.createBucket(b -> b.bucket(S3_BUCKET_NAME));
+        queueUrl = sqs.createQueue(b -> b.queueName("benchmark")).queueUrl();
+        extendedSqsClient = new ExtendedSqsClient(sqs,
+                new ExtendedClientConfiguration().withLargePayloadSupportEnabled(s3, S3_BUCKET_NAME));
+
+        sendMessageRequest = SendMessageRequest.builder()
+                .queueUrl(queueUrl)
+                .messageBody(payload(payloadSize))
+                .messageAttributes(attributes(attributeCount))
+                .build();
+
+        // a visibility timeout of 0 leaves the seeded message visible, so every
+        // receive returns it.
+        extendedSqsClient.sendMessage(sendMessageRequest);
+        receiveMessageRequest = ReceiveMessageRequest.builder()
+                .queueUrl(queueUrl)
+                .maxNumberOfMessages(1)
+                .visibilityTimeout(0)
+                .messageAttributeNames("All")
+                .build();
+
+        // deleting an unknown receipt handle or S3 object succeeds, so the same
+        // batch can be deleted on every invocation.
+        List<DeleteMessageBatchRequestEntry> entries = new ArrayList<>(DELETE_BATCH_SIZE);
+        for (int i = 0; i < DELETE_BATCH_SIZE; i++) {
+            entries.add(DeleteMessageBatchRequestEntry.builder()
+                    .id(Integer.toString(i))
+                    .receiptHandle(S3ReceiptHandle.encode("receipt-handle-" + i, S3_BUCKET_NAME, "key-" + i))
+                    .build());
+        }
+        deleteMessageBatchRequest = DeleteMessageBatchRequest.builder()
+                .queueUrl(queueUrl)
+                .entries(entries)
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        extendedSqsClient.close();
+    }
+
+    @Benchmark
+    public SendMessageResponse sendMessage() {
+        SendMessageResponse response = extendedSqsClient.sendMessage(sendMessageRequest);
+        // keep the stores from growing with every invocation; the seeded
+        // message is not needed by this benchmark.
+        sqs.purgeQueue(b -> b.queueUrl(queueUrl));
+        s3.clear();
+        return response;
+    }
+
+    @Benchmark
+    public ReceiveMessageResponse receiveMessage() {
+        return extendedSqsClient.receiveMessage(receiveMessageRequest);
+    }
+
+    @Benchmark
+    public DeleteMessageBatchResponse deleteMessageBatch() {
+        return extendedSqsClient.deleteMessageBatch(deleteMessageBatchRequest);
+    }
+
+    static String payload(int size) {
+        char[] payload = new char[size];
+        Arrays.fill(payload, 'x');
+        return new String(payload);
+    }
+
+    static Map<String, MessageAttributeValue> attributes(int count) {
+        Map<String, MessageAttributeValue> attributes = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            attributes.put("attribute-" + i, MessageAttributeValue.builder()
+                    .dataType("String")
+                    .stringValue("value-" + i)
+                    .build());
+        }
+        return attributes;
+    }
+}
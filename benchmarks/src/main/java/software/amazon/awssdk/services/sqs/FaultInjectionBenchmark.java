@@ -0,0 +1,144 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package software.amazon.awssdk.services.sqs;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.services.sqs.model.ReceiveMessageRequest;
+import software.amazon.awssdk.services.sqs.model.ReceiveMessageResponse;
+import software.amazon.awssdk.services.sqs.model.SendMessageRequest;
+import software.amazon.awssdk.services.sqs.model.SendMessageResponse;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the latency distribution of sending and receiving messages stored
+ * in S3 when S3 has a long latency tail and throttles some uploads, with many
+ * threads sharing one client. Requests which fail are counted as failures
+ * rather than ending the run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(16)
+@Fork(1)
+public class FaultInjectionBenchmark {
+
+    private static final String S3_BUCKET_NAME = "benchmark-bucket";
+    private static final Duration S3_MEDIAN_LATENCY = Duration.ofMillis(20);
+
+    @Param({"1048576"})
+    public int payloadSize;
+
+    @Param({"200", "2000"})
+    public long s3P99LatencyMillis;
+
+    @Param({"0", "0.01"})
+    public double putObjectThrottlingRate;
+
+    private InMemorySqsClient sqs;
+    private InMemoryS3Client s3;
+    private ExtendedSqsClient extendedSqsClient;
+    private String queueUrl;
+    private SendMessageRequest sendMessageRequest;
+    private ReceiveMessageRequest receiveMessageRequest;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Failures {
+        public long failures;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            failures = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        sqs = new InMemorySqsClient();
+        s3 = new InMemoryS3Client();
+        s3.createBucket(b -> b.bucket(S3_BUCKET_NAME));
+        queueUrl = sqs.createQueue(b -> b.queueName("benchmark")).queueUrl();
+
+        FaultInjector s3Faults = new FaultInjector()
+                .withLatency(LatencyDistribution.logNormal(S3_MEDIAN_LATENCY, Duration.ofMillis(s3P99LatencyMillis)))
+                .withThrottlingRate("PutObject", putObjectThrottlingRate);
+        extendedSqsClient = new ExtendedSqsClient(sqs, new ExtendedClientConfiguration()
+                .withLargePayloadSupportEnabled(new FaultInjectingS3Client(s3, s3Faults), S3_BUCKET_NAME));
+
+        sendMessageRequest = SendMessageRequest.builder()
+                .queueUrl(queueUrl)
+                .messageBody(ExtendedSqsClientBenchmark.payload(payloadSize))
+                .build();
+        // seeded with a plain client, so that the seed cannot be throttled.
+        try (ExtendedSqsClient seedingClient = new ExtendedSqsClient(sqs,
+                new ExtendedClientConfiguration().withLargePayloadSupportEnabled(s3, S3_BUCKET_NAME))) {
+            seedingClient.sendMessage(sendMessageRequest);
+        }
+        receiveMessageRequest = ReceiveMessageRequest.builder()
+                .queueUrl(queueUrl)
+                .maxNumberOfMessages(1)
+                .visibilityTimeout(0)
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        extendedSqsClient.close();
+    }
+
+    @Benchmark
+    public SendMessageResponse sendMessage(Failures failures) {
+        try {
+            return extendedSqsClient.sendMessage(sendMessageRequest);
+        } catch (SdkException e) {
+            failures.failures++;
+            return null;
+        } finally {
+            // keep the stores from growing with every invocation.
+            sqs.purgeQueue(b -> b.queueUrl(queueUrl));
+            s3.clear();
+        }
+    }
+
+    @Benchmark
+    public ReceiveMessageResponse receiveMessage(Failures failures) {
+        try {
+            return extendedSqsClient.receiveMessage(receiveMessageRequest);
+        } catch (SdkException e) {
+            failures.failures++;
+            return null;
+        }
+    }
+}
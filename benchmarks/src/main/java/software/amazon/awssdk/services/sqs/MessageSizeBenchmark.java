@@ -0,0 +1,77 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package software.amazon.awssdk.services.sqs;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import software.amazon.awssdk.services.sqs.model.MessageAttributeValue;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the message size checks made on every send, for ASCII and for
+ * multi-byte message bodies.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MessageSizeBenchmark {
+
+    @Param({"1024", "65536", "262144", "1048576", "10485760"})
+    public int payloadSize;
+
+    @Param({"0", "5", "9"})
+    public int attributeCount;
+
+    @Param({"ascii", "multibyte"})
+    public String encoding;
+
+    private String messageBody;
+    private Map<String, MessageAttributeValue> messageAttributes;
+
+    @Setup
+    public void setUp() {
+        char[] body = new char[payloadSize];
+        Arrays.fill(body, "ascii".equals(encoding) ? 'x' : '\u00e9');
+        messageBody = new String(body);
+        messageAttributes = ExtendedSqsClientBenchmark.attributes(attributeCount);
+    }
+
+    @Benchmark
+    public long getStringSizeInBytes() {
+        return ExtendedClientUtils.getStringSizeInBytes(messageBody);
+    }
+
+    @Benchmark
+    public boolean isLarge() {
+        return ExtendedClientUtils.isLarge(messageBody, messageAttributes,
+                SQSExtendedClientConstants.DEFAULT_MESSAGE_SIZE_THRESHOLD);
+    }
+}
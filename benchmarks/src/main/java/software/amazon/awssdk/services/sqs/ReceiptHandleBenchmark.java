@@ -0,0 +1,85 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package software.amazon.awssdk.services.sqs;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures encoding and parsing the receipt handles of messages stored in S3,
+ * in both the length-prefixed format and the legacy marker format, and the
+ * check made on the receipt handle of a message which is not.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReceiptHandleBenchmark {
+
+    private static final String S3_BUCKET_NAME = "benchmark-bucket";
+
+    private String receiptHandle;
+    private String s3Key;
+    private String s3ReceiptHandle;
+    private String legacyS3ReceiptHandle;
+
+    @Setup
+    public void setUp() {
+        // Amazon SQS receipt handles are opaque strings of a few hundred characters.
+        char[] handle = new char[400];
+        Arrays.fill(handle, 'A');
+        receiptHandle = new String(handle);
+        s3Key = UUID.randomUUID().toString();
+        s3ReceiptHandle = S3ReceiptHandle.encode(receiptHandle, S3_BUCKET_NAME, s3Key);
+        legacyS3ReceiptHandle = SQSExtendedClientConstants.S3_BUCKET_NAME_MARKER + S3_BUCKET_NAME
+                + SQSExtendedClientConstants.S3_BUCKET_NAME_MARKER + SQSExtendedClientConstants.S3_KEY_MARKER
+                + s3Key + SQSExtendedClientConstants.S3_KEY_MARKER + receiptHandle;
+    }
+
+    @Benchmark
+    public String encode() {
+        return S3ReceiptHandle.encode(receiptHandle, S3_BUCKET_NAME, s3Key);
+    }
+
+    @Benchmark
+    public S3ReceiptHandle decode() {
+        return S3ReceiptHandle.decode(s3ReceiptHandle);
+    }
+
+    @Benchmark
+    public S3ReceiptHandle decodeLegacy() {
+        return S3ReceiptHandle.decode(legacyS3ReceiptHandle);
+    }
+
+    @Benchmark
+    public S3ReceiptHandle decodePlain() {
+        return S3ReceiptHandle.decode(receiptHandle);
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package software.amazon.awssdk.services.sqs;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares encoding and decoding the S3 pointer stored in a message body with
+ * {@link MessageS3PointerCodec} against the Jackson mapper it replaced.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class S3PointerCodecBenchmark {
+
+    private MessageS3Pointer s3Pointer;
+    private String json;
+    private JsonDataConverter jsonDataConverter;
+
+    @Setup
+    public void setUp() {
+        s3Pointer = new MessageS3Pointer("benchmark-bucket", UUID.randomUUID().toString());
+        json = MessageS3PointerCodec.encode(s3Pointer);
+        jsonDataConverter = new JsonDataConverter();
+    }
+
+    @Benchmark
+    public String encode() {
+        return MessageS3PointerCodec.encode(s3Pointer);
+    }
+
+    @Benchmark
+    public MessageS3Pointer decode() {
+        return MessageS3PointerCodec.decode(json);
+    }
+
+    @Benchmark
+    public String encodeWithJackson() throws Exception {
+        return jsonDataConverter.serializeToJson(s3Pointer);
+    }
+
+    @Benchmark
+    public MessageS3Pointer decodeWithJackson() throws Exception {
+        return jsonDataConverter.deserializeFromJson(json, MessageS3Pointer.class);
+    }
+}
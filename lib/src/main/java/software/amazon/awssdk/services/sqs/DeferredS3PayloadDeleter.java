@@ -0,0 +1,295 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package software.amazon.awssdk.services.sqs;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.Delete;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsResponse;
+import software.amazon.awssdk.services.s3.model.ObjectIdentifier;
+import software.amazon.awssdk.services.s3.model.S3Error;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Deletes message payloads from Amazon S3 on a background thread, so that
+ * acknowledging a message does not wait for S3. Queued deletions are coalesced
+ * into DeleteObjects calls of up to 1000 keys per bucket, flushed once that
+ * many keys are queued or the flush interval has passed. Failed deletions are
+ * retried a few times, each time after a longer delay, before they are
+ * counted as failed.
+ *
+ * <p>
+ * A payload whose deletion ultimately fails is left behind in S3 while its
+ * message is gone from the queue; {@link #getFailedDeletions()} counts them.
+ * </p>
+ */
+class DeferredS3PayloadDeleter {
+    private static final Logger LOG = LoggerFactory.getLogger(DeferredS3PayloadDeleter.class);
+
+    private final S3Client s3;
+    private final BlockingQueue<PendingDeletion> queue;
+    private final DelayQueue<PendingDeletion> retries = new DelayQueue<>();
+    private final long flushIntervalMillis;
+    private final MetricsPublisher metricsPublisher;
+    private final Thread worker;
+    private final AtomicLong pendingDeletions = new AtomicLong();
+    private final AtomicLong failedDeletions = new AtomicLong();
+    private volatile boolean closed = false;
+
+    DeferredS3PayloadDeleter(S3Client s3, int queueCapacity, long flushIntervalMillis) {
+        this(s3, queueCapacity, flushIntervalMillis, MetricsPublisher.NO_OP);
+    }
+
+    DeferredS3PayloadDeleter(S3Client s3, int queueCapacity, long flushIntervalMillis,
+            MetricsPublisher metricsPublisher) {
+        this.s3 = s3;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.metricsPublisher = metricsPublisher;
+        this.worker = new Thread(this::run, "sqs-extended-client-s3-deleter");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * Queues the deletion of a payload.
+     *
+     * @return false if the deleter is closed or its queue is full, in which
+     *         case the caller has to delete the payload itself.
+     */
+    boolean enqueue(String s3BucketName, String s3Key) {
+        if (closed) {
+            return false;
+        }
+        pendingDeletions.incrementAndGet();
+        PendingDeletion deletion = new PendingDeletion(s3BucketName, s3Key);
+        if (!queue.offer(deletion)) {
+            pendingDeletions.decrementAndGet();
+            return false;
+        }
+        // the worker may have drained the queue for the last time between
+        // the check above and the offer.
+        if (closed && queue.remove(deletion)) {
+            pendingDeletions.decrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return The number of deletions queued or in progress.
+     */
+    long getPendingDeletions() {
+        return pendingDeletions.get();
+    }
+
+    /**
+     * @return The number of payloads which could not be deleted after all
+     *         retries.
+     */
+    long getFailedDeletions() {
+        return failedDeletions.get();
+    }
+
+    /**
+     * Stops accepting deletions and waits for the queued ones to be flushed.
+     */
+    void close() {
+        // the worker notices within one flush interval, without interrupting
+        // an S3 call which might be in progress.
+        closed = true;
+        try {
+            worker.join(SQSExtendedClientConstants.DEFERRED_DELETION_SHUTDOWN_TIMEOUT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (pendingDeletions.get() > 0) {
+            LOG.warn("Closed with " + pendingDeletions.get() + " S3 payload deletions not flushed.");
+        }
+    }
+
+    private void run() {
+        List<PendingDeletion> batch = new ArrayList<>(SQSExtendedClientConstants.MAX_DELETE_OBJECTS_KEYS);
+        while (!closed || !queue.isEmpty() || !retries.isEmpty()) {
+            try {
+                collect(batch);
+            } catch (InterruptedException e) {
+                // flush what has been collected and keep draining.
+            }
+            try {
+                if (!batch.isEmpty()) {
+                    flush(batch);
+                }
+            } catch (RuntimeException e) {
+                // deleteObjects settles every deletion before anything else
+                // can throw, so only the worker has to be kept alive here.
+                LOG.error("Unexpected failure while deleting S3 objects which contain SQS message payloads.", e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void collect(List<PendingDeletion> batch) throws InterruptedException {
+        // only retries whose delay has passed are drained.
+        retries.drainTo(batch, SQSExtendedClientConstants.MAX_DELETE_OBJECTS_KEYS);
+        if (closed) {
+            queue.drainTo(batch, SQSExtendedClientConstants.MAX_DELETE_OBJECTS_KEYS - batch.size());
+            if (batch.isEmpty()) {
+                PendingDeletion retry = retries.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+                if (retry != null) {
+                    batch.add(retry);
+                }
+            }
+            return;
+        }
+
+        if (batch.isEmpty()) {
+            PendingDeletion first = queue.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+            if (first == null) {
+                return;
+            }
+            batch.add(first);
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        while (batch.size() < SQSExtendedClientConstants.MAX_DELETE_OBJECTS_KEYS) {
+            queue.drainTo(batch, SQSExtendedClientConstants.MAX_DELETE_OBJECTS_KEYS - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= SQSExtendedClientConstants.MAX_DELETE_OBJECTS_KEYS || remaining <= 0 || closed) {
+                return;
+            }
+            PendingDeletion next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    private void flush(List<PendingDeletion> batch) {
+        Map<String, List<PendingDeletion>> deletionsByBucket = new LinkedHashMap<>();
+        for (PendingDeletion deletion : batch) {
+            deletionsByBucket.computeIfAbsent(deletion.s3BucketName, bucket -> new ArrayList<>()).add(deletion);
+        }
+
+        for (Map.Entry<String, List<PendingDeletion>> bucketDeletions : deletionsByBucket.entrySet()) {
+            deleteObjects(bucketDeletions.getKey(), bucketDeletions.getValue());
+        }
+    }
+
+    private void deleteObjects(String s3BucketName, List<PendingDeletion> deletions) {
+        Map<String, PendingDeletion> deletionsByKey = new HashMap<>();
+        List<ObjectIdentifier> objectIdentifiers = new ArrayList<>(deletions.size());
+        for (PendingDeletion deletion : deletions) {
+            if (deletionsByKey.put(deletion.s3Key, deletion) == null) {
+                objectIdentifiers.add(ObjectIdentifier.builder().key(deletion.s3Key).build());
+            } else {
+                // the same payload was queued twice, one deletion covers both.
+                pendingDeletions.decrementAndGet();
+            }
+        }
+
+        DeleteObjectsRequest deleteObjectsRequest = DeleteObjectsRequest.builder()
+                .bucket(s3BucketName)
+                .delete(Delete.builder().objects(objectIdentifiers).quiet(true).build())
+                .build();
+        String firstS3Key = objectIdentifiers.get(0).key();
+        PayloadDeleteEvent event = PayloadEvents.beginDelete();
+        long start = System.nanoTime();
+        long latencyNanos;
+        try {
+            DeleteObjectsResponse deleteObjectsResponse = s3.deleteObjects(deleteObjectsRequest);
+            latencyNanos = System.nanoTime() - start;
+            for (S3Error error : deleteObjectsResponse.errors()) {
+                PendingDeletion deletion = deletionsByKey.remove(error.key());
+                if (deletion != null) {
+                    retryOrFail(deletion, error.code() + ": " + error.message());
+                }
+            }
+        } catch (RuntimeException e) {
+            // not only SdkException: anything else escaping here would leave
+            // the deletions of this batch neither done nor retried.
+            for (PendingDeletion deletion : deletionsByKey.values()) {
+                retryOrFail(deletion, e.toString());
+            }
+            metricsPublisher.recordS3Delete(System.nanoTime() - start, 0, false);
+            PayloadEvents.commitDelete(event, null, s3BucketName, firstS3Key, 0, false);
+            return;
+        }
+        pendingDeletions.addAndGet(-deletionsByKey.size());
+
+        metricsPublisher.recordS3Delete(latencyNanos, deletionsByKey.size(),
+                deletionsByKey.size() == objectIdentifiers.size());
+        PayloadEvents.commitDelete(event, null, s3BucketName, firstS3Key, deletionsByKey.size(),
+                deletionsByKey.size() == objectIdentifiers.size());
+        LOG.info("S3 objects deleted, Bucket name: " + s3BucketName + ", Number of objects: " + deletionsByKey.size() + ".");
+    }
+
+    private void retryOrFail(PendingDeletion deletion, String reason) {
+        deletion.attempts++;
+        if (deletion.attempts < SQSExtendedClientConstants.DEFERRED_DELETION_MAX_ATTEMPTS) {
+            // back off exponentially, so a throttled bucket is not retried
+            // within the same few milliseconds.
+            deletion.retryAtNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(
+                    SQSExtendedClientConstants.DEFERRED_DELETION_RETRY_BACKOFF_MILLIS << (deletion.attempts - 1));
+            retries.offer(deletion);
+            LOG.warn("Failed to delete the S3 object which contains the SQS message payload, will retry. "
+                    + reason + " Bucket name: " + deletion.s3BucketName + ", Object key: " + deletion.s3Key + ".");
+            return;
+        }
+
+        pendingDeletions.decrementAndGet();
+        failedDeletions.incrementAndGet();
+        LOG.error("Failed to delete the S3 object which contains the SQS message payload. " + reason
+                + " Bucket name: " + deletion.s3BucketName + ", Object key: " + deletion.s3Key + ".");
+    }
+
+    private static class PendingDeletion implements Delayed {
+        private final String s3BucketName;
+        private final String s3Key;
+        private int attempts;
+        private long retryAtNanos;
+
+        PendingDeletion(String s3BucketName, String s3Key) {
+            this.s3BucketName = s3BucketName;
+            this.s3Key = s3Key;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(retryAtNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(retryAtNanos, ((PendingDeletion) other).retryAtNanos);
+        }
+    }
+}
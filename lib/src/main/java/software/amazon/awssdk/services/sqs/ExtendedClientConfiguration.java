@@ -19,8 +19,16 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import software.amazon.awssdk.annotations.NotThreadSafe;
 import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
 import software.amazon.awssdk.services.s3.S3Client;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+
 /**
  * Amazon SQS extended client configuration options such as Amazon S3 client,
  * bucket name, and message size threshold for large-payload messages.
@@ -30,22 +38,77 @@ public class ExtendedClientConfiguration {
 	private static final Logger LOG = LoggerFactory.getLogger(ExtendedClientConfiguration.class);
 
 	private S3Client s3;
+	private S3AsyncClient s3Async;
 	private String s3BucketName;
 	private boolean largePayloadSupport = false;
 	private boolean alwaysThroughS3 = false;
 	private int messageSizeThreshold = SQSExtendedClientConstants.DEFAULT_MESSAGE_SIZE_THRESHOLD;
+	private int s3MaxConcurrency = SQSExtendedClientConstants.DEFAULT_S3_MAX_CONCURRENCY;
+	private ExecutorService s3ExecutorService;
+	private boolean deferredPayloadDeletion = false;
+	private int deferredPayloadDeletionQueueCapacity = SQSExtendedClientConstants.DEFAULT_DEFERRED_DELETION_QUEUE_CAPACITY;
+	private long deferredPayloadDeletionFlushIntervalMillis = SQSExtendedClientConstants.DEFAULT_DEFERRED_DELETION_FLUSH_INTERVAL_MILLIS;
+	private PayloadCodec payloadCodec;
+	private double maxPayloadCompressionRatio = SQSExtendedClientConstants.DEFAULT_MAX_PAYLOAD_COMPRESSION_RATIO;
+	private long multipartUploadThreshold = SQSExtendedClientConstants.DEFAULT_MULTIPART_UPLOAD_THRESHOLD;
+	private long multipartUploadPartSize = SQSExtendedClientConstants.DEFAULT_MULTIPART_UPLOAD_PART_SIZE;
+	private int multipartUploadConcurrency = SQSExtendedClientConstants.DEFAULT_MULTIPART_UPLOAD_CONCURRENCY;
+	private long rangedDownloadThreshold = SQSExtendedClientConstants.DEFAULT_RANGED_DOWNLOAD_THRESHOLD;
+	private long rangedDownloadPartSize = SQSExtendedClientConstants.DEFAULT_RANGED_DOWNLOAD_PART_SIZE;
+	private int rangedDownloadConcurrency = SQSExtendedClientConstants.DEFAULT_RANGED_DOWNLOAD_CONCURRENCY;
+	private long payloadCacheMaxBytes = 0;
+	private PayloadKeyStrategy payloadKeyStrategy = PayloadKeyStrategy.RANDOM_UUID;
+	private List<PayloadBucket> payloadBuckets = Collections.emptyList();
+	private boolean contentAddressedPayloadKeys = false;
+	private int knownPayloadKeysCacheSize = SQSExtendedClientConstants.DEFAULT_KNOWN_PAYLOAD_KEYS_CACHE_SIZE;
+	private long payloadReuseMaxAgeMillis = SQSExtendedClientConstants.DEFAULT_PAYLOAD_REUSE_MAX_AGE_MILLIS;
+	private boolean lifecyclePayloadExpiry = false;
+	private String lifecyclePayloadKeyPrefix = SQSExtendedClientConstants.DEFAULT_LIFECYCLE_PAYLOAD_KEY_PREFIX;
+	private String payloadTagging;
+	private MetricsPublisher metricsPublisher = MetricsPublisher.NO_OP;
+	private boolean jmxEnabled = false;
+	private String jmxName;
+	private boolean receiveLatencyTracking = false;
 
 	public ExtendedClientConfiguration() {
 		s3 = null;
+		s3Async = null;
 		s3BucketName = null;
 	}
 
 	public ExtendedClientConfiguration(ExtendedClientConfiguration other) {
 		this.s3 = other.s3;
+		this.s3Async = other.s3Async;
 		this.s3BucketName = other.s3BucketName;
 		this.largePayloadSupport = other.largePayloadSupport;
 		this.alwaysThroughS3 = other.alwaysThroughS3;
 		this.messageSizeThreshold = other.messageSizeThreshold;
+		this.s3MaxConcurrency = other.s3MaxConcurrency;
+		this.s3ExecutorService = other.s3ExecutorService;
+		this.deferredPayloadDeletion = other.deferredPayloadDeletion;
+		this.deferredPayloadDeletionQueueCapacity = other.deferredPayloadDeletionQueueCapacity;
+		this.deferredPayloadDeletionFlushIntervalMillis = other.deferredPayloadDeletionFlushIntervalMillis;
+		this.payloadCodec = other.payloadCodec;
+		this.maxPayloadCompressionRatio = other.maxPayloadCompressionRatio;
+		this.multipartUploadThreshold = other.multipartUploadThreshold;
+		this.multipartUploadPartSize = other.multipartUploadPartSize;
+		this.multipartUploadConcurrency = other.multipartUploadConcurrency;
+		this.rangedDownloadThreshold = other.rangedDownloadThreshold;
+		this.rangedDownloadPartSize = other.rangedDownloadPartSize;
+		this.rangedDownloadConcurrency = other.rangedDownloadConcurrency;
+		this.payloadCacheMaxBytes = other.payloadCacheMaxBytes;
+		this.payloadKeyStrategy = other.payloadKeyStrategy;
+		this.payloadBuckets = other.payloadBuckets;
+		this.contentAddressedPayloadKeys = other.contentAddressedPayloadKeys;
+		this.knownPayloadKeysCacheSize = other.knownPayloadKeysCacheSize;
+		this.payloadReuseMaxAgeMillis = other.payloadReuseMaxAgeMillis;
+		this.lifecyclePayloadExpiry = other.lifecyclePayloadExpiry;
+		this.lifecyclePayloadKeyPrefix = other.lifecyclePayloadKeyPrefix;
+		this.payloadTagging = other.payloadTagging;
+		this.metricsPublisher = other.metricsPublisher;
+		this.jmxEnabled = other.jmxEnabled;
+		this.jmxName = other.jmxName;
+		this.receiveLatencyTracking = other.receiveLatencyTracking;
 	}
 
 	/**
@@ -91,11 +154,57 @@ public class ExtendedClientConfiguration {
 		return this;
 	}
 
+	/**
+	 * Enables support for large-payload messages for use with
+	 * {@link ExtendedSqsAsyncClient}.
+	 *
+	 * @param s3Async
+	 *            Amazon S3 async client which is going to be used for storing
+	 *            large-payload messages.
+	 * @param s3BucketName
+	 *            Name of the bucket which is going to be used for storing
+	 *            large-payload messages. The bucket must be already created and
+	 *            configured in s3.
+	 */
+	public void setLargePayloadSupportEnabled(S3AsyncClient s3Async, String s3BucketName) {
+		if (s3Async == null || s3BucketName == null) {
+			String errorMessage = "S3 async client and/or S3 bucket name cannot be null.";
+			LOG.error(errorMessage);
+			throw SdkClientException.create(errorMessage);
+		}
+		if (isLargePayloadSupportEnabled()) {
+			LOG.warn("Large-payload support is already enabled. Overwriting S3AsyncClient and S3BucketName.");
+		}
+		this.s3Async = s3Async;
+		this.s3BucketName = s3BucketName;
+		largePayloadSupport = true;
+		LOG.info("Large-payload support enabled.");
+	}
+
+	/**
+	 * Enables support for large-payload messages for use with
+	 * {@link ExtendedSqsAsyncClient}.
+	 *
+	 * @param s3Async
+	 *            Amazon S3 async client which is going to be used for storing
+	 *            large-payload messages.
+	 * @param s3BucketName
+	 *            Name of the bucket which is going to be used for storing
+	 *            large-payload messages. The bucket must be already created and
+	 *            configured in s3.
+	 * @return the updated ExtendedClientConfiguration object.
+	 */
+	public ExtendedClientConfiguration withLargePayloadSupportEnabled(S3AsyncClient s3Async, String s3BucketName) {
+		setLargePayloadSupportEnabled(s3Async, s3BucketName);
+		return this;
+	}
+
 	/**
 	 * Disables support for large-payload messages.
 	 */
 	public void setLargePayloadSupportDisabled() {
 		s3 = null;
+		s3Async = null;
 		s3BucketName = null;
 		largePayloadSupport = false;
 		LOG.info("Large-payload support disabled.");
@@ -129,6 +238,16 @@ public class ExtendedClientConfiguration {
 		return s3;
 	}
 
+	/**
+	 * Gets the Amazon S3 async client which is being used for storing
+	 * large-payload messages by {@link ExtendedSqsAsyncClient}.
+	 *
+	 * @return Reference to the Amazon S3 async client which is being used.
+	 */
+	public S3AsyncClient getAmazonS3AsyncClient() {
+		return s3Async;
+	}
+
 	/**
 	 * Gets the name of the S3 bucket which is being used for storing
 	 * large-payload messages.
@@ -212,4 +331,1060 @@ public class ExtendedClientConfiguration {
 	public boolean isAlwaysThroughS3() {
 		return alwaysThroughS3;
 	}
+
+	/**
+	 * Sets the maximum number of S3 requests {@link ExtendedSqsClient} runs
+	 * concurrently for a single call, e.g. when downloading the payloads of
+	 * all messages of a receive or uploading the large entries of a batch.
+	 *
+	 * @param s3MaxConcurrency
+	 *            Maximum number of concurrent S3 requests per call. A value of
+	 *            1 runs all S3 requests on the calling thread. Default: 10.
+	 */
+	public void setS3MaxConcurrency(int s3MaxConcurrency) {
+		if (s3MaxConcurrency < 1) {
+			String errorMessage = "S3 max concurrency must be at least 1.";
+			LOG.error(errorMessage);
+			throw SdkClientException.create(errorMessage);
+		}
+		this.s3MaxConcurrency = s3MaxConcurrency;
+	}
+
+	/**
+	 * Sets the maximum number of S3 requests {@link ExtendedSqsClient} runs
+	 * concurrently for a single call.
+	 *
+	 * @param s3MaxConcurrency
+	 *            Maximum number of concurrent S3 requests per call. A value of
+	 *            1 runs all S3 requests on the calling thread. Default: 10.
+	 * @return the updated ExtendedClientConfiguration object.
+	 */
+	public ExtendedClientConfiguration withS3MaxConcurrency(int s3MaxConcurrency) {
+		setS3MaxConcurrency(s3MaxConcurrency);
+		return this;
+	}
+
+	/**
+	 * Gets the maximum number of S3 requests run concurrently for a single
+	 * call.
+	 *
+	 * @return Maximum number of concurrent S3 requests per call. Default: 10.
+	 */
+	public int getS3MaxConcurrency() {
+		return s3MaxConcurrency;
+	}
+
+	/**
+	 * Sets the executor on which {@link ExtendedSqsClient} runs concurrent S3
+	 * requests. The executor is not shut down when the client is closed.
+	 *
+	 * @param s3ExecutorService
+	 *            Executor for concurrent S3 requests. Default: null, in which
+	 *            case each client creates its own pool of daemon threads sized
+	 *            by the S3 max concurrency.
+	 */
+	public void setS3ExecutorService(ExecutorService s3ExecutorService) {
+		this.s3ExecutorService = s3ExecutorService;
+	}
+
+	/**
+	 * Sets the executor on which {@link ExtendedSqsClient} runs concurrent S3
+	 * requests. The executor is not shut down when the client is closed.
+	 *
+	 * @param s3ExecutorService
+	 *            Executor for concurrent S3 requests. Default: null.
+	 * @return the updated ExtendedClientConfiguration object.
+	 */
+	public ExtendedClientConfiguration withS3ExecutorService(ExecutorService s3ExecutorService) {
+		setS3ExecutorService(s3ExecutorService);
+		return this;
+	}
+
+	/**
+	 * Gets the executor on which concurrent S3 requests are run.
+	 *
+	 * @return The configured executor, or null if each client creates its
+	 *         own.
+	 */
+	public ExecutorService getS3ExecutorService() {
+		return s3ExecutorService;
+	}
+
+	/**
+	 * Sets whether {@link ExtendedSqsClient} deletes message payloads from
+	 * Amazon S3 on a background thread instead of before deleting the message
+	 * from Amazon SQS. Queued deletions are coalesced into DeleteObjects calls
+	 * and flushed when the client is closed. A payload whose deletion fails
+	 * after retries is left behind in S3.
+	 *
+	 * @param deferredPayloadDeletion
+	 *            Whether or not payloads are deleted in the background.
+	 *            Default: false
+	 */
+	public void setDeferredPayloadDeletionEnabled(boolean deferredPayloadDeletion) {
+		this.deferredPayloadDeletion = deferredPayloadDeletion;
+	}
+
+	/**
+	 * Sets whether {@link ExtendedSqsClient} deletes message payloads from
+	 * Amazon S3 on a background thread.
+	 *
+	 * @param deferredPayloadDeletion
+	 *            Whether or not payloads are deleted in the background.
+	 *            Default: false
+	 * @return the updated ExtendedClientConfiguration object.
+	 */
+	public ExtendedClientConfiguration withDeferredPayloadDeletionEnabled(boolean deferredPayloadDeletion) {
+		setDeferredPayloadDeletionEnabled(deferredPayloadDeletion);
+		return this;
+	}
+
+	/**
+	 * Checks whether message payloads are deleted from Amazon S3 on a
+	 * background thread.
+	 *
+	 * @return True if payloads are deleted in the background. Default: false
+	 */
+	public boolean isDeferredPayloadDeletionEnabled() {
+		return deferredPayloadDeletion;
+	}
+
+	/**
+	 * Sets the number of payload deletions which can be queued for the
+	 * background thread. Once the queue is full, payloads are deleted
+	 * synchronously again.
+	 *
+	 * @param deferredPayloadDeletionQueueCapacity
+	 *            Capacity of the deletion queue. Default: 10000.
+	 */
+	public void setDeferredPayloadDeletionQueueCapacity(int deferredPayloadDeletionQueueCapacity) {
+		if (deferredPayloadDeletionQueueCapacity < 1) {
+			String errorMessage = "Deferred payload deletion queue capacity must be at least 1.";
+			LOG.error(errorMessage);
+			throw SdkClientException.create(errorMessage);
+		}
+		this.deferredPayloadDeletionQueueCapacity = deferredPayloadDeletionQueueCapacity;
+	}
+
+	/**
+	 * Sets the number of payload deletions which can be queued for the
+	 * background thread.
+	 *
+	 * @param deferredPayloadDeletionQueueCapacity
+	 *            Capacity of the deletion queue. Default: 10000.
+	 * @return the updated ExtendedClientConfiguration object.
+	 */
+	public ExtendedClientConfiguration withDeferredPayloadDeletionQueueCapacity(int deferredPayloadDeletionQueueCapacity) {
+		setDeferredPayloadDeletionQueueCapacity(deferredPayloadDeletionQueueCapacity);
+		return this;
+	}
+
+	/**
+	 * Gets the number of payload deletions which can be queued for the
+	 * background thread.
+	 *
+	 * @return Capacity of the deletion queue. Default: 10000.
+	 */
+	public int getDeferredPayloadDeletionQueueCapacity() {
+		return deferredPayloadDeletionQueueCapacity;
+	}
+
+	/**
+	 * Sets the longest time a queued payload deletion waits for more
+	 * deletions to be coalesced with before it is sent to Amazon S3.
+	 *
+	 * @param deferredPayloadDeletionFlushIntervalMillis
+	 *            Flush interval in milliseconds. Default: 1000.
+	 */
+	public void setDeferredPayloadDeletionFlushIntervalMillis(long deferredPayloadDeletionFlushIntervalMillis) {
+		if (deferredPayloadDeletionFlushIntervalMillis < 1) {
+			String errorMessage = "Deferred payload deletion flush interval must be at least 1 millisecond.";
+			LOG.error(errorMessage);
+			throw SdkClientException.create(errorMessage);
+		}
+		this.deferredPayloadDeletionFlushIntervalMillis = deferredPayloadDeletionFlushIntervalMillis;
+	}
+
+	/**
+	 * Sets the longest time a queued payload deletion waits for more
+	 * deletions to be coalesced with before it is sent to Amazon S3.
+	 *
+	 * @param deferredPayloadDeletionFlushIntervalMillis
+	 *            Flush interval in milliseconds. Default: 1000.
+	 * @return the updated ExtendedClientConfiguration object.
+	 */
+	public ExtendedClientConfiguration withDeferredPayloadDeletionFlushIntervalMillis(long deferredPayloadDeletionFlushIntervalMillis) {
+		setDeferredPayloadDeletionFlushIntervalMillis(deferredPayloadDeletionFlushIntervalMillis);
+		return this;
+	}
+
+	/**
+	 * Gets the longest time a queued payload deletion waits before it is
+	 * sent to Amazon S3.
+	 *
+	 * @return Flush interval in milliseconds. Default: 1000.
+	 */
+	public long getDeferredPayloadDeletionFlushIntervalMillis() {
+		return deferredPayloadDeletionFlushIntervalMillis;
+	}
+
+	/**
+	 * Sets the codec used by {@link ExtendedSqsClient} to compress message
+	 * payloads which would otherwise be stored in Amazon S3. A compressed
+	 * payload which fits within the message size threshold is sent inline,
+	 * Base64 encoded; otherwise the compressed payload is stored in S3. The
+	 * codec name is recorded in a reserved message attribute, and payloads are
+	 * decompressed transparently when received.
+	 *
+	 * @param payloadCodec
+	 *            The codec used to compress payloads, or null to send them
+	 *            uncompressed. Default: null.
+	 */
+	public void setPayloadCodec(PayloadCodec payloadCodec) {
+		this.payloadCodec = payloadCodec;
+	}
+
+	/**
+	 * Sets the codec used to compress message payloads which would otherwise
+	 * be stored in Amazon S3.
+	 *
+	 * @param payloadCodec
+	 *            The codec used to compress payloads, or null to send them
+	 *            uncompressed. Default: null.
+	 * @return the updated ExtendedClientConfiguration object.
+	 */
+	public ExtendedClientConfiguration withPayloadCodec(PayloadCodec payloadCodec) {
+		setPayloadCodec(payloadCodec);
+		return this;
+	}
+
+	/**
+	 * Gets the codec used to compress message payloads.
+	 *
+	 * @return The codec used to compress payloads, or null if payloads are
+	 *         sent uncompressed. Default: null.
+	 */
+	public PayloadCodec getPayloadCodec() {
+		return payloadCodec;
+	}
+
+	/**
+	 * Sets the largest ratio of compressed to original payload size for which
+	 * the compressed payload is sent. Payloads which compress worse are sent
+	 * uncompressed.
+	 *
+	 * @param maxPayloadCompressionRatio
+	 *            Ratio greater than 0 and at most 1. Default: 0.8.
+	 */
+	public void setMaxPayloadCompressionRatio(double maxPayloadCompressionRatio) {
+		if (!(maxPayloadCompressionRatio > 0 && maxPayloadCompressionRatio <= 1)) {
+			String errorMessage = "Max payload compression ratio must be greater than 0 and at most 1.";
+			LOG.error(errorMessage);
+			throw SdkClientException.create(errorMessage);
+		}
+		this.maxPayloadCompressionRatio = maxPayloadCompressionRatio;
+	}
+
+	/**
+	 * Sets the largest ratio of compressed to original payload size for which
+	 * the compressed payload is sent.
+	 *
+	 * @param maxPayloadCompressionRatio
+	 *            Ratio greater than 0 and at most 1. Default: 0.8.
+	 * @return the updated ExtendedClientConfiguration object.
+	 */
+	public ExtendedClientConfiguration withMaxPayloadCompressionRatio(double maxPayloadCompressionRatio) {
+		setMaxPayloadCompressionRatio(maxPayloadCompressionRatio);
+		return this;
+	}
+
+	/**
+	 * Gets the largest ratio of compressed to original payload size for which
+	 * the compressed payload is sent.
+	 *
+	 * @return Ratio greater than 0 and at most 1. Default: 0.8.
+	 */
+	public double getMaxPayloadCompressionRatio() {
+		return maxPayloadCompressionRatio;
+	}
+
+	/**
+	 * Sets the payload size from which {@link ExtendedSqsClient} stores a
+	 * payload in Amazon S3 with a multipart upload, sending its parts
+	 * concurrently, instead of a single PutObject request.
+	 *
+	 * @param multipartUploadThreshold
+	 *            Payload size in bytes. Default: 64 MB.
+	 */
+	public void setMultipartUploadThreshold(long multipartUploadThreshold) {
+		if (multipartUploadThreshold < SQSExtendedClientConstants.MIN_MULTIPART_UPLOAD_PART_SIZE) {
+			String errorMessage = "Multipart upload threshold must be at least "
+					+ SQSExtendedClientConstants.MIN_MULTIPART_UPLOAD_PART_SIZE + " bytes.";
+			LOG.error(errorMessage);
+			throw SdkClientException.create(errorMessage);
+		}
+		this.multipartUploadThreshold = multipartUploadThreshold;
+	}
+
+	/**
+	 * Sets the payload size from which payloads are stored in Amazon S3 with a
+	 * multipart upload.
+	 *
+	 * @param multipartUploadThreshold
+	 *            Payload size in bytes. Default: 64 MB.
+	 * @return the updated ExtendedClientConfiguration object.
+	 */
+	public ExtendedClientConfiguration withMultipartUploadThreshold(long multipartUploadThreshold) {
+		setMultipartUploadThreshold(multipartUploadThreshold);
+		return this;
+	}
+
+	/**
+	 * Gets the payload size from which payloads are stored in Amazon S3 with a
+	 * multipart upload.
+	 *
+	 * @return Payload size in bytes. Default: 64 MB.
+	 */
+	public long getMultipartUploadThreshold() {
+		return multipartUploadThreshold;
+	}
+
+	/**
+	 * Sets the size of the parts of a multipart upload. Each part is buffered
+	 * in memory while it is uploaded. The part size is raised for payloads
+	 * which would otherwise need more than 10000 parts.
+	 *
+	 * @param multipartUploadPartSize
+	 *            Part size in bytes, from 5 MB to 1 GB. Default: 16 MB.
+	 */
+	public void setMultipartUploadPartSize(long multipartUploadPartSize) {
+		if (multipartUploadPartSize < SQSExtendedClientConstants.MIN_MULTIPART_UPLOAD_PART_SIZE
+				|| multipartUploadPartSize > SQSExtendedClientConstants.MAX_MULTIPART_UPLOAD_PART_SIZE) {
+			String errorMessage = "Multipart upload part size must be between "
+					+ SQSExtendedClientConstants.MIN_MULTIPART_UPLOAD_PART_SIZE + " and "
+					+ SQSExtendedClientConstants.MAX_MULTIPART_UPLOAD_PART_SIZE + " bytes.";
+			LOG.error(errorMessage);
+			throw SdkClientException.create(errorMessage);
+		}
+		this.multipartUploadPartSize = multipartUploadPartSize;
+	}
+
+	/**
+	 * Sets the size of the parts of a multipart upload.
+	 *
+	 * @param multipartUploadPartSize
+	 *            Part size in bytes, from 5 MB to 1 GB. Default: 16 MB.
+	 * @return the updated ExtendedClientConfiguration object.
+	 */
+	public ExtendedClientConfiguration withMultipartUploadPartSize(long multipartUploadPartSize) {
+		setMultipartUploadPartSize(multipartUploadPartSize);
+		return this;
+	}
+
+	/**
+	 * Gets the size of the parts of a multipart upload.
+	 *
+	 * @return Part size in bytes. Default: 16 MB.
+	 */
+	public long getMultipartUploadPartSize() {
+		return multipartUploadPartSize;
+	}
+
+	/**
+	 * Sets the largest number of parts of multipart uploads which are
+	 * uploaded, or buffered for upload, at once. The limit applies to all
+	 * concurrent uploads of the client together, so that they buffer at most
+	 * this many parts in memory. The parts are uploaded by a pool of this many
+	 * threads owned by the client.
+	 *
+	 * @param multipartUploadConcurrency
+	 *            Number of parts, at least 1. Default: 4.
+	 */
+	public void setMultipartUploadConcurrency(int multipartUploadConcurrency) {
+		if (multipartUploadConcurrency < 1) {
+			String errorMessage = "Multipart upload concurrency must be at least 1.";
+			LOG.error(errorMessage);
+			throw SdkClientException.create(errorMessage);
+		}
+		this.multipartUploadConcurrency = multipartUploadConcurrency;
+	}
+
+	/**
+	 * Sets the largest number of parts of a multipart upload which are
+	 * uploaded at once.
+	 *
+	 * @param multipartUploadConcurrency
+	 *            Number of parts, at least 1. Default: 4.
+	 * @return the updated ExtendedClientConfiguration object.
+	 */
+	public ExtendedClientConfiguration withMultipartUploadConcurrency(int multipartUploadConcurrency) {
+		setMultipartUploadConcurrency(multipartUploadConcurrency);
+		return this;
+	}
+
+	/**
+	 * Gets the largest number of parts of a multipart upload which are
+	 * uploaded at once.
+	 *
+	 * @return Number of parts. Default: 4.
+	 */
+	public int getMultipartUploadConcurrency() {
+		return multipartUploadConcurrency;
+	}
+
+	/**
+	 * Sets the payload size from which {@link ExtendedSqsClient} downloads a
+	 * payload from Amazon S3 as byte ranges fetched concurrently, instead of
+	 * a single GetObject request. Compressed payloads are always downloaded
+	 * with a single request.
+	 *
+	 * @param rangedDownloadThreshold
+	 *            Payload size in bytes. Default: 64 MB.
+	 */
+	public void setRangedDownloadThreshold(long rangedDownloadThreshold) {
+		if (rangedDownloadThreshold < 1) {
+			String errorMessage = "Ranged download threshold must be at least 1 byte.";
+			LOG.error(errorMessage);
+			throw SdkClientException.create(errorMessage);
+		}
+		this.rangedDownloadThreshold = rangedDownloadThreshold;
+	}
+
+	/**
+	 * Sets the payload size from which payloads are downloaded from Amazon S3
+	 * as byte ranges fetched concurrently.
+	 *
+	 * @param rangedDownloadThreshold
+	 *            Payload size in bytes. Default: 64 MB.
+	 * @return the updated ExtendedClientConfiguration object.
+	 */
+	public ExtendedClientConfiguration withRangedDownloadThreshold(long rangedDownloadThreshold) {
+		setRangedDownloadThreshold(rangedDownloadThreshold);
+		return this;
+	}
+
+	/**
+	 * Gets the payload size from which payloads are downloaded from Amazon S3
+	 * as byte ranges fetched concurrently.
+	 *
+	 * @return Payload size in bytes. Default: 64 MB.
+	 */
+	public long getRangedDownloadThreshold() {
+		return rangedDownloadThreshold;
+	}
+
+	/**
+	 * Sets the size of the byte ranges a payload is downloaded in.
+	 *
+	 * @param rangedDownloadPartSize
+	 *            Range size in bytes, at least 1 MB. Default: 16 MB.
+	 */
+	public void setRangedDownloadPartSize(long rangedDownloadPartSize) {
+		if (rangedDownloadPartSize < SQSExtendedClientConstants.MIN_RANGED_DOWNLOAD_PART_SIZE) {
+			String errorMessage = "Ranged download part size must be at least "
+					+ SQSExtendedClientConstants.MIN_RANGED_DOWNLOAD_PART_SIZE + " bytes.";
+			LOG.error(errorMessage);
+			throw SdkClientException.create(errorMessage);
+		}
+		this.rangedDownloadPartSize = rangedDownloadPartSize;
+	}
+
+	/**
+	 * Sets the size of the byte ranges a payload is downloaded in.
+	 *
+	 * @param rangedDownloadPartSize
+	 *            Range size in bytes, at least 1 MB. Default: 16 MB.
+	 * @return the updated ExtendedClientConfiguration object.
+	 */
+	public ExtendedClientConfiguration withRangedDownloadPartSize(long rangedDownloadPartSize) {
+		setRangedDownloadPartSize(rangedDownloadPartSize);
+		return this;
+	}
+
+	/**
+	 * Gets the size of the byte ranges a payload is downloaded in.
+	 *
+	 * @return Range size in bytes. Default: 16 MB.
+	 */
+	public long getRangedDownloadPartSize() {
+		return rangedDownloadPartSize;
+	}
+
+	/**
+	 * Sets the largest number of byte ranges of one payload which are
+	 * downloaded at once. Ranges are fetched on the S3 executor, with the
+	 * receiving thread taking part.
+	 *
+	 * @param rangedDownloadConcurrency
+	 *            Number of ranges, at least 1. Default: 4.
+	 */
+	public void setRangedDownloadConcurrency(int rangedDownloadConcurrency) {
+		if (rangedDownloadConcurrency < 1) {
+			String errorMessage = "Ranged download concurrency must be at least 1.";
+			LOG.error(errorMessage);
+			throw SdkClientException.create(errorMessage);
+		}
+		this.rangedDownloadConcurrency = rangedDownloadConcurrency;
+	}
+
+	/**
+	 * Sets the largest number of byte ranges of one payload which are
+	 * downloaded at once.
+	 *
+	 * @param rangedDownloadConcurrency
+	 *            Number of ranges, at least 1. Default: 4.
+	 * @return the updated ExtendedClientConfiguration object.
+	 */
+	public ExtendedClientConfiguration withRangedDownloadConcurrency(int rangedDownloadConcurrency) {
+		setRangedDownloadConcurrency(rangedDownloadConcurrency);
+		return this;
+	}
+
+	/**
+	 * Gets the largest number of byte ranges of one payload which are
+	 * downloaded at once.
+	 *
+	 * @return Number of ranges. Default: 4.
+	 */
+	public int getRangedDownloadConcurrency() {
+		return rangedDownloadConcurrency;
+	}
+
+	/**
+	 * Sets the total size of the message payloads {@link ExtendedSqsClient}
+	 * keeps in memory after reading them from Amazon S3, so that redelivered
+	 * messages do not download their payloads again. The least recently used
+	 * payloads are evicted first, and a payload is dropped from the cache when
+	 * it is deleted through the client.
+	 *
+	 * @param payloadCacheMaxBytes
+	 *            Total payload size in bytes, or 0 to disable the cache.
+	 *            Default: 0.
+	 */
+	public void setPayloadCacheMaxBytes(long payloadCacheMaxBytes) {
+		if (payloadCacheMaxBytes < 0) {
+			String errorMessage = "Payload cache size must not be negative.";
+			LOG.error(errorMessage);
+			throw SdkClientException.create(errorMessage);
+		}
+		this.payloadCacheMaxBytes = payloadCacheMaxBytes;
+	}
+
+	/**
+	 * Sets the total size of the message payloads kept in memory after
+	 * reading them from Amazon S3.
+	 *
+	 * @param payloadCacheMaxBytes
+	 *            Total payload size in bytes, or 0 to disable the cache.
+	 *            Default: 0.
+	 * @return the updated ExtendedClientConfiguration object.
+	 */
+	public ExtendedClientConfiguration withPayloadCacheMaxBytes(long payloadCacheMaxBytes) {
+		setPayloadCacheMaxBytes(payloadCacheMaxBytes);
+		return this;
+	}
+
+	/**
+	 * Gets the total size of the message payloads kept in memory after
+	 * reading them from Amazon S3.
+	 *
+	 * @return Total payload size in bytes, 0 if the cache is disabled.
+	 *         Default: 0.
+	 */
+	public long getPayloadCacheMaxBytes() {
+		return payloadCacheMaxBytes;
+	}
+
+	/**
+	 * Sets whether message payloads are stored in Amazon S3 under a key
+	 * derived from the SHA-256 digest of their content, so that identical
+	 * payloads share one object and are uploaded only once.
+	 *
+	 * <p>
+	 * A payload object may then be referenced by several messages, so the
+	 * clients no longer delete payloads when messages are deleted. Payloads
+	 * have to be removed by a lifecycle expiration rule on the bucket instead,
+	 * with an expiration longer than the payload reuse age plus the message
+	 * retention period of the queue.
+	 * </p>
+	 *
+	 * @param contentAddressedPayloadKeys
+	 *            Whether or not payload keys are derived from their content.
+	 *            Default: false
+	 */
+	public void setContentAddressedPayloadKeysEnabled(boolean contentAddressedPayloadKeys) {
+		this.contentAddressedPayloadKeys = contentAddressedPayloadKeys;
+	}
+
+	/**
+	 * Sets whether message payloads are stored in Amazon S3 under a key
+	 * derived from their content. Payloads are then no longer deleted with
+	 * their messages.
+	 *
+	 * @param contentAddressedPayloadKeys
+	 *            Whether or not payload keys are derived from their content.
+	 *            Default: false
+	 * @return the updated ExtendedClientConfiguration object.
+	 */
+	public ExtendedClientConfiguration withContentAddressedPayloadKeysEnabled(boolean contentAddressedPayloadKeys) {
+		setContentAddressedPayloadKeysEnabled(contentAddressedPayloadKeys);
+		return this;
+	}
+
+	/**
+	 * Checks whether message payloads are stored in Amazon S3 under a key
+	 * derived from their content.
+	 *
+	 * @return True if payload keys are derived from their content. Default:
+	 *         false
+	 */
+	public boolean isContentAddressedPayloadKeysEnabled() {
+		return contentAddressedPayloadKeys;
+	}
+
+	/**
+	 * Sets the strategy choosing the Amazon S3 key of each uploaded message
+	 * payload. Use a {@link HashPrefixedPayloadKeyStrategy} to spread the
+	 * uploads of a busy bucket over several key prefixes. Content-addressed
+	 * payloads are keyed by their digest regardless.
+	 *
+	 * @param payloadKeyStrategy
+	 *            The strategy. Default: {@link PayloadKeyStrategy#RANDOM_UUID}
+	 */
+	public void setPayloadKeyStrategy(PayloadKeyStrategy payloadKeyStrategy) {
+		if (payloadKeyStrategy == null) {
+			String errorMessage = "Payload key strategy cannot be null.";
+			LOG.error(errorMessage);
+			throw SdkClientException.create(errorMessage);
+		}
+		this.payloadKeyStrategy = payloadKeyStrategy;
+	}
+
+	/**
+	 * Sets the strategy choosing the Amazon S3 key of each uploaded message
+	 * payload.
+	 *
+	 * @param payloadKeyStrategy
+	 *            The strategy. Default: {@link PayloadKeyStrategy#RANDOM_UUID}
+	 * @return the updated ExtendedClientConfiguration object.
+	 */
+	public ExtendedClientConfiguration withPayloadKeyStrategy(PayloadKeyStrategy payloadKeyStrategy) {
+		setPayloadKeyStrategy(payloadKeyStrategy);
+		return this;
+	}
+
+	/**
+	 * Gets the strategy choosing the Amazon S3 key of each uploaded message
+	 * payload.
+	 *
+	 * @return The strategy. Default: {@link PayloadKeyStrategy#RANDOM_UUID}
+	 */
+	public PayloadKeyStrategy getPayloadKeyStrategy() {
+		return payloadKeyStrategy;
+	}
+
+	/**
+	 * Sets the buckets new message payloads are spread over by consistent
+	 * hashing of their keys, instead of the bucket given to
+	 * {@link #setLargePayloadSupportEnabled(S3Client, String)}. Each message
+	 * pointer names the bucket of its payload, so payloads are read and
+	 * deleted wherever they were written, including payloads written before
+	 * the buckets were configured. A bucket which keeps throttling requests
+	 * is skipped for new payloads until it recovers.
+	 *
+	 * <p>
+	 * Only {@link ExtendedSqsClient} supports payload buckets.
+	 * </p>
+	 *
+	 * @param payloadBuckets
+	 *            The buckets, each with a distinct name, or an empty list to
+	 *            write to the single bucket. Default: empty
+	 */
+	public void setPayloadBuckets(List<PayloadBucket> payloadBuckets) {
+		if (payloadBuckets == null) {
+			String errorMessage = "Payload buckets cannot be null.";
+			LOG.error(errorMessage);
+			throw SdkClientException.create(errorMessage);
+		}
+		Set<String> s3BucketNames = new HashSet<>();
+		for (PayloadBucket payloadBucket : payloadBuckets) {
+			if (payloadBucket == null || !s3BucketNames.add(payloadBucket.getS3BucketName())) {
+				String errorMessage = "Payload buckets cannot be null or share a bucket name.";
+				LOG.error(errorMessage);
+				throw SdkClientException.create(errorMessage);
+			}
+		}
+		this.payloadBuckets = Collections.unmodifiableList(new ArrayList<>(payloadBuckets));
+	}
+
+	/**
+	 * Sets the buckets new message payloads are spread over by consistent
+	 * hashing of their keys.
+	 *
+	 * @param payloadBuckets
+	 *            The buckets, each with a distinct name, or an empty list to
+	 *            write to the single bucket. Default: empty
+	 * @return the updated ExtendedClientConfiguration object.
+	 */
+	public ExtendedClientConfiguration withPayloadBuckets(List<PayloadBucket> payloadBuckets) {
+		setPayloadBuckets(payloadBuckets);
+		return this;
+	}
+
+	/**
+	 * Gets the buckets new message payloads are spread over.
+	 *
+	 * @return The buckets, empty if payloads are written to the single
+	 *         bucket. Default: empty
+	 */
+	public List<PayloadBucket> getPayloadBuckets() {
+		return payloadBuckets;
+	}
+
+	/**
+	 * Sets the number of content-addressed payload keys
+	 * {@link ExtendedSqsClient} remembers as already stored in Amazon S3.
+	 * Sending a payload whose key is remembered skips the upload; other
+	 * payloads are checked with a HEAD request first.
+	 *
+	 * @param knownPayloadKeysCacheSize
+	 *            Number of keys, or 0 to always check with a HEAD request.
+	 *            Default: 10000.
+	 */
+	public void setKnownPayloadKeysCacheSize(int knownPayloadKeysCacheSize) {
+		if (knownPayloadKeysCacheSize < 0) {
+			String errorMessage = "Known payload keys cache size must not be negative.";
+			LOG.error(errorMessage);
+			throw SdkClientException.create(errorMessage);
+		}
+		this.knownPayloadKeysCacheSize = knownPayloadKeysCacheSize;
+	}
+
+	/**
+	 * Sets the number of content-addressed payload keys remembered as already
+	 * stored in Amazon S3.
+	 *
+	 * @param knownPayloadKeysCacheSize
+	 *            Number of keys, or 0 to always check with a HEAD request.
+	 *            Default: 10000.
+	 * @return the updated ExtendedClientConfiguration object.
+	 */
+	public ExtendedClientConfiguration withKnownPayloadKeysCacheSize(int knownPayloadKeysCacheSize) {
+		setKnownPayloadKeysCacheSize(knownPayloadKeysCacheSize);
+		return this;
+	}
+
+	/**
+	 * Gets the number of content-addressed payload keys remembered as already
+	 * stored in Amazon S3.
+	 *
+	 * @return Number of keys. Default: 10000.
+	 */
+	public int getKnownPayloadKeysCacheSize() {
+		return knownPayloadKeysCacheSize;
+	}
+
+	/**
+	 * Sets how long after it was last written a content-addressed payload
+	 * object is reused by new messages. An older object is uploaded again,
+	 * which restarts its lifecycle expiration, so that it cannot expire while
+	 * a new message still refers to it.
+	 *
+	 * @param payloadReuseMaxAgeMillis
+	 *            Age in milliseconds, at least 1. Default: 1 day.
+	 */
+	public void setPayloadReuseMaxAgeMillis(long payloadReuseMaxAgeMillis) {
+		if (payloadReuseMaxAgeMillis < 1) {
+			String errorMessage = "Payload reuse age must be at least 1 millisecond.";
+			LOG.error(errorMessage);
+			throw SdkClientException.create(errorMessage);
+		}
+		this.payloadReuseMaxAgeMillis = payloadReuseMaxAgeMillis;
+	}
+
+	/**
+	 * Sets how long after it was last written a content-addressed payload
+	 * object is reused by new messages.
+	 *
+	 * @param payloadReuseMaxAgeMillis
+	 *            Age in milliseconds, at least 1. Default: 1 day.
+	 * @return the updated ExtendedClientConfiguration object.
+	 */
+	public ExtendedClientConfiguration withPayloadReuseMaxAgeMillis(long payloadReuseMaxAgeMillis) {
+		setPayloadReuseMaxAgeMillis(payloadReuseMaxAgeMillis);
+		return this;
+	}
+
+	/**
+	 * Gets how long after it was last written a content-addressed payload
+	 * object is reused by new messages.
+	 *
+	 * @return Age in milliseconds. Default: 1 day.
+	 */
+	public long getPayloadReuseMaxAgeMillis() {
+		return payloadReuseMaxAgeMillis;
+	}
+
+	/**
+	 * Sets whether message payloads are left in Amazon S3 for a lifecycle
+	 * expiration rule to remove, instead of being deleted with their messages.
+	 * Payloads are then stored under the lifecycle payload key prefix followed
+	 * by the UTC date they were written on, for example
+	 * <code>expiring/2020-03-31/&lt;uuid&gt;</code>.
+	 *
+	 * <p>
+	 * The expiration of the rule has to be longer than the message retention
+	 * period of the queue, or a payload may expire before its message is
+	 * received.
+	 * </p>
+	 *
+	 * @param lifecyclePayloadExpiry
+	 *            Whether or not payloads are left to expire. Default: false
+	 */
+	public void setLifecyclePayloadExpiryEnabled(boolean lifecyclePayloadExpiry) {
+		this.lifecyclePayloadExpiry = lifecyclePayloadExpiry;
+	}
+
+	/**
+	 * Sets whether message payloads are left in Amazon S3 for a lifecycle
+	 * expiration rule to remove, instead of being deleted with their messages.
+	 *
+	 * @param lifecyclePayloadExpiry
+	 *            Whether or not payloads are left to expire. Default: false
+	 * @return the updated ExtendedClientConfiguration object.
+	 */
+	public ExtendedClientConfiguration withLifecyclePayloadExpiryEnabled(boolean lifecyclePayloadExpiry) {
+		setLifecyclePayloadExpiryEnabled(lifecyclePayloadExpiry);
+		return this;
+	}
+
+	/**
+	 * Checks whether message payloads are left in Amazon S3 for a lifecycle
+	 * expiration rule to remove.
+	 *
+	 * @return True if payloads are left to expire. Default: false
+	 */
+	public boolean isLifecyclePayloadExpiryEnabled() {
+		return lifecyclePayloadExpiry;
+	}
+
+	/**
+	 * Sets the key prefix of the payloads which are left to a lifecycle
+	 * expiration rule, which the rule can filter on.
+	 *
+	 * @param lifecyclePayloadKeyPrefix
+	 *            Key prefix, may be empty. Default: "expiring/"
+	 */
+	public void setLifecyclePayloadKeyPrefix(String lifecyclePayloadKeyPrefix) {
+		if (lifecyclePayloadKeyPrefix == null) {
+			String errorMessage = "Lifecycle payload key prefix cannot be null.";
+			LOG.error(errorMessage);
+			throw SdkClientException.create(errorMessage);
+		}
+		this.lifecyclePayloadKeyPrefix = lifecyclePayloadKeyPrefix;
+	}
+
+	/**
+	 * Sets the key prefix of the payloads which are left to a lifecycle
+	 * expiration rule.
+	 *
+	 * @param lifecyclePayloadKeyPrefix
+	 *            Key prefix, may be empty. Default: "expiring/"
+	 * @return the updated ExtendedClientConfiguration object.
+	 */
+	public ExtendedClientConfiguration withLifecyclePayloadKeyPrefix(String lifecyclePayloadKeyPrefix) {
+		setLifecyclePayloadKeyPrefix(lifecyclePayloadKeyPrefix);
+		return this;
+	}
+
+	/**
+	 * Gets the key prefix of the payloads which are left to a lifecycle
+	 * expiration rule.
+	 *
+	 * @return Key prefix. Default: "expiring/"
+	 */
+	public String getLifecyclePayloadKeyPrefix() {
+		return lifecyclePayloadKeyPrefix;
+	}
+
+	/**
+	 * Sets the tags every payload object is stored with, for example to
+	 * select payloads in a lifecycle rule filter.
+	 *
+	 * @param payloadTagging
+	 *            Tags encoded as URL query parameters, such as
+	 *            "expiry=4d&amp;team=orders", or null for no tags.
+	 *            Default: null
+	 */
+	public void setPayloadTagging(String payloadTagging) {
+		this.payloadTagging = payloadTagging;
+	}
+
+	/**
+	 * Sets the tags every payload object is stored with.
+	 *
+	 * @param payloadTagging
+	 *            Tags encoded as URL query parameters, or null for no tags.
+	 *            Default: null
+	 * @return the updated ExtendedClientConfiguration object.
+	 */
+	public ExtendedClientConfiguration withPayloadTagging(String payloadTagging) {
+		setPayloadTagging(payloadTagging);
+		return this;
+	}
+
+	/**
+	 * Gets the tags every payload object is stored with.
+	 *
+	 * @return Tags encoded as URL query parameters, or null for no tags.
+	 *         Default: null
+	 */
+	public String getPayloadTagging() {
+		return payloadTagging;
+	}
+
+	/**
+	 * Sets the publisher which receives measurements of payload uploads,
+	 * downloads and deletions, of how payloads are sent, of failures to read
+	 * payloads and of payload cache hits.
+	 *
+	 * @param metricsPublisher
+	 *            The publisher, such as a {@link MicrometerMetricsPublisher}.
+	 *            Default: {@link MetricsPublisher#NO_OP}
+	 */
+	public void setMetricsPublisher(MetricsPublisher metricsPublisher) {
+		if (metricsPublisher == null) {
+			String errorMessage = "Metrics publisher cannot be null.";
+			LOG.error(errorMessage);
+			throw SdkClientException.create(errorMessage);
+		}
+		this.metricsPublisher = metricsPublisher;
+	}
+
+	/**
+	 * Sets the publisher which receives measurements of the work done with
+	 * Amazon S3.
+	 *
+	 * @param metricsPublisher
+	 *            The publisher. Default: {@link MetricsPublisher#NO_OP}
+	 * @return the updated ExtendedClientConfiguration object.
+	 */
+	public ExtendedClientConfiguration withMetricsPublisher(MetricsPublisher metricsPublisher) {
+		setMetricsPublisher(metricsPublisher);
+		return this;
+	}
+
+	/**
+	 * Gets the publisher which receives measurements of the work done with
+	 * Amazon S3.
+	 *
+	 * @return The publisher. Default: {@link MetricsPublisher#NO_OP}
+	 */
+	public MetricsPublisher getMetricsPublisher() {
+		return metricsPublisher;
+	}
+
+	/**
+	 * Sets whether each {@link ExtendedSqsClient} registers an MBean with the
+	 * platform MBean server, exposing its counters and configuration under
+	 * the name
+	 * "software.amazon.awssdk.services.sqs:type=ExtendedSqsClient,name=..."
+	 * until it is closed.
+	 *
+	 * @param jmxEnabled
+	 *            true to register the MBean. Default: false
+	 */
+	public void setJmxEnabled(boolean jmxEnabled) {
+		this.jmxEnabled = jmxEnabled;
+	}
+
+	/**
+	 * Sets whether each {@link ExtendedSqsClient} registers an MBean.
+	 *
+	 * @param jmxEnabled
+	 *            true to register the MBean. Default: false
+	 * @return the updated ExtendedClientConfiguration object.
+	 */
+	public ExtendedClientConfiguration withJmxEnabled(boolean jmxEnabled) {
+		setJmxEnabled(jmxEnabled);
+		return this;
+	}
+
+	/**
+	 * Checks whether each {@link ExtendedSqsClient} registers an MBean.
+	 *
+	 * @return true if the MBean is registered. Default: false
+	 */
+	public boolean isJmxEnabled() {
+		return jmxEnabled;
+	}
+
+	/**
+	 * Sets the name property of the MBean of the client, which has to be
+	 * unique among the clients of the JVM.
+	 *
+	 * @param jmxName
+	 *            The name, or null to number the clients in the order they
+	 *            are created. Default: null
+	 */
+	public void setJmxName(String jmxName) {
+		this.jmxName = jmxName;
+	}
+
+	/**
+	 * Sets the name property of the MBean of the client.
+	 *
+	 * @param jmxName
+	 *            The name, or null to number the clients. Default: null
+	 * @return the updated ExtendedClientConfiguration object.
+	 */
+	public ExtendedClientConfiguration withJmxName(String jmxName) {
+		setJmxName(jmxName);
+		return this;
+	}
+
+	/**
+	 * Gets the name property of the MBean of the client.
+	 *
+	 * @return The name, or null to number the clients. Default: null
+	 */
+	public String getJmxName() {
+		return jmxName;
+	}
+
+	/**
+	 * Sets whether {@link ExtendedSqsClient} requests the SentTimestamp
+	 * attribute of received messages and records how long they spent in the
+	 * queue, how long their payloads took to read from Amazon S3, and how
+	 * long until they were returned, see
+	 * {@link ExtendedSqsClient#getReceiveLatencySnapshot()}. Received messages
+	 * then carry the SentTimestamp attribute even if it was not requested.
+	 *
+	 * @param receiveLatencyTracking
+	 *            true to record receive latencies. Default: false
+	 */
+	public void setReceiveLatencyTrackingEnabled(boolean receiveLatencyTracking) {
+		this.receiveLatencyTracking = receiveLatencyTracking;
+	}
+
+	/**
+	 * Sets whether {@link ExtendedSqsClient} records receive latencies.
+	 *
+	 * @param receiveLatencyTracking
+	 *            true to record receive latencies. Default: false
+	 * @return the updated ExtendedClientConfiguration object.
+	 */
+	public ExtendedClientConfiguration withReceiveLatencyTrackingEnabled(boolean receiveLatencyTracking) {
+		setReceiveLatencyTrackingEnabled(receiveLatencyTracking);
+		return this;
+	}
+
+	/**
+	 * Checks whether {@link ExtendedSqsClient} records receive latencies.
+	 *
+	 * @return true if receive latencies are recorded. Default: false
+	 */
+	public boolean isReceiveLatencyTrackingEnabled() {
+		return receiveLatencyTracking;
+	}
 }
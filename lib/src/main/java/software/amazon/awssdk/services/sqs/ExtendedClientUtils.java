@@ -0,0 +1,382 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package software.amazon.awssdk.services.sqs;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.services.sqs.model.BatchResultErrorEntry;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityBatchRequest;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityBatchRequestEntry;
+import software.amazon.awssdk.services.sqs.model.MessageAttributeValue;
+import software.amazon.awssdk.services.sqs.model.MessageSystemAttributeName;
+import software.amazon.awssdk.services.sqs.model.QueueAttributeName;
+import software.amazon.awssdk.services.sqs.model.ReceiveMessageRequest;
+import software.amazon.awssdk.utils.BinaryUtils;
+import software.amazon.awssdk.utils.IoUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Helpers shared by {@link ExtendedSqsClient} and {@link ExtendedSqsAsyncClient}
+ * so that both clients produce and accept the same S3 pointers and receipt
+ * handles.
+ */
+final class ExtendedClientUtils {
+    private static final Logger LOG = LoggerFactory.getLogger(ExtendedClientUtils.class);
+
+    private static final List<String> RESERVED_ATTRIBUTE_NAMES = Arrays.asList(
+            SQSExtendedClientConstants.RESERVED_ATTRIBUTE_NAME, SQSExtendedClientConstants.RESERVED_CODEC_ATTRIBUTE_NAME);
+    private static final PayloadCodec GZIP_PAYLOAD_CODEC = new GzipPayloadCodec();
+
+    private ExtendedClientUtils() {
+    }
+
+    /**
+     * Replaces the receipt handles with an S3 pointer embedded by the ones
+     * Amazon SQS returned.
+     */
+    static ChangeMessageVisibilityBatchRequest withOrigReceiptHandles(
+            ChangeMessageVisibilityBatchRequest changeMessageVisibilityBatchRequest) {
+        List<ChangeMessageVisibilityBatchRequestEntry> updatedEntries = new ArrayList<>();
+        boolean updated = false;
+        for (ChangeMessageVisibilityBatchRequestEntry entry : changeMessageVisibilityBatchRequest.entries()) {
+            S3ReceiptHandle s3ReceiptHandle = S3ReceiptHandle.decode(entry.receiptHandle());
+            if (s3ReceiptHandle != null) {
+                entry = entry.toBuilder().receiptHandle(s3ReceiptHandle.getReceiptHandle()).build();
+                updated = true;
+            }
+            updatedEntries.add(entry);
+        }
+        return updated
+                ? changeMessageVisibilityBatchRequest.toBuilder().entries(updatedEntries).build()
+                : changeMessageVisibilityBatchRequest;
+    }
+
+    static MessageS3Pointer readMessageS3PointerFromJSON(String messageBody) {
+        try {
+            return MessageS3PointerCodec.decode(messageBody);
+        } catch (IllegalArgumentException e) {
+            String errorMessage = "Failed to read the S3 object pointer from an SQS message. Message was not received.";
+            LOG.error(errorMessage, e);
+            throw SdkClientException.create(errorMessage, e);
+        }
+    }
+
+    static String getJSONFromS3Pointer(MessageS3Pointer s3Pointer) {
+        return MessageS3PointerCodec.encode(s3Pointer);
+    }
+
+    static Map<String, MessageAttributeValue> getMessageAttributesWithPayloadSize(
+            Map<String, MessageAttributeValue> originalAttributes, long messageContentSize) {
+        MessageAttributeValue messageAttributeValue = MessageAttributeValue.builder()
+                .dataType("Number")
+                .stringValue(Long.toString(messageContentSize))
+                .build();
+        Map<String, MessageAttributeValue> messageAttributes = new HashMap<>(originalAttributes);
+        messageAttributes.put(SQSExtendedClientConstants.RESERVED_ATTRIBUTE_NAME, messageAttributeValue);
+        return messageAttributes;
+    }
+
+    static Map<String, MessageAttributeValue> getMessageAttributesWithCodec(
+            Map<String, MessageAttributeValue> originalAttributes, String codecName) {
+        MessageAttributeValue messageAttributeValue = MessageAttributeValue.builder()
+                .dataType("String")
+                .stringValue(codecName)
+                .build();
+        Map<String, MessageAttributeValue> messageAttributes = new HashMap<>(originalAttributes);
+        messageAttributes.put(SQSExtendedClientConstants.RESERVED_CODEC_ATTRIBUTE_NAME, messageAttributeValue);
+        return messageAttributes;
+    }
+
+    static Map<String, MessageAttributeValue> getMessageAttributesWithoutReservedAttributes(
+            Map<String, MessageAttributeValue> messageAttributes) {
+        Map<String, MessageAttributeValue> userMessageAttributes = new HashMap<>(messageAttributes);
+        userMessageAttributes.remove(SQSExtendedClientConstants.RESERVED_ATTRIBUTE_NAME);
+        userMessageAttributes.remove(SQSExtendedClientConstants.RESERVED_CODEC_ATTRIBUTE_NAME);
+        return userMessageAttributes;
+    }
+
+    /**
+     * Asks Amazon SQS for the reserved attributes along with those the caller
+     * asked for.
+     */
+    static ReceiveMessageRequest withReservedAttributeNames(ReceiveMessageRequest receiveMessageRequest) {
+        List<String> requestedNames = receiveMessageRequest.messageAttributeNames();
+        if (requestedNames.contains(SQSExtendedClientConstants.RESERVED_ATTRIBUTE_NAME)
+                && requestedNames.contains(SQSExtendedClientConstants.RESERVED_CODEC_ATTRIBUTE_NAME)) {
+            return receiveMessageRequest;
+        }
+
+        List<String> messageAttributeNames = new ArrayList<>(requestedNames);
+        for (String reservedName : RESERVED_ATTRIBUTE_NAMES) {
+            if (!messageAttributeNames.contains(reservedName)) {
+                messageAttributeNames.add(reservedName);
+            }
+        }
+        return receiveMessageRequest.toBuilder().messageAttributeNames(messageAttributeNames).build();
+    }
+
+    /**
+     * Adds the SentTimestamp system attribute to the attributes requested for
+     * received messages, unless it or all attributes are requested already.
+     */
+    static ReceiveMessageRequest withSentTimestampAttributeName(ReceiveMessageRequest receiveMessageRequest) {
+        List<String> requestedNames = receiveMessageRequest.attributeNamesAsStrings();
+        String sentTimestampName = MessageSystemAttributeName.SENT_TIMESTAMP.toString();
+        if (requestedNames.contains(sentTimestampName) || requestedNames.contains(QueueAttributeName.ALL.toString())) {
+            return receiveMessageRequest;
+        }
+
+        List<String> attributeNames = new ArrayList<>(requestedNames);
+        attributeNames.add(sentTimestampName);
+        return receiveMessageRequest.toBuilder().attributeNamesWithStrings(attributeNames).build();
+    }
+
+    /**
+     * Finds the codec a received payload was encoded with: either the one
+     * configured for sending, or a built-in one.
+     */
+    static PayloadCodec getPayloadCodec(ExtendedClientConfiguration clientConfiguration, String codecName) {
+        PayloadCodec payloadCodec = clientConfiguration.getPayloadCodec();
+        if (payloadCodec != null && payloadCodec.getName().equals(codecName)) {
+            return payloadCodec;
+        }
+        if (GzipPayloadCodec.NAME.equals(codecName)) {
+            return GZIP_PAYLOAD_CODEC;
+        }
+
+        String errorMessage = "Unknown payload codec " + codecName + ". Message was not received.";
+        LOG.error(errorMessage);
+        throw SdkClientException.create(errorMessage);
+    }
+
+    static byte[] encodePayload(PayloadCodec payloadCodec, byte[] payload) {
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream(payload.length / 2);
+        try (OutputStream out = payloadCodec.encode(encoded)) {
+            out.write(payload);
+        } catch (IOException e) {
+            String errorMessage = "Failed to compress the message payload. SQS message was not sent.";
+            LOG.error(errorMessage, e);
+            throw SdkClientException.create(errorMessage, e);
+        }
+        return encoded.toByteArray();
+    }
+
+    static byte[] decodePayload(PayloadCodec payloadCodec, byte[] encodedPayload) {
+        try (InputStream in = payloadCodec.decode(new ByteArrayInputStream(encodedPayload))) {
+            return IoUtils.toByteArray(in);
+        } catch (IOException e) {
+            String errorMessage = "Failed to decompress the message payload. Message was not received.";
+            LOG.error(errorMessage, e);
+            throw SdkClientException.create(errorMessage, e);
+        }
+    }
+
+    /**
+     * Decodes a compressed payload which was sent inline, Base64 encoded.
+     */
+    static String decodeInlinePayload(PayloadCodec payloadCodec, String messageBody) {
+        byte[] encodedPayload;
+        try {
+            encodedPayload = Base64.getDecoder().decode(messageBody);
+        } catch (IllegalArgumentException e) {
+            String errorMessage = "Failed to read the compressed message payload. Message was not received.";
+            LOG.error(errorMessage, e);
+            throw SdkClientException.create(errorMessage, e);
+        }
+        return new String(decodePayload(payloadCodec, encodedPayload), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Creates a new S3 key for a payload with the configured strategy.
+     * Payloads which are left to a lifecycle rule are grouped under its prefix
+     * by the day they were written.
+     */
+    static String newS3Key(ExtendedClientConfiguration clientConfiguration) {
+        String s3Key = clientConfiguration.getPayloadKeyStrategy().newS3Key();
+        if (!clientConfiguration.isLifecyclePayloadExpiryEnabled()) {
+            return s3Key;
+        }
+        return clientConfiguration.getLifecyclePayloadKeyPrefix() + LocalDate.now(ZoneOffset.UTC) + "/" + s3Key;
+    }
+
+    /**
+     * Checks whether payloads are deleted with their messages. Payloads with
+     * content-addressed keys may be shared by several messages, and like
+     * payloads left to expire they are removed by a lifecycle rule instead.
+     */
+    static boolean isPayloadDeletionEnabled(ExtendedClientConfiguration clientConfiguration) {
+        return !clientConfiguration.isContentAddressedPayloadKeysEnabled()
+                && !clientConfiguration.isLifecyclePayloadExpiryEnabled();
+    }
+
+    /**
+     * Derives the S3 key of a payload from the SHA-256 digest of its content,
+     * so that identical payloads map to the same object.
+     */
+    static String getContentAddressedS3Key(byte[] payload) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            String errorMessage = "SHA-256 is not available to derive the S3 key of the message payload.";
+            LOG.error(errorMessage, e);
+            throw SdkClientException.create(errorMessage, e);
+        }
+        return SQSExtendedClientConstants.CONTENT_ADDRESSED_KEY_PREFIX + BinaryUtils.toHex(digest.digest(payload));
+    }
+
+    /**
+     * Reports a batch entry whose payload could not be processed in S3 in the
+     * same shape Amazon SQS uses for its own per-entry failures.
+     */
+    static BatchResultErrorEntry getS3FailureBatchResultErrorEntry(String id, Throwable throwable) {
+        Throwable cause = unwrap(throwable);
+        return BatchResultErrorEntry.builder()
+                .id(id)
+                .code(SQSExtendedClientConstants.S3_PAYLOAD_FAILURE_CODE)
+                .message(cause.getMessage())
+                .senderFault(false)
+                .build();
+    }
+
+    static Throwable unwrap(Throwable throwable) {
+        if (throwable instanceof CompletionException && throwable.getCause() != null) {
+            return throwable.getCause();
+        }
+        return throwable;
+    }
+
+    /**
+     * Waits for the future and rethrows the exception it failed with as is,
+     * rather than wrapped in a {@link CompletionException}.
+     */
+    static <T> T joinUnwrapped(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = unwrap(e);
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    static boolean isLarge(String messageBody, Map<String, MessageAttributeValue> messageAttributes,
+                           int messageSizeThreshold) {
+        long remaining = messageSizeThreshold - (long) getMsgAttributesSize(messageAttributes);
+        if (remaining < 0) {
+            return true;
+        }
+        return isStringSizeInBytesGreaterThan(messageBody, remaining);
+    }
+
+    static int getMsgAttributesSize(Map<String, MessageAttributeValue> msgAttributes) {
+        int totalMsgAttributesSize = 0;
+        for (Map.Entry<String, MessageAttributeValue> entry : msgAttributes.entrySet()) {
+            totalMsgAttributesSize += getStringSizeInBytes(entry.getKey());
+
+            MessageAttributeValue entryVal = entry.getValue();
+            if (entryVal.dataType() != null) {
+                totalMsgAttributesSize += getStringSizeInBytes(entryVal.dataType());
+            }
+
+            String stringVal = entryVal.stringValue();
+            if (stringVal != null) {
+                totalMsgAttributesSize += getStringSizeInBytes(entryVal.stringValue());
+            }
+
+            SdkBytes binaryVal = entryVal.binaryValue();
+            if (binaryVal != null) {
+                totalMsgAttributesSize += getStringSizeInBytes(binaryVal.toString());
+            }
+        }
+        return totalMsgAttributesSize;
+    }
+
+    static long getStringSizeInBytes(String str) {
+        return getStringSizeInBytes(str, Long.MAX_VALUE);
+    }
+
+    /**
+     * Checks whether the UTF-8 encoded size of a string exceeds the limit,
+     * without encoding it.
+     */
+    static boolean isStringSizeInBytesGreaterThan(String str, long limit) {
+        int length = str.length();
+        if (length > limit) {
+            // every char takes at least one byte.
+            return true;
+        }
+        if (length * 3L <= limit) {
+            // no char takes more than three bytes.
+            return false;
+        }
+        return getStringSizeInBytes(str, limit) > limit;
+    }
+
+    /**
+     * Computes the UTF-8 encoded size of a string in a single pass, counting
+     * unpaired surrogates as one byte since they are encoded as '?'. Counting
+     * stops as soon as the size exceeds the limit.
+     */
+    private static long getStringSizeInBytes(String str, long limit) {
+        int length = str.length();
+        long size = 0;
+        for (int i = 0; i < length; i++) {
+            char c = str.charAt(i);
+            if (c < 0x80) {
+                size++;
+            } else if (c < 0x800) {
+                size += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(str.charAt(i + 1))) {
+                size += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                size++;
+            } else {
+                size += 3;
+            }
+            if (size > limit) {
+                break;
+            }
+        }
+        return size;
+    }
+}
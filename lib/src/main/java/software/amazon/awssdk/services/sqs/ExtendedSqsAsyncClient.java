@@ -0,0 +1,681 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package software.amazon.awssdk.services.sqs;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.core.ResponseBytes;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.core.async.AsyncResponseTransformer;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.sqs.model.AddPermissionRequest;
+import software.amazon.awssdk.services.sqs.model.AddPermissionResponse;
+import software.amazon.awssdk.services.sqs.model.BatchResultErrorEntry;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityBatchRequest;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityBatchResponse;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityRequest;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityResponse;
+import software.amazon.awssdk.services.sqs.model.CreateQueueRequest;
+import software.amazon.awssdk.services.sqs.model.CreateQueueResponse;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchRequest;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchRequestEntry;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchResponse;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageRequest;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageResponse;
+import software.amazon.awssdk.services.sqs.model.DeleteQueueRequest;
+import software.amazon.awssdk.services.sqs.model.DeleteQueueResponse;
+import software.amazon.awssdk.services.sqs.model.GetQueueAttributesRequest;
+import software.amazon.awssdk.services.sqs.model.GetQueueAttributesResponse;
+import software.amazon.awssdk.services.sqs.model.GetQueueUrlRequest;
+import software.amazon.awssdk.services.sqs.model.GetQueueUrlResponse;
+import software.amazon.awssdk.services.sqs.model.ListDeadLetterSourceQueuesRequest;
+import software.amazon.awssdk.services.sqs.model.ListDeadLetterSourceQueuesResponse;
+import software.amazon.awssdk.services.sqs.model.ListQueueTagsRequest;
+import software.amazon.awssdk.services.sqs.model.ListQueueTagsResponse;
+import software.amazon.awssdk.services.sqs.model.ListQueuesRequest;
+import software.amazon.awssdk.services.sqs.model.ListQueuesResponse;
+import software.amazon.awssdk.services.sqs.model.Message;
+import software.amazon.awssdk.services.sqs.model.MessageAttributeValue;
+import software.amazon.awssdk.services.sqs.model.PurgeQueueRequest;
+import software.amazon.awssdk.services.sqs.model.PurgeQueueResponse;
+import software.amazon.awssdk.services.sqs.model.ReceiveMessageRequest;
+import software.amazon.awssdk.services.sqs.model.ReceiveMessageResponse;
+import software.amazon.awssdk.services.sqs.model.RemovePermissionRequest;
+import software.amazon.awssdk.services.sqs.model.RemovePermissionResponse;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequest;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequestEntry;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchResponse;
+import software.amazon.awssdk.services.sqs.model.SendMessageRequest;
+import software.amazon.awssdk.services.sqs.model.SendMessageResponse;
+import software.amazon.awssdk.services.sqs.model.SetQueueAttributesRequest;
+import software.amazon.awssdk.services.sqs.model.SetQueueAttributesResponse;
+import software.amazon.awssdk.services.sqs.model.TagQueueRequest;
+import software.amazon.awssdk.services.sqs.model.TagQueueResponse;
+import software.amazon.awssdk.services.sqs.model.UntagQueueRequest;
+import software.amazon.awssdk.services.sqs.model.UntagQueueResponse;
+import software.amazon.awssdk.utils.CompletableFutureUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Extended SQS Async Client extends the functionality of SQS async client.
+ * All service calls made using this client are non-blocking and return a
+ * {@link CompletableFuture} which completes once the Amazon SQS call, and any
+ * Amazon S3 calls it depends on, have completed.
+ *
+ * <p>
+ * Messages sent by this client can be received by {@link ExtendedSqsClient} and
+ * vice versa: both clients use the same S3 pointer and receipt handle formats.
+ * </p>
+ *
+ * <p>
+ * Large-payload support must be enabled on the configuration with an
+ * {@link S3AsyncClient}, see
+ * {@link ExtendedClientConfiguration#withLargePayloadSupportEnabled(S3AsyncClient, String)}.
+ * </p>
+ */
+public class ExtendedSqsAsyncClient implements SqsAsyncClient {
+    private static final Logger LOG = LoggerFactory.getLogger(ExtendedSqsAsyncClient.class);
+
+    private final ExtendedClientConfiguration clientConfiguration;
+    private final SqsAsyncClient sqsAsyncClient;
+    private final MetricsPublisher metricsPublisher;
+    private final boolean metricsEnabled;
+
+    /**
+     * Constructs a new Amazon SQS extended async client to invoke service
+     * methods on Amazon SQS with extended functionality using the specified
+     * Amazon SQS async client object.
+     *
+     * @param sqsAsyncClient       The Amazon SQS async client to use to connect to Amazon SQS.
+     * @param extendedClientConfig The extended client configuration options controlling the
+     *                             functionality of this client.
+     */
+    protected ExtendedSqsAsyncClient(SqsAsyncClient sqsAsyncClient, ExtendedClientConfiguration extendedClientConfig) {
+        this.sqsAsyncClient = sqsAsyncClient;
+        this.clientConfiguration = new ExtendedClientConfiguration(extendedClientConfig);
+        if (this.clientConfiguration.isLargePayloadSupportEnabled() && this.clientConfiguration.getAmazonS3AsyncClient() == null) {
+            String errorMessage = "Large-payload support is enabled without an S3AsyncClient. ExtendedSqsAsyncClient needs an"
+                    + " S3AsyncClient, an S3Client is only used by ExtendedSqsClient.";
+            LOG.error(errorMessage);
+            throw SdkClientException.create(errorMessage);
+        }
+        if (!this.clientConfiguration.getPayloadBuckets().isEmpty()) {
+            String errorMessage = "Payload buckets are not supported by the asynchronous client.";
+            LOG.error(errorMessage);
+            throw SdkClientException.create(errorMessage);
+        }
+        this.metricsPublisher = this.clientConfiguration.getMetricsPublisher();
+        this.metricsEnabled = this.metricsPublisher != MetricsPublisher.NO_OP;
+    }
+
+    public static ExtendedSqsAsyncClient defaultClient(String s3BucketName) {
+        S3AsyncClient s3AsyncClient = S3AsyncClient.builder().build();
+        ExtendedClientConfiguration extendedClientConfiguration = new ExtendedClientConfiguration().withLargePayloadSupportEnabled(s3AsyncClient, s3BucketName);
+        return new ExtendedSqsAsyncClientBuilder()
+                .withSqsAsyncClient(SqsAsyncClient.builder().build())
+                .withExtendedClientConfiguration(extendedClientConfiguration).build();
+    }
+
+    public static ExtendedSqsAsyncClientBuilder builder() {
+        return new ExtendedSqsAsyncClientBuilder();
+    }
+
+    @Override
+    public String serviceName() {
+        return this.sqsAsyncClient.serviceName();
+    }
+
+    @Override
+    public void close() {
+        this.sqsAsyncClient.close();
+    }
+
+    @Override
+    public CompletableFuture<AddPermissionResponse> addPermission(AddPermissionRequest addPermissionRequest) {
+        return this.sqsAsyncClient.addPermission(addPermissionRequest);
+    }
+
+    @Override
+    public CompletableFuture<ChangeMessageVisibilityResponse> changeMessageVisibility(
+            ChangeMessageVisibilityRequest changeMessageVisibilityRequest) {
+        S3ReceiptHandle s3ReceiptHandle = changeMessageVisibilityRequest == null ? null
+                : S3ReceiptHandle.decode(changeMessageVisibilityRequest.receiptHandle());
+        if (s3ReceiptHandle != null) {
+            changeMessageVisibilityRequest = changeMessageVisibilityRequest.toBuilder()
+                    .receiptHandle(s3ReceiptHandle.getReceiptHandle())
+                    .build();
+        }
+        return this.sqsAsyncClient.changeMessageVisibility(changeMessageVisibilityRequest);
+    }
+
+    @Override
+    public CompletableFuture<ChangeMessageVisibilityBatchResponse> changeMessageVisibilityBatch(
+            ChangeMessageVisibilityBatchRequest changeMessageVisibilityBatchRequest) {
+        if (changeMessageVisibilityBatchRequest == null) {
+            return this.sqsAsyncClient.changeMessageVisibilityBatch(changeMessageVisibilityBatchRequest);
+        }
+        return this.sqsAsyncClient.changeMessageVisibilityBatch(
+                ExtendedClientUtils.withOrigReceiptHandles(changeMessageVisibilityBatchRequest));
+    }
+
+    @Override
+    public CompletableFuture<CreateQueueResponse> createQueue(CreateQueueRequest createQueueRequest) {
+        return this.sqsAsyncClient.createQueue(createQueueRequest);
+    }
+
+    /**
+     * Deletes the specified message from the specified queue. If the receipt
+     * handle carries an S3 pointer, the S3 object holding the payload is
+     * deleted first and the original receipt handle is then passed on to
+     * Amazon SQS.
+     *
+     * @param deleteMessageRequest
+     * @return A future of the DeleteMessage operation returned by the service.
+     */
+    @Override
+    public CompletableFuture<DeleteMessageResponse> deleteMessage(DeleteMessageRequest deleteMessageRequest) {
+        if (deleteMessageRequest == null) {
+            String errorMessage = "deleteMessageRequest cannot be null.";
+            LOG.error(errorMessage);
+            return CompletableFutureUtils.failedFuture(SdkClientException.create(errorMessage));
+        }
+
+        if (!clientConfiguration.isLargePayloadSupportEnabled()) {
+            return this.sqsAsyncClient.deleteMessage(deleteMessageRequest);
+        }
+
+        S3ReceiptHandle s3ReceiptHandle = S3ReceiptHandle.decode(deleteMessageRequest.receiptHandle());
+        if (s3ReceiptHandle == null) {
+            return this.sqsAsyncClient.deleteMessage(deleteMessageRequest);
+        }
+
+        DeleteMessageRequest updatedDeleteRequest = deleteMessageRequest.toBuilder()
+                .receiptHandle(s3ReceiptHandle.getReceiptHandle())
+                .build();
+
+        if (!ExtendedClientUtils.isPayloadDeletionEnabled(clientConfiguration)) {
+            return this.sqsAsyncClient.deleteMessage(updatedDeleteRequest);
+        }
+
+        return deleteMessagePayloadFromS3(s3ReceiptHandle.getS3BucketName(), s3ReceiptHandle.getS3Key())
+                .thenCompose(v -> this.sqsAsyncClient.deleteMessage(updatedDeleteRequest));
+    }
+
+    /**
+     * Deletes up to ten messages from the specified queue. The S3 objects of
+     * all entries carrying an S3 pointer are deleted concurrently before the
+     * batch, with the original receipt handles, is passed on to Amazon SQS.
+     *
+     * @param deleteMessageBatchRequest
+     * @return A future of the DeleteMessageBatch operation returned by the service.
+     */
+    @Override
+    public CompletableFuture<DeleteMessageBatchResponse> deleteMessageBatch(
+            DeleteMessageBatchRequest deleteMessageBatchRequest) {
+        if (deleteMessageBatchRequest == null) {
+            String errorMessage = "deleteMessageBatchRequest cannot be null.";
+            LOG.error(errorMessage);
+            return CompletableFutureUtils.failedFuture(SdkClientException.create(errorMessage));
+        }
+
+        if (!clientConfiguration.isLargePayloadSupportEnabled()) {
+            return this.sqsAsyncClient.deleteMessageBatch(deleteMessageBatchRequest);
+        }
+
+        List<DeleteMessageBatchRequestEntry> entries = deleteMessageBatchRequest.entries();
+        List<DeleteMessageBatchRequestEntry> strippedEntries = new ArrayList<>(entries.size());
+        List<CompletableFuture<Void>> s3Deletes = new ArrayList<>(entries.size());
+        for (DeleteMessageBatchRequestEntry entry : entries) {
+            S3ReceiptHandle s3ReceiptHandle = S3ReceiptHandle.decode(entry.receiptHandle());
+            if (s3ReceiptHandle != null) {
+                s3Deletes.add(ExtendedClientUtils.isPayloadDeletionEnabled(clientConfiguration)
+                        ? deleteMessagePayloadFromS3(s3ReceiptHandle.getS3BucketName(), s3ReceiptHandle.getS3Key())
+                        : CompletableFuture.completedFuture(null));
+                entry = entry.toBuilder()
+                        .receiptHandle(s3ReceiptHandle.getReceiptHandle())
+                        .build();
+            } else {
+                s3Deletes.add(CompletableFuture.completedFuture(null));
+            }
+            strippedEntries.add(entry);
+        }
+
+        // wait for every S3 delete, successful or not, and keep the messages
+        // whose payload could not be deleted in the queue, as the
+        // synchronous client does.
+        return CompletableFuture.allOf(s3Deletes.toArray(new CompletableFuture[0]))
+                .handle((v, throwable) -> null)
+                .thenCompose(v -> {
+                    List<DeleteMessageBatchRequestEntry> updatedEntries = new ArrayList<>(entries.size());
+                    List<BatchResultErrorEntry> failedEntries = new ArrayList<>();
+                    for (int i = 0; i < entries.size(); i++) {
+                        try {
+                            s3Deletes.get(i).join();
+                            updatedEntries.add(strippedEntries.get(i));
+                        } catch (CompletionException e) {
+                            failedEntries.add(ExtendedClientUtils.getS3FailureBatchResultErrorEntry(entries.get(i).id(), e));
+                        }
+                    }
+
+                    if (updatedEntries.isEmpty()) {
+                        return CompletableFuture.completedFuture(
+                                DeleteMessageBatchResponse.builder().failed(failedEntries).build());
+                    }
+
+                    DeleteMessageBatchRequest updatedRequest = deleteMessageBatchRequest.toBuilder().entries(updatedEntries).build();
+                    return this.sqsAsyncClient.deleteMessageBatch(updatedRequest).thenApply(deleteMessageBatchResponse -> {
+                        if (failedEntries.isEmpty()) {
+                            return deleteMessageBatchResponse;
+                        }
+                        failedEntries.addAll(deleteMessageBatchResponse.failed());
+                        return deleteMessageBatchResponse.toBuilder().failed(failedEntries).build();
+                    });
+                });
+    }
+
+    @Override
+    public CompletableFuture<DeleteQueueResponse> deleteQueue(DeleteQueueRequest deleteQueueRequest) {
+        return this.sqsAsyncClient.deleteQueue(deleteQueueRequest);
+    }
+
+    @Override
+    public CompletableFuture<GetQueueAttributesResponse> getQueueAttributes(
+            GetQueueAttributesRequest getQueueAttributesRequest) {
+        return this.sqsAsyncClient.getQueueAttributes(getQueueAttributesRequest);
+    }
+
+    @Override
+    public CompletableFuture<GetQueueUrlResponse> getQueueUrl(GetQueueUrlRequest getQueueUrlRequest) {
+        return this.sqsAsyncClient.getQueueUrl(getQueueUrlRequest);
+    }
+
+    @Override
+    public CompletableFuture<ListDeadLetterSourceQueuesResponse> listDeadLetterSourceQueues(
+            ListDeadLetterSourceQueuesRequest listDeadLetterSourceQueuesRequest) {
+        return this.sqsAsyncClient.listDeadLetterSourceQueues(listDeadLetterSourceQueuesRequest);
+    }
+
+    @Override
+    public CompletableFuture<ListQueueTagsResponse> listQueueTags(ListQueueTagsRequest listQueueTagsRequest) {
+        return this.sqsAsyncClient.listQueueTags(listQueueTagsRequest);
+    }
+
+    @Override
+    public CompletableFuture<ListQueuesResponse> listQueues(ListQueuesRequest listQueuesRequest) {
+        return this.sqsAsyncClient.listQueues(listQueuesRequest);
+    }
+
+    @Override
+    public CompletableFuture<ListQueuesResponse> listQueues() {
+        return this.sqsAsyncClient.listQueues();
+    }
+
+    @Override
+    public CompletableFuture<PurgeQueueResponse> purgeQueue(PurgeQueueRequest purgeQueueRequest) {
+        return this.sqsAsyncClient.purgeQueue(purgeQueueRequest);
+    }
+
+    /**
+     * Retrieves one or more messages (up to 10), from the specified queue.
+     * The payloads of all messages carrying an S3 pointer are downloaded
+     * concurrently; the returned messages keep the order of the Amazon SQS
+     * response.
+     *
+     * @param receiveMessageRequest
+     * @return A future of the ReceiveMessage operation returned by the service.
+     */
+    @Override
+    public CompletableFuture<ReceiveMessageResponse> receiveMessage(ReceiveMessageRequest receiveMessageRequest) {
+        if (receiveMessageRequest == null) {
+            String errorMessage = "receiveMessageRequest cannot be null.";
+            LOG.error(errorMessage);
+            return CompletableFutureUtils.failedFuture(SdkClientException.create(errorMessage));
+        }
+
+        if (!clientConfiguration.isLargePayloadSupportEnabled()) {
+            return this.sqsAsyncClient.receiveMessage(receiveMessageRequest);
+        }
+
+        ReceiveMessageRequest updatedRequest = ExtendedClientUtils.withReservedAttributeNames(receiveMessageRequest);
+        return this.sqsAsyncClient.receiveMessage(updatedRequest).thenCompose(receiveMessageResponse -> {
+            List<CompletableFuture<Message>> alteredMessages = new ArrayList<>();
+            for (Message message : receiveMessageResponse.messages()) {
+                alteredMessages.add(hydrateMessage(message));
+            }
+
+            return CompletableFuture.allOf(alteredMessages.toArray(new CompletableFuture[0]))
+                    .thenApply(v -> {
+                        List<Message> messages = new ArrayList<>(alteredMessages.size());
+                        for (CompletableFuture<Message> alteredMessage : alteredMessages) {
+                            messages.add(alteredMessage.join());
+                        }
+                        return receiveMessageResponse.toBuilder().messages(messages).build();
+                    });
+        });
+    }
+
+    @Override
+    public CompletableFuture<RemovePermissionResponse> removePermission(RemovePermissionRequest removePermissionRequest) {
+        return this.sqsAsyncClient.removePermission(removePermissionRequest);
+    }
+
+    /**
+     * Delivers a message to the specified queue. If the message is large, or
+     * the client is configured to always go through S3, the payload is
+     * uploaded to S3 first and the S3 pointer is sent to Amazon SQS once the
+     * upload has completed.
+     *
+     * @param sendMessageRequest
+     * @return A future of the SendMessage operation returned by the service.
+     */
+    @Override
+    public CompletableFuture<SendMessageResponse> sendMessage(SendMessageRequest sendMessageRequest) {
+        if (sendMessageRequest == null) {
+            String errorMessage = "sendMessageRequest cannot be null.";
+            LOG.error(errorMessage);
+            return CompletableFutureUtils.failedFuture(SdkClientException.create(errorMessage));
+        }
+
+        if (sendMessageRequest.messageBody() == null || "".equals(sendMessageRequest.messageBody())) {
+            String errorMessage = "messageBody cannot be null or empty.";
+            LOG.error(errorMessage);
+            return CompletableFutureUtils.failedFuture(SdkClientException.create(errorMessage));
+        }
+
+        if (!clientConfiguration.isLargePayloadSupportEnabled()) {
+            return this.sqsAsyncClient.sendMessage(sendMessageRequest);
+        }
+
+        if (clientConfiguration.isAlwaysThroughS3() || isLarge(sendMessageRequest)) {
+            return storeMessageInS3(sendMessageRequest).thenCompose(this.sqsAsyncClient::sendMessage);
+        }
+
+        if (metricsEnabled) {
+            metricsPublisher.recordPayloadInlined(ExtendedClientUtils.getStringSizeInBytes(sendMessageRequest.messageBody()));
+        }
+        return this.sqsAsyncClient.sendMessage(sendMessageRequest);
+    }
+
+    /**
+     * Delivers up to ten messages to the specified queue. Every entry that is
+     * large, or every entry if the client is configured to always go through
+     * S3, is uploaded to S3 concurrently before the batch of pointers is sent
+     * to Amazon SQS. Entries whose upload fails are reported in the failed
+     * entries of the response instead of failing the whole batch.
+     *
+     * @param sendMessageBatchRequest
+     * @return A future of the SendMessageBatch operation returned by the service.
+     */
+    @Override
+    public CompletableFuture<SendMessageBatchResponse> sendMessageBatch(SendMessageBatchRequest sendMessageBatchRequest) {
+        if (sendMessageBatchRequest == null) {
+            String errorMessage = "sendMessageBatchRequest cannot be null.";
+            LOG.error(errorMessage);
+            return CompletableFutureUtils.failedFuture(SdkClientException.create(errorMessage));
+        }
+
+        if (!clientConfiguration.isLargePayloadSupportEnabled()) {
+            return this.sqsAsyncClient.sendMessageBatch(sendMessageBatchRequest);
+        }
+
+        List<SendMessageBatchRequestEntry> entries = sendMessageBatchRequest.entries();
+        List<CompletableFuture<SendMessageBatchRequestEntry>> updatedEntryFutures = new ArrayList<>(entries.size());
+        for (SendMessageBatchRequestEntry entry : entries) {
+            if (entry.messageBody() != null && (clientConfiguration.isAlwaysThroughS3() || isLarge(entry))) {
+                updatedEntryFutures.add(storeMessageInS3(entry));
+            } else {
+                if (metricsEnabled && entry.messageBody() != null) {
+                    metricsPublisher.recordPayloadInlined(ExtendedClientUtils.getStringSizeInBytes(entry.messageBody()));
+                }
+                updatedEntryFutures.add(CompletableFuture.completedFuture(entry));
+            }
+        }
+
+        // wait for every upload, successful or not, before building the batch.
+        return CompletableFuture.allOf(updatedEntryFutures.toArray(new CompletableFuture[0]))
+                .handle((v, throwable) -> null)
+                .thenCompose(v -> {
+                    List<SendMessageBatchRequestEntry> updatedEntries = new ArrayList<>(entries.size());
+                    List<BatchResultErrorEntry> failedEntries = new ArrayList<>();
+                    for (int i = 0; i < entries.size(); i++) {
+                        try {
+                            updatedEntries.add(updatedEntryFutures.get(i).join());
+                        } catch (CompletionException e) {
+                            failedEntries.add(ExtendedClientUtils.getS3FailureBatchResultErrorEntry(entries.get(i).id(), e));
+                        }
+                    }
+
+                    if (updatedEntries.isEmpty()) {
+                        return CompletableFuture.completedFuture(
+                                SendMessageBatchResponse.builder().failed(failedEntries).build());
+                    }
+
+                    SendMessageBatchRequest updatedRequest = sendMessageBatchRequest.toBuilder().entries(updatedEntries).build();
+                    return this.sqsAsyncClient.sendMessageBatch(updatedRequest).thenApply(sendMessageBatchResponse -> {
+                        if (failedEntries.isEmpty()) {
+                            return sendMessageBatchResponse;
+                        }
+                        failedEntries.addAll(sendMessageBatchResponse.failed());
+                        return sendMessageBatchResponse.toBuilder().failed(failedEntries).build();
+                    });
+                });
+    }
+
+    @Override
+    public CompletableFuture<SetQueueAttributesResponse> setQueueAttributes(
+            SetQueueAttributesRequest setQueueAttributesRequest) {
+        return this.sqsAsyncClient.setQueueAttributes(setQueueAttributesRequest);
+    }
+
+    @Override
+    public CompletableFuture<TagQueueResponse> tagQueue(TagQueueRequest tagQueueRequest) {
+        return this.sqsAsyncClient.tagQueue(tagQueueRequest);
+    }
+
+    @Override
+    public CompletableFuture<UntagQueueResponse> untagQueue(UntagQueueRequest untagQueueRequest) {
+        return this.sqsAsyncClient.untagQueue(untagQueueRequest);
+    }
+
+    private CompletableFuture<Message> hydrateMessage(Message message) {
+        // for each received message check if they are stored in S3 or
+        // compressed.
+        MessageAttributeValue largePayloadAttributeValue = message.messageAttributes().get(
+                SQSExtendedClientConstants.RESERVED_ATTRIBUTE_NAME);
+        MessageAttributeValue codecAttributeValue = message.messageAttributes().get(
+                SQSExtendedClientConstants.RESERVED_CODEC_ATTRIBUTE_NAME);
+        if (largePayloadAttributeValue == null && codecAttributeValue == null) {
+            return CompletableFuture.completedFuture(message);
+        }
+
+        MessageS3Pointer s3Pointer;
+        PayloadCodec payloadCodec;
+        try {
+            payloadCodec = codecAttributeValue == null
+                    ? null
+                    : ExtendedClientUtils.getPayloadCodec(clientConfiguration, codecAttributeValue.stringValue());
+            if (largePayloadAttributeValue == null) {
+                return CompletableFuture.completedFuture(message.toBuilder()
+                        .body(ExtendedClientUtils.decodeInlinePayload(payloadCodec, message.body()))
+                        .messageAttributes(ExtendedClientUtils.getMessageAttributesWithoutReservedAttributes(
+                                message.messageAttributes()))
+                        .build());
+            }
+            s3Pointer = ExtendedClientUtils.readMessageS3PointerFromJSON(message.body());
+        } catch (SdkClientException e) {
+            metricsPublisher.recordHydrationFailure();
+            return CompletableFutureUtils.failedFuture(e);
+        }
+
+        CompletableFuture<Message> hydratedMessage = getPayloadFromS3(message, s3Pointer, payloadCodec);
+        if (!metricsEnabled) {
+            return hydratedMessage;
+        }
+        return hydratedMessage.whenComplete((hydrated, throwable) -> {
+            if (throwable != null) {
+                metricsPublisher.recordHydrationFailure();
+            }
+        });
+    }
+
+    private CompletableFuture<Message> getPayloadFromS3(Message message, MessageS3Pointer s3Pointer,
+                                                        PayloadCodec payloadCodec) {
+        return getObjectFromS3(s3Pointer.getS3BucketName(), s3Pointer.getS3Key()).thenApply(object -> {
+            LOG.info("S3 object read, Bucket name: " + s3Pointer.getS3BucketName() + ", Object key: " + s3Pointer.getS3Key() + ".");
+
+            Message.Builder messageBuilder = message.toBuilder();
+            messageBuilder.body(payloadCodec == null
+                    ? object.asUtf8String()
+                    : new String(ExtendedClientUtils.decodePayload(payloadCodec, object.asByteArray()), StandardCharsets.UTF_8));
+
+            // remove the additional attributes before returning the message
+            // to user.
+            messageBuilder.messageAttributes(ExtendedClientUtils.getMessageAttributesWithoutReservedAttributes(
+                    message.messageAttributes()));
+
+            // Embed s3 object pointer in the receipt handle.
+            String modifiedReceiptHandle = S3ReceiptHandle.encode(message.receiptHandle(),
+                    s3Pointer.getS3BucketName(), s3Pointer.getS3Key());
+
+            messageBuilder.receiptHandle(modifiedReceiptHandle);
+            return messageBuilder.build();
+        });
+    }
+
+    private CompletableFuture<Void> deleteMessagePayloadFromS3(String s3MsgBucketName, String s3MsgKey) {
+        DeleteObjectRequest deleteObjectRequest = DeleteObjectRequest.builder().bucket(s3MsgBucketName)
+                .key(s3MsgKey)
+                .build();
+
+        long start = System.nanoTime();
+        return clientConfiguration.getAmazonS3AsyncClient().deleteObject(deleteObjectRequest)
+                .handle((response, throwable) -> {
+                    metricsPublisher.recordS3Delete(System.nanoTime() - start, throwable == null ? 1 : 0, throwable == null);
+                    if (throwable != null) {
+                        String errorMessage = "Failed to delete the S3 object which contains the SQS message payload. SQS message was not deleted.";
+                        LOG.error(errorMessage, throwable);
+                        throw SdkException.create(errorMessage, ExtendedClientUtils.unwrap(throwable));
+                    }
+                    LOG.info("S3 object deleted, Bucket name: " + s3MsgBucketName + ", Object key: " + s3MsgKey + ".");
+                    return null;
+                });
+    }
+
+    private CompletableFuture<SendMessageRequest> storeMessageInS3(SendMessageRequest sendMessageRequest) {
+        SendMessageRequest.Builder builder = sendMessageRequest.toBuilder();
+
+        String messageContentStr = sendMessageRequest.messageBody();
+        long payloadSize = ExtendedClientUtils.getStringSizeInBytes(messageContentStr);
+        Map<String, MessageAttributeValue> messageAttributes = ExtendedClientUtils.getMessageAttributesWithPayloadSize(
+                sendMessageRequest.messageAttributes(), payloadSize);
+
+        return storeMessagePayloadInS3(messageContentStr, payloadSize).thenApply(s3PointerStr -> builder.messageBody(s3PointerStr)
+                .messageAttributes(messageAttributes)
+                .build());
+    }
+
+    private CompletableFuture<SendMessageBatchRequestEntry> storeMessageInS3(
+            SendMessageBatchRequestEntry sendMessageBatchRequestEntry) {
+        SendMessageBatchRequestEntry.Builder builder = sendMessageBatchRequestEntry.toBuilder();
+
+        String messageContentStr = sendMessageBatchRequestEntry.messageBody();
+        long payloadSize = ExtendedClientUtils.getStringSizeInBytes(messageContentStr);
+        Map<String, MessageAttributeValue> messageAttributes = ExtendedClientUtils.getMessageAttributesWithPayloadSize(
+                sendMessageBatchRequestEntry.messageAttributes(), payloadSize);
+
+        return storeMessagePayloadInS3(messageContentStr, payloadSize).thenApply(s3PointerStr -> builder.messageBody(s3PointerStr)
+                .messageAttributes(messageAttributes)
+                .build());
+    }
+
+    private CompletableFuture<String> storeMessagePayloadInS3(String messageContentStr, long payloadSize) {
+        // content-addressed payloads are always uploaded, overwriting an
+        // identical object is harmless and restarts its lifecycle expiration.
+        String s3Key = clientConfiguration.isContentAddressedPayloadKeysEnabled()
+                ? ExtendedClientUtils.getContentAddressedS3Key(messageContentStr.getBytes(StandardCharsets.UTF_8))
+                : ExtendedClientUtils.newS3Key(clientConfiguration);
+        MessageS3Pointer s3Pointer = new MessageS3Pointer(clientConfiguration.getS3BucketName(), s3Key);
+        String s3PointerStr = ExtendedClientUtils.getJSONFromS3Pointer(s3Pointer);
+
+        return storeTextInS3(s3Key, messageContentStr, payloadSize).thenApply(v -> {
+            LOG.info("S3 object created, Bucket name: " + clientConfiguration.getS3BucketName() + ", Object key: " + s3Key + ".");
+            metricsPublisher.recordPayloadOffloaded(payloadSize);
+            return s3PointerStr;
+        });
+    }
+
+    private CompletableFuture<ResponseBytes<GetObjectResponse>> getObjectFromS3(String s3BucketName, String s3Key) {
+        GetObjectRequest getObjectRequest = GetObjectRequest.builder()
+                .bucket(s3BucketName)
+                .key(s3Key)
+                .build();
+
+        long start = System.nanoTime();
+        return clientConfiguration.getAmazonS3AsyncClient().getObject(getObjectRequest, AsyncResponseTransformer.toBytes())
+                .handle((object, throwable) -> {
+                    metricsPublisher.recordS3Get(System.nanoTime() - start,
+                            metricsEnabled && throwable == null ? object.asByteBuffer().remaining() : 0, throwable == null);
+                    if (throwable != null) {
+                        String errorMessage = "Failed to get the S3 object which contains the message payload. Message was not received.";
+                        LOG.error(errorMessage, throwable);
+                        throw SdkException.create(errorMessage, ExtendedClientUtils.unwrap(throwable));
+                    }
+                    return object;
+                });
+    }
+
+    private CompletableFuture<Void> storeTextInS3(String s3Key, String messageContentStr, long payloadSize) {
+        PutObjectRequest putObjectRequest = PutObjectRequest.builder()
+                .bucket(this.clientConfiguration.getS3BucketName())
+                .key(s3Key)
+                .tagging(this.clientConfiguration.getPayloadTagging())
+                .build();
+
+        long start = System.nanoTime();
+        return clientConfiguration.getAmazonS3AsyncClient().putObject(putObjectRequest, AsyncRequestBody.fromString(messageContentStr))
+                .handle((response, throwable) -> {
+                    metricsPublisher.recordS3Put(System.nanoTime() - start, payloadSize, throwable == null);
+                    if (throwable != null) {
+                        String errorMessage = "Failed to store the message content in an S3 object. SQS message was not sent.";
+                        LOG.error(errorMessage);
+                        throw SdkClientException.create(errorMessage, ExtendedClientUtils.unwrap(throwable));
+                    }
+                    return null;
+                });
+    }
+
+    private boolean isLarge(SendMessageRequest sendMessageRequest) {
+        return ExtendedClientUtils.isLarge(sendMessageRequest.messageBody(), sendMessageRequest.messageAttributes(),
+                clientConfiguration.getMessageSizeThreshold());
+    }
+
+    private boolean isLarge(SendMessageBatchRequestEntry sendMessageBatchRequestEntry) {
+        return ExtendedClientUtils.isLarge(sendMessageBatchRequestEntry.messageBody(),
+                sendMessageBatchRequestEntry.messageAttributes(), clientConfiguration.getMessageSizeThreshold());
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package software.amazon.awssdk.services.sqs;
+
+import software.amazon.awssdk.core.exception.SdkClientException;
+
+public class ExtendedSqsAsyncClientBuilder {
+    private SqsAsyncClient sqsAsyncClient;
+    private ExtendedClientConfiguration extendedClientConfiguration;
+
+    public ExtendedSqsAsyncClientBuilder withSqsAsyncClient(SqsAsyncClient sqsAsyncClient) {
+        this.sqsAsyncClient = sqsAsyncClient;
+        return this;
+    }
+
+    public ExtendedSqsAsyncClientBuilder withExtendedClientConfiguration(ExtendedClientConfiguration extendedClientConfiguration) {
+        this.extendedClientConfiguration = extendedClientConfiguration;
+        return this;
+    }
+
+    public ExtendedSqsAsyncClient build() {
+        if (this.extendedClientConfiguration != null
+                && this.extendedClientConfiguration.isLargePayloadSupportEnabled()
+                && this.extendedClientConfiguration.getAmazonS3AsyncClient() == null) {
+            throw SdkClientException.create("Large-payload support of the async client requires an S3 async client.");
+        }
+        return new ExtendedSqsAsyncClient(this.sqsAsyncClient, this.extendedClientConfiguration);
+    }
+
+}
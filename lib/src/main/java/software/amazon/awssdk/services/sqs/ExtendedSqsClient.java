@@ -19,19 +19,28 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import software.amazon.awssdk.awscore.exception.AwsServiceException;
 import software.amazon.awssdk.core.ResponseBytes;
-import software.amazon.awssdk.core.SdkBytes;
 import software.amazon.awssdk.core.exception.SdkClientException;
 import software.amazon.awssdk.core.exception.SdkException;
 import software.amazon.awssdk.core.sync.RequestBody;
 import software.amazon.awssdk.core.sync.ResponseTransformer;
 import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.Delete;
 import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsResponse;
 import software.amazon.awssdk.services.s3.model.GetObjectRequest;
 import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.ObjectIdentifier;
 import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.model.S3Error;
 import software.amazon.awssdk.services.sqs.model.AddPermissionRequest;
 import software.amazon.awssdk.services.sqs.model.AddPermissionResponse;
 import software.amazon.awssdk.services.sqs.model.BatchEntryIdsNotDistinctException;
+import software.amazon.awssdk.services.sqs.model.BatchResultErrorEntry;
 import software.amazon.awssdk.services.sqs.model.BatchRequestTooLongException;
 import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityBatchRequest;
 import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityBatchResponse;
@@ -77,6 +86,7 @@ import software.amazon.awssdk.services.sqs.model.ReceiveMessageResponse;
 import software.amazon.awssdk.services.sqs.model.RemovePermissionRequest;
 import software.amazon.awssdk.services.sqs.model.RemovePermissionResponse;
 import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequest;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequestEntry;
 import software.amazon.awssdk.services.sqs.model.SendMessageBatchResponse;
 import software.amazon.awssdk.services.sqs.model.SendMessageRequest;
 import software.amazon.awssdk.services.sqs.model.SendMessageResponse;
@@ -88,18 +98,29 @@ import software.amazon.awssdk.services.sqs.model.TagQueueResponse;
 import software.amazon.awssdk.services.sqs.model.TooManyEntriesInBatchRequestException;
 import software.amazon.awssdk.services.sqs.model.UntagQueueRequest;
 import software.amazon.awssdk.services.sqs.model.UntagQueueResponse;
+import software.amazon.awssdk.utils.ThreadFactoryBuilder;
 
 import java.io.IOException;
-import java.io.OutputStreamWriter;
+import java.io.InputStream;
 import java.io.UncheckedIOException;
-import java.io.Writer;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * Extended SQS Client extends the functionality of SQS client.
@@ -125,7 +146,21 @@ public class ExtendedSqsClient implements SqsClient {
 
     private final ExtendedClientConfiguration clientConfiguration;
     private final SqsClient sqsClient;
-    private final JsonDataConverter jsonDataConverter = new JsonDataConverter();
+    private final ExecutorService s3Executor;
+    private final boolean ownsS3Executor;
+    private final S3Client s3;
+    private final PayloadBucketRouter payloadBucketRouter;
+    private final ParallelTaskRunner s3TaskRunner;
+    private final DeferredS3PayloadDeleter deferredS3PayloadDeleter;
+    private final ExecutorService multipartUploadExecutor;
+    private final MultipartPayloadUploader multipartPayloadUploader;
+    private final RangedPayloadDownloader rangedPayloadDownloader;
+    private final PayloadCache payloadCache;
+    private final KnownPayloadKeys knownPayloadKeys;
+    private final ExtendedSqsClientStatistics statistics;
+    private final ReceiveLatencyTracker receiveLatencyTracker;
+    private final MetricsPublisher metricsPublisher;
+    private final boolean metricsEnabled;
 
     /**
      * Constructs a new Amazon SQS extended client to invoke service methods on
@@ -143,6 +178,73 @@ public class ExtendedSqsClient implements SqsClient {
     protected ExtendedSqsClient(SqsClient sqsClient, ExtendedClientConfiguration extendedClientConfig) {
         this.sqsClient = sqsClient;
         this.clientConfiguration = new ExtendedClientConfiguration(extendedClientConfig);
+        if (this.clientConfiguration.isLargePayloadSupportEnabled() && this.clientConfiguration.getAmazonS3Client() == null) {
+            String errorMessage = "Large-payload support is enabled without an S3Client. ExtendedSqsClient needs an S3Client,"
+                    + " an S3AsyncClient is only used by ExtendedSqsAsyncClient.";
+            LOG.error(errorMessage);
+            throw SdkClientException.create(errorMessage);
+        }
+        // the MBean counters see every measurement before the configured
+        // publisher does.
+        this.statistics = this.clientConfiguration.isJmxEnabled()
+                ? new ExtendedSqsClientStatistics(this.clientConfiguration)
+                : null;
+        this.metricsPublisher = this.statistics != null ? this.statistics : this.clientConfiguration.getMetricsPublisher();
+        this.metricsEnabled = this.metricsPublisher != MetricsPublisher.NO_OP;
+        this.receiveLatencyTracker = this.clientConfiguration.isReceiveLatencyTrackingEnabled()
+                ? new ReceiveLatencyTracker()
+                : null;
+
+        // with several payload buckets every S3 request goes through the
+        // router, which sends it to the client of the bucket it names.
+        this.payloadBucketRouter = this.clientConfiguration.isLargePayloadSupportEnabled()
+                && !this.clientConfiguration.getPayloadBuckets().isEmpty()
+                ? new PayloadBucketRouter(this.clientConfiguration.getAmazonS3Client(),
+                        this.clientConfiguration.getPayloadBuckets())
+                : null;
+        this.s3 = this.payloadBucketRouter != null ? this.payloadBucketRouter : this.clientConfiguration.getAmazonS3Client();
+
+        this.ownsS3Executor = this.clientConfiguration.getS3ExecutorService() == null;
+        this.s3Executor = this.ownsS3Executor
+                ? Executors.newFixedThreadPool(this.clientConfiguration.getS3MaxConcurrency(),
+                        new ThreadFactoryBuilder().threadNamePrefix("sqs-extended-client-s3").daemonThreads(true).build())
+                : this.clientConfiguration.getS3ExecutorService();
+        this.s3TaskRunner = new ParallelTaskRunner(this.s3Executor, this.clientConfiguration.getS3MaxConcurrency());
+        this.deferredS3PayloadDeleter = this.clientConfiguration.isLargePayloadSupportEnabled()
+                && this.clientConfiguration.isDeferredPayloadDeletionEnabled()
+                ? new DeferredS3PayloadDeleter(this.s3,
+                        this.clientConfiguration.getDeferredPayloadDeletionQueueCapacity(),
+                        this.clientConfiguration.getDeferredPayloadDeletionFlushIntervalMillis(), this.metricsPublisher)
+                : null;
+
+        // parts get their own pool: a payload may be uploaded from an s3Executor
+        // thread while offloading a batch, and must not wait on that same pool.
+        if (this.clientConfiguration.isLargePayloadSupportEnabled()) {
+            this.multipartUploadExecutor = Executors.newFixedThreadPool(this.clientConfiguration.getMultipartUploadConcurrency(),
+                    new ThreadFactoryBuilder().threadNamePrefix("sqs-extended-client-s3-multipart").daemonThreads(true).build());
+            this.multipartPayloadUploader = new MultipartPayloadUploader(this.s3,
+                    this.multipartUploadExecutor, this.clientConfiguration.getMultipartUploadPartSize(),
+                    this.clientConfiguration.getMultipartUploadConcurrency(), this.clientConfiguration.getPayloadTagging());
+            this.rangedPayloadDownloader = new RangedPayloadDownloader(this.s3,
+                    new ParallelTaskRunner(this.s3Executor, this.clientConfiguration.getRangedDownloadConcurrency()),
+                    this.clientConfiguration.getRangedDownloadPartSize());
+        } else {
+            this.multipartUploadExecutor = null;
+            this.multipartPayloadUploader = null;
+            this.rangedPayloadDownloader = null;
+        }
+        this.payloadCache = this.clientConfiguration.getPayloadCacheMaxBytes() > 0
+                ? new PayloadCache(this.clientConfiguration.getPayloadCacheMaxBytes(), this.metricsPublisher)
+                : null;
+        this.knownPayloadKeys = this.clientConfiguration.isContentAddressedPayloadKeysEnabled()
+                ? new KnownPayloadKeys(this.clientConfiguration.getKnownPayloadKeysCacheSize(),
+                        this.clientConfiguration.getPayloadReuseMaxAgeMillis())
+                : null;
+
+        if (this.statistics != null) {
+            this.statistics.track(this.deferredS3PayloadDeleter, this.payloadCache);
+            this.statistics.register();
+        }
     }
 
     public static ExtendedSqsClient defaultClient(String s3BucketName) {
@@ -162,8 +264,42 @@ public class ExtendedSqsClient implements SqsClient {
         return this.sqsClient.serviceName();
     }
 
+    /**
+     * Gets the number of message payloads queued for deletion from Amazon S3
+     * which have not been deleted yet.
+     *
+     * @return The number of pending payload deletions, always 0 unless
+     *         deferred payload deletion is enabled.
+     */
+    public long getPendingS3PayloadDeletions() {
+        return deferredS3PayloadDeleter == null ? 0 : deferredS3PayloadDeleter.getPendingDeletions();
+    }
+
+    /**
+     * Gets the number of message payloads which were queued for deletion from
+     * Amazon S3 but could not be deleted, and were left behind in S3.
+     *
+     * @return The number of failed payload deletions, always 0 unless
+     *         deferred payload deletion is enabled.
+     */
+    public long getFailedS3PayloadDeletions() {
+        return deferredS3PayloadDeleter == null ? 0 : deferredS3PayloadDeleter.getFailedDeletions();
+    }
+
     @Override
     public void close() {
+        if (this.deferredS3PayloadDeleter != null) {
+            this.deferredS3PayloadDeleter.close();
+        }
+        if (this.statistics != null) {
+            this.statistics.unregister();
+        }
+        if (this.ownsS3Executor) {
+            this.s3Executor.shutdown();
+        }
+        if (this.multipartUploadExecutor != null) {
+            this.multipartUploadExecutor.shutdown();
+        }
         this.sqsClient.close();
     }
 
@@ -417,6 +553,13 @@ public class ExtendedSqsClient implements SqsClient {
     public ChangeMessageVisibilityResponse changeMessageVisibility(ChangeMessageVisibilityRequest changeMessageVisibilityRequest)
             throws MessageNotInflightException, ReceiptHandleIsInvalidException, AwsServiceException, SdkClientException,
             SqsException {
+        S3ReceiptHandle s3ReceiptHandle = changeMessageVisibilityRequest == null ? null
+                : S3ReceiptHandle.decode(changeMessageVisibilityRequest.receiptHandle());
+        if (s3ReceiptHandle != null) {
+            changeMessageVisibilityRequest = changeMessageVisibilityRequest.toBuilder()
+                    .receiptHandle(s3ReceiptHandle.getReceiptHandle())
+                    .build();
+        }
         return this.sqsClient.changeMessageVisibility(changeMessageVisibilityRequest);
     }
 
@@ -568,7 +711,11 @@ public class ExtendedSqsClient implements SqsClient {
             ChangeMessageVisibilityBatchRequest changeMessageVisibilityBatchRequest)
             throws TooManyEntriesInBatchRequestException, EmptyBatchRequestException, BatchEntryIdsNotDistinctException,
             InvalidBatchEntryIdException, AwsServiceException, SdkClientException, SqsException {
-        return this.sqsClient.changeMessageVisibilityBatch(changeMessageVisibilityBatchRequest);
+        if (changeMessageVisibilityBatchRequest == null) {
+            return this.sqsClient.changeMessageVisibilityBatch(changeMessageVisibilityBatchRequest);
+        }
+        return this.sqsClient.changeMessageVisibilityBatch(
+                ExtendedClientUtils.withOrigReceiptHandles(changeMessageVisibilityBatchRequest));
     }
 
     /**
@@ -881,11 +1028,17 @@ public class ExtendedSqsClient implements SqsClient {
             return this.sqsClient.deleteMessage(deleteMessageRequest);
         }
 
-        String receiptHandle = deleteMessageRequest.receiptHandle();
-        String origReceiptHandle = receiptHandle;
-        if (isS3ReceiptHandle(receiptHandle)) {
-            deleteMessagePayloadFromS3(receiptHandle);
-            origReceiptHandle = getOrigReceiptHandle(receiptHandle);
+        String origReceiptHandle = deleteMessageRequest.receiptHandle();
+        S3ReceiptHandle s3ReceiptHandle = S3ReceiptHandle.decode(origReceiptHandle);
+        if (s3ReceiptHandle != null) {
+            // the cached copy goes even when the payload itself outlives the
+            // message, so that the cache only holds payloads still in flight.
+            invalidateCachedPayload(s3ReceiptHandle.getS3BucketName(), s3ReceiptHandle.getS3Key());
+            if (ExtendedClientUtils.isPayloadDeletionEnabled(clientConfiguration)) {
+                deleteMessagePayloadFromS3(deleteMessageRequest.queueUrl(), s3ReceiptHandle.getS3BucketName(),
+                        s3ReceiptHandle.getS3Key());
+            }
+            origReceiptHandle = s3ReceiptHandle.getReceiptHandle();
         }
 
         DeleteMessageRequest updatedDeleteRequest = deleteMessageRequest.toBuilder()
@@ -1006,21 +1159,68 @@ public class ExtendedSqsClient implements SqsClient {
             return this.sqsClient.deleteMessageBatch(deleteMessageBatchRequest);
         }
 
+        // group the entries carrying an S3 pointer by bucket, so that their
+        // payloads are removed with one DeleteObjects call per bucket, unless
+        // they can be handed to the deferred deleter.
+        Map<String, S3ReceiptHandle> s3ReceiptHandlesById = new HashMap<>();
+        Map<String, Map<String, String>> s3KeysByIdByBucket = new LinkedHashMap<>();
+        for (DeleteMessageBatchRequestEntry entry : deleteMessageBatchRequest.entries()) {
+            S3ReceiptHandle s3ReceiptHandle = S3ReceiptHandle.decode(entry.receiptHandle());
+            if (s3ReceiptHandle == null) {
+                continue;
+            }
+            s3ReceiptHandlesById.put(entry.id(), s3ReceiptHandle);
+            String s3MsgBucketName = s3ReceiptHandle.getS3BucketName();
+            String s3MsgKey = s3ReceiptHandle.getS3Key();
+            invalidateCachedPayload(s3MsgBucketName, s3MsgKey);
+            if (ExtendedClientUtils.isPayloadDeletionEnabled(clientConfiguration)) {
+                if (deferredS3PayloadDeleter != null && deferredS3PayloadDeleter.enqueue(s3MsgBucketName, s3MsgKey)) {
+                    continue;
+                }
+                s3KeysByIdByBucket.computeIfAbsent(s3MsgBucketName, bucket -> new LinkedHashMap<>())
+                        .put(entry.id(), s3MsgKey);
+            }
+        }
+
+        Map<String, String> s3FailuresById = new HashMap<>();
+        for (Map.Entry<String, Map<String, String>> bucketKeys : s3KeysByIdByBucket.entrySet()) {
+            s3FailuresById.putAll(deleteMessagePayloadsFromS3(deleteMessageBatchRequest.queueUrl(), bucketKeys.getKey(),
+                    bucketKeys.getValue()));
+        }
+
         List<DeleteMessageBatchRequestEntry> updatedEntries = new ArrayList<>();
+        List<BatchResultErrorEntry> failedEntries = new ArrayList<>();
         for (DeleteMessageBatchRequestEntry entry : deleteMessageBatchRequest.entries()) {
-            String receiptHandle = entry.receiptHandle();
-            String origReceiptHandle = receiptHandle;
-            if (isS3ReceiptHandle(receiptHandle)) {
-                deleteMessagePayloadFromS3(receiptHandle);
-                origReceiptHandle = getOrigReceiptHandle(receiptHandle);
+            S3ReceiptHandle s3ReceiptHandle = s3ReceiptHandlesById.get(entry.id());
+            if (s3ReceiptHandle == null) {
+                updatedEntries.add(entry);
+            } else if (s3FailuresById.containsKey(entry.id())) {
+                // keep the message in the queue so that the delete can be retried.
+                failedEntries.add(BatchResultErrorEntry.builder()
+                        .id(entry.id())
+                        .code(SQSExtendedClientConstants.S3_PAYLOAD_FAILURE_CODE)
+                        .message(s3FailuresById.get(entry.id()))
+                        .senderFault(false)
+                        .build());
+            } else {
+                updatedEntries.add(entry.toBuilder()
+                        .receiptHandle(s3ReceiptHandle.getReceiptHandle())
+                        .build());
             }
-            entry.toBuilder().receiptHandle(origReceiptHandle);
-            updatedEntries.add(entry);
+        }
+
+        if (updatedEntries.isEmpty()) {
+            return DeleteMessageBatchResponse.builder().failed(failedEntries).build();
         }
 
         DeleteMessageBatchRequest updatedRequest = deleteMessageBatchRequest.toBuilder().entries(updatedEntries).build();
+        DeleteMessageBatchResponse deleteMessageBatchResponse = this.sqsClient.deleteMessageBatch(updatedRequest);
+        if (failedEntries.isEmpty()) {
+            return deleteMessageBatchResponse;
+        }
 
-        return this.sqsClient.deleteMessageBatch(updatedRequest);
+        failedEntries.addAll(deleteMessageBatchResponse.failed());
+        return deleteMessageBatchResponse.toBuilder().failed(failedEntries).build();
     }
 
     /**
@@ -1786,53 +1986,65 @@ public class ExtendedSqsClient implements SqsClient {
             return this.sqsClient.receiveMessage(receiveMessageRequest);
         }
 
-        ReceiveMessageRequest.Builder builder = receiveMessageRequest.toBuilder();
-        if (!receiveMessageRequest.messageAttributeNames().contains(SQSExtendedClientConstants.RESERVED_ATTRIBUTE_NAME)) {
-            ArrayList<String> messageAttributeNames = new ArrayList<>(receiveMessageRequest.messageAttributeNames());
-            messageAttributeNames.add(SQSExtendedClientConstants.RESERVED_ATTRIBUTE_NAME);
-            builder.messageAttributeNames(messageAttributeNames);
+        ReceiveMessageRequest sqsReceiveMessageRequest = ExtendedClientUtils.withReservedAttributeNames(receiveMessageRequest);
+        if (receiveLatencyTracker != null) {
+            sqsReceiveMessageRequest = ExtendedClientUtils.withSentTimestampAttributeName(sqsReceiveMessageRequest);
         }
-
-        ReceiveMessageResponse receiveMessageResponse = this.sqsClient.receiveMessage(builder.build());
+        ReceiveMessageResponse receiveMessageResponse = this.sqsClient.receiveMessage(sqsReceiveMessageRequest);
+        long receivedAtMillis = receiveLatencyTracker == null ? 0 : System.currentTimeMillis();
         ReceiveMessageResponse.Builder responseBuilder = receiveMessageResponse.toBuilder();
 
+        // for each received message check if they are stored in S3.
         List<Message> messages = receiveMessageResponse.messages();
-        List<Message> alteredMessages = new ArrayList<>();
-
+        List<Message> s3Messages = new ArrayList<>();
         for (Message message : messages) {
+            if (message.messageAttributes().containsKey(SQSExtendedClientConstants.RESERVED_ATTRIBUTE_NAME)) {
+                s3Messages.add(message);
+            }
+        }
 
-            // for each received message check if they are stored in S3.
-            MessageAttributeValue largePayloadAttributeValue = message.messageAttributes().get(
-                    SQSExtendedClientConstants.RESERVED_ATTRIBUTE_NAME);
-            if (largePayloadAttributeValue != null) {
-                String messageBody = message.body();
-                MessageS3Pointer s3Pointer = readMessageS3PointerFromJSON(messageBody);
-                String textFromS3 = getTextFromS3(s3Pointer.getS3BucketName(), s3Pointer.getS3Key());
-                LOG.info("S3 object read, Bucket name: " + s3Pointer.getS3BucketName() + ", Object key: " + s3Pointer.getS3Key() + ".");
-
-                Message.Builder messageBuilder = message.toBuilder();
-                messageBuilder.body(textFromS3);
-
-                // remove the additional attribute before returning the message
-                // to user.
-                HashMap<String, MessageAttributeValue> stringMessageAttributeValueHashMap = new HashMap<>(message.messageAttributes());
-                stringMessageAttributeValueHashMap.remove(SQSExtendedClientConstants.RESERVED_ATTRIBUTE_NAME);
-                messageBuilder.messageAttributes(stringMessageAttributeValueHashMap);
-
-                // Embed s3 object pointer in the receipt handle.
-                String modifiedReceiptHandle = embedS3PointerInReceiptHandle(message.receiptHandle(),
-                        s3Pointer.getS3BucketName(), s3Pointer.getS3Key());
-
-                messageBuilder.receiptHandle(modifiedReceiptHandle);
-                alteredMessages.add(messageBuilder.build());
+        // download their payloads concurrently, keeping the order of the
+        // received messages.
+        String queueUrl = receiveMessageRequest.queueUrl();
+        Function<Message, Message> hydrator = receiveLatencyTracker == null
+                ? message -> hydrateMessage(queueUrl, message)
+                : message -> hydrateMessageTimed(queueUrl, message);
+        List<CompletableFuture<Message>> hydratedMessages = s3TaskRunner.run(s3Messages, hydrator);
+
+        List<Message> alteredMessages = new ArrayList<>(messages.size());
+        int s3MessageIndex = 0;
+        for (Message message : messages) {
+            if (s3MessageIndex < s3Messages.size() && s3Messages.get(s3MessageIndex) == message) {
+                alteredMessages.add(ExtendedClientUtils.joinUnwrapped(hydratedMessages.get(s3MessageIndex)));
+                s3MessageIndex++;
             } else {
-                alteredMessages.add(message);
+                alteredMessages.add(decodeInlineMessage(message));
             }
         }
+        if (receiveLatencyTracker != null) {
+            receiveLatencyTracker.recordReceive(messages, receivedAtMillis, System.currentTimeMillis());
+        }
         return responseBuilder.messages(alteredMessages)
                 .build();
     }
 
+    /**
+     * Gets the latencies of the messages received so far, split by whether
+     * their payload was stored in Amazon S3: how long they spent in the
+     * queue, how long their payloads took to read, and how long until they
+     * were returned by {@link #receiveMessage(ReceiveMessageRequest)}.
+     * Latencies are only recorded with
+     * {@link ExtendedClientConfiguration#setReceiveLatencyTrackingEnabled(boolean)}
+     * set, the snapshot is empty otherwise.
+     *
+     * @return The latencies recorded since the client was created.
+     */
+    public ReceiveLatencySnapshot getReceiveLatencySnapshot() {
+        return receiveLatencyTracker == null
+                ? new ReceiveLatencyTracker().snapshot()
+                : receiveLatencyTracker.snapshot();
+    }
+
     /**
      * <p>
      * Retrieves one or more messages (up to 10), from the specified queue. Using the <code>WaitTimeSeconds</code>
@@ -2080,8 +2292,11 @@ public class ExtendedSqsClient implements SqsClient {
             return this.sqsClient.sendMessage(sendMessageRequest);
         }
 
-        if (clientConfiguration.isAlwaysThroughS3() || isLarge(sendMessageRequest)) {
+        if (isStoredInS3(sendMessageRequest.queueUrl(), sendMessageRequest.messageBody(),
+                sendMessageRequest.messageAttributes())) {
             sendMessageRequest = storeMessageInS3(sendMessageRequest);
+        } else if (metricsEnabled) {
+            metricsPublisher.recordPayloadInlined(ExtendedClientUtils.getStringSizeInBytes(sendMessageRequest.messageBody()));
         }
 
         return this.sqsClient.sendMessage(sendMessageRequest);
@@ -2125,6 +2340,117 @@ public class ExtendedSqsClient implements SqsClient {
         return sendMessage(SendMessageRequest.builder().applyMutation(sendMessageRequest).build());
     }
 
+    /**
+     * <p>
+     * Delivers a message whose payload is streamed to Amazon S3 from the given
+     * input stream, without reading it into memory. The message sent to the
+     * queue holds a pointer to the payload, whatever its size.
+     * </p>
+     * <p>
+     * The stream is read exactly <code>contentLength</code> bytes and is not
+     * closed. The payload is read back as UTF-8 text by
+     * {@link #receiveMessage(ReceiveMessageRequest)}.
+     * </p>
+     *
+     * @param sendMessageRequest The request to send, everything but the message body.
+     * @param payload            The message payload.
+     * @param contentLength      The number of bytes in the payload.
+     * @return Result of the SendMessage operation returned by the service.
+     * @throws SdkClientException If large-payload support is disabled, or if the
+     *                            payload could not be stored in S3.
+     * @throws SqsException       Base class for all service exceptions.
+     */
+    public SendMessageResponse sendMessage(SendMessageRequest sendMessageRequest, InputStream payload,
+                                           long contentLength) throws AwsServiceException, SdkClientException {
+        checkStreamingSendMessageRequest(sendMessageRequest, payload);
+        return sendMessagePayloadInS3(sendMessageRequest, RequestBody.fromInputStream(payload, contentLength),
+                contentLength);
+    }
+
+    /**
+     * <p>
+     * Delivers a message whose payload is streamed to Amazon S3 from an input
+     * stream of unknown length. The stream is read to its end into a temporary
+     * file first, since S3 needs to know the object size up front; the payload
+     * is never held in memory. The stream is not closed.
+     * </p>
+     *
+     * @param sendMessageRequest The request to send, everything but the message body.
+     * @param payload            The message payload.
+     * @return Result of the SendMessage operation returned by the service.
+     * @throws SdkClientException If large-payload support is disabled, or if the
+     *                            payload could not be stored in S3.
+     * @throws SqsException       Base class for all service exceptions.
+     */
+    public SendMessageResponse sendMessage(SendMessageRequest sendMessageRequest, InputStream payload)
+            throws AwsServiceException, SdkClientException {
+        checkStreamingSendMessageRequest(sendMessageRequest, payload);
+
+        Path spoolFile = null;
+        try {
+            spoolFile = Files.createTempFile("sqs-extended-client", ".payload");
+            Files.copy(payload, spoolFile, StandardCopyOption.REPLACE_EXISTING);
+            return sendMessagePayloadInS3(sendMessageRequest, RequestBody.fromFile(spoolFile), Files.size(spoolFile));
+        } catch (IOException e) {
+            String errorMessage = "Failed to read the message payload. SQS message was not sent.";
+            LOG.error(errorMessage, e);
+            throw SdkClientException.create(errorMessage, e);
+        } finally {
+            deleteSpoolFile(spoolFile);
+        }
+    }
+
+    /**
+     * <p>
+     * Delivers a message whose payload, the remaining bytes of the buffer, is
+     * stored in Amazon S3 straight from the buffer. The position of the buffer
+     * is not changed.
+     * </p>
+     *
+     * @param sendMessageRequest The request to send, everything but the message body.
+     * @param payload            The message payload.
+     * @return Result of the SendMessage operation returned by the service.
+     * @throws SdkClientException If large-payload support is disabled, or if the
+     *                            payload could not be stored in S3.
+     * @throws SqsException       Base class for all service exceptions.
+     */
+    public SendMessageResponse sendMessage(SendMessageRequest sendMessageRequest, ByteBuffer payload)
+            throws AwsServiceException, SdkClientException {
+        checkStreamingSendMessageRequest(sendMessageRequest, payload);
+        ByteBuffer payloadBuffer = payload.asReadOnlyBuffer();
+        RequestBody requestBody = RequestBody.fromContentProvider(() -> new ByteBufferInputStream(payloadBuffer),
+                payloadBuffer.remaining(), "application/octet-stream");
+        return sendMessagePayloadInS3(sendMessageRequest, requestBody, payloadBuffer.remaining());
+    }
+
+    /**
+     * <p>
+     * Delivers a message whose payload is streamed to Amazon S3 from the given
+     * file.
+     * </p>
+     *
+     * @param sendMessageRequest The request to send, everything but the message body.
+     * @param payload            The file holding the message payload.
+     * @return Result of the SendMessage operation returned by the service.
+     * @throws SdkClientException If large-payload support is disabled, or if the
+     *                            payload could not be stored in S3.
+     * @throws SqsException       Base class for all service exceptions.
+     */
+    public SendMessageResponse sendMessage(SendMessageRequest sendMessageRequest, Path payload)
+            throws AwsServiceException, SdkClientException {
+        checkStreamingSendMessageRequest(sendMessageRequest, payload);
+
+        long contentLength;
+        try {
+            contentLength = Files.size(payload);
+        } catch (IOException e) {
+            String errorMessage = "Failed to read the message payload. SQS message was not sent.";
+            LOG.error(errorMessage, e);
+            throw SdkClientException.create(errorMessage, e);
+        }
+        return sendMessagePayloadInS3(sendMessageRequest, RequestBody.fromFile(payload), contentLength);
+    }
+
 
     /**
      * <p>
@@ -2198,7 +2524,58 @@ public class ExtendedSqsClient implements SqsClient {
             BatchRequestTooLongException, InvalidBatchEntryIdException,
             software.amazon.awssdk.services.sqs.model.UnsupportedOperationException, AwsServiceException, SdkClientException,
             SqsException {
-        return this.sqsClient.sendMessageBatch(sendMessageBatchRequest);
+        if (sendMessageBatchRequest == null) {
+            String errorMessage = "sendMessageBatchRequest cannot be null.";
+            LOG.error(errorMessage);
+            throw SdkClientException.create(errorMessage);
+        }
+
+        if (!clientConfiguration.isLargePayloadSupportEnabled()) {
+            return this.sqsClient.sendMessageBatch(sendMessageBatchRequest);
+        }
+
+        String queueUrl = sendMessageBatchRequest.queueUrl();
+        List<SendMessageBatchRequestEntry> entries = sendMessageBatchRequest.entries();
+        List<SendMessageBatchRequestEntry> largeEntries = new ArrayList<>();
+        for (SendMessageBatchRequestEntry entry : entries) {
+            if (entry.messageBody() != null && isStoredInS3(queueUrl, entry.messageBody(), entry.messageAttributes())) {
+                largeEntries.add(entry);
+            } else if (metricsEnabled && entry.messageBody() != null) {
+                metricsPublisher.recordPayloadInlined(ExtendedClientUtils.getStringSizeInBytes(entry.messageBody()));
+            }
+        }
+
+        List<CompletableFuture<SendMessageBatchRequestEntry>> storedEntries = s3TaskRunner.run(largeEntries,
+                entry -> storeMessageInS3(queueUrl, entry));
+
+        List<SendMessageBatchRequestEntry> updatedEntries = new ArrayList<>(entries.size());
+        List<BatchResultErrorEntry> failedEntries = new ArrayList<>();
+        int largeEntryIndex = 0;
+        for (SendMessageBatchRequestEntry entry : entries) {
+            if (largeEntryIndex < largeEntries.size() && largeEntries.get(largeEntryIndex) == entry) {
+                try {
+                    updatedEntries.add(storedEntries.get(largeEntryIndex).join());
+                } catch (CompletionException e) {
+                    failedEntries.add(ExtendedClientUtils.getS3FailureBatchResultErrorEntry(entry.id(), e));
+                }
+                largeEntryIndex++;
+            } else {
+                updatedEntries.add(entry);
+            }
+        }
+
+        if (updatedEntries.isEmpty()) {
+            return SendMessageBatchResponse.builder().failed(failedEntries).build();
+        }
+
+        SendMessageBatchRequest updatedRequest = sendMessageBatchRequest.toBuilder().entries(updatedEntries).build();
+        SendMessageBatchResponse sendMessageBatchResponse = this.sqsClient.sendMessageBatch(updatedRequest);
+        if (failedEntries.isEmpty()) {
+            return sendMessageBatchResponse;
+        }
+
+        failedEntries.addAll(sendMessageBatchResponse.failed());
+        return sendMessageBatchResponse.toBuilder().failed(failedEntries).build();
     }
 
     /**
@@ -2592,15 +2969,175 @@ public class ExtendedSqsClient implements SqsClient {
         return this.sqsClient.untagQueue(untagQueueRequest);
     }
 
-    private void deleteMessagePayloadFromS3(String receiptHandle) {
-        String s3MsgBucketName = getFromReceiptHandleByMarker(receiptHandle, SQSExtendedClientConstants.S3_BUCKET_NAME_MARKER);
-        String s3MsgKey = getFromReceiptHandleByMarker(receiptHandle, SQSExtendedClientConstants.S3_KEY_MARKER);
+    private Message hydrateMessageTimed(String queueUrl, Message message) {
+        long start = System.nanoTime();
+        Message hydratedMessage = hydrateMessage(queueUrl, message);
+        receiveLatencyTracker.recordS3Fetch(System.nanoTime() - start);
+        return hydratedMessage;
+    }
+
+    private Message hydrateMessage(String queueUrl, Message message) {
+        String messageBody = message.body();
+        MessageS3Pointer s3Pointer;
+        String textFromS3;
+        try {
+            s3Pointer = ExtendedClientUtils.readMessageS3PointerFromJSON(messageBody);
+            textFromS3 = payloadCache == null
+                    ? getPayloadTextFromS3(queueUrl, message, s3Pointer)
+                    : payloadCache.get(s3Pointer.getS3BucketName(), s3Pointer.getS3Key(), getPayloadSize(message),
+                            () -> getPayloadTextFromS3(queueUrl, message, s3Pointer));
+        } catch (RuntimeException e) {
+            metricsPublisher.recordHydrationFailure();
+            throw e;
+        }
+
+        return toS3MessageBuilder(message, s3Pointer).body(textFromS3).build();
+    }
+
+    private String getPayloadTextFromS3(String queueUrl, Message message, MessageS3Pointer s3Pointer) {
+        PayloadCodec payloadCodec = getPayloadCodec(message);
+        long payloadSize = getPayloadSize(message);
+        String textFromS3;
+        if (payloadCodec == null && payloadSize >= clientConfiguration.getRangedDownloadThreshold()) {
+            // the payload size is the object size only when it is not compressed.
+            textFromS3 = new String(getObjectFromS3InRanges(queueUrl, s3Pointer.getS3BucketName(), s3Pointer.getS3Key(),
+                    payloadSize), StandardCharsets.UTF_8);
+        } else {
+            ResponseBytes<GetObjectResponse> object = getObjectFromS3(queueUrl, s3Pointer.getS3BucketName(),
+                    s3Pointer.getS3Key());
+            textFromS3 = payloadCodec == null
+                    ? getTextFromS3Object(object)
+                    : new String(ExtendedClientUtils.decodePayload(payloadCodec, object.asByteArray()), StandardCharsets.UTF_8);
+        }
+        LOG.info("S3 object read, Bucket name: " + s3Pointer.getS3BucketName() + ", Object key: " + s3Pointer.getS3Key() + ".");
+        return textFromS3;
+    }
+
+    private Message decodeInlineMessage(Message message) {
+        PayloadCodec payloadCodec;
+        String decodedBody;
+        try {
+            payloadCodec = getPayloadCodec(message);
+            if (payloadCodec == null) {
+                return message;
+            }
+            decodedBody = ExtendedClientUtils.decodeInlinePayload(payloadCodec, message.body());
+        } catch (RuntimeException e) {
+            metricsPublisher.recordHydrationFailure();
+            throw e;
+        }
+
+        return message.toBuilder()
+                .body(decodedBody)
+                .messageAttributes(ExtendedClientUtils.getMessageAttributesWithoutReservedAttributes(message.messageAttributes()))
+                .build();
+    }
+
+    private static long getPayloadSize(Message message) {
+        MessageAttributeValue payloadSizeAttributeValue = message.messageAttributes().get(
+                SQSExtendedClientConstants.RESERVED_ATTRIBUTE_NAME);
+        try {
+            return Long.parseLong(payloadSizeAttributeValue.stringValue());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private PayloadCodec getPayloadCodec(Message message) {
+        MessageAttributeValue codecAttributeValue = message.messageAttributes().get(
+                SQSExtendedClientConstants.RESERVED_CODEC_ATTRIBUTE_NAME);
+        return codecAttributeValue == null
+                ? null
+                : ExtendedClientUtils.getPayloadCodec(clientConfiguration, codecAttributeValue.stringValue());
+    }
+
+    /**
+     * <p>
+     * Retrieves messages like {@link #receiveMessage(ReceiveMessageRequest)},
+     * but without downloading the payloads stored in Amazon S3. Each payload is
+     * streamed from S3 when {@link StreamingMessage#openPayload()} is called,
+     * so payloads of any size can be consumed with constant memory.
+     * </p>
+     *
+     * @param receiveMessageRequest
+     * @return The received messages, in the order Amazon SQS returned them.
+     * @throws SdkClientException If large-payload support is disabled, or if
+     *                            an S3 pointer could not be read.
+     * @throws SqsException       Base class for all service exceptions.
+     */
+    public List<StreamingMessage> receiveStreamingMessages(ReceiveMessageRequest receiveMessageRequest)
+            throws AwsServiceException, SdkClientException {
+        if (receiveMessageRequest == null) {
+            String errorMessage = "receiveMessageRequest cannot be null.";
+            LOG.error(errorMessage);
+            throw SdkClientException.create(errorMessage);
+        }
+
+        if (!clientConfiguration.isLargePayloadSupportEnabled()) {
+            String errorMessage = "Large-payload support must be enabled to receive payloads as streams.";
+            LOG.error(errorMessage);
+            throw SdkClientException.create(errorMessage);
+        }
+
+        ReceiveMessageResponse receiveMessageResponse = this.sqsClient.receiveMessage(
+                ExtendedClientUtils.withReservedAttributeNames(receiveMessageRequest));
+
+        List<StreamingMessage> streamingMessages = new ArrayList<>(receiveMessageResponse.messages().size());
+        for (Message message : receiveMessageResponse.messages()) {
+            MessageAttributeValue payloadSize = message.messageAttributes().get(SQSExtendedClientConstants.RESERVED_ATTRIBUTE_NAME);
+            if (payloadSize == null) {
+                Message decodedMessage = decodeInlineMessage(message);
+                streamingMessages.add(new StreamingMessage(decodedMessage,
+                        ExtendedClientUtils.getStringSizeInBytes(decodedMessage.body()), null, null, null, null, 0));
+                continue;
+            }
+
+            MessageS3Pointer s3Pointer = ExtendedClientUtils.readMessageS3PointerFromJSON(message.body());
+            streamingMessages.add(new StreamingMessage(toS3MessageBuilder(message, s3Pointer).build(),
+                    Long.parseLong(payloadSize.stringValue()), s3, s3Pointer,
+                    getPayloadCodec(message), rangedPayloadDownloader, clientConfiguration.getRangedDownloadThreshold()));
+        }
+        return streamingMessages;
+    }
+
+    private static Message.Builder toS3MessageBuilder(Message message, MessageS3Pointer s3Pointer) {
+        Message.Builder messageBuilder = message.toBuilder();
+
+        // remove the additional attributes before returning the message
+        // to user.
+        messageBuilder.messageAttributes(ExtendedClientUtils.getMessageAttributesWithoutReservedAttributes(
+                message.messageAttributes()));
+
+        // Embed s3 object pointer in the receipt handle.
+        String modifiedReceiptHandle = S3ReceiptHandle.encode(message.receiptHandle(),
+                s3Pointer.getS3BucketName(), s3Pointer.getS3Key());
+
+        return messageBuilder.receiptHandle(modifiedReceiptHandle);
+    }
+
+    private void invalidateCachedPayload(String s3MsgBucketName, String s3MsgKey) {
+        if (payloadCache != null) {
+            payloadCache.invalidate(s3MsgBucketName, s3MsgKey);
+        }
+    }
+
+    private void deleteMessagePayloadFromS3(String queueUrl, String s3MsgBucketName, String s3MsgKey) {
+        if (deferredS3PayloadDeleter != null && deferredS3PayloadDeleter.enqueue(s3MsgBucketName, s3MsgKey)) {
+            return;
+        }
+
+        PayloadDeleteEvent event = PayloadEvents.beginDelete();
+        long start = System.nanoTime();
         try {
             DeleteObjectRequest deleteObjectRequest = DeleteObjectRequest.builder().bucket(s3MsgBucketName)
                     .key(s3MsgKey)
                     .build();
-            clientConfiguration.getAmazonS3Client().deleteObject(deleteObjectRequest);
+            s3.deleteObject(deleteObjectRequest);
+            metricsPublisher.recordS3Delete(System.nanoTime() - start, 1, true);
+            PayloadEvents.commitDelete(event, queueUrl, s3MsgBucketName, s3MsgKey, 1, true);
         } catch (SdkException e) {
+            metricsPublisher.recordS3Delete(System.nanoTime() - start, 0, false);
+            PayloadEvents.commitDelete(event, queueUrl, s3MsgBucketName, s3MsgKey, 0, false);
             String errorMessage = "Failed to delete the S3 object which contains the SQS message payload. SQS message was not deleted.";
             LOG.error(errorMessage, e);
             throw SdkException.create(errorMessage, e);
@@ -2609,29 +3146,251 @@ public class ExtendedSqsClient implements SqsClient {
         LOG.info("S3 object deleted, Bucket name: " + s3MsgBucketName + ", Object key: " + s3MsgKey + ".");
     }
 
+    /**
+     * Deletes the payloads of the given entries, all stored in the same
+     * bucket, with a single DeleteObjects call.
+     *
+     * @param s3MsgKeysById The payload key of every entry, by entry id.
+     * @return The error message for the id of every entry whose payload could
+     *         not be deleted.
+     */
+    private Map<String, String> deleteMessagePayloadsFromS3(String queueUrl, String s3MsgBucketName,
+                                                            Map<String, String> s3MsgKeysById) {
+        Map<String, List<String>> entryIdsByKey = new LinkedHashMap<>();
+        for (Map.Entry<String, String> s3MsgKeyById : s3MsgKeysById.entrySet()) {
+            entryIdsByKey.computeIfAbsent(s3MsgKeyById.getValue(), key -> new ArrayList<>()).add(s3MsgKeyById.getKey());
+        }
+
+        List<ObjectIdentifier> objectIdentifiers = new ArrayList<>(entryIdsByKey.size());
+        for (String s3MsgKey : entryIdsByKey.keySet()) {
+            objectIdentifiers.add(ObjectIdentifier.builder().key(s3MsgKey).build());
+        }
+        DeleteObjectsRequest deleteObjectsRequest = DeleteObjectsRequest.builder()
+                .bucket(s3MsgBucketName)
+                .delete(Delete.builder().objects(objectIdentifiers).quiet(true).build())
+                .build();
+
+        Map<String, String> failuresById = new HashMap<>();
+        int failedObjects = 0;
+        String firstS3MsgKey = objectIdentifiers.get(0).key();
+        PayloadDeleteEvent event = PayloadEvents.beginDelete();
+        long start = System.nanoTime();
+        try {
+            DeleteObjectsResponse deleteObjectsResponse = s3.deleteObjects(deleteObjectsRequest);
+            failedObjects = deleteObjectsResponse.errors().size();
+            metricsPublisher.recordS3Delete(System.nanoTime() - start, objectIdentifiers.size() - failedObjects,
+                    failedObjects == 0);
+            PayloadEvents.commitDelete(event, queueUrl, s3MsgBucketName, firstS3MsgKey,
+                    objectIdentifiers.size() - failedObjects, failedObjects == 0);
+            for (S3Error error : deleteObjectsResponse.errors()) {
+                String errorMessage = "Failed to delete the S3 object which contains the SQS message payload. SQS message was not deleted. "
+                        + error.code() + ": " + error.message();
+                LOG.error(errorMessage + " Bucket name: " + s3MsgBucketName + ", Object key: " + error.key() + ".");
+                for (String id : entryIdsByKey.getOrDefault(error.key(), Collections.emptyList())) {
+                    failuresById.put(id, errorMessage);
+                }
+            }
+        } catch (SdkException e) {
+            String errorMessage = "Failed to delete the S3 objects which contain the SQS message payloads. SQS messages were not deleted.";
+            metricsPublisher.recordS3Delete(System.nanoTime() - start, 0, false);
+            PayloadEvents.commitDelete(event, queueUrl, s3MsgBucketName, firstS3MsgKey, 0, false);
+            LOG.error(errorMessage, e);
+            for (String id : s3MsgKeysById.keySet()) {
+                failuresById.put(id, errorMessage + " " + e.getMessage());
+            }
+            return failuresById;
+        }
+
+        LOG.info("S3 objects deleted, Bucket name: " + s3MsgBucketName + ", Number of objects: "
+                + (objectIdentifiers.size() - failedObjects) + ".");
+        return failuresById;
+    }
+
+    private void checkStreamingSendMessageRequest(SendMessageRequest sendMessageRequest, Object payload) {
+        if (sendMessageRequest == null || payload == null) {
+            String errorMessage = "sendMessageRequest and payload cannot be null.";
+            LOG.error(errorMessage);
+            throw SdkClientException.create(errorMessage);
+        }
+
+        if (sendMessageRequest.messageBody() != null) {
+            String errorMessage = "messageBody must not be set when the payload is passed separately.";
+            LOG.error(errorMessage);
+            throw SdkClientException.create(errorMessage);
+        }
+
+        if (!clientConfiguration.isLargePayloadSupportEnabled()) {
+            String errorMessage = "Large-payload support must be enabled to send a payload through S3.";
+            LOG.error(errorMessage);
+            throw SdkClientException.create(errorMessage);
+        }
+    }
+
+    private SendMessageResponse sendMessagePayloadInS3(SendMessageRequest sendMessageRequest, RequestBody payload,
+                                                       long contentLength) {
+        Map<String, MessageAttributeValue> messageAttributes = ExtendedClientUtils.getMessageAttributesWithPayloadSize(
+                sendMessageRequest.messageAttributes(), contentLength);
+        String s3PointerStr = storeMessagePayloadInS3(sendMessageRequest.queueUrl(), payload);
+        metricsPublisher.recordPayloadOffloaded(contentLength);
+
+        return this.sqsClient.sendMessage(sendMessageRequest.toBuilder()
+                .messageBody(s3PointerStr)
+                .messageAttributes(messageAttributes)
+                .build());
+    }
+
+    private static void deleteSpoolFile(Path spoolFile) {
+        if (spoolFile == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(spoolFile);
+        } catch (IOException e) {
+            LOG.warn("Failed to delete the temporary payload file " + spoolFile + ".", e);
+        }
+    }
+
     private SendMessageRequest storeMessageInS3(SendMessageRequest sendMessageRequest) {
-        SendMessageRequest.Builder builder = sendMessageRequest.toBuilder();
 //        checkMessageAttributes(sendMessageRequest.messageAttributes());
+        EncodedMessage encodedMessage = encodeLargeMessage(sendMessageRequest.queueUrl(), sendMessageRequest.messageBody(),
+                sendMessageRequest.messageAttributes());
+
+        return sendMessageRequest.toBuilder()
+                .messageBody(encodedMessage.messageBody)
+                .messageAttributes(encodedMessage.messageAttributes)
+                .build();
+    }
 
-        String s3Key = UUID.randomUUID().toString();
-        String messageContentStr = sendMessageRequest.messageBody();
-        Long messageContentSize = getStringSizeInBytes(messageContentStr);
+    private SendMessageBatchRequestEntry storeMessageInS3(String queueUrl,
+                                                          SendMessageBatchRequestEntry sendMessageBatchRequestEntry) {
+        EncodedMessage encodedMessage = encodeLargeMessage(queueUrl, sendMessageBatchRequestEntry.messageBody(),
+                sendMessageBatchRequestEntry.messageAttributes());
 
-        MessageAttributeValue messageAttributeValue = MessageAttributeValue.builder()
-                .dataType("Number")
-                .stringValue(messageContentSize.toString())
+        return sendMessageBatchRequestEntry.toBuilder()
+                .messageBody(encodedMessage.messageBody)
+                .messageAttributes(encodedMessage.messageAttributes)
                 .build();
-        Map<String, MessageAttributeValue> messageAttributes = new HashMap<>(sendMessageRequest.messageAttributes());
-        messageAttributes.put(SQSExtendedClientConstants.RESERVED_ATTRIBUTE_NAME, messageAttributeValue);
+    }
+
+    /**
+     * Turns a message which is too large to send as is, or which has to go
+     * through S3, into the body and attributes to send. With a payload codec
+     * configured the payload is compressed first, and sent inline if it then
+     * fits; payloads which do not compress well enough are left as they are.
+     */
+    private EncodedMessage encodeLargeMessage(String queueUrl, String messageContentStr,
+                                              Map<String, MessageAttributeValue> originalAttributes) {
+        PayloadCodec payloadCodec = clientConfiguration.getPayloadCodec();
+        if (payloadCodec != null) {
+            byte[] payload = messageContentStr.getBytes(StandardCharsets.UTF_8);
+            byte[] encodedPayload = ExtendedClientUtils.encodePayload(payloadCodec, payload);
+            if (encodedPayload.length <= payload.length * clientConfiguration.getMaxPayloadCompressionRatio()) {
+                Map<String, MessageAttributeValue> messageAttributes = ExtendedClientUtils.getMessageAttributesWithCodec(
+                        originalAttributes, payloadCodec.getName());
+
+                String inlineBody = Base64.getEncoder().encodeToString(encodedPayload);
+                if (!clientConfiguration.isAlwaysThroughS3() && !ExtendedClientUtils.isLarge(inlineBody,
+                        messageAttributes, clientConfiguration.getMessageSizeThreshold())) {
+                    metricsPublisher.recordPayloadCompressed(payload.length, encodedPayload.length);
+                    return new EncodedMessage(inlineBody, messageAttributes);
+                }
+
+                String s3PointerStr = storeMessagePayloadInS3(queueUrl, encodedPayload);
+                metricsPublisher.recordPayloadOffloaded(payload.length);
+                return new EncodedMessage(s3PointerStr,
+                        ExtendedClientUtils.getMessageAttributesWithPayloadSize(messageAttributes, payload.length));
+            }
+        }
 
-        storeTextInS3(s3Key, messageContentStr);
-        LOG.info("S3 object created, Bucket name: " + clientConfiguration.getS3BucketName() + ", Object key: " + s3Key + ".");
+        long payloadSize = ExtendedClientUtils.getStringSizeInBytes(messageContentStr);
+        String s3PointerStr = storeMessagePayloadInS3(queueUrl, messageContentStr);
+        metricsPublisher.recordPayloadOffloaded(payloadSize);
+        return new EncodedMessage(s3PointerStr,
+                ExtendedClientUtils.getMessageAttributesWithPayloadSize(originalAttributes, payloadSize));
+    }
 
-        MessageS3Pointer s3Pointer = new MessageS3Pointer(clientConfiguration.getS3BucketName(), s3Key);
-        String s3PointerStr = getJSONFromS3Pointer(s3Pointer);
-        return builder.messageBody(s3PointerStr)
-                .messageAttributes(messageAttributes)
+    private String storeMessagePayloadInS3(String queueUrl, String messageContentStr) {
+        if (knownPayloadKeys != null) {
+            return storeMessagePayloadInS3(queueUrl, messageContentStr.getBytes(StandardCharsets.UTF_8));
+        }
+        return storeMessagePayloadInS3(queueUrl, RequestBody.fromString(messageContentStr));
+    }
+
+    private String storeMessagePayloadInS3(String queueUrl, byte[] payload) {
+        if (knownPayloadKeys == null) {
+            return storeMessagePayloadInS3(queueUrl, RequestBody.fromBytes(payload));
+        }
+
+        String s3Key = ExtendedClientUtils.getContentAddressedS3Key(payload);
+        String s3BucketName = selectS3BucketName(s3Key);
+        if (isPayloadStoredInS3(s3BucketName, s3Key)) {
+            LOG.debug("S3 object reused, Bucket name: " + s3BucketName + ", Object key: " + s3Key + ".");
+        } else {
+            long writtenAtMillis = System.currentTimeMillis();
+            storePayloadInS3(queueUrl, s3BucketName, s3Key, RequestBody.fromBytes(payload));
+            knownPayloadKeys.add(s3BucketName, s3Key, writtenAtMillis);
+            LOG.info("S3 object created, Bucket name: " + s3BucketName + ", Object key: " + s3Key + ".");
+        }
+
+        MessageS3Pointer s3Pointer = new MessageS3Pointer(s3BucketName, s3Key);
+        return ExtendedClientUtils.getJSONFromS3Pointer(s3Pointer);
+    }
+
+    /**
+     * Checks whether a content-addressed payload is already stored in S3,
+     * recently enough to be reused, first against the known keys and then
+     * with a HEAD request. When in doubt the payload is uploaded again, which
+     * is harmless as the object content does not change.
+     */
+    private boolean isPayloadStoredInS3(String s3BucketName, String s3Key) {
+        if (knownPayloadKeys.contains(s3BucketName, s3Key)) {
+            return true;
+        }
+
+        HeadObjectRequest headObjectRequest = HeadObjectRequest.builder()
+                .bucket(s3BucketName)
+                .key(s3Key)
                 .build();
+        HeadObjectResponse headObjectResponse;
+        try {
+            headObjectResponse = s3.headObject(headObjectRequest);
+        } catch (NoSuchKeyException e) {
+            return false;
+        } catch (SdkException e) {
+            // a HEAD response has no body to carry the NoSuchKey error code,
+            // so a missing object may only show as a 404.
+            if (e instanceof S3Exception && ((S3Exception) e).statusCode() == 404) {
+                return false;
+            }
+            LOG.warn("Failed to check whether the S3 object exists, it will be uploaded. Bucket name: "
+                    + s3BucketName + ", Object key: " + s3Key + ".", e);
+            return false;
+        }
+
+        if (headObjectResponse.lastModified() == null) {
+            return false;
+        }
+        long writtenAtMillis = headObjectResponse.lastModified().toEpochMilli();
+        if (!knownPayloadKeys.isReusable(writtenAtMillis)) {
+            return false;
+        }
+        knownPayloadKeys.add(s3BucketName, s3Key, writtenAtMillis);
+        return true;
+    }
+
+    private String storeMessagePayloadInS3(String queueUrl, RequestBody payload) {
+        String s3Key = ExtendedClientUtils.newS3Key(clientConfiguration);
+        String s3BucketName = selectS3BucketName(s3Key);
+
+        storePayloadInS3(queueUrl, s3BucketName, s3Key, payload);
+        LOG.info("S3 object created, Bucket name: " + s3BucketName + ", Object key: " + s3Key + ".");
+
+        MessageS3Pointer s3Pointer = new MessageS3Pointer(s3BucketName, s3Key);
+        return ExtendedClientUtils.getJSONFromS3Pointer(s3Pointer);
+    }
+
+    private String selectS3BucketName(String s3Key) {
+        return payloadBucketRouter != null ? payloadBucketRouter.selectBucket(s3Key) : clientConfiguration.getS3BucketName();
     }
 
 //    private void checkMessageAttributes(Map<String, MessageAttributeValue> messageAttributes) {
@@ -2662,58 +3421,56 @@ public class ExtendedSqsClient implements SqsClient {
 //        }
 //    }
 
-    private String embedS3PointerInReceiptHandle(String receiptHandle, String s3MsgBucketName, String s3MsgKey) {
-        String modifiedReceiptHandle = SQSExtendedClientConstants.S3_BUCKET_NAME_MARKER + s3MsgBucketName
-                + SQSExtendedClientConstants.S3_BUCKET_NAME_MARKER + SQSExtendedClientConstants.S3_KEY_MARKER
-                + s3MsgKey + SQSExtendedClientConstants.S3_KEY_MARKER + receiptHandle;
-        return modifiedReceiptHandle;
-    }
-
-    private MessageS3Pointer readMessageS3PointerFromJSON(String messageBody) {
-        MessageS3Pointer s3Pointer = null;
-        try {
-            JsonDataConverter jsonDataConverter = new JsonDataConverter();
-            s3Pointer = jsonDataConverter.deserializeFromJson(messageBody, MessageS3Pointer.class);
-        } catch (Exception e) {
-            String errorMessage = "Failed to read the S3 object pointer from an SQS message. Message was not received.";
-            LOG.error(errorMessage, e);
-            throw SdkClientException.create(errorMessage, e);
-        }
-        return s3Pointer;
-    }
-
-    private String getOrigReceiptHandle(String receiptHandle) {
-        int secondOccurence = receiptHandle.indexOf(SQSExtendedClientConstants.S3_KEY_MARKER,
-                receiptHandle.indexOf(SQSExtendedClientConstants.S3_KEY_MARKER) + 1);
-        return receiptHandle.substring(secondOccurence + SQSExtendedClientConstants.S3_KEY_MARKER.length());
-    }
-
-    private String getFromReceiptHandleByMarker(String receiptHandle, String marker) {
-        int firstOccurence = receiptHandle.indexOf(marker);
-        int secondOccurence = receiptHandle.indexOf(marker, firstOccurence + 1);
-        return receiptHandle.substring(firstOccurence + marker.length(), secondOccurence);
-    }
-
-    private boolean isS3ReceiptHandle(String receiptHandle) {
-        return receiptHandle.contains(SQSExtendedClientConstants.S3_BUCKET_NAME_MARKER)
-                && receiptHandle.contains(SQSExtendedClientConstants.S3_KEY_MARKER);
-    }
-
-    private String getTextFromS3(String s3BucketName, String s3Key) {
+    private ResponseBytes<GetObjectResponse> getObjectFromS3(String queueUrl, String s3BucketName, String s3Key) {
         GetObjectRequest getObjectRequest = GetObjectRequest.builder()
                 .bucket(s3BucketName)
                 .key(s3Key)
                 .build();
-        String embeddedText = null;
+        if (statistics != null) {
+            statistics.downloadStarted();
+        }
+        PayloadDownloadEvent event = PayloadEvents.beginDownload();
+        long start = System.nanoTime();
         ResponseBytes<GetObjectResponse> object = null;
         try {
-            object = clientConfiguration.getAmazonS3Client().getObject(getObjectRequest, ResponseTransformer.toBytes());
+            object = s3.getObject(getObjectRequest, ResponseTransformer.toBytes());
+            return object;
         } catch (SdkException e) {
             String errorMessage = "Failed to get the S3 object which contains the message payload. Message was not received.";
             LOG.error(errorMessage, e);
             throw SdkException.create(errorMessage, e);
+        } finally {
+            // also ends the download started above when anything other than
+            // an SdkException is thrown.
+            metricsPublisher.recordS3Get(System.nanoTime() - start,
+                    metricsEnabled && object != null ? object.asByteBuffer().remaining() : 0, object != null);
+            PayloadEvents.commitDownload(event, queueUrl, s3BucketName, s3Key, object);
         }
+    }
 
+    private byte[] getObjectFromS3InRanges(String queueUrl, String s3BucketName, String s3Key, long payloadSize) {
+        if (statistics != null) {
+            statistics.downloadStarted();
+        }
+        PayloadDownloadEvent event = PayloadEvents.beginDownload();
+        long start = System.nanoTime();
+        byte[] object = null;
+        try {
+            object = rangedPayloadDownloader.downloadToArray(s3BucketName, s3Key, payloadSize);
+            return object;
+        } catch (SdkException e) {
+            String errorMessage = "Failed to get the S3 object which contains the message payload. Message was not received.";
+            LOG.error(errorMessage, e);
+            throw SdkException.create(errorMessage, e);
+        } finally {
+            long bytes = object != null ? object.length : 0;
+            metricsPublisher.recordS3Get(System.nanoTime() - start, bytes, object != null);
+            PayloadEvents.commitDownload(event, queueUrl, s3BucketName, s3Key, bytes, object != null);
+        }
+    }
+
+    private String getTextFromS3Object(ResponseBytes<GetObjectResponse> object) {
+        String embeddedText = null;
         try {
             embeddedText = object.asUtf8String();
         } catch (UncheckedIOException e) {
@@ -2725,75 +3482,51 @@ public class ExtendedSqsClient implements SqsClient {
         return embeddedText;
     }
 
-    private boolean isLarge(SendMessageRequest sendMessageRequest) {
-        int msgAttributesSize = getMsgAttributesSize(sendMessageRequest.messageAttributes());
-        long msgBodySize = getStringSizeInBytes(sendMessageRequest.messageBody());
-        long totalMsgSize = msgAttributesSize + msgBodySize;
-        return (totalMsgSize > clientConfiguration.getMessageSizeThreshold());
+    private boolean isStoredInS3(String queueUrl, String messageBody, Map<String, MessageAttributeValue> messageAttributes) {
+        boolean storedInS3 = clientConfiguration.isAlwaysThroughS3() || ExtendedClientUtils.isLarge(messageBody,
+                messageAttributes, clientConfiguration.getMessageSizeThreshold());
+        PayloadEvents.commitOffloadDecision(queueUrl, messageBody, clientConfiguration.getMessageSizeThreshold(), storedInS3);
+        return storedInS3;
     }
 
-    private int getMsgAttributesSize(Map<String, MessageAttributeValue> msgAttributes) {
-        int totalMsgAttributesSize = 0;
-        for (Map.Entry<String, MessageAttributeValue> entry : msgAttributes.entrySet()) {
-            totalMsgAttributesSize += getStringSizeInBytes(entry.getKey());
-
-            MessageAttributeValue entryVal = entry.getValue();
-            if (entryVal.dataType() != null) {
-                totalMsgAttributesSize += getStringSizeInBytes(entryVal.dataType());
-            }
-
-            String stringVal = entryVal.stringValue();
-            if (stringVal != null) {
-                totalMsgAttributesSize += getStringSizeInBytes(entryVal.stringValue());
-            }
-
-            SdkBytes binaryVal = entryVal.binaryValue();
-            if (binaryVal != null) {
-                totalMsgAttributesSize += getStringSizeInBytes(binaryVal.toString());
-            }
-        }
-        return totalMsgAttributesSize;
-    }
-
-    private String getJSONFromS3Pointer(MessageS3Pointer s3Pointer) {
-        String s3PointerStr = null;
-        try {
-            s3PointerStr = jsonDataConverter.serializeToJson(s3Pointer);
-        } catch (Exception e) {
-            String errorMessage = "Failed to convert S3 object pointer to text. Message was not sent.";
-            LOG.error(errorMessage, e);
-            throw SdkClientException.create(errorMessage, e);
-        }
-        return s3PointerStr;
-    }
-
-    private void storeTextInS3(String s3Key, String messageContentStr) {
-        S3Client amazonS3Client = this.clientConfiguration.getAmazonS3Client();
+    private void storePayloadInS3(String queueUrl, String s3BucketName, String s3Key, RequestBody payload) {
         PutObjectRequest putObjectRequest = PutObjectRequest.builder()
-                .bucket(this.clientConfiguration.getS3BucketName())
+                .bucket(s3BucketName)
                 .key(s3Key)
+                .tagging(this.clientConfiguration.getPayloadTagging())
                 .build();
+        if (statistics != null) {
+            statistics.uploadStarted();
+        }
+        PayloadUploadEvent event = PayloadEvents.beginUpload();
+        long start = System.nanoTime();
+        boolean succeeded = false;
         try {
-            amazonS3Client.putObject(putObjectRequest, RequestBody.fromString(messageContentStr));
+            if (payload.contentLength() >= this.clientConfiguration.getMultipartUploadThreshold()) {
+                multipartPayloadUploader.upload(s3BucketName, s3Key, payload);
+            } else {
+                s3.putObject(putObjectRequest, payload);
+            }
+            succeeded = true;
         } catch (SdkException e) {
             String errorMessage = "Failed to store the message content in an S3 object. SQS message was not sent.";
             LOG.error(errorMessage);
             throw SdkClientException.create(errorMessage, e);
+        } finally {
+            // also ends the upload started above when the payload stream
+            // throws, for instance an UncheckedIOException.
+            metricsPublisher.recordS3Put(System.nanoTime() - start, payload.contentLength(), succeeded);
+            PayloadEvents.commitUpload(event, queueUrl, s3BucketName, s3Key, payload.contentLength(), succeeded);
         }
     }
 
-    private static long getStringSizeInBytes(String str) {
-        CountingOutputStream counterOutputStream = new CountingOutputStream();
-        try {
-            Writer writer = new OutputStreamWriter(counterOutputStream, StandardCharsets.UTF_8);
-            writer.write(str);
-            writer.flush();
-            writer.close();
-        } catch (IOException e) {
-            String errorMessage = "Failed to calculate the size of message payload.";
-            LOG.error(errorMessage, e);
-            throw SdkClientException.create(errorMessage, e);
+    private static final class EncodedMessage {
+        private final String messageBody;
+        private final Map<String, MessageAttributeValue> messageAttributes;
+
+        EncodedMessage(String messageBody, Map<String, MessageAttributeValue> messageAttributes) {
+            this.messageBody = messageBody;
+            this.messageAttributes = messageAttributes;
         }
-        return counterOutputStream.getTotalSize();
     }
 }
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package software.amazon.awssdk.services.sqs;
+
+/**
+ * Management interface of an {@link ExtendedSqsClient}, registered when
+ * {@link ExtendedClientConfiguration#setJmxEnabled(boolean)} is set. Counts
+ * start at zero when the client is created.
+ */
+public interface ExtendedSqsClientMXBean {
+
+    /**
+     * @return The number of payload uploads to Amazon S3 in progress.
+     */
+    long getInFlightUploads();
+
+    /**
+     * @return The number of payload downloads from Amazon S3 in progress.
+     */
+    long getInFlightDownloads();
+
+    /**
+     * @return The number of payloads uploaded to Amazon S3.
+     */
+    long getUploads();
+
+    /**
+     * @return The number of payload uploads which failed.
+     */
+    long getUploadFailures();
+
+    /**
+     * @return The total size of the payloads uploaded to Amazon S3.
+     */
+    long getBytesOffloaded();
+
+    /**
+     * @return The number of payloads downloaded from Amazon S3.
+     */
+    long getDownloads();
+
+    /**
+     * @return The number of payload downloads which failed.
+     */
+    long getDownloadFailures();
+
+    /**
+     * @return The total size of the payloads downloaded from Amazon S3.
+     */
+    long getBytesHydrated();
+
+    /**
+     * @return The number of messages sent with their payload in the body.
+     */
+    long getPayloadsInlined();
+
+    /**
+     * @return The total size of the payloads sent in the message body,
+     *         counting compressed payloads at their compressed size.
+     */
+    long getBytesInlined();
+
+    /**
+     * @return The number of payloads compressed to fit in the message body.
+     */
+    long getPayloadsCompressed();
+
+    /**
+     * @return The number of messages sent with their payload in Amazon S3.
+     */
+    long getPayloadsOffloaded();
+
+    /**
+     * @return The number of payloads deleted from Amazon S3.
+     */
+    long getDeletedPayloads();
+
+    /**
+     * @return The number of DeleteObject and DeleteObjects requests which
+     *         failed or left objects behind.
+     */
+    long getDeleteFailures();
+
+    /**
+     * @return The number of payload deletions queued by the deferred deleter
+     *         and not yet done.
+     */
+    long getPendingDeletions();
+
+    /**
+     * @return The number of payloads the deferred deleter gave up on.
+     */
+    long getFailedDeferredDeletions();
+
+    /**
+     * @return The number of received messages whose payload could not be
+     *         read.
+     */
+    long getHydrationFailures();
+
+    /**
+     * @return The number of payloads found in the payload cache.
+     */
+    long getPayloadCacheHits();
+
+    /**
+     * @return The number of payloads not found in the payload cache.
+     */
+    long getPayloadCacheMisses();
+
+    /**
+     * @return The total size of the payloads in the payload cache.
+     */
+    long getPayloadCacheBytes();
+
+    String getS3BucketName();
+
+    boolean isLargePayloadSupportEnabled();
+
+    boolean isAlwaysThroughS3();
+
+    int getMessageSizeThreshold();
+
+    /**
+     * @return The name of the payload codec, or null if payloads are not
+     *         compressed.
+     */
+    String getPayloadCodec();
+
+    int getS3MaxConcurrency();
+
+    long getMultipartUploadThreshold();
+
+    long getRangedDownloadThreshold();
+
+    long getPayloadCacheMaxBytes();
+
+    boolean isDeferredPayloadDeletionEnabled();
+
+    boolean isContentAddressedPayloadKeysEnabled();
+
+    boolean isLifecyclePayloadExpiryEnabled();
+}
@@ -0,0 +1,359 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package software.amazon.awssdk.services.sqs;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the work of an {@link ExtendedSqsClient} for its MBean. It receives
+ * the measurements of the client as its {@link MetricsPublisher}, passing
+ * them on to the configured publisher. Counters are {@link LongAdder}s, so
+ * that client threads updating them concurrently do not contend.
+ */
+class ExtendedSqsClientStatistics implements ExtendedSqsClientMXBean, MetricsPublisher {
+    private static final Logger LOG = LoggerFactory.getLogger(ExtendedSqsClientStatistics.class);
+
+    private static final String OBJECT_NAME_PREFIX = "software.amazon.awssdk.services.sqs:type=ExtendedSqsClient,name=";
+    private static final AtomicInteger CLIENT_COUNT = new AtomicInteger();
+
+    private final ExtendedClientConfiguration clientConfiguration;
+    private final MetricsPublisher metricsPublisher;
+
+    private final LongAdder inFlightUploads = new LongAdder();
+    private final LongAdder inFlightDownloads = new LongAdder();
+    private final LongAdder uploads = new LongAdder();
+    private final LongAdder uploadFailures = new LongAdder();
+    private final LongAdder bytesOffloaded = new LongAdder();
+    private final LongAdder downloads = new LongAdder();
+    private final LongAdder downloadFailures = new LongAdder();
+    private final LongAdder bytesHydrated = new LongAdder();
+    private final LongAdder payloadsInlined = new LongAdder();
+    private final LongAdder bytesInlined = new LongAdder();
+    private final LongAdder payloadsCompressed = new LongAdder();
+    private final LongAdder payloadsOffloaded = new LongAdder();
+    private final LongAdder deletedPayloads = new LongAdder();
+    private final LongAdder deleteFailures = new LongAdder();
+    private final LongAdder hydrationFailures = new LongAdder();
+    private final LongAdder payloadCacheHits = new LongAdder();
+    private final LongAdder payloadCacheMisses = new LongAdder();
+
+    private volatile DeferredS3PayloadDeleter deferredS3PayloadDeleter;
+    private volatile PayloadCache payloadCache;
+    private ObjectName objectName;
+
+    /**
+     * @param clientConfiguration The configuration of the client, which is
+     *                            not changed afterwards.
+     */
+    ExtendedSqsClientStatistics(ExtendedClientConfiguration clientConfiguration) {
+        this.clientConfiguration = clientConfiguration;
+        this.metricsPublisher = clientConfiguration.getMetricsPublisher();
+    }
+
+    /**
+     * Reports the backlog of the deferred deleter and the size of the payload
+     * cache of the client, either of which may be null.
+     */
+    void track(DeferredS3PayloadDeleter deferredS3PayloadDeleter, PayloadCache payloadCache) {
+        this.deferredS3PayloadDeleter = deferredS3PayloadDeleter;
+        this.payloadCache = payloadCache;
+    }
+
+    /**
+     * Registers the MBean with the platform MBean server. A failure to
+     * register is logged and otherwise ignored, the client works without it.
+     */
+    void register() {
+        String name = clientConfiguration.getJmxName() == null
+                ? "client-" + CLIENT_COUNT.incrementAndGet()
+                : clientConfiguration.getJmxName();
+        try {
+            ObjectName objectName = new ObjectName(OBJECT_NAME_PREFIX + ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+            this.objectName = objectName;
+        } catch (JMException e) {
+            LOG.warn("Failed to register the MBean of the SQS extended client, Name: " + name + ".", e);
+        }
+    }
+
+    void unregister() {
+        if (objectName == null) {
+            return;
+        }
+        MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        try {
+            mBeanServer.unregisterMBean(objectName);
+        } catch (JMException e) {
+            LOG.warn("Failed to unregister the MBean of the SQS extended client, Name: " + objectName + ".", e);
+        }
+        objectName = null;
+    }
+
+    ObjectName getObjectName() {
+        return objectName;
+    }
+
+    void uploadStarted() {
+        inFlightUploads.increment();
+    }
+
+    void downloadStarted() {
+        inFlightDownloads.increment();
+    }
+
+    @Override
+    public void recordS3Put(long latencyNanos, long bytes, boolean succeeded) {
+        inFlightUploads.decrement();
+        if (succeeded) {
+            uploads.increment();
+            bytesOffloaded.add(bytes);
+        } else {
+            uploadFailures.increment();
+        }
+        metricsPublisher.recordS3Put(latencyNanos, bytes, succeeded);
+    }
+
+    @Override
+    public void recordS3Get(long latencyNanos, long bytes, boolean succeeded) {
+        inFlightDownloads.decrement();
+        if (succeeded) {
+            downloads.increment();
+            bytesHydrated.add(bytes);
+        } else {
+            downloadFailures.increment();
+        }
+        metricsPublisher.recordS3Get(latencyNanos, bytes, succeeded);
+    }
+
+    @Override
+    public void recordS3Delete(long latencyNanos, int objects, boolean succeeded) {
+        deletedPayloads.add(objects);
+        if (!succeeded) {
+            deleteFailures.increment();
+        }
+        metricsPublisher.recordS3Delete(latencyNanos, objects, succeeded);
+    }
+
+    @Override
+    public void recordPayloadInlined(long bytes) {
+        payloadsInlined.increment();
+        bytesInlined.add(bytes);
+        metricsPublisher.recordPayloadInlined(bytes);
+    }
+
+    @Override
+    public void recordPayloadCompressed(long bytes, long encodedBytes) {
+        payloadsCompressed.increment();
+        bytesInlined.add(encodedBytes);
+        metricsPublisher.recordPayloadCompressed(bytes, encodedBytes);
+    }
+
+    @Override
+    public void recordPayloadOffloaded(long bytes) {
+        payloadsOffloaded.increment();
+        metricsPublisher.recordPayloadOffloaded(bytes);
+    }
+
+    @Override
+    public void recordHydrationFailure() {
+        hydrationFailures.increment();
+        metricsPublisher.recordHydrationFailure();
+    }
+
+    @Override
+    public void recordPayloadCacheHit() {
+        payloadCacheHits.increment();
+        metricsPublisher.recordPayloadCacheHit();
+    }
+
+    @Override
+    public void recordPayloadCacheMiss() {
+        payloadCacheMisses.increment();
+        metricsPublisher.recordPayloadCacheMiss();
+    }
+
+    @Override
+    public long getInFlightUploads() {
+        return inFlightUploads.sum();
+    }
+
+    @Override
+    public long getInFlightDownloads() {
+        return inFlightDownloads.sum();
+    }
+
+    @Override
+    public long getUploads() {
+        return uploads.sum();
+    }
+
+    @Override
+    public long getUploadFailures() {
+        return uploadFailures.sum();
+    }
+
+    @Override
+    public long getBytesOffloaded() {
+        return bytesOffloaded.sum();
+    }
+
+    @Override
+    public long getDownloads() {
+        return downloads.sum();
+    }
+
+    @Override
+    public long getDownloadFailures() {
+        return downloadFailures.sum();
+    }
+
+    @Override
+    public long getBytesHydrated() {
+        return bytesHydrated.sum();
+    }
+
+    @Override
+    public long getPayloadsInlined() {
+        return payloadsInlined.sum();
+    }
+
+    @Override
+    public long getBytesInlined() {
+        return bytesInlined.sum();
+    }
+
+    @Override
+    public long getPayloadsCompressed() {
+        return payloadsCompressed.sum();
+    }
+
+    @Override
+    public long getPayloadsOffloaded() {
+        return payloadsOffloaded.sum();
+    }
+
+    @Override
+    public long getDeletedPayloads() {
+        return deletedPayloads.sum();
+    }
+
+    @Override
+    public long getDeleteFailures() {
+        return deleteFailures.sum();
+    }
+
+    @Override
+    public long getPendingDeletions() {
+        DeferredS3PayloadDeleter deleter = deferredS3PayloadDeleter;
+        return deleter == null ? 0 : deleter.getPendingDeletions();
+    }
+
+    @Override
+    public long getFailedDeferredDeletions() {
+        DeferredS3PayloadDeleter deleter = deferredS3PayloadDeleter;
+        return deleter == null ? 0 : deleter.getFailedDeletions();
+    }
+
+    @Override
+    public long getHydrationFailures() {
+        return hydrationFailures.sum();
+    }
+
+    @Override
+    public long getPayloadCacheHits() {
+        return payloadCacheHits.sum();
+    }
+
+    @Override
+    public long getPayloadCacheMisses() {
+        return payloadCacheMisses.sum();
+    }
+
+    @Override
+    public long getPayloadCacheBytes() {
+        PayloadCache cache = payloadCache;
+        return cache == null ? 0 : cache.getCurrentBytes();
+    }
+
+    @Override
+    public String getS3BucketName() {
+        return clientConfiguration.getS3BucketName();
+    }
+
+    @Override
+    public boolean isLargePayloadSupportEnabled() {
+        return clientConfiguration.isLargePayloadSupportEnabled();
+    }
+
+    @Override
+    public boolean isAlwaysThroughS3() {
+        return clientConfiguration.isAlwaysThroughS3();
+    }
+
+    @Override
+    public int getMessageSizeThreshold() {
+        return clientConfiguration.getMessageSizeThreshold();
+    }
+
+    @Override
+    public String getPayloadCodec() {
+        PayloadCodec payloadCodec = clientConfiguration.getPayloadCodec();
+        return payloadCodec == null ? null : payloadCodec.getName();
+    }
+
+    @Override
+    public int getS3MaxConcurrency() {
+        return clientConfiguration.getS3MaxConcurrency();
+    }
+
+    @Override
+    public long getMultipartUploadThreshold() {
+        return clientConfiguration.getMultipartUploadThreshold();
+    }
+
+    @Override
+    public long getRangedDownloadThreshold() {
+        return clientConfiguration.getRangedDownloadThreshold();
+    }
+
+    @Override
+    public long getPayloadCacheMaxBytes() {
+        return clientConfiguration.getPayloadCacheMaxBytes();
+    }
+
+    @Override
+    public boolean isDeferredPayloadDeletionEnabled() {
+        return clientConfiguration.isDeferredPayloadDeletionEnabled();
+    }
+
+    @Override
+    public boolean isContentAddressedPayloadKeysEnabled() {
+        return clientConfiguration.isContentAddressedPayloadKeysEnabled();
+    }
+
+    @Override
+    public boolean isLifecyclePayloadExpiryEnabled() {
+        return clientConfiguration.isLifecyclePayloadExpiryEnabled();
+    }
+}
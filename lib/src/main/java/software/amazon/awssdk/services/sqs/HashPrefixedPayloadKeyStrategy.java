@@ -0,0 +1,90 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package software.amazon.awssdk.services.sqs;
+
+import software.amazon.awssdk.core.exception.SdkClientException;
+
+/**
+ * Places each payload key under a short hexadecimal prefix derived from a
+ * hash of the key, such as {@code 3f/} followed by the key, so that uploads
+ * are spread evenly over that many prefixes. Amazon S3 scales its request
+ * rate per prefix, and a bucket taking a high rate of uploads is throttled
+ * less when they do not all share the same leading characters.
+ *
+ * <p>
+ * Consumers only ever see the full key in the message pointer, so the
+ * prefix can be introduced or changed without affecting messages in flight.
+ * </p>
+ */
+public class HashPrefixedPayloadKeyStrategy implements PayloadKeyStrategy {
+
+    private static final int MAX_PREFIX_LENGTH = 8;
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private final PayloadKeyStrategy keyStrategy;
+    private final int prefixLength;
+
+    /**
+     * Prefixes random keys from {@link PayloadKeyStrategy#RANDOM_UUID}.
+     *
+     * @param prefixLength The number of hexadecimal digits in the prefix,
+     *                     from 1 to 8, giving 16 to 2^32 prefixes.
+     */
+    public HashPrefixedPayloadKeyStrategy(int prefixLength) {
+        this(PayloadKeyStrategy.RANDOM_UUID, prefixLength);
+    }
+
+    /**
+     * @param keyStrategy  The strategy creating the keys to prefix.
+     * @param prefixLength The number of hexadecimal digits in the prefix,
+     *                     from 1 to 8, giving 16 to 2^32 prefixes.
+     */
+    public HashPrefixedPayloadKeyStrategy(PayloadKeyStrategy keyStrategy, int prefixLength) {
+        if (keyStrategy == null) {
+            throw SdkClientException.create("Payload key strategy cannot be null.");
+        }
+        if (prefixLength < 1 || prefixLength > MAX_PREFIX_LENGTH) {
+            throw SdkClientException.create("Payload key prefix length must be between 1 and " + MAX_PREFIX_LENGTH + ".");
+        }
+        this.keyStrategy = keyStrategy;
+        this.prefixLength = prefixLength;
+    }
+
+    @Override
+    public String newS3Key() {
+        String s3Key = keyStrategy.newS3Key();
+        int hash = mix(s3Key.hashCode());
+
+        char[] prefixedKey = new char[prefixLength + 1 + s3Key.length()];
+        for (int i = 0; i < prefixLength; i++) {
+            prefixedKey[i] = HEX_DIGITS[(hash >>> (28 - 4 * i)) & 0xF];
+        }
+        prefixedKey[prefixLength] = '/';
+        s3Key.getChars(0, s3Key.length(), prefixedKey, prefixLength + 1);
+        return new String(prefixedKey);
+    }
+
+    // spreads the bits of String.hashCode, whose high bits barely change
+    // between keys differing only in their last characters.
+    private static int mix(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        hash ^= hash >>> 16;
+        return hash;
+    }
+}
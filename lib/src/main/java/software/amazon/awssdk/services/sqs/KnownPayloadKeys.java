@@ -0,0 +1,73 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package software.amazon.awssdk.services.sqs;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Remembers, for a bounded number of content-addressed payload keys, when
+ * their objects were last written to Amazon S3. A key is only reported as
+ * stored while its object is younger than the reuse age, so that a payload is
+ * uploaded again, restarting its lifecycle expiration, before it could expire
+ * under a message which still refers to it.
+ */
+class KnownPayloadKeys {
+
+    private final int maxKeys;
+    private final long maxAgeMillis;
+    private final Map<String, Long> writtenAtMillisByKey;
+
+    KnownPayloadKeys(int maxKeys, long maxAgeMillis) {
+        this.maxKeys = maxKeys;
+        this.maxAgeMillis = maxAgeMillis;
+        this.writtenAtMillisByKey = new LinkedHashMap<String, Long>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                return size() > KnownPayloadKeys.this.maxKeys;
+            }
+        };
+    }
+
+    /**
+     * @return True if the object was written recently enough to be reused.
+     */
+    boolean isReusable(long writtenAtMillis) {
+        return System.currentTimeMillis() - writtenAtMillis < maxAgeMillis;
+    }
+
+    /**
+     * @return True if the object is known to be stored and can be reused.
+     */
+    synchronized boolean contains(String s3BucketName, String s3Key) {
+        String cacheKey = s3BucketName + "/" + s3Key;
+        Long writtenAtMillis = writtenAtMillisByKey.get(cacheKey);
+        if (writtenAtMillis == null) {
+            return false;
+        }
+        if (!isReusable(writtenAtMillis)) {
+            writtenAtMillisByKey.remove(cacheKey);
+            return false;
+        }
+        return true;
+    }
+
+    synchronized void add(String s3BucketName, String s3Key, long writtenAtMillis) {
+        if (maxKeys > 0) {
+            writtenAtMillisByKey.put(s3BucketName + "/" + s3Key, writtenAtMillis);
+        }
+    }
+}
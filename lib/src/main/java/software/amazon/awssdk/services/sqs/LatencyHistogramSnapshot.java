@@ -0,0 +1,89 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package software.amazon.awssdk.services.sqs;
+
+/**
+ * The latencies recorded in a histogram up to the moment the snapshot was
+ * taken. All values are in microseconds.
+ */
+public class LatencyHistogramSnapshot {
+
+    private final long[] bucketCounts;
+    private final long count;
+    private final long totalMicros;
+    private final long maxMicros;
+
+    LatencyHistogramSnapshot(long[] bucketCounts, long totalMicros, long maxMicros) {
+        this.bucketCounts = bucketCounts;
+        long count = 0;
+        for (long bucketCount : bucketCounts) {
+            count += bucketCount;
+        }
+        this.count = count;
+        this.totalMicros = totalMicros;
+        this.maxMicros = maxMicros;
+    }
+
+    /**
+     * @return The number of recorded latencies.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return The mean latency, or 0 if none was recorded.
+     */
+    public double getMean() {
+        return count == 0 ? 0 : (double) totalMicros / count;
+    }
+
+    /**
+     * @return The highest latency, or 0 if none was recorded.
+     */
+    public long getMax() {
+        return maxMicros;
+    }
+
+    /**
+     * Gets the latency which the given percentage of the recorded latencies
+     * do not exceed, to within about 3%.
+     *
+     * @param percentile A percentage between 0 and 100, such as 99.9.
+     * @return The latency, or 0 if none was recorded.
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(Math.min(100, Math.max(0, percentile)) / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < bucketCounts.length; i++) {
+            seen += bucketCounts[i];
+            if (seen >= rank) {
+                return Math.min(LatencyHistogram.highestEquivalentValue(i), maxMicros);
+            }
+        }
+        return maxMicros;
+    }
+
+    @Override
+    public String toString() {
+        return "LatencyHistogramSnapshot{count=" + count + ", mean=" + Math.round(getMean())
+                + ", p50=" + getValueAtPercentile(50) + ", p99=" + getValueAtPercentile(99)
+                + ", p999=" + getValueAtPercentile(99.9) + ", max=" + maxMicros + "}";
+    }
+}
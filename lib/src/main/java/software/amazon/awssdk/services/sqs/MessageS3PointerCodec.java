@@ -0,0 +1,310 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package software.amazon.awssdk.services.sqs;
+
+/**
+ * Writes and reads the JSON message body which points to a payload in Amazon
+ * S3, without going through a general purpose JSON mapper.
+ *
+ * <p>
+ * Pointers are written the way {@link JsonDataConverter} writes them, as an
+ * array of the class name and the pointer object:
+ * <code>["software.amazon.awssdk.services.sqs.MessageS3Pointer",{"s3BucketName":"...","s3Key":"..."}]</code>.
+ * Pointers are read in that form with any class name, such as the one of the
+ * extended client for the AWS SDK for Java 1.x, or as a bare pointer object.
+ * Unknown properties are ignored.
+ * </p>
+ */
+final class MessageS3PointerCodec {
+
+    private static final String TYPE_ID = MessageS3Pointer.class.getName();
+    private static final String S3_BUCKET_NAME = "s3BucketName";
+    private static final String S3_KEY = "s3Key";
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+    private final String json;
+    private int position;
+
+    private MessageS3PointerCodec(String json) {
+        this.json = json;
+    }
+
+    static String encode(MessageS3Pointer s3Pointer) {
+        String s3BucketName = s3Pointer.getS3BucketName();
+        String s3Key = s3Pointer.getS3Key();
+        StringBuilder json = new StringBuilder(TYPE_ID.length() + 40
+                + (s3BucketName == null ? 4 : s3BucketName.length()) + (s3Key == null ? 4 : s3Key.length()));
+        json.append("[\"").append(TYPE_ID).append("\",{\"").append(S3_BUCKET_NAME).append("\":");
+        appendString(json, s3BucketName);
+        json.append(",\"").append(S3_KEY).append("\":");
+        appendString(json, s3Key);
+        return json.append("}]").toString();
+    }
+
+    /**
+     * @throws IllegalArgumentException If the text is not a pointer.
+     */
+    static MessageS3Pointer decode(String json) {
+        if (json == null) {
+            throw new IllegalArgumentException("The message body is null.");
+        }
+        return new MessageS3PointerCodec(json).readPointer();
+    }
+
+    private static void appendString(StringBuilder json, String value) {
+        if (value == null) {
+            json.append("null");
+            return;
+        }
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    json.append("\\\"");
+                    break;
+                case '\\':
+                    json.append("\\\\");
+                    break;
+                case '\b':
+                    json.append("\\b");
+                    break;
+                case '\f':
+                    json.append("\\f");
+                    break;
+                case '\n':
+                    json.append("\\n");
+                    break;
+                case '\r':
+                    json.append("\\r");
+                    break;
+                case '\t':
+                    json.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        json.append("\\u00").append(HEX_DIGITS[c >> 4]).append(HEX_DIGITS[c & 0xF]);
+                    } else {
+                        json.append(c);
+                    }
+            }
+        }
+        json.append('"');
+    }
+
+    private MessageS3Pointer readPointer() {
+        skipWhitespace();
+        MessageS3Pointer s3Pointer;
+        if (peek() == '[') {
+            position++;
+            skipWhitespace();
+            readString();
+            skipWhitespace();
+            expect(',');
+            skipWhitespace();
+            s3Pointer = readPointerObject();
+            skipWhitespace();
+            expect(']');
+        } else {
+            s3Pointer = readPointerObject();
+        }
+        skipWhitespace();
+        if (position != json.length()) {
+            throw error("Unexpected text after the S3 pointer");
+        }
+        return s3Pointer;
+    }
+
+    private MessageS3Pointer readPointerObject() {
+        MessageS3Pointer s3Pointer = new MessageS3Pointer();
+        expect('{');
+        skipWhitespace();
+        if (peek() == '}') {
+            position++;
+            return s3Pointer;
+        }
+        while (true) {
+            String name = readString();
+            skipWhitespace();
+            expect(':');
+            skipWhitespace();
+            if (S3_BUCKET_NAME.equals(name)) {
+                s3Pointer.setS3BucketName(readNullableString());
+            } else if (S3_KEY.equals(name)) {
+                s3Pointer.setS3Key(readNullableString());
+            } else {
+                skipValue();
+            }
+            skipWhitespace();
+            char c = next();
+            if (c == '}') {
+                return s3Pointer;
+            }
+            if (c != ',') {
+                throw error("Expected ',' or '}'");
+            }
+            skipWhitespace();
+        }
+    }
+
+    private String readNullableString() {
+        if (json.startsWith("null", position)) {
+            position += 4;
+            return null;
+        }
+        return readString();
+    }
+
+    private String readString() {
+        expect('"');
+        int start = position;
+        while (position < json.length()) {
+            char c = json.charAt(position);
+            if (c == '"') {
+                return json.substring(start, position++);
+            }
+            if (c == '\\') {
+                return readEscapedString(start);
+            }
+            position++;
+        }
+        throw error("Unterminated string");
+    }
+
+    private String readEscapedString(int start) {
+        StringBuilder value = new StringBuilder(position - start + 16).append(json, start, position);
+        while (true) {
+            char c = next();
+            if (c == '"') {
+                return value.toString();
+            }
+            if (c != '\\') {
+                value.append(c);
+                continue;
+            }
+            char escaped = next();
+            switch (escaped) {
+                case '"':
+                case '\\':
+                case '/':
+                    value.append(escaped);
+                    break;
+                case 'b':
+                    value.append('\b');
+                    break;
+                case 'f':
+                    value.append('\f');
+                    break;
+                case 'n':
+                    value.append('\n');
+                    break;
+                case 'r':
+                    value.append('\r');
+                    break;
+                case 't':
+                    value.append('\t');
+                    break;
+                case 'u':
+                    value.append(readHexChar());
+                    break;
+                default:
+                    throw error("Invalid escape sequence");
+            }
+        }
+    }
+
+    private char readHexChar() {
+        if (position + 4 > json.length()) {
+            throw error("Invalid unicode escape");
+        }
+        int value = 0;
+        for (int i = 0; i < 4; i++) {
+            int digit = Character.digit(json.charAt(position++), 16);
+            if (digit < 0) {
+                throw error("Invalid unicode escape");
+            }
+            value = (value << 4) | digit;
+        }
+        return (char) value;
+    }
+
+    /**
+     * Skips the value of a property which is not part of the pointer.
+     */
+    private void skipValue() {
+        char c = peek();
+        if (c == '"') {
+            readString();
+        } else if (c == '{' || c == '[') {
+            int depth = 0;
+            do {
+                c = peek();
+                if (c == '"') {
+                    readString();
+                    continue;
+                }
+                if (c == '{' || c == '[') {
+                    depth++;
+                } else if (c == '}' || c == ']') {
+                    depth--;
+                }
+                position++;
+            } while (depth > 0);
+        } else {
+            int start = position;
+            while (position < json.length() && ",}] \t\r\n".indexOf(json.charAt(position)) < 0) {
+                position++;
+            }
+            if (position == start) {
+                throw error("Expected a value");
+            }
+        }
+    }
+
+    private void skipWhitespace() {
+        while (position < json.length()) {
+            char c = json.charAt(position);
+            if (c != ' ' && c != '\t' && c != '\r' && c != '\n') {
+                return;
+            }
+            position++;
+        }
+    }
+
+    private char peek() {
+        if (position >= json.length()) {
+            throw error("Unexpected end of text");
+        }
+        return json.charAt(position);
+    }
+
+    private char next() {
+        char c = peek();
+        position++;
+        return c;
+    }
+
+    private void expect(char expected) {
+        if (next() != expected) {
+            position--;
+            throw error("Expected '" + expected + "'");
+        }
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message + " at position " + position + " of the S3 pointer.");
+    }
+}
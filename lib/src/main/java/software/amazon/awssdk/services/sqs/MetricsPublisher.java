@@ -0,0 +1,119 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package software.amazon.awssdk.services.sqs;
+
+/**
+ * Receives measurements of the work the extended clients do with Amazon S3:
+ * the latency of every payload upload, download and deletion, how each
+ * payload was sent, failures to read payloads back, and payload cache hits.
+ * Every method does nothing by default, so implementations only override the
+ * measurements they publish.
+ *
+ * <p>
+ * Methods are called on the threads making the requests, or completing them
+ * for {@link ExtendedSqsAsyncClient}, and must be thread-safe and quick. All
+ * arguments are primitives, so with the default {@link #NO_OP} publisher
+ * recording allocates nothing, and sizes which cost time to compute are not
+ * computed at all.
+ * </p>
+ */
+public interface MetricsPublisher {
+
+    /**
+     * A publisher which discards every measurement.
+     */
+    MetricsPublisher NO_OP = new MetricsPublisher() {
+    };
+
+    /**
+     * Records a payload upload, whether in a single request or in parts.
+     *
+     * @param latencyNanos The time the upload took.
+     * @param bytes        The size of the uploaded object.
+     * @param succeeded    False if the upload failed.
+     */
+    default void recordS3Put(long latencyNanos, long bytes, boolean succeeded) {
+    }
+
+    /**
+     * Records a payload download, whether in a single request or in ranges.
+     *
+     * @param latencyNanos The time the download took.
+     * @param bytes        The size of the downloaded object, or 0 if the
+     *                     download failed.
+     * @param succeeded    False if the download failed.
+     */
+    default void recordS3Get(long latencyNanos, long bytes, boolean succeeded) {
+    }
+
+    /**
+     * Records a DeleteObject or DeleteObjects request.
+     *
+     * @param latencyNanos The time the request took.
+     * @param objects      The number of objects the request deleted.
+     * @param succeeded    False if the request, or the deletion of any of its
+     *                     objects, failed.
+     */
+    default void recordS3Delete(long latencyNanos, int objects, boolean succeeded) {
+    }
+
+    /**
+     * Records a message payload sent in the message body as it is.
+     *
+     * @param bytes The size of the payload.
+     */
+    default void recordPayloadInlined(long bytes) {
+    }
+
+    /**
+     * Records a message payload compressed to fit in the message body.
+     *
+     * @param bytes        The size of the payload.
+     * @param encodedBytes The size of the compressed payload.
+     */
+    default void recordPayloadCompressed(long bytes, long encodedBytes) {
+    }
+
+    /**
+     * Records a message payload stored in Amazon S3, or found already stored
+     * there under its content-addressed key.
+     *
+     * @param bytes The size of the payload.
+     */
+    default void recordPayloadOffloaded(long bytes) {
+    }
+
+    /**
+     * Records a received message whose payload could not be read back from
+     * Amazon S3 or decoded.
+     */
+    default void recordHydrationFailure() {
+    }
+
+    /**
+     * Records a payload found in the payload cache, or loaded by another
+     * thread reading the same payload.
+     */
+    default void recordPayloadCacheHit() {
+    }
+
+    /**
+     * Records a payload which was not in the payload cache and was
+     * downloaded.
+     */
+    default void recordPayloadCacheMiss() {
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package software.amazon.awssdk.services.sqs;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes the measurements of the extended clients to a Micrometer
+ * {@link MeterRegistry}. Micrometer is an optional dependency of this library,
+ * to use this publisher add {@code io.micrometer:micrometer-core} to the
+ * application.
+ *
+ * <p>
+ * The following meters are registered, every one with the common tags:
+ * </p>
+ * <ul>
+ * <li>{@code sqs.extended.s3.requests}: a timer of S3 requests with
+ * {@code operation} ({@code put}, {@code get} or {@code delete}) and
+ * {@code outcome} ({@code success} or {@code failure}) tags, publishing a
+ * percentile histogram.</li>
+ * <li>{@code sqs.extended.s3.transferred}: a summary of the bytes uploaded
+ * and downloaded, with an {@code operation} tag.</li>
+ * <li>{@code sqs.extended.s3.deleted}: a counter of deleted payloads.</li>
+ * <li>{@code sqs.extended.payloads}: a summary of payload sizes with a
+ * {@code placement} tag, {@code inline}, {@code compressed} or
+ * {@code s3}.</li>
+ * <li>{@code sqs.extended.payloads.compressed}: a summary of compressed
+ * payload sizes.</li>
+ * <li>{@code sqs.extended.hydration.failures}: a counter of received
+ * messages whose payload could not be read.</li>
+ * <li>{@code sqs.extended.payload.cache}: a counter of payload cache lookups
+ * with a {@code result} tag, {@code hit} or {@code miss}.</li>
+ * </ul>
+ */
+public class MicrometerMetricsPublisher implements MetricsPublisher {
+
+    private final S3RequestTimers putTimers;
+    private final S3RequestTimers getTimers;
+    private final S3RequestTimers deleteTimers;
+    private final DistributionSummary putBytes;
+    private final DistributionSummary getBytes;
+    private final Counter deletedObjects;
+    private final DistributionSummary inlinedPayloadBytes;
+    private final DistributionSummary compressedPayloadBytes;
+    private final DistributionSummary offloadedPayloadBytes;
+    private final DistributionSummary compressedPayloadEncodedBytes;
+    private final Counter hydrationFailures;
+    private final Counter payloadCacheHits;
+    private final Counter payloadCacheMisses;
+
+    public MicrometerMetricsPublisher(MeterRegistry registry) {
+        this(registry, Collections.emptyList());
+    }
+
+    /**
+     * @param registry   The registry to register the meters with.
+     * @param commonTags Tags added to every meter, for example to tell the
+     *                   queues of several clients apart.
+     */
+    public MicrometerMetricsPublisher(MeterRegistry registry, Iterable<Tag> commonTags) {
+        Tags tags = Tags.of(commonTags);
+        this.putTimers = new S3RequestTimers(registry, tags, "put");
+        this.getTimers = new S3RequestTimers(registry, tags, "get");
+        this.deleteTimers = new S3RequestTimers(registry, tags, "delete");
+        this.putBytes = transferredBytes(registry, tags, "put");
+        this.getBytes = transferredBytes(registry, tags, "get");
+        this.deletedObjects = Counter.builder("sqs.extended.s3.deleted")
+                .description("Message payloads deleted from Amazon S3")
+                .tags(tags)
+                .register(registry);
+        this.inlinedPayloadBytes = payloadBytes(registry, tags, "inline");
+        this.compressedPayloadBytes = payloadBytes(registry, tags, "compressed");
+        this.offloadedPayloadBytes = payloadBytes(registry, tags, "s3");
+        this.compressedPayloadEncodedBytes = DistributionSummary.builder("sqs.extended.payloads.compressed")
+                .description("Size of compressed message payloads sent inline")
+                .baseUnit("bytes")
+                .tags(tags)
+                .register(registry);
+        this.hydrationFailures = Counter.builder("sqs.extended.hydration.failures")
+                .description("Received messages whose payload could not be read")
+                .tags(tags)
+                .register(registry);
+        this.payloadCacheHits = payloadCacheLookups(registry, tags, "hit");
+        this.payloadCacheMisses = payloadCacheLookups(registry, tags, "miss");
+    }
+
+    @Override
+    public void recordS3Put(long latencyNanos, long bytes, boolean succeeded) {
+        putTimers.record(latencyNanos, succeeded);
+        if (succeeded) {
+            putBytes.record(bytes);
+        }
+    }
+
+    @Override
+    public void recordS3Get(long latencyNanos, long bytes, boolean succeeded) {
+        getTimers.record(latencyNanos, succeeded);
+        if (succeeded) {
+            getBytes.record(bytes);
+        }
+    }
+
+    @Override
+    public void recordS3Delete(long latencyNanos, int objects, boolean succeeded) {
+        deleteTimers.record(latencyNanos, succeeded);
+        deletedObjects.increment(objects);
+    }
+
+    @Override
+    public void recordPayloadInlined(long bytes) {
+        inlinedPayloadBytes.record(bytes);
+    }
+
+    @Override
+    public void recordPayloadCompressed(long bytes, long encodedBytes) {
+        compressedPayloadBytes.record(bytes);
+        compressedPayloadEncodedBytes.record(encodedBytes);
+    }
+
+    @Override
+    public void recordPayloadOffloaded(long bytes) {
+        offloadedPayloadBytes.record(bytes);
+    }
+
+    @Override
+    public void recordHydrationFailure() {
+        hydrationFailures.increment();
+    }
+
+    @Override
+    public void recordPayloadCacheHit() {
+        payloadCacheHits.increment();
+    }
+
+    @Override
+    public void recordPayloadCacheMiss() {
+        payloadCacheMisses.increment();
+    }
+
+    private static DistributionSummary transferredBytes(MeterRegistry registry, Tags tags, String operation) {
+        return DistributionSummary.builder("sqs.extended.s3.transferred")
+                .description("Bytes of message payloads transferred to and from Amazon S3")
+                .baseUnit("bytes")
+                .tags(tags)
+                .tag("operation", operation)
+                .register(registry);
+    }
+
+    private static DistributionSummary payloadBytes(MeterRegistry registry, Tags tags, String placement) {
+        return DistributionSummary.builder("sqs.extended.payloads")
+                .description("Size of sent message payloads")
+                .baseUnit("bytes")
+                .tags(tags)
+                .tag("placement", placement)
+                .register(registry);
+    }
+
+    private static Counter payloadCacheLookups(MeterRegistry registry, Tags tags, String result) {
+        return Counter.builder("sqs.extended.payload.cache")
+                .description("Payload cache lookups")
+                .tags(tags)
+                .tag("result", result)
+                .register(registry);
+    }
+
+    private static final class S3RequestTimers {
+        private final Timer succeeded;
+        private final Timer failed;
+
+        S3RequestTimers(MeterRegistry registry, Tags tags, String operation) {
+            this.succeeded = timer(registry, tags, operation, "success");
+            this.failed = timer(registry, tags, operation, "failure");
+        }
+
+        void record(long latencyNanos, boolean succeeded) {
+            (succeeded ? this.succeeded : this.failed).record(latencyNanos, TimeUnit.NANOSECONDS);
+        }
+
+        private static Timer timer(MeterRegistry registry, Tags tags, String operation, String outcome) {
+            return Timer.builder("sqs.extended.s3.requests")
+                    .description("Latency of Amazon S3 requests made for message payloads")
+                    .tags(tags)
+                    .tag("operation", operation)
+                    .tag("outcome", outcome)
+                    .publishPercentileHistogram()
+                    .register(registry);
+        }
+    }
+}
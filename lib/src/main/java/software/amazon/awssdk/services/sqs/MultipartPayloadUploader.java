@@ -0,0 +1,220 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package software.amazon.awssdk.services.sqs;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompletedMultipartUpload;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Uploads a payload to Amazon S3 as a multipart upload. The payload is read
+ * sequentially on the calling thread and its parts are uploaded concurrently.
+ * The permits bounding how many parts are buffered or in flight are shared
+ * by all uploads of the uploader, so that concurrent uploads together hold
+ * at most maxConcurrency parts in memory. If any part fails the upload is
+ * aborted, so that no incomplete upload is left behind.
+ */
+class MultipartPayloadUploader {
+    private static final Logger LOG = LoggerFactory.getLogger(MultipartPayloadUploader.class);
+
+    private final S3Client s3;
+    private final ExecutorService partExecutor;
+    private final long partSize;
+    private final Semaphore partPermits;
+    private final String tagging;
+
+    MultipartPayloadUploader(S3Client s3, ExecutorService partExecutor, long partSize, int maxConcurrency,
+                             String tagging) {
+        this.s3 = s3;
+        this.partExecutor = partExecutor;
+        this.partSize = partSize;
+        this.partPermits = new Semaphore(maxConcurrency);
+        this.tagging = tagging;
+    }
+
+    void upload(String s3BucketName, String s3Key, RequestBody payload) {
+        long contentLength = payload.contentLength();
+        // grow the parts if the payload would not fit in the allowed number of them.
+        long effectivePartSize = Math.max(partSize,
+                (contentLength + SQSExtendedClientConstants.MAX_MULTIPART_UPLOAD_PARTS - 1)
+                        / SQSExtendedClientConstants.MAX_MULTIPART_UPLOAD_PARTS);
+
+        String uploadId = s3.createMultipartUpload(CreateMultipartUploadRequest.builder()
+                .bucket(s3BucketName)
+                .key(s3Key)
+                .tagging(tagging)
+                .build()).uploadId();
+
+        List<Future<CompletedPart>> partUploads = new ArrayList<>();
+        try {
+            uploadParts(s3BucketName, s3Key, uploadId, payload, contentLength, effectivePartSize, partUploads);
+
+            List<CompletedPart> completedParts = new ArrayList<>(partUploads.size());
+            for (Future<CompletedPart> partUpload : partUploads) {
+                completedParts.add(partUpload.get());
+            }
+            s3.completeMultipartUpload(CompleteMultipartUploadRequest.builder()
+                    .bucket(s3BucketName)
+                    .key(s3Key)
+                    .uploadId(uploadId)
+                    .multipartUpload(CompletedMultipartUpload.builder().parts(completedParts).build())
+                    .build());
+        } catch (SdkException e) {
+            abort(s3BucketName, s3Key, uploadId, partUploads);
+            throw e;
+        } catch (ExecutionException e) {
+            abort(s3BucketName, s3Key, uploadId, partUploads);
+            if (e.getCause() instanceof SdkException) {
+                throw (SdkException) e.getCause();
+            }
+            throw SdkClientException.create("Failed to upload a part of the message payload.", e.getCause());
+        } catch (IOException | RuntimeException e) {
+            abort(s3BucketName, s3Key, uploadId, partUploads);
+            throw SdkClientException.create("Failed to read the message payload.", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abort(s3BucketName, s3Key, uploadId, partUploads);
+            throw SdkClientException.create("Interrupted while uploading the message payload.", e);
+        }
+    }
+
+    private void uploadParts(String s3BucketName, String s3Key, String uploadId, RequestBody payload,
+                             long contentLength, long effectivePartSize, List<Future<CompletedPart>> partUploads)
+            throws IOException, InterruptedException, ExecutionException {
+        try (InputStream in = payload.contentStreamProvider().newStream()) {
+            long remaining = contentLength;
+            int partNumber = 1;
+            while (remaining > 0) {
+                // a permit is held from buffering a part until its upload ends,
+                // which bounds the memory used across all uploads.
+                partPermits.acquire();
+
+                byte[] part;
+                try {
+                    failFast(partUploads);
+                    part = new byte[(int) Math.min(effectivePartSize, remaining)];
+                    readFully(in, part);
+                } catch (IOException | InterruptedException | ExecutionException | RuntimeException e) {
+                    partPermits.release();
+                    throw e;
+                }
+
+                UploadPartRequest uploadPartRequest = UploadPartRequest.builder()
+                        .bucket(s3BucketName)
+                        .key(s3Key)
+                        .uploadId(uploadId)
+                        .partNumber(partNumber)
+                        .contentLength((long) part.length)
+                        .build();
+                PartUpload partUpload = new PartUpload(uploadPartRequest, part);
+                try {
+                    partExecutor.execute(partUpload);
+                } catch (RuntimeException e) {
+                    partUpload.releasePermit();
+                    throw e;
+                }
+                partUploads.add(partUpload);
+
+                remaining -= part.length;
+                partNumber++;
+            }
+        }
+    }
+
+    /**
+     * The upload of one part. Its permit is released once, when the upload
+     * ends or when it is cancelled before it could run.
+     */
+    private final class PartUpload extends FutureTask<CompletedPart> {
+        private final AtomicBoolean permitReleased = new AtomicBoolean();
+
+        PartUpload(UploadPartRequest uploadPartRequest, byte[] part) {
+            super(() -> {
+                String eTag = s3.uploadPart(uploadPartRequest, RequestBody.fromContentProvider(
+                        () -> new ByteArrayInputStream(part), part.length, "application/octet-stream")).eTag();
+                return CompletedPart.builder().partNumber(uploadPartRequest.partNumber()).eTag(eTag).build();
+            });
+        }
+
+        @Override
+        protected void done() {
+            releasePermit();
+        }
+
+        void releasePermit() {
+            if (permitReleased.compareAndSet(false, true)) {
+                partPermits.release();
+            }
+        }
+    }
+
+    private static void failFast(List<Future<CompletedPart>> partUploads) throws InterruptedException, ExecutionException {
+        for (Future<CompletedPart> partUpload : partUploads) {
+            if (partUpload.isDone()) {
+                partUpload.get();
+            }
+        }
+    }
+
+    private static void readFully(InputStream in, byte[] part) throws IOException {
+        int offset = 0;
+        while (offset < part.length) {
+            int read = in.read(part, offset, part.length - offset);
+            if (read < 0) {
+                throw new EOFException("The message payload ended before its declared length.");
+            }
+            offset += read;
+        }
+    }
+
+    private void abort(String s3BucketName, String s3Key, String uploadId, List<Future<CompletedPart>> partUploads) {
+        for (Future<CompletedPart> partUpload : partUploads) {
+            partUpload.cancel(true);
+        }
+        try {
+            s3.abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                    .bucket(s3BucketName)
+                    .key(s3Key)
+                    .uploadId(uploadId)
+                    .build());
+        } catch (SdkException e) {
+            LOG.error("Failed to abort the multipart upload of the message payload. Bucket name: " + s3BucketName
+                    + ", Object key: " + s3Key + ", Upload id: " + uploadId + ".", e);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package software.amazon.awssdk.services.sqs;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event for the decision to send a message payload inline or
+ * through Amazon S3. Created through {@link PayloadEvents} only.
+ */
+@Name("software.amazon.awssdk.services.sqs.OffloadDecision")
+@Label("Offload Decision")
+@Category({"AWS", "SQS Extended Client"})
+@Description("Whether a sent message payload goes through Amazon S3")
+@StackTrace(false)
+final class OffloadDecisionEvent extends jdk.jfr.Event {
+
+    @Label("Queue URL")
+    String queueUrl;
+
+    @Label("Message Body Size")
+    @DataAmount
+    long bytes;
+
+    @Label("Message Size Threshold")
+    @DataAmount
+    long threshold;
+
+    @Label("Stored In S3")
+    boolean storedInS3;
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package software.amazon.awssdk.services.sqs;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Runs a blocking task over a list of inputs with at most a fixed number of
+ * tasks in flight at once. The calling thread works through the inputs
+ * alongside the executor threads, so a single input, or a parallelism of one,
+ * never leaves the calling thread.
+ */
+class ParallelTaskRunner {
+
+    private final Executor executor;
+    private final int maxParallelism;
+
+    ParallelTaskRunner(Executor executor, int maxParallelism) {
+        this.executor = executor;
+        this.maxParallelism = Math.max(1, maxParallelism);
+    }
+
+    /**
+     * Applies the task to every input and waits for all of them to finish.
+     *
+     * @return One future per input, in input order, each completed either
+     *         with the task result or with the exception the task threw.
+     */
+    <T, R> List<CompletableFuture<R>> run(List<T> inputs, Function<T, R> task) {
+        int size = inputs.size();
+        List<CompletableFuture<R>> results = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            results.add(new CompletableFuture<>());
+        }
+
+        AtomicInteger next = new AtomicInteger();
+        Runnable worker = () -> {
+            int i;
+            while ((i = next.getAndIncrement()) < size) {
+                try {
+                    results.get(i).complete(task.apply(inputs.get(i)));
+                } catch (Throwable t) {
+                    results.get(i).completeExceptionally(t);
+                }
+            }
+        };
+
+        int workers = Math.min(size, maxParallelism);
+        for (int w = 1; w < workers; w++) {
+            try {
+                executor.execute(worker);
+            } catch (RejectedExecutionException e) {
+                // the calling thread picks up the remaining inputs.
+                break;
+            }
+        }
+        worker.run();
+
+        for (CompletableFuture<R> result : results) {
+            try {
+                result.join();
+            } catch (CompletionException | CancellationException e) {
+                // reported through the returned future.
+            }
+        }
+        return results;
+    }
+}
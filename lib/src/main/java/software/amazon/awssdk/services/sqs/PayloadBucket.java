@@ -0,0 +1,68 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package software.amazon.awssdk.services.sqs;
+
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.services.s3.S3Client;
+
+/**
+ * An Amazon S3 bucket message payloads are spread over, optionally with its
+ * own client, for instance for a bucket in another region.
+ */
+public class PayloadBucket {
+
+    private final S3Client s3;
+    private final String s3BucketName;
+
+    /**
+     * A bucket accessed with the client given to
+     * {@link ExtendedClientConfiguration#setLargePayloadSupportEnabled(S3Client, String)}.
+     *
+     * @param s3BucketName The name of the bucket.
+     */
+    public PayloadBucket(String s3BucketName) {
+        this(null, s3BucketName);
+    }
+
+    /**
+     * @param s3           The client to access the bucket with, or null for
+     *                     the client given to
+     *                     {@link ExtendedClientConfiguration#setLargePayloadSupportEnabled(S3Client, String)}.
+     * @param s3BucketName The name of the bucket.
+     */
+    public PayloadBucket(S3Client s3, String s3BucketName) {
+        if (s3BucketName == null || s3BucketName.isEmpty()) {
+            throw SdkClientException.create("S3 bucket name cannot be null or empty.");
+        }
+        this.s3 = s3;
+        this.s3BucketName = s3BucketName;
+    }
+
+    /**
+     * @return The client to access the bucket with, or null for the client
+     *         given to the configuration.
+     */
+    public S3Client getAmazonS3Client() {
+        return s3;
+    }
+
+    /**
+     * @return The name of the bucket.
+     */
+    public String getS3BucketName() {
+        return s3BucketName;
+    }
+}
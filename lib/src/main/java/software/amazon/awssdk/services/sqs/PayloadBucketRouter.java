@@ -0,0 +1,270 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package software.amazon.awssdk.services.sqs;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.core.exception.SdkServiceException;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.core.sync.ResponseTransformer;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectResponse;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsResponse;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectResponse;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartResponse;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Spreads new payloads over several buckets and sends every S3 request to the
+ * client of the bucket it names, so the rest of the client can keep using a
+ * single {@link S3Client}. Requests for any other bucket, such as payloads
+ * written before the buckets were configured, go to the default client.
+ *
+ * <p>
+ * Keys are assigned to buckets by consistent hashing: every bucket owns a
+ * number of points on a ring of 64-bit hashes, and a key goes to the owner of
+ * the first point at or after its own hash. Content-addressed keys therefore
+ * keep landing in the same bucket, and adding a bucket only moves its share
+ * of the keys.
+ * </p>
+ *
+ * <p>
+ * A bucket which throttles several requests in a row is skipped for new
+ * payloads for a while, its keys going to the next bucket on the ring.
+ * Reads and deletions still go to the bucket holding the payload.
+ * </p>
+ */
+class PayloadBucketRouter implements S3Client {
+    private static final Logger LOG = LoggerFactory.getLogger(PayloadBucketRouter.class);
+
+    private final S3Client defaultS3;
+    private final Map<String, BucketState> bucketsByName = new HashMap<>();
+    private final long[] ringHashes;
+    private final BucketState[] ringOwners;
+
+    PayloadBucketRouter(S3Client defaultS3, List<PayloadBucket> payloadBuckets) {
+        this.defaultS3 = defaultS3;
+
+        List<long[]> ring = new ArrayList<>();
+        List<BucketState> buckets = new ArrayList<>(payloadBuckets.size());
+        for (PayloadBucket payloadBucket : payloadBuckets) {
+            S3Client s3 = payloadBucket.getAmazonS3Client() != null ? payloadBucket.getAmazonS3Client() : defaultS3;
+            BucketState bucket = new BucketState(payloadBucket.getS3BucketName(), s3);
+            bucketsByName.put(bucket.s3BucketName, bucket);
+            for (int node = 0; node < SQSExtendedClientConstants.PAYLOAD_BUCKET_VIRTUAL_NODES; node++) {
+                ring.add(new long[] {hash(bucket.s3BucketName + "#" + node), buckets.size()});
+            }
+            buckets.add(bucket);
+        }
+        ring.sort(Comparator.comparingLong(point -> point[0]));
+
+        this.ringHashes = new long[ring.size()];
+        this.ringOwners = new BucketState[ring.size()];
+        for (int i = 0; i < ring.size(); i++) {
+            ringHashes[i] = ring.get(i)[0];
+            ringOwners[i] = buckets.get((int) ring.get(i)[1]);
+        }
+    }
+
+    /**
+     * Chooses the bucket for a new payload, skipping buckets which are
+     * throttling. If every bucket is, the key stays with its own bucket.
+     */
+    String selectBucket(String s3Key) {
+        int start = Arrays.binarySearch(ringHashes, hash(s3Key));
+        if (start < 0) {
+            start = -start - 1;
+        }
+        long now = System.nanoTime();
+        for (int i = 0; i < ringOwners.length; i++) {
+            BucketState bucket = ringOwners[(start + i) % ringOwners.length];
+            if (bucket.isHealthy(now)) {
+                return bucket.s3BucketName;
+            }
+        }
+        return ringOwners[start % ringOwners.length].s3BucketName;
+    }
+
+    /**
+     * @return Whether new payloads are currently written to the bucket.
+     */
+    boolean isHealthy(String s3BucketName) {
+        BucketState bucket = bucketsByName.get(s3BucketName);
+        return bucket == null || bucket.isHealthy(System.nanoTime());
+    }
+
+    @Override
+    public String serviceName() {
+        return SERVICE_NAME;
+    }
+
+    @Override
+    public void close() {
+        // the clients belong to the configuration.
+    }
+
+    @Override
+    public PutObjectResponse putObject(PutObjectRequest putObjectRequest, RequestBody requestBody) {
+        return call(putObjectRequest.bucket(), s3 -> s3.putObject(putObjectRequest, requestBody));
+    }
+
+    @Override
+    public <ReturnT> ReturnT getObject(GetObjectRequest getObjectRequest,
+                                       ResponseTransformer<GetObjectResponse, ReturnT> responseTransformer) {
+        return call(getObjectRequest.bucket(), s3 -> s3.getObject(getObjectRequest, responseTransformer));
+    }
+
+    @Override
+    public HeadObjectResponse headObject(HeadObjectRequest headObjectRequest) {
+        return call(headObjectRequest.bucket(), s3 -> s3.headObject(headObjectRequest));
+    }
+
+    @Override
+    public DeleteObjectResponse deleteObject(DeleteObjectRequest deleteObjectRequest) {
+        return call(deleteObjectRequest.bucket(), s3 -> s3.deleteObject(deleteObjectRequest));
+    }
+
+    @Override
+    public DeleteObjectsResponse deleteObjects(DeleteObjectsRequest deleteObjectsRequest) {
+        return call(deleteObjectsRequest.bucket(), s3 -> s3.deleteObjects(deleteObjectsRequest));
+    }
+
+    @Override
+    public CreateMultipartUploadResponse createMultipartUpload(CreateMultipartUploadRequest createMultipartUploadRequest) {
+        return call(createMultipartUploadRequest.bucket(), s3 -> s3.createMultipartUpload(createMultipartUploadRequest));
+    }
+
+    @Override
+    public UploadPartResponse uploadPart(UploadPartRequest uploadPartRequest, RequestBody requestBody) {
+        return call(uploadPartRequest.bucket(), s3 -> s3.uploadPart(uploadPartRequest, requestBody));
+    }
+
+    @Override
+    public CompleteMultipartUploadResponse completeMultipartUpload(
+            CompleteMultipartUploadRequest completeMultipartUploadRequest) {
+        return call(completeMultipartUploadRequest.bucket(), s3 -> s3.completeMultipartUpload(completeMultipartUploadRequest));
+    }
+
+    @Override
+    public AbortMultipartUploadResponse abortMultipartUpload(AbortMultipartUploadRequest abortMultipartUploadRequest) {
+        return call(abortMultipartUploadRequest.bucket(), s3 -> s3.abortMultipartUpload(abortMultipartUploadRequest));
+    }
+
+    private <T> T call(String s3BucketName, Function<S3Client, T> operation) {
+        BucketState bucket = bucketsByName.get(s3BucketName);
+        if (bucket == null) {
+            return operation.apply(defaultS3);
+        }
+
+        T response;
+        try {
+            response = operation.apply(bucket.s3);
+        } catch (SdkServiceException e) {
+            if (e.isThrottlingException() || e.statusCode() == 503) {
+                bucket.throttled();
+            } else {
+                bucket.answered();
+            }
+            throw e;
+        }
+        bucket.answered();
+        return response;
+    }
+
+    // FNV-1a followed by the MurmurHash3 finalizer, so that keys and virtual
+    // node names differing only in their last characters spread over the ring.
+    static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private static class BucketState {
+        private final String s3BucketName;
+        private final S3Client s3;
+        private final AtomicInteger consecutiveThrottles = new AtomicInteger();
+        private volatile boolean shed;
+        private volatile long shedUntilNanos;
+
+        BucketState(String s3BucketName, S3Client s3) {
+            this.s3BucketName = s3BucketName;
+            this.s3 = s3;
+        }
+
+        boolean isHealthy(long now) {
+            // once the cooldown is over new payloads are tried again, and
+            // the next throttled request sheds the bucket right away.
+            return !shed || now - shedUntilNanos >= 0;
+        }
+
+        void throttled() {
+            if (consecutiveThrottles.incrementAndGet() < SQSExtendedClientConstants.PAYLOAD_BUCKET_THROTTLING_THRESHOLD) {
+                return;
+            }
+            long now = System.nanoTime();
+            boolean wasHealthy = isHealthy(now);
+            shedUntilNanos = now + TimeUnit.MILLISECONDS.toNanos(SQSExtendedClientConstants.PAYLOAD_BUCKET_COOLDOWN_MILLIS);
+            shed = true;
+            if (wasHealthy) {
+                LOG.warn("S3 bucket is throttling requests, new payloads are written to other buckets for "
+                        + SQSExtendedClientConstants.PAYLOAD_BUCKET_COOLDOWN_MILLIS + " ms. Bucket name: " + s3BucketName + ".");
+            }
+        }
+
+        void answered() {
+            if (consecutiveThrottles.get() != 0) {
+                consecutiveThrottles.set(0);
+            }
+            // a shed bucket still serves reads, which do not end the
+            // cooldown early.
+            if (shed && System.nanoTime() - shedUntilNanos >= 0) {
+                shed = false;
+                LOG.info("S3 bucket is no longer throttling requests. Bucket name: " + s3BucketName + ".");
+            }
+        }
+    }
+}
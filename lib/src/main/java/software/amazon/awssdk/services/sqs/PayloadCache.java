@@ -0,0 +1,155 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package software.amazon.awssdk.services.sqs;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Keeps recently read message payloads in memory, so that a redelivered
+ * message does not download its payload from Amazon S3 again. The cache is
+ * bounded by the total size of the payloads it holds and evicts the least
+ * recently used ones first. Concurrent reads of the same payload share a
+ * single download.
+ */
+class PayloadCache {
+
+    private final long maxBytes;
+    private final MetricsPublisher metricsPublisher;
+    private final LinkedHashMap<String, CachedPayload> payloads = new LinkedHashMap<>(16, 0.75f, true);
+    private final ConcurrentMap<String, CompletableFuture<String>> loads = new ConcurrentHashMap<>();
+    private long currentBytes;
+
+    PayloadCache(long maxBytes) {
+        this(maxBytes, MetricsPublisher.NO_OP);
+    }
+
+    PayloadCache(long maxBytes, MetricsPublisher metricsPublisher) {
+        this.maxBytes = maxBytes;
+        this.metricsPublisher = metricsPublisher;
+    }
+
+    /**
+     * Gets a payload from the cache, or loads it if it is not cached and no
+     * other thread is already loading it.
+     *
+     * @param size The size of the payload in bytes, counted against the bound,
+     *             or a negative value to count its length instead.
+     */
+    String get(String s3BucketName, String s3Key, long size, Supplier<String> loader) {
+        String cacheKey = getCacheKey(s3BucketName, s3Key);
+        String cachedPayload = getCached(cacheKey);
+        if (cachedPayload != null) {
+            metricsPublisher.recordPayloadCacheHit();
+            return cachedPayload;
+        }
+
+        CompletableFuture<String> load = new CompletableFuture<>();
+        CompletableFuture<String> existingLoad = loads.putIfAbsent(cacheKey, load);
+        if (existingLoad != null) {
+            metricsPublisher.recordPayloadCacheHit();
+            return ExtendedClientUtils.joinUnwrapped(existingLoad);
+        }
+
+        try {
+            // another load may have completed since the cache was checked.
+            String payload = getCached(cacheKey);
+            if (payload == null) {
+                metricsPublisher.recordPayloadCacheMiss();
+                payload = loader.get();
+                // a payload invalidated while it was loading is not cached.
+                if (loads.get(cacheKey) == load) {
+                    put(cacheKey, payload, size);
+                }
+            } else {
+                metricsPublisher.recordPayloadCacheHit();
+            }
+            load.complete(payload);
+            return payload;
+        } catch (RuntimeException | Error e) {
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            loads.remove(cacheKey, load);
+        }
+    }
+
+    void invalidate(String s3BucketName, String s3Key) {
+        String cacheKey = getCacheKey(s3BucketName, s3Key);
+        loads.remove(cacheKey);
+        synchronized (payloads) {
+            CachedPayload removed = payloads.remove(cacheKey);
+            if (removed != null) {
+                currentBytes -= removed.size;
+            }
+        }
+    }
+
+    long getCurrentBytes() {
+        synchronized (payloads) {
+            return currentBytes;
+        }
+    }
+
+    private String getCached(String cacheKey) {
+        synchronized (payloads) {
+            CachedPayload cachedPayload = payloads.get(cacheKey);
+            return cachedPayload == null ? null : cachedPayload.payload;
+        }
+    }
+
+    private void put(String cacheKey, String payload, long size) {
+        if (size < 0) {
+            size = payload.length();
+        }
+        if (size > maxBytes) {
+            return;
+        }
+
+        synchronized (payloads) {
+            CachedPayload replaced = payloads.put(cacheKey, new CachedPayload(payload, size));
+            if (replaced != null) {
+                currentBytes -= replaced.size;
+            }
+            currentBytes += size;
+
+            Iterator<Map.Entry<String, CachedPayload>> leastRecentlyUsed = payloads.entrySet().iterator();
+            while (currentBytes > maxBytes && leastRecentlyUsed.hasNext()) {
+                currentBytes -= leastRecentlyUsed.next().getValue().size;
+                leastRecentlyUsed.remove();
+            }
+        }
+    }
+
+    private static String getCacheKey(String s3BucketName, String s3Key) {
+        return s3BucketName + "/" + s3Key;
+    }
+
+    private static final class CachedPayload {
+        private final String payload;
+        private final long size;
+
+        CachedPayload(String payload, long size) {
+            this.payload = payload;
+            this.size = size;
+        }
+    }
+}
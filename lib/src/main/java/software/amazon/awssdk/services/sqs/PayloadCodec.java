@@ -0,0 +1,49 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package software.amazon.awssdk.services.sqs;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Compresses message payloads before they are sent, and decompresses them
+ * when they are received. The name of the codec travels with each message in
+ * a reserved message attribute, so a receiver needs every codec its senders
+ * use; {@link GzipPayloadCodec} is always available.
+ */
+public interface PayloadCodec {
+
+    /**
+     * @return The name identifying this codec in messages. It must not change
+     *         once messages encoded with it have been sent.
+     */
+    String getName();
+
+    /**
+     * Wraps a stream so that the bytes written to the returned stream are
+     * encoded into the given one. Closing the returned stream finishes the
+     * encoding and closes the given stream.
+     */
+    OutputStream encode(OutputStream out) throws IOException;
+
+    /**
+     * Wraps a stream of encoded bytes so that reading the returned stream
+     * yields the decoded bytes. Closing the returned stream closes the given
+     * stream.
+     */
+    InputStream decode(InputStream in) throws IOException;
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package software.amazon.awssdk.services.sqs;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event for a DeleteObject or DeleteObjects request removing
+ * the payloads of deleted messages. Created through {@link PayloadEvents}
+ * only.
+ */
+@Name("software.amazon.awssdk.services.sqs.PayloadDelete")
+@Label("Payload Delete")
+@Category({"AWS", "SQS Extended Client"})
+@Description("Deletion of message payloads from Amazon S3")
+final class PayloadDeleteEvent extends jdk.jfr.Event {
+
+    @Label("Queue URL")
+    @Description("Not known for deletions flushed by the deferred deleter")
+    String queueUrl;
+
+    @Label("Bucket Name")
+    String s3BucketName;
+
+    @Label("Object Key")
+    @Description("The key of the first object of a DeleteObjects request")
+    String s3Key;
+
+    @Label("Objects")
+    int objects;
+
+    @Label("Succeeded")
+    boolean succeeded;
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package software.amazon.awssdk.services.sqs;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event for the download of a received message payload from
+ * Amazon S3, whether in a single request or in ranges. Created through
+ * {@link PayloadEvents} only.
+ */
+@Name("software.amazon.awssdk.services.sqs.PayloadDownload")
+@Label("Payload Download")
+@Category({"AWS", "SQS Extended Client"})
+@Description("Download of a message payload from Amazon S3")
+final class PayloadDownloadEvent extends jdk.jfr.Event {
+
+    @Label("Queue URL")
+    String queueUrl;
+
+    @Label("Bucket Name")
+    String s3BucketName;
+
+    @Label("Object Key")
+    String s3Key;
+
+    @Label("Size")
+    @DataAmount
+    long bytes;
+
+    @Label("Succeeded")
+    boolean succeeded;
+}
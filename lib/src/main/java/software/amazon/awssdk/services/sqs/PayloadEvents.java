@@ -0,0 +1,162 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package software.amazon.awssdk.services.sqs;
+
+import software.amazon.awssdk.core.ResponseBytes;
+
+/**
+ * Emits the flight recorder events of {@link ExtendedSqsClient}. Each timed
+ * operation is started with a {@code begin} method and ended with the
+ * matching {@code commit} method, which fills in the event only if it is
+ * recorded. Without a recording in progress, an event costs little more than
+ * a check of whether it is enabled.
+ *
+ * <p>
+ * The event classes are only loaded on a runtime which has the
+ * {@code jdk.jfr} API, Java 8 from update 262 and Java 11 onwards. On other
+ * runtimes the {@code begin} methods return null and no event is emitted.
+ * </p>
+ */
+final class PayloadEvents {
+
+    static final boolean AVAILABLE = isFlightRecorderAvailable();
+
+    private PayloadEvents() {
+    }
+
+    static PayloadUploadEvent beginUpload() {
+        if (!AVAILABLE) {
+            return null;
+        }
+        PayloadUploadEvent event = new PayloadUploadEvent();
+        event.begin();
+        return event;
+    }
+
+    static void commitUpload(PayloadUploadEvent event, String queueUrl, String s3BucketName, String s3Key,
+                             long bytes, boolean succeeded) {
+        if (event == null) {
+            return;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.queueUrl = queueUrl;
+            event.s3BucketName = s3BucketName;
+            event.s3Key = s3Key;
+            event.bytes = bytes;
+            event.succeeded = succeeded;
+            event.commit();
+        }
+    }
+
+    static PayloadDownloadEvent beginDownload() {
+        if (!AVAILABLE) {
+            return null;
+        }
+        PayloadDownloadEvent event = new PayloadDownloadEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Ends a download which returned the object, or failed if it is null.
+     */
+    static void commitDownload(PayloadDownloadEvent event, String queueUrl, String s3BucketName, String s3Key,
+                               ResponseBytes<?> object) {
+        if (event == null) {
+            return;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            setDownload(event, queueUrl, s3BucketName, s3Key, object == null ? 0 : object.asByteBuffer().remaining(),
+                    object != null);
+            event.commit();
+        }
+    }
+
+    static void commitDownload(PayloadDownloadEvent event, String queueUrl, String s3BucketName, String s3Key,
+                               long bytes, boolean succeeded) {
+        if (event == null) {
+            return;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            setDownload(event, queueUrl, s3BucketName, s3Key, bytes, succeeded);
+            event.commit();
+        }
+    }
+
+    private static void setDownload(PayloadDownloadEvent event, String queueUrl, String s3BucketName, String s3Key,
+                                    long bytes, boolean succeeded) {
+        event.queueUrl = queueUrl;
+        event.s3BucketName = s3BucketName;
+        event.s3Key = s3Key;
+        event.bytes = bytes;
+        event.succeeded = succeeded;
+    }
+
+    static PayloadDeleteEvent beginDelete() {
+        if (!AVAILABLE) {
+            return null;
+        }
+        PayloadDeleteEvent event = new PayloadDeleteEvent();
+        event.begin();
+        return event;
+    }
+
+    static void commitDelete(PayloadDeleteEvent event, String queueUrl, String s3BucketName, String s3Key,
+                             int objects, boolean succeeded) {
+        if (event == null) {
+            return;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.queueUrl = queueUrl;
+            event.s3BucketName = s3BucketName;
+            event.s3Key = s3Key;
+            event.objects = objects;
+            event.succeeded = succeeded;
+            event.commit();
+        }
+    }
+
+    /**
+     * Records whether a message payload is sent through S3. The size of the
+     * message body is only computed if the event is recorded.
+     */
+    static void commitOffloadDecision(String queueUrl, String messageBody, long threshold, boolean storedInS3) {
+        if (!AVAILABLE) {
+            return;
+        }
+        OffloadDecisionEvent event = new OffloadDecisionEvent();
+        if (event.shouldCommit()) {
+            event.queueUrl = queueUrl;
+            event.bytes = ExtendedClientUtils.getStringSizeInBytes(messageBody);
+            event.threshold = threshold;
+            event.storedInS3 = storedInS3;
+            event.commit();
+        }
+    }
+
+    private static boolean isFlightRecorderAvailable() {
+        try {
+            Class.forName("jdk.jfr.Event", false, PayloadEvents.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package software.amazon.awssdk.services.sqs;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Chooses the Amazon S3 key of each message payload the clients upload. Keys
+ * of payloads left to a lifecycle rule are placed under the rule's prefix,
+ * and content-addressed payloads are keyed by their digest instead.
+ *
+ * <p>
+ * Implementations are called on the threads sending messages, concurrently,
+ * and must return a different key on every call.
+ * </p>
+ */
+@FunctionalInterface
+public interface PayloadKeyStrategy {
+
+    /**
+     * Random keys shaped like version 4 UUIDs, drawn from
+     * {@link ThreadLocalRandom} so that concurrent senders do not contend on
+     * a shared generator. The keys are unique but not unpredictable; use
+     * {@link #SECURE_RANDOM_UUID} if knowing one key must not help to guess
+     * another.
+     */
+    PayloadKeyStrategy RANDOM_UUID = () -> {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long mostSigBits = (random.nextLong() & ~0xF000L) | 0x4000L;
+        long leastSigBits = (random.nextLong() & ~(0x3L << 62)) | (0x2L << 62);
+        return new UUID(mostSigBits, leastSigBits).toString();
+    };
+
+    /**
+     * Random keys from {@link UUID#randomUUID()}, which draws from a single
+     * shared {@code SecureRandom}.
+     */
+    PayloadKeyStrategy SECURE_RANDOM_UUID = () -> UUID.randomUUID().toString();
+
+    /**
+     * @return A new, unique key for a payload.
+     */
+    String newS3Key();
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package software.amazon.awssdk.services.sqs;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Downloads a payload from Amazon S3 as byte ranges fetched concurrently,
+ * each written straight to its place in the target buffer or file. The
+ * payload size comes from the message, so no HEAD request is needed to plan
+ * the ranges.
+ */
+class RangedPayloadDownloader {
+    private static final Logger LOG = LoggerFactory.getLogger(RangedPayloadDownloader.class);
+
+    private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+    private static final int FILE_BUFFER_SIZE = 64 * 1024;
+
+    private final S3Client s3;
+    private final ParallelTaskRunner rangeRunner;
+    private final long partSize;
+
+    RangedPayloadDownloader(S3Client s3, ParallelTaskRunner rangeRunner, long partSize) {
+        this.s3 = s3;
+        this.rangeRunner = rangeRunner;
+        this.partSize = partSize;
+    }
+
+    byte[] downloadToArray(String s3BucketName, String s3Key, long size) {
+        if (size > MAX_ARRAY_SIZE) {
+            throw SdkClientException.create("The message payload of " + size + " bytes is too large to hold in memory.");
+        }
+
+        byte[] payload = new byte[(int) size];
+        download(s3BucketName, s3Key, size, (offset, length, in) -> readFully(in, payload, (int) offset, (int) length));
+        return payload;
+    }
+
+    void downloadToFile(String s3BucketName, String s3Key, long size, Path target) {
+        try (FileChannel channel = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            download(s3BucketName, s3Key, size, (offset, length, in) -> {
+                byte[] buffer = new byte[FILE_BUFFER_SIZE];
+                long position = offset;
+                long end = offset + length;
+                while (position < end) {
+                    int read = in.read(buffer, 0, (int) Math.min(buffer.length, end - position));
+                    if (read < 0) {
+                        throw new IOException("The S3 object ended before the expected payload size.");
+                    }
+                    ByteBuffer byteBuffer = ByteBuffer.wrap(buffer, 0, read);
+                    while (byteBuffer.hasRemaining()) {
+                        position += channel.write(byteBuffer, position);
+                    }
+                }
+            });
+        } catch (IOException e) {
+            throw SdkClientException.create("Failed to write the message payload to " + target + ".", e);
+        }
+    }
+
+    private void download(String s3BucketName, String s3Key, long size, RangeWriter writer) {
+        List<long[]> ranges = new ArrayList<>();
+        for (long offset = 0; offset < size; offset += partSize) {
+            ranges.add(new long[] {offset, Math.min(partSize, size - offset)});
+        }
+
+        List<CompletableFuture<Void>> rangeDownloads = rangeRunner.run(ranges, range -> {
+            downloadRange(s3BucketName, s3Key, range[0], range[1], writer);
+            return null;
+        });
+        for (CompletableFuture<Void> rangeDownload : rangeDownloads) {
+            ExtendedClientUtils.joinUnwrapped(rangeDownload);
+        }
+        LOG.debug("S3 object read in " + ranges.size() + " ranges, Bucket name: " + s3BucketName + ", Object key: " + s3Key + ".");
+    }
+
+    private void downloadRange(String s3BucketName, String s3Key, long offset, long length, RangeWriter writer) {
+        GetObjectRequest getObjectRequest = GetObjectRequest.builder()
+                .bucket(s3BucketName)
+                .key(s3Key)
+                .range("bytes=" + offset + "-" + (offset + length - 1))
+                .build();
+        try (ResponseInputStream<GetObjectResponse> in = s3.getObject(getObjectRequest)) {
+            Long contentLength = in.response().contentLength();
+            if (contentLength != null && contentLength != length) {
+                throw SdkClientException.create("The S3 object does not match the payload size carried by the message.");
+            }
+            writer.write(offset, length, in);
+        } catch (IOException e) {
+            throw SdkClientException.create("Failed to read the S3 object range " + getObjectRequest.range() + ".", e);
+        }
+    }
+
+    private static void readFully(InputStream in, byte[] target, int offset, int length) throws IOException {
+        int position = offset;
+        int end = offset + length;
+        while (position < end) {
+            int read = in.read(target, position, end - position);
+            if (read < 0) {
+                throw new IOException("The S3 object ended before the expected payload size.");
+            }
+            position += read;
+        }
+    }
+
+    private interface RangeWriter {
+        void write(long offset, long length, InputStream in) throws IOException;
+    }
+}
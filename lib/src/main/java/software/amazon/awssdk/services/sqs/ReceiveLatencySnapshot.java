@@ -0,0 +1,92 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package software.amazon.awssdk.services.sqs;
+
+/**
+ * Latencies of the messages received by an {@link ExtendedSqsClient} with
+ * receive latency tracking enabled, split by whether their payload was sent
+ * inline or stored in Amazon S3. Latencies are counted from the
+ * {@code SentTimestamp} of each message, so they depend on the clock of the
+ * receiving host agreeing with Amazon SQS, and have a resolution of one
+ * millisecond.
+ */
+public class ReceiveLatencySnapshot {
+
+    private final LatencyHistogramSnapshot inlineDwellTime;
+    private final LatencyHistogramSnapshot offloadedDwellTime;
+    private final LatencyHistogramSnapshot s3FetchTime;
+    private final LatencyHistogramSnapshot inlineTimeToHydrated;
+    private final LatencyHistogramSnapshot offloadedTimeToHydrated;
+
+    ReceiveLatencySnapshot(LatencyHistogramSnapshot inlineDwellTime, LatencyHistogramSnapshot offloadedDwellTime,
+                           LatencyHistogramSnapshot s3FetchTime, LatencyHistogramSnapshot inlineTimeToHydrated,
+                           LatencyHistogramSnapshot offloadedTimeToHydrated) {
+        this.inlineDwellTime = inlineDwellTime;
+        this.offloadedDwellTime = offloadedDwellTime;
+        this.s3FetchTime = s3FetchTime;
+        this.inlineTimeToHydrated = inlineTimeToHydrated;
+        this.offloadedTimeToHydrated = offloadedTimeToHydrated;
+    }
+
+    /**
+     * @return The time from sending to receiving messages whose payload was
+     *         sent inline.
+     */
+    public LatencyHistogramSnapshot getInlineDwellTime() {
+        return inlineDwellTime;
+    }
+
+    /**
+     * @return The time from sending to receiving messages whose payload was
+     *         stored in S3, before the payload was read.
+     */
+    public LatencyHistogramSnapshot getOffloadedDwellTime() {
+        return offloadedDwellTime;
+    }
+
+    /**
+     * @return The time taken to read payloads from S3, or from the payload
+     *         cache, and decode them.
+     */
+    public LatencyHistogramSnapshot getS3FetchTime() {
+        return s3FetchTime;
+    }
+
+    /**
+     * @return The time from sending messages whose payload was sent inline
+     *         to returning them from receiveMessage.
+     */
+    public LatencyHistogramSnapshot getInlineTimeToHydrated() {
+        return inlineTimeToHydrated;
+    }
+
+    /**
+     * @return The time from sending messages whose payload was stored in S3
+     *         to returning them, with their payload, from receiveMessage.
+     */
+    public LatencyHistogramSnapshot getOffloadedTimeToHydrated() {
+        return offloadedTimeToHydrated;
+    }
+
+    @Override
+    public String toString() {
+        return "ReceiveLatencySnapshot{inlineDwellTime=" + inlineDwellTime
+                + ", offloadedDwellTime=" + offloadedDwellTime
+                + ", s3FetchTime=" + s3FetchTime
+                + ", inlineTimeToHydrated=" + inlineTimeToHydrated
+                + ", offloadedTimeToHydrated=" + offloadedTimeToHydrated + "}";
+    }
+}
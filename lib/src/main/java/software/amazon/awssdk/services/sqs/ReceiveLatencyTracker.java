@@ -0,0 +1,73 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package software.amazon.awssdk.services.sqs;
+
+import software.amazon.awssdk.services.sqs.model.Message;
+import software.amazon.awssdk.services.sqs.model.MessageSystemAttributeName;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the latencies reported by {@link ReceiveLatencySnapshot}.
+ */
+class ReceiveLatencyTracker {
+
+    private final LatencyHistogram inlineDwellTime = new LatencyHistogram();
+    private final LatencyHistogram offloadedDwellTime = new LatencyHistogram();
+    private final LatencyHistogram s3FetchTime = new LatencyHistogram();
+    private final LatencyHistogram inlineTimeToHydrated = new LatencyHistogram();
+    private final LatencyHistogram offloadedTimeToHydrated = new LatencyHistogram();
+
+    void recordS3Fetch(long nanos) {
+        s3FetchTime.record(TimeUnit.NANOSECONDS.toMicros(nanos));
+    }
+
+    /**
+     * Records the dwell time and time to hydrated of received messages.
+     * Messages without a SentTimestamp attribute are skipped.
+     *
+     * @param messages         The messages as received from Amazon SQS, with
+     *                         their reserved attributes.
+     * @param receivedAtMillis When Amazon SQS returned the messages.
+     * @param hydratedAtMillis When the messages were ready to be returned.
+     */
+    void recordReceive(List<Message> messages, long receivedAtMillis, long hydratedAtMillis) {
+        for (Message message : messages) {
+            String sentTimestamp = message.attributes().get(MessageSystemAttributeName.SENT_TIMESTAMP);
+            if (sentTimestamp == null) {
+                continue;
+            }
+            long sentAtMillis;
+            try {
+                sentAtMillis = Long.parseLong(sentTimestamp);
+            } catch (NumberFormatException e) {
+                continue;
+            }
+
+            boolean offloaded = message.messageAttributes().containsKey(SQSExtendedClientConstants.RESERVED_ATTRIBUTE_NAME);
+            (offloaded ? offloadedDwellTime : inlineDwellTime)
+                    .record(TimeUnit.MILLISECONDS.toMicros(receivedAtMillis - sentAtMillis));
+            (offloaded ? offloadedTimeToHydrated : inlineTimeToHydrated)
+                    .record(TimeUnit.MILLISECONDS.toMicros(hydratedAtMillis - sentAtMillis));
+        }
+    }
+
+    ReceiveLatencySnapshot snapshot() {
+        return new ReceiveLatencySnapshot(inlineDwellTime.snapshot(), offloadedDwellTime.snapshot(),
+                s3FetchTime.snapshot(), inlineTimeToHydrated.snapshot(), offloadedTimeToHydrated.snapshot());
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package software.amazon.awssdk.services.sqs;
+
+/**
+ * A receipt handle with the S3 pointer of its message payload embedded, so
+ * that deleting the message can also delete the payload.
+ *
+ * <p>
+ * Receipt handles are encoded as
+ * <code>-..v2..-&lt;bucket length&gt;:&lt;bucket&gt;&lt;key length&gt;:&lt;key&gt;&lt;receipt handle&gt;</code>,
+ * with the lengths in decimal, and are decoded in one pass. Receipt handles
+ * in the earlier format, with bucket and key enclosed in
+ * {@link SQSExtendedClientConstants#S3_BUCKET_NAME_MARKER} and
+ * {@link SQSExtendedClientConstants#S3_KEY_MARKER}, are still decoded. Amazon
+ * SQS receipt handles never start with a dash, so neither format can be
+ * mistaken for a plain receipt handle.
+ * </p>
+ */
+final class S3ReceiptHandle {
+
+    private final String s3BucketName;
+    private final String s3Key;
+    private final String receiptHandle;
+
+    private S3ReceiptHandle(String s3BucketName, String s3Key, String receiptHandle) {
+        this.s3BucketName = s3BucketName;
+        this.s3Key = s3Key;
+        this.receiptHandle = receiptHandle;
+    }
+
+    static String encode(String receiptHandle, String s3BucketName, String s3Key) {
+        return new StringBuilder(SQSExtendedClientConstants.S3_RECEIPT_HANDLE_PREFIX.length() + s3BucketName.length()
+                + s3Key.length() + receiptHandle.length() + 12)
+                .append(SQSExtendedClientConstants.S3_RECEIPT_HANDLE_PREFIX)
+                .append(s3BucketName.length()).append(':').append(s3BucketName)
+                .append(s3Key.length()).append(':').append(s3Key)
+                .append(receiptHandle)
+                .toString();
+    }
+
+    /**
+     * @return The decoded receipt handle, or null if the receipt handle has no
+     *         S3 pointer embedded or is malformed.
+     */
+    static S3ReceiptHandle decode(String receiptHandle) {
+        if (receiptHandle == null || receiptHandle.isEmpty() || receiptHandle.charAt(0) != '-') {
+            return null;
+        }
+        if (receiptHandle.startsWith(SQSExtendedClientConstants.S3_RECEIPT_HANDLE_PREFIX)) {
+            return decodeLengthPrefixed(receiptHandle);
+        }
+        if (receiptHandle.startsWith(SQSExtendedClientConstants.S3_BUCKET_NAME_MARKER)) {
+            return decodeMarked(receiptHandle);
+        }
+        return null;
+    }
+
+    private static S3ReceiptHandle decodeLengthPrefixed(String receiptHandle) {
+        int bucketNameLengthEnd = findLengthEnd(receiptHandle, SQSExtendedClientConstants.S3_RECEIPT_HANDLE_PREFIX.length());
+        if (bucketNameLengthEnd < 0) {
+            return null;
+        }
+        int bucketNameStart = bucketNameLengthEnd + 1;
+        int bucketNameEnd = bucketNameStart + parseLength(receiptHandle,
+                SQSExtendedClientConstants.S3_RECEIPT_HANDLE_PREFIX.length(), bucketNameLengthEnd);
+        if (bucketNameEnd > receiptHandle.length()) {
+            return null;
+        }
+
+        int keyLengthEnd = findLengthEnd(receiptHandle, bucketNameEnd);
+        if (keyLengthEnd < 0) {
+            return null;
+        }
+        int keyStart = keyLengthEnd + 1;
+        int keyEnd = keyStart + parseLength(receiptHandle, bucketNameEnd, keyLengthEnd);
+        if (keyEnd > receiptHandle.length()) {
+            return null;
+        }
+
+        return new S3ReceiptHandle(receiptHandle.substring(bucketNameStart, bucketNameEnd),
+                receiptHandle.substring(keyStart, keyEnd), receiptHandle.substring(keyEnd));
+    }
+
+    /**
+     * Finds the colon which terminates a decimal length.
+     *
+     * @return The index of the colon, or -1 if it is not preceded by one to
+     *         nine digits.
+     */
+    private static int findLengthEnd(String receiptHandle, int start) {
+        int end = Math.min(receiptHandle.length(), start + 10);
+        for (int i = start; i < end; i++) {
+            char c = receiptHandle.charAt(i);
+            if (c == ':') {
+                return i > start ? i : -1;
+            }
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    private static int parseLength(String receiptHandle, int start, int end) {
+        int length = 0;
+        for (int i = start; i < end; i++) {
+            length = length * 10 + (receiptHandle.charAt(i) - '0');
+        }
+        return length;
+    }
+
+    private static S3ReceiptHandle decodeMarked(String receiptHandle) {
+        String bucketNameMarker = SQSExtendedClientConstants.S3_BUCKET_NAME_MARKER;
+        String keyMarker = SQSExtendedClientConstants.S3_KEY_MARKER;
+
+        int bucketNameStart = bucketNameMarker.length();
+        int bucketNameEnd = receiptHandle.indexOf(bucketNameMarker, bucketNameStart);
+        if (bucketNameEnd < 0 || !receiptHandle.startsWith(keyMarker, bucketNameEnd + bucketNameMarker.length())) {
+            return null;
+        }
+        int keyStart = bucketNameEnd + bucketNameMarker.length() + keyMarker.length();
+        int keyEnd = receiptHandle.indexOf(keyMarker, keyStart);
+        if (keyEnd < 0) {
+            return null;
+        }
+
+        return new S3ReceiptHandle(receiptHandle.substring(bucketNameStart, bucketNameEnd),
+                receiptHandle.substring(keyStart, keyEnd), receiptHandle.substring(keyEnd + keyMarker.length()));
+    }
+
+    String getS3BucketName() {
+        return s3BucketName;
+    }
+
+    String getS3Key() {
+        return s3Key;
+    }
+
+    /**
+     * @return The receipt handle Amazon SQS returned for the message.
+     */
+    String getReceiptHandle() {
+        return receiptHandle;
+    }
+}
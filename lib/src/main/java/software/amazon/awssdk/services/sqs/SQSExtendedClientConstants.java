@@ -21,4 +21,33 @@ class SQSExtendedClientConstants {
 	public static final int DEFAULT_MESSAGE_SIZE_THRESHOLD = 262144;
 	public static final String S3_BUCKET_NAME_MARKER = "-..s3BucketName..-";
 	public static final String S3_KEY_MARKER = "-..s3Key..-";
+	public static final String S3_RECEIPT_HANDLE_PREFIX = "-..v2..-";
+	public static final int MAX_BATCH_ENTRIES = 10;
+	public static final int DEFAULT_S3_MAX_CONCURRENCY = MAX_BATCH_ENTRIES;
+	public static final String S3_PAYLOAD_FAILURE_CODE = "SQSExtendedClientS3Failure";
+	public static final int MAX_DELETE_OBJECTS_KEYS = 1000;
+	public static final int DEFAULT_DEFERRED_DELETION_QUEUE_CAPACITY = 10000;
+	public static final long DEFAULT_DEFERRED_DELETION_FLUSH_INTERVAL_MILLIS = 1000;
+	public static final int DEFERRED_DELETION_MAX_ATTEMPTS = 3;
+	public static final long DEFERRED_DELETION_SHUTDOWN_TIMEOUT_MILLIS = 30000;
+	public static final long DEFERRED_DELETION_RETRY_BACKOFF_MILLIS = 1000;
+	public static final String RESERVED_CODEC_ATTRIBUTE_NAME = "SQSLargePayloadCodec";
+	public static final double DEFAULT_MAX_PAYLOAD_COMPRESSION_RATIO = 0.8;
+	public static final long MIN_MULTIPART_UPLOAD_PART_SIZE = 5L * 1024 * 1024;
+	public static final long MAX_MULTIPART_UPLOAD_PART_SIZE = 1024L * 1024 * 1024;
+	public static final int MAX_MULTIPART_UPLOAD_PARTS = 10000;
+	public static final long DEFAULT_MULTIPART_UPLOAD_THRESHOLD = 64L * 1024 * 1024;
+	public static final long DEFAULT_MULTIPART_UPLOAD_PART_SIZE = 16L * 1024 * 1024;
+	public static final int DEFAULT_MULTIPART_UPLOAD_CONCURRENCY = 4;
+	public static final long MIN_RANGED_DOWNLOAD_PART_SIZE = 1024L * 1024;
+	public static final long DEFAULT_RANGED_DOWNLOAD_THRESHOLD = 64L * 1024 * 1024;
+	public static final long DEFAULT_RANGED_DOWNLOAD_PART_SIZE = 16L * 1024 * 1024;
+	public static final int DEFAULT_RANGED_DOWNLOAD_CONCURRENCY = 4;
+	public static final String CONTENT_ADDRESSED_KEY_PREFIX = "sha256/";
+	public static final int DEFAULT_KNOWN_PAYLOAD_KEYS_CACHE_SIZE = 10000;
+	public static final long DEFAULT_PAYLOAD_REUSE_MAX_AGE_MILLIS = 24L * 60 * 60 * 1000;
+	public static final String DEFAULT_LIFECYCLE_PAYLOAD_KEY_PREFIX = "expiring/";
+	public static final int PAYLOAD_BUCKET_VIRTUAL_NODES = 128;
+	public static final int PAYLOAD_BUCKET_THROTTLING_THRESHOLD = 3;
+	public static final long PAYLOAD_BUCKET_COOLDOWN_MILLIS = 30000;
 }
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package software.amazon.awssdk.services.sqs;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.sqs.model.Message;
+import software.amazon.awssdk.utils.IoUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * A received message whose payload is read as a stream. For a message stored
+ * in Amazon S3 nothing is downloaded until {@link #openPayload()} is called,
+ * and the payload is then streamed from S3 rather than buffered.
+ *
+ * <p>
+ * The receipt handle of {@link #getMessage()} carries the S3 pointer, so that
+ * deleting the message through {@link ExtendedSqsClient} also deletes the
+ * payload. For a message stored in S3 the body of {@link #getMessage()} is the
+ * pointer, not the payload.
+ * </p>
+ */
+public class StreamingMessage {
+    private static final Logger LOG = LoggerFactory.getLogger(StreamingMessage.class);
+
+    private final Message message;
+    private final long payloadSize;
+    private final S3Client s3;
+    private final MessageS3Pointer s3Pointer;
+    private final PayloadCodec payloadCodec;
+    private final RangedPayloadDownloader rangedPayloadDownloader;
+    private final long rangedDownloadThreshold;
+
+    StreamingMessage(Message message, long payloadSize, S3Client s3, MessageS3Pointer s3Pointer,
+                     PayloadCodec payloadCodec, RangedPayloadDownloader rangedPayloadDownloader,
+                     long rangedDownloadThreshold) {
+        this.message = message;
+        this.payloadSize = payloadSize;
+        this.s3 = s3;
+        this.s3Pointer = s3Pointer;
+        this.payloadCodec = payloadCodec;
+        this.rangedPayloadDownloader = rangedPayloadDownloader;
+        this.rangedDownloadThreshold = rangedDownloadThreshold;
+    }
+
+    /**
+     * @return The message as received, with the extended client's own
+     *         attribute removed.
+     */
+    public Message getMessage() {
+        return message;
+    }
+
+    /**
+     * @return The size of the payload in bytes, before any compression.
+     */
+    public long getPayloadSize() {
+        return payloadSize;
+    }
+
+    /**
+     * @return True if the payload is stored in Amazon S3.
+     */
+    public boolean isPayloadInS3() {
+        return s3Pointer != null;
+    }
+
+    /**
+     * Opens a new stream over the payload. For a payload stored in Amazon S3
+     * every call issues a new GetObject request, and the stream holds an HTTP
+     * connection until it is closed. A compressed payload is decompressed as
+     * it is read.
+     *
+     * @return The payload, to be closed by the caller.
+     */
+    public InputStream openPayload() {
+        if (s3Pointer == null) {
+            return new ByteArrayInputStream(message.body().getBytes(StandardCharsets.UTF_8));
+        }
+
+        GetObjectRequest getObjectRequest = GetObjectRequest.builder()
+                .bucket(s3Pointer.getS3BucketName())
+                .key(s3Pointer.getS3Key())
+                .build();
+        InputStream payload;
+        try {
+            payload = s3.getObject(getObjectRequest);
+            LOG.info("S3 object opened, Bucket name: " + s3Pointer.getS3BucketName() + ", Object key: " + s3Pointer.getS3Key() + ".");
+        } catch (SdkException e) {
+            String errorMessage = "Failed to get the S3 object which contains the message payload.";
+            LOG.error(errorMessage, e);
+            throw SdkException.create(errorMessage, e);
+        }
+
+        if (payloadCodec == null) {
+            return payload;
+        }
+        try {
+            return payloadCodec.decode(payload);
+        } catch (IOException e) {
+            IoUtils.closeQuietly(payload, null);
+            String errorMessage = "Failed to decompress the message payload.";
+            LOG.error(errorMessage, e);
+            throw SdkClientException.create(errorMessage, e);
+        }
+    }
+
+    /**
+     * Writes the payload to a file, replacing its content. A large payload
+     * stored in Amazon S3 uncompressed is downloaded as byte ranges fetched
+     * concurrently, each written straight to its place in the file.
+     *
+     * @param target The file to write the payload to.
+     */
+    public void downloadPayload(Path target) {
+        if (s3Pointer != null && payloadCodec == null && payloadSize >= rangedDownloadThreshold) {
+            try {
+                rangedPayloadDownloader.downloadToFile(s3Pointer.getS3BucketName(), s3Pointer.getS3Key(), payloadSize, target);
+            } catch (SdkException e) {
+                String errorMessage = "Failed to get the S3 object which contains the message payload.";
+                LOG.error(errorMessage, e);
+                throw SdkException.create(errorMessage, e);
+            }
+            return;
+        }
+
+        try (InputStream payload = openPayload()) {
+            Files.copy(payload, target, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            String errorMessage = "Failed to write the message payload to " + target + ".";
+            LOG.error(errorMessage, e);
+            throw SdkClientException.create(errorMessage, e);
+        }
+    }
+}
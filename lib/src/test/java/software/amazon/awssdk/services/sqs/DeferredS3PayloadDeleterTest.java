@@ -0,0 +1,79 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package software.amazon.awssdk.services.sqs;
+
+import org.junit.Test;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsResponse;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.isA;
+import static org.mockito.Mockito.*;
+
+public class DeferredS3PayloadDeleterTest {
+
+    private static final String S3_BUCKET_NAME = "test-bucket-name";
+    private static final long FLUSH_INTERVAL_MILLIS = 10;
+
+    @Test
+    public void testThatAnUnexpectedFailureIsRetriedAfterABackoff() throws Exception {
+        S3Client s3 = mock(S3Client.class);
+        List<Long> callTimes = new CopyOnWriteArrayList<>();
+        when(s3.deleteObjects(isA(DeleteObjectsRequest.class))).thenAnswer(invocation -> {
+            callTimes.add(System.nanoTime());
+            if (callTimes.size() == 1) {
+                throw new NullPointerException();
+            }
+            return DeleteObjectsResponse.builder().build();
+        });
+        DeferredS3PayloadDeleter deleter = new DeferredS3PayloadDeleter(s3, 10, FLUSH_INTERVAL_MILLIS);
+
+        assertTrue(deleter.enqueue(S3_BUCKET_NAME, "a"));
+        waitUntilFlushed(deleter);
+
+        assertEquals(2, callTimes.size());
+        assertTrue(callTimes.get(1) - callTimes.get(0)
+                >= SQSExtendedClientConstants.DEFERRED_DELETION_RETRY_BACKOFF_MILLIS * 1000000);
+        assertEquals(0, deleter.getFailedDeletions());
+
+        // the worker is still running.
+        assertTrue(deleter.enqueue(S3_BUCKET_NAME, "b"));
+        waitUntilFlushed(deleter);
+        verify(s3, times(3)).deleteObjects(isA(DeleteObjectsRequest.class));
+        deleter.close();
+    }
+
+    @Test
+    public void testThatDeletionsAreRejectedOnceClosed() {
+        DeferredS3PayloadDeleter deleter = new DeferredS3PayloadDeleter(mock(S3Client.class), 10, FLUSH_INTERVAL_MILLIS);
+        deleter.close();
+
+        assertFalse(deleter.enqueue(S3_BUCKET_NAME, "a"));
+        assertEquals(0, deleter.getPendingDeletions());
+    }
+
+    private static void waitUntilFlushed(DeferredS3PayloadDeleter deleter) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (deleter.getPendingDeletions() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(FLUSH_INTERVAL_MILLIS);
+        }
+        assertEquals(0, deleter.getPendingDeletions());
+    }
+}
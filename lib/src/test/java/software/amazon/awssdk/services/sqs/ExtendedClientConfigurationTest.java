@@ -17,10 +17,15 @@ package software.amazon.awssdk.services.sqs;
 
 import org.junit.Before;
 import org.junit.Test;
+import software.amazon.awssdk.core.exception.SdkClientException;
 import software.amazon.awssdk.core.sync.RequestBody;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.model.PutObjectRequest;
 
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 import static org.junit.Assert.*;
 import static org.mockito.Matchers.isA;
 import static org.mockito.Mockito.*;
@@ -103,4 +108,261 @@ public class ExtendedClientConfigurationTest {
         extendedClientConfiguration.setMessageSizeThreshold(messageLength);
         assertEquals(messageLength, extendedClientConfiguration.getMessageSizeThreshold());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testS3Concurrency() {
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        ExtendedClientConfiguration extendedClientConfiguration = new ExtendedClientConfiguration();
+
+        assertEquals(SQSExtendedClientConstants.DEFAULT_S3_MAX_CONCURRENCY,
+                extendedClientConfiguration.getS3MaxConcurrency());
+        assertNull(extendedClientConfiguration.getS3ExecutorService());
+
+        extendedClientConfiguration.withS3MaxConcurrency(4).withS3ExecutorService(executorService);
+        ExtendedClientConfiguration newExtendedClientConfig = new ExtendedClientConfiguration(extendedClientConfiguration);
+
+        assertEquals(4, newExtendedClientConfig.getS3MaxConcurrency());
+        assertSame(executorService, newExtendedClientConfig.getS3ExecutorService());
+        executorService.shutdown();
+    }
+
+    @Test(expected = SdkClientException.class)
+    public void testS3MaxConcurrencyMustBePositive() {
+        new ExtendedClientConfiguration().setS3MaxConcurrency(0);
+    }
+
+    @Test
+    public void testDeferredPayloadDeletion() {
+        ExtendedClientConfiguration extendedClientConfiguration = new ExtendedClientConfiguration();
+
+        assertFalse(extendedClientConfiguration.isDeferredPayloadDeletionEnabled());
+        assertEquals(SQSExtendedClientConstants.DEFAULT_DEFERRED_DELETION_QUEUE_CAPACITY,
+                extendedClientConfiguration.getDeferredPayloadDeletionQueueCapacity());
+        assertEquals(SQSExtendedClientConstants.DEFAULT_DEFERRED_DELETION_FLUSH_INTERVAL_MILLIS,
+                extendedClientConfiguration.getDeferredPayloadDeletionFlushIntervalMillis());
+
+        extendedClientConfiguration.withDeferredPayloadDeletionEnabled(true)
+                .withDeferredPayloadDeletionQueueCapacity(100)
+                .withDeferredPayloadDeletionFlushIntervalMillis(50);
+        ExtendedClientConfiguration newExtendedClientConfig = new ExtendedClientConfiguration(extendedClientConfiguration);
+
+        assertTrue(newExtendedClientConfig.isDeferredPayloadDeletionEnabled());
+        assertEquals(100, newExtendedClientConfig.getDeferredPayloadDeletionQueueCapacity());
+        assertEquals(50, newExtendedClientConfig.getDeferredPayloadDeletionFlushIntervalMillis());
+    }
+
+    @Test(expected = SdkClientException.class)
+    public void testDeferredPayloadDeletionQueueCapacityMustBePositive() {
+        new ExtendedClientConfiguration().setDeferredPayloadDeletionQueueCapacity(0);
+    }
+
+    @Test
+    public void testPayloadCodec() {
+        PayloadCodec payloadCodec = new GzipPayloadCodec();
+        ExtendedClientConfiguration extendedClientConfiguration = new ExtendedClientConfiguration();
+
+        assertNull(extendedClientConfiguration.getPayloadCodec());
+        assertEquals(SQSExtendedClientConstants.DEFAULT_MAX_PAYLOAD_COMPRESSION_RATIO,
+                extendedClientConfiguration.getMaxPayloadCompressionRatio(), 0);
+
+        extendedClientConfiguration.withPayloadCodec(payloadCodec).withMaxPayloadCompressionRatio(0.5);
+        ExtendedClientConfiguration newExtendedClientConfig = new ExtendedClientConfiguration(extendedClientConfiguration);
+
+        assertSame(payloadCodec, newExtendedClientConfig.getPayloadCodec());
+        assertEquals(0.5, newExtendedClientConfig.getMaxPayloadCompressionRatio(), 0);
+    }
+
+    @Test(expected = SdkClientException.class)
+    public void testMaxPayloadCompressionRatioMustBeAtMostOne() {
+        new ExtendedClientConfiguration().setMaxPayloadCompressionRatio(1.5);
+    }
+
+    @Test
+    public void testMultipartUpload() {
+        ExtendedClientConfiguration extendedClientConfiguration = new ExtendedClientConfiguration();
+
+        assertEquals(SQSExtendedClientConstants.DEFAULT_MULTIPART_UPLOAD_THRESHOLD,
+                extendedClientConfiguration.getMultipartUploadThreshold());
+        assertEquals(SQSExtendedClientConstants.DEFAULT_MULTIPART_UPLOAD_PART_SIZE,
+                extendedClientConfiguration.getMultipartUploadPartSize());
+        assertEquals(SQSExtendedClientConstants.DEFAULT_MULTIPART_UPLOAD_CONCURRENCY,
+                extendedClientConfiguration.getMultipartUploadConcurrency());
+
+        long fiveMegabytes = SQSExtendedClientConstants.MIN_MULTIPART_UPLOAD_PART_SIZE;
+        extendedClientConfiguration.withMultipartUploadThreshold(2 * fiveMegabytes)
+                .withMultipartUploadPartSize(fiveMegabytes)
+                .withMultipartUploadConcurrency(2);
+        ExtendedClientConfiguration newExtendedClientConfig = new ExtendedClientConfiguration(extendedClientConfiguration);
+
+        assertEquals(2 * fiveMegabytes, newExtendedClientConfig.getMultipartUploadThreshold());
+        assertEquals(fiveMegabytes, newExtendedClientConfig.getMultipartUploadPartSize());
+        assertEquals(2, newExtendedClientConfig.getMultipartUploadConcurrency());
+    }
+
+    @Test(expected = SdkClientException.class)
+    public void testMultipartUploadPartSizeMustBeAtLeastFiveMegabytes() {
+        new ExtendedClientConfiguration().setMultipartUploadPartSize(1024);
+    }
+
+    @Test
+    public void testRangedDownload() {
+        ExtendedClientConfiguration extendedClientConfiguration = new ExtendedClientConfiguration();
+
+        assertEquals(SQSExtendedClientConstants.DEFAULT_RANGED_DOWNLOAD_THRESHOLD,
+                extendedClientConfiguration.getRangedDownloadThreshold());
+        assertEquals(SQSExtendedClientConstants.DEFAULT_RANGED_DOWNLOAD_PART_SIZE,
+                extendedClientConfiguration.getRangedDownloadPartSize());
+        assertEquals(SQSExtendedClientConstants.DEFAULT_RANGED_DOWNLOAD_CONCURRENCY,
+                extendedClientConfiguration.getRangedDownloadConcurrency());
+
+        long oneMegabyte = SQSExtendedClientConstants.MIN_RANGED_DOWNLOAD_PART_SIZE;
+        extendedClientConfiguration.withRangedDownloadThreshold(2 * oneMegabyte)
+                .withRangedDownloadPartSize(oneMegabyte)
+                .withRangedDownloadConcurrency(8);
+        ExtendedClientConfiguration newExtendedClientConfig = new ExtendedClientConfiguration(extendedClientConfiguration);
+
+        assertEquals(2 * oneMegabyte, newExtendedClientConfig.getRangedDownloadThreshold());
+        assertEquals(oneMegabyte, newExtendedClientConfig.getRangedDownloadPartSize());
+        assertEquals(8, newExtendedClientConfig.getRangedDownloadConcurrency());
+    }
+
+    @Test
+    public void testPayloadCache() {
+        ExtendedClientConfiguration extendedClientConfiguration = new ExtendedClientConfiguration();
+
+        assertEquals(0, extendedClientConfiguration.getPayloadCacheMaxBytes());
+
+        extendedClientConfiguration.withPayloadCacheMaxBytes(1024);
+        ExtendedClientConfiguration newExtendedClientConfig = new ExtendedClientConfiguration(extendedClientConfiguration);
+
+        assertEquals(1024, newExtendedClientConfig.getPayloadCacheMaxBytes());
+    }
+
+    @Test(expected = SdkClientException.class)
+    public void testPayloadCacheSizeMustNotBeNegative() {
+        new ExtendedClientConfiguration().setPayloadCacheMaxBytes(-1);
+    }
+
+    @Test
+    public void testContentAddressedPayloadKeys() {
+        ExtendedClientConfiguration extendedClientConfiguration = new ExtendedClientConfiguration();
+
+        assertFalse(extendedClientConfiguration.isContentAddressedPayloadKeysEnabled());
+        assertEquals(SQSExtendedClientConstants.DEFAULT_KNOWN_PAYLOAD_KEYS_CACHE_SIZE,
+                extendedClientConfiguration.getKnownPayloadKeysCacheSize());
+        assertEquals(SQSExtendedClientConstants.DEFAULT_PAYLOAD_REUSE_MAX_AGE_MILLIS,
+                extendedClientConfiguration.getPayloadReuseMaxAgeMillis());
+
+        extendedClientConfiguration.withContentAddressedPayloadKeysEnabled(true)
+                .withKnownPayloadKeysCacheSize(100)
+                .withPayloadReuseMaxAgeMillis(60000);
+        ExtendedClientConfiguration newExtendedClientConfig = new ExtendedClientConfiguration(extendedClientConfiguration);
+
+        assertTrue(newExtendedClientConfig.isContentAddressedPayloadKeysEnabled());
+        assertEquals(100, newExtendedClientConfig.getKnownPayloadKeysCacheSize());
+        assertEquals(60000, newExtendedClientConfig.getPayloadReuseMaxAgeMillis());
+    }
+
+    @Test
+    public void testLifecyclePayloadExpiry() {
+        ExtendedClientConfiguration extendedClientConfiguration = new ExtendedClientConfiguration();
+
+        assertFalse(extendedClientConfiguration.isLifecyclePayloadExpiryEnabled());
+        assertEquals(SQSExtendedClientConstants.DEFAULT_LIFECYCLE_PAYLOAD_KEY_PREFIX,
+                extendedClientConfiguration.getLifecyclePayloadKeyPrefix());
+        assertNull(extendedClientConfiguration.getPayloadTagging());
+
+        extendedClientConfiguration.withLifecyclePayloadExpiryEnabled(true)
+                .withLifecyclePayloadKeyPrefix("payloads/")
+                .withPayloadTagging("expiry=4d");
+        ExtendedClientConfiguration newExtendedClientConfig = new ExtendedClientConfiguration(extendedClientConfiguration);
+
+        assertTrue(newExtendedClientConfig.isLifecyclePayloadExpiryEnabled());
+        assertEquals("payloads/", newExtendedClientConfig.getLifecyclePayloadKeyPrefix());
+        assertEquals("expiry=4d", newExtendedClientConfig.getPayloadTagging());
+    }
+
+    @Test
+    public void testMetricsPublisher() {
+        ExtendedClientConfiguration extendedClientConfiguration = new ExtendedClientConfiguration();
+        MetricsPublisher metricsPublisher = new MetricsPublisher() {
+        };
+
+        assertSame(MetricsPublisher.NO_OP, extendedClientConfiguration.getMetricsPublisher());
+
+        extendedClientConfiguration.withMetricsPublisher(metricsPublisher);
+        ExtendedClientConfiguration newExtendedClientConfig = new ExtendedClientConfiguration(extendedClientConfiguration);
+
+        assertSame(metricsPublisher, newExtendedClientConfig.getMetricsPublisher());
+    }
+
+    @Test(expected = SdkClientException.class)
+    public void testNullMetricsPublisherIsRejected() {
+        new ExtendedClientConfiguration().withMetricsPublisher(null);
+    }
+
+    @Test
+    public void testJmx() {
+        ExtendedClientConfiguration extendedClientConfiguration = new ExtendedClientConfiguration();
+
+        assertFalse(extendedClientConfiguration.isJmxEnabled());
+        assertNull(extendedClientConfiguration.getJmxName());
+
+        extendedClientConfiguration.withJmxEnabled(true).withJmxName("orders");
+        ExtendedClientConfiguration newExtendedClientConfig = new ExtendedClientConfiguration(extendedClientConfiguration);
+
+        assertTrue(newExtendedClientConfig.isJmxEnabled());
+        assertEquals("orders", newExtendedClientConfig.getJmxName());
+    }
+
+    @Test
+    public void testReceiveLatencyTracking() {
+        ExtendedClientConfiguration extendedClientConfiguration = new ExtendedClientConfiguration();
+
+        assertFalse(extendedClientConfiguration.isReceiveLatencyTrackingEnabled());
+
+        extendedClientConfiguration.withReceiveLatencyTrackingEnabled(true);
+        ExtendedClientConfiguration newExtendedClientConfig = new ExtendedClientConfiguration(extendedClientConfiguration);
+
+        assertTrue(newExtendedClientConfig.isReceiveLatencyTrackingEnabled());
+    }
+
+    @Test
+    public void testPayloadKeyStrategy() {
+        PayloadKeyStrategy payloadKeyStrategy = new HashPrefixedPayloadKeyStrategy(2);
+        ExtendedClientConfiguration extendedClientConfiguration = new ExtendedClientConfiguration();
+
+        assertSame(PayloadKeyStrategy.RANDOM_UUID, extendedClientConfiguration.getPayloadKeyStrategy());
+
+        extendedClientConfiguration.withPayloadKeyStrategy(payloadKeyStrategy);
+        ExtendedClientConfiguration newExtendedClientConfig = new ExtendedClientConfiguration(extendedClientConfiguration);
+
+        assertSame(payloadKeyStrategy, newExtendedClientConfig.getPayloadKeyStrategy());
+    }
+
+    @Test(expected = SdkClientException.class)
+    public void testNullPayloadKeyStrategyIsRejected() {
+        new ExtendedClientConfiguration().withPayloadKeyStrategy(null);
+    }
+
+    @Test
+    public void testPayloadBuckets() {
+        S3Client otherRegionS3 = mock(S3Client.class);
+        ExtendedClientConfiguration extendedClientConfiguration = new ExtendedClientConfiguration();
+
+        assertTrue(extendedClientConfiguration.getPayloadBuckets().isEmpty());
+
+        extendedClientConfiguration.withPayloadBuckets(Arrays.asList(
+                new PayloadBucket("bucket-a"), new PayloadBucket(otherRegionS3, "bucket-b")));
+        ExtendedClientConfiguration newExtendedClientConfig = new ExtendedClientConfiguration(extendedClientConfiguration);
+
+        assertEquals(2, newExtendedClientConfig.getPayloadBuckets().size());
+        assertSame(otherRegionS3, newExtendedClientConfig.getPayloadBuckets().get(1).getAmazonS3Client());
+    }
+
+    @Test(expected = SdkClientException.class)
+    public void testPayloadBucketsSharingANameAreRejected() {
+        new ExtendedClientConfiguration().withPayloadBuckets(Arrays.asList(
+                new PayloadBucket("bucket-a"), new PayloadBucket(mock(S3Client.class), "bucket-a")));
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package software.amazon.awssdk.services.sqs;
+
+import org.junit.Test;
+import software.amazon.awssdk.services.sqs.model.MessageAttributeValue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class ExtendedClientUtilsTest {
+
+    private static final String[] STRINGS = {
+            "",
+            "plain ascii",
+            "café über",
+            "中文测试",
+            "emoji 😀 pair",
+            "lone high \ud83d surrogate",
+            "lone low \ude00 surrogate",
+            "trailing high \ud83d"
+    };
+
+    @Test
+    public void testStringSizeInBytesMatchesUtf8Encoding() {
+        for (String str : STRINGS) {
+            assertEquals(str, str.getBytes(StandardCharsets.UTF_8).length, ExtendedClientUtils.getStringSizeInBytes(str));
+        }
+    }
+
+    @Test
+    public void testStringSizeInBytesGreaterThanAroundTheLimit() {
+        for (String str : STRINGS) {
+            int size = str.getBytes(StandardCharsets.UTF_8).length;
+            assertTrue(str, ExtendedClientUtils.isStringSizeInBytesGreaterThan(str, size - 1));
+            assertFalse(str, ExtendedClientUtils.isStringSizeInBytesGreaterThan(str, size));
+            assertFalse(str, ExtendedClientUtils.isStringSizeInBytesGreaterThan(str, size * 3L + 1));
+        }
+    }
+
+    @Test
+    public void testIsLargeCountsMessageAttributes() {
+        String body = "ééééé";
+        MessageAttributeValue value = MessageAttributeValue.builder().dataType("String").stringValue("v").build();
+
+        assertFalse(ExtendedClientUtils.isLarge(body, Collections.emptyMap(), 10));
+        assertTrue(ExtendedClientUtils.isLarge(body, Collections.emptyMap(), 9));
+        // "k" + "String" + "v" adds 8 bytes.
+        assertFalse(ExtendedClientUtils.isLarge(body, Collections.singletonMap("k", value), 18));
+        assertTrue(ExtendedClientUtils.isLarge(body, Collections.singletonMap("k", value), 17));
+        assertTrue(ExtendedClientUtils.isLarge("", Collections.singletonMap("k", value), 7));
+    }
+}
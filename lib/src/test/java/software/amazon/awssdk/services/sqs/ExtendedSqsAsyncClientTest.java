@@ -0,0 +1,264 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package software.amazon.awssdk.services.sqs;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import software.amazon.awssdk.core.ResponseBytes;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.core.async.AsyncResponseTransformer;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectResponse;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectResponse;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchRequest;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchRequestEntry;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchResponse;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageRequest;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageResponse;
+import software.amazon.awssdk.services.sqs.model.Message;
+import software.amazon.awssdk.services.sqs.model.MessageAttributeValue;
+import software.amazon.awssdk.services.sqs.model.ReceiveMessageRequest;
+import software.amazon.awssdk.services.sqs.model.ReceiveMessageResponse;
+import software.amazon.awssdk.services.sqs.model.SendMessageRequest;
+import software.amazon.awssdk.services.sqs.model.SendMessageResponse;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.isA;
+import static org.mockito.Mockito.*;
+import static software.amazon.awssdk.services.sqs.matchers.StringMatchesUUIDPattern.matchesThePatternOfAUUID;
+
+public class ExtendedSqsAsyncClientTest {
+
+    private SqsAsyncClient extendedSqsWithDefaultConfig;
+    private SqsAsyncClient mockSqsBackend;
+    private S3AsyncClient mockS3;
+    private static final String S3_BUCKET_NAME = "test-bucket-name";
+    private static final String SQS_QUEUE_URL = "test-queue-url";
+    private static final String S3_KEY = "2ede0e0f-50cc-4464-800e-72d6497ec063";
+    private static final String ORIGINAL_RECEIPT_HANDLE = "AQEBzDYhwQBHp+NIlvgL6WFKHNtoVpeCCQjmLep47yPr5dM5TmD1GWbneikO57LJAnL1iZ8THzk1H4r8k4XqrkQzsrOC0CcuY4AZisjhKyxNAQ9WT3A2c5y4WcX1OaL1W7XK8rtVHmHrJ8WoL793QQ2V4CetnPgYltNlp8vukHaiIULiLT/FOKybxCB3YicGngH2AWtk5PTBwUZNf+DTPJoEOyTgA7aYi89N3uaon97sJz7WH8w6LqOGoRCM4sMjn19A96PAP/UqsdxQ5us9P0hNMSFHB2BTr78N1m+jwWQLnt4gp7nKZ0t+PUYRuaAUZuMpPLTD6RTkPXQuxCPlhkesVILyDwOAwHHQwLKVoxdFkiBiIf2KGB2tHA7nc0n91IJAqymt6Ipi34IaKp/D1IXlFWXY+xVPQ43r1ZNHL/DqO40=";
+
+    private static final int LESS_THAN_SQS_SIZE_LIMIT = 3;
+    private static final int SQS_SIZE_LIMIT = 262144;
+    private static final int MORE_THAN_SQS_SIZE_LIMIT = SQS_SIZE_LIMIT + 1;
+
+    @Before
+    public void setupClient() {
+        this.mockS3 = mock(S3AsyncClient.class);
+        this.mockSqsBackend = mock(SqsAsyncClient.class);
+        when(this.mockS3.putObject(isA(PutObjectRequest.class), isA(AsyncRequestBody.class)))
+                .thenReturn(CompletableFuture.completedFuture(PutObjectResponse.builder().build()));
+        when(this.mockS3.deleteObject(isA(DeleteObjectRequest.class)))
+                .thenReturn(CompletableFuture.completedFuture(DeleteObjectResponse.builder().build()));
+        when(this.mockSqsBackend.sendMessage(isA(SendMessageRequest.class)))
+                .thenReturn(CompletableFuture.completedFuture(SendMessageResponse.builder().build()));
+        when(this.mockSqsBackend.deleteMessage(isA(DeleteMessageRequest.class)))
+                .thenReturn(CompletableFuture.completedFuture(DeleteMessageResponse.builder().build()));
+        when(this.mockSqsBackend.deleteMessageBatch(isA(DeleteMessageBatchRequest.class)))
+                .thenReturn(CompletableFuture.completedFuture(DeleteMessageBatchResponse.builder().build()));
+
+        ExtendedClientConfiguration extendedClientConfiguration = new ExtendedClientConfiguration()
+                .withLargePayloadSupportEnabled(this.mockS3, S3_BUCKET_NAME);
+
+        this.extendedSqsWithDefaultConfig = new ExtendedSqsAsyncClient(mockSqsBackend, extendedClientConfiguration);
+    }
+
+    @Test
+    public void testWhenSendLargeMessageThenPayloadIsStoredInS3BeforeSendingThePointer() throws Exception {
+        extendedSqsWithDefaultConfig.sendMessage(getSendMessageRequest(MORE_THAN_SQS_SIZE_LIMIT)).join();
+
+        verify(mockS3).putObject(isA(PutObjectRequest.class), isA(AsyncRequestBody.class));
+        ArgumentCaptor<SendMessageRequest> captor = ArgumentCaptor.forClass(SendMessageRequest.class);
+        verify(mockSqsBackend).sendMessage(captor.capture());
+
+        MessageS3Pointer messageS3Pointer = new JsonDataConverter()
+                .deserializeFromJson(captor.getValue().messageBody(), MessageS3Pointer.class);
+        assertThat(messageS3Pointer.getS3BucketName(), equalTo(S3_BUCKET_NAME));
+        assertThat(messageS3Pointer.getS3Key(), matchesThePatternOfAUUID());
+    }
+
+    @Test
+    public void testWhenSendSmallMessageThenS3IsNotUsed() {
+        extendedSqsWithDefaultConfig.sendMessage(getSendMessageRequest(LESS_THAN_SQS_SIZE_LIMIT)).join();
+
+        verify(mockS3, never()).putObject(isA(PutObjectRequest.class), isA(AsyncRequestBody.class));
+        verify(mockSqsBackend).sendMessage(isA(SendMessageRequest.class));
+    }
+
+    @Test
+    public void testThatSqsMessageNotSentIfS3PutObjectFails() {
+        CompletableFuture<PutObjectResponse> failedPut = new CompletableFuture<>();
+        failedPut.completeExceptionally(SdkClientException.create("test"));
+        when(mockS3.putObject(isA(PutObjectRequest.class), isA(AsyncRequestBody.class))).thenReturn(failedPut);
+
+        try {
+            extendedSqsWithDefaultConfig.sendMessage(getSendMessageRequest(MORE_THAN_SQS_SIZE_LIMIT)).join();
+            fail("Expected the send to fail");
+        } catch (CompletionException e) {
+            assertThat(e.getCause(), instanceOf(SdkClientException.class));
+        }
+        verify(mockSqsBackend, never()).sendMessage(isA(SendMessageRequest.class));
+    }
+
+    @Test
+    public void testNullMessageRequestCompletesExceptionally() {
+        SendMessageRequest messageRequest = null;
+        CompletableFuture<SendMessageResponse> future = extendedSqsWithDefaultConfig.sendMessage(messageRequest);
+
+        assertThat(future.isCompletedExceptionally(), is(true));
+    }
+
+    @Test
+    public void testThatReceiveMessageReadsPayloadFromS3AndEmbedsPointerInReceiptHandle() {
+        String pointer = "{\"s3BucketName\":\"" + S3_BUCKET_NAME + "\",\"s3Key\":\"" + S3_KEY + "\"}";
+        Message message = Message.builder()
+                .body(pointer)
+                .receiptHandle(ORIGINAL_RECEIPT_HANDLE)
+                .messageAttributes(Collections.singletonMap(SQSExtendedClientConstants.RESERVED_ATTRIBUTE_NAME,
+                        MessageAttributeValue.builder().dataType("Number").stringValue("7").build()))
+                .build();
+        when(mockSqsBackend.receiveMessage(isA(ReceiveMessageRequest.class)))
+                .thenReturn(CompletableFuture.completedFuture(ReceiveMessageResponse.builder().messages(message).build()));
+        ResponseBytes<GetObjectResponse> payload = ResponseBytes.fromByteArray(GetObjectResponse.builder().build(),
+                "payload".getBytes());
+        when(mockS3.getObject(isA(GetObjectRequest.class), any(AsyncResponseTransformer.class)))
+                .thenReturn(CompletableFuture.completedFuture(payload));
+
+        ReceiveMessageResponse response = extendedSqsWithDefaultConfig.receiveMessage(ReceiveMessageRequest.builder()
+                .queueUrl(SQS_QUEUE_URL)
+                .build()).join();
+
+        Message received = response.messages().get(0);
+        assertThat(received.body(), is("payload"));
+        assertThat(received.messageAttributes().containsKey(SQSExtendedClientConstants.RESERVED_ATTRIBUTE_NAME), is(false));
+        assertThat(S3ReceiptHandle.decode(received.receiptHandle()).getReceiptHandle(), is(ORIGINAL_RECEIPT_HANDLE));
+    }
+
+    @Test
+    public void testThatDeleteMessageDeletesTheS3ObjectAndSendsTheOriginalReceiptHandle() {
+        extendedSqsWithDefaultConfig.deleteMessage(DeleteMessageRequest.builder()
+                .receiptHandle(ExtendedSqsClientTest.RECEIPT_HANDLE)
+                .build()).join();
+
+        ArgumentCaptor<DeleteObjectRequest> s3Captor = ArgumentCaptor.forClass(DeleteObjectRequest.class);
+        verify(mockS3).deleteObject(s3Captor.capture());
+        assertThat(s3Captor.getValue().bucket(), is(S3_BUCKET_NAME));
+        assertThat(s3Captor.getValue().key(), is(S3_KEY));
+
+        ArgumentCaptor<DeleteMessageRequest> sqsCaptor = ArgumentCaptor.forClass(DeleteMessageRequest.class);
+        verify(mockSqsBackend).deleteMessage(sqsCaptor.capture());
+        assertThat(sqsCaptor.getValue().receiptHandle(), is(ORIGINAL_RECEIPT_HANDLE));
+    }
+
+    @Test
+    public void testThatDeleteMessageBatchDeletesTheS3ObjectsAndSendsTheOriginalReceiptHandles() {
+        DeleteMessageBatchRequestEntry entry = DeleteMessageBatchRequestEntry.builder()
+                .id("1")
+                .receiptHandle(ExtendedSqsClientTest.RECEIPT_HANDLE)
+                .build();
+
+        extendedSqsWithDefaultConfig.deleteMessageBatch(DeleteMessageBatchRequest.builder()
+                .entries(entry)
+                .build()).join();
+
+        verify(mockS3).deleteObject(isA(DeleteObjectRequest.class));
+        ArgumentCaptor<DeleteMessageBatchRequest> sqsCaptor = ArgumentCaptor.forClass(DeleteMessageBatchRequest.class);
+        verify(mockSqsBackend).deleteMessageBatch(sqsCaptor.capture());
+        assertThat(sqsCaptor.getValue().entries().get(0).receiptHandle(), is(ORIGINAL_RECEIPT_HANDLE));
+    }
+
+    @Test
+    public void testThatAFailedS3DeleteOnlyFailsItsOwnBatchEntry() {
+        CompletableFuture<DeleteObjectResponse> failedDelete = new CompletableFuture<>();
+        failedDelete.completeExceptionally(SdkClientException.create("S3 is unavailable."));
+        when(mockS3.deleteObject(isA(DeleteObjectRequest.class))).thenReturn(failedDelete);
+        DeleteMessageBatchRequestEntry s3Entry = DeleteMessageBatchRequestEntry.builder()
+                .id("1")
+                .receiptHandle(ExtendedSqsClientTest.RECEIPT_HANDLE)
+                .build();
+        DeleteMessageBatchRequestEntry inlineEntry = DeleteMessageBatchRequestEntry.builder()
+                .id("2")
+                .receiptHandle(ORIGINAL_RECEIPT_HANDLE)
+                .build();
+
+        DeleteMessageBatchResponse deleteMessageBatchResponse = extendedSqsWithDefaultConfig.deleteMessageBatch(
+                DeleteMessageBatchRequest.builder().entries(s3Entry, inlineEntry).build()).join();
+
+        ArgumentCaptor<DeleteMessageBatchRequest> sqsCaptor = ArgumentCaptor.forClass(DeleteMessageBatchRequest.class);
+        verify(mockSqsBackend).deleteMessageBatch(sqsCaptor.capture());
+        assertThat(sqsCaptor.getValue().entries().size(), is(1));
+        assertThat(sqsCaptor.getValue().entries().get(0).id(), is("2"));
+        assertThat(deleteMessageBatchResponse.failed().size(), is(1));
+        assertThat(deleteMessageBatchResponse.failed().get(0).id(), is("1"));
+        assertThat(deleteMessageBatchResponse.failed().get(0).code(), is(SQSExtendedClientConstants.S3_PAYLOAD_FAILURE_CODE));
+    }
+
+    @Test
+    public void testThatContentAddressedPayloadsAreNotDeletedWithTheirMessages() {
+        ExtendedSqsAsyncClient extendedSqsClient = new ExtendedSqsAsyncClient(mockSqsBackend,
+                new ExtendedClientConfiguration()
+                        .withLargePayloadSupportEnabled(mockS3, S3_BUCKET_NAME)
+                        .withContentAddressedPayloadKeysEnabled(true));
+
+        extendedSqsClient.deleteMessage(DeleteMessageRequest.builder()
+                .receiptHandle(ExtendedSqsClientTest.RECEIPT_HANDLE)
+                .build()).join();
+
+        verify(mockS3, never()).deleteObject(isA(DeleteObjectRequest.class));
+        ArgumentCaptor<DeleteMessageRequest> sqsCaptor = ArgumentCaptor.forClass(DeleteMessageRequest.class);
+        verify(mockSqsBackend).deleteMessage(sqsCaptor.capture());
+        assertThat(sqsCaptor.getValue().receiptHandle(), is(ORIGINAL_RECEIPT_HANDLE));
+    }
+
+    private SendMessageRequest getSendMessageRequest(int length) {
+        char[] charArray = new char[length];
+        Arrays.fill(charArray, 'x');
+
+        return SendMessageRequest.builder()
+                .queueUrl(SQS_QUEUE_URL)
+                .messageBody(new String(charArray))
+                .build();
+    }
+
+    @Test(expected = SdkClientException.class)
+    public void testThatPayloadBucketsAreRejected() {
+        new ExtendedSqsAsyncClient(mockSqsBackend, new ExtendedClientConfiguration()
+                .withLargePayloadSupportEnabled(mockS3, S3_BUCKET_NAME)
+                .withPayloadBuckets(Arrays.asList(new PayloadBucket("bucket-a"), new PayloadBucket("bucket-b"))));
+    }
+
+    @Test(expected = SdkClientException.class)
+    public void testThatAConfigurationWithOnlyAnS3ClientIsRejected() {
+        new ExtendedSqsAsyncClient(mockSqsBackend, new ExtendedClientConfiguration()
+                .withLargePayloadSupportEnabled(mock(S3Client.class), S3_BUCKET_NAME));
+    }
+}
@@ -18,24 +18,76 @@ package software.amazon.awssdk.services.sqs;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
+import software.amazon.awssdk.core.ResponseBytes;
+import software.amazon.awssdk.core.ResponseInputStream;
 import software.amazon.awssdk.core.exception.SdkClientException;
 import software.amazon.awssdk.core.exception.SdkException;
 import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.core.sync.ResponseTransformer;
+import software.amazon.awssdk.http.AbortableInputStream;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
 import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadResponse;
 import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsResponse;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
 import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Error;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartResponse;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityBatchRequest;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityBatchRequestEntry;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityRequest;
 import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchRequest;
 import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchRequestEntry;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchResponse;
 import software.amazon.awssdk.services.sqs.model.DeleteMessageRequest;
+import software.amazon.awssdk.services.sqs.model.Message;
+import software.amazon.awssdk.services.sqs.model.MessageAttributeValue;
+import software.amazon.awssdk.services.sqs.model.ReceiveMessageRequest;
+import software.amazon.awssdk.services.sqs.model.ReceiveMessageResponse;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequest;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequestEntry;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchResponse;
 import software.amazon.awssdk.services.sqs.model.SendMessageRequest;
+import software.amazon.awssdk.utils.IoUtils;
 
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Base64;
 import java.util.Collections;
+import java.util.List;
+import java.util.Random;
 
 import static org.hamcrest.CoreMatchers.is;
 import static software.amazon.awssdk.services.sqs.matchers.StringMatchesUUIDPattern.matchesThePatternOfAUUID;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.isA;
 import static org.mockito.Mockito.*;
@@ -62,6 +114,7 @@ public class ExtendedSqsClientTest {
         this.mockS3 = mock(S3Client.class);
         this.mockSqsBackend = mock(SqsClient.class);
         when(this.mockS3.putObject(isA(PutObjectRequest.class), isA(RequestBody.class))).thenReturn(null);
+        when(this.mockS3.deleteObjects(isA(DeleteObjectsRequest.class))).thenReturn(DeleteObjectsResponse.builder().build());
 
         ExtendedClientConfiguration extendedClientConfiguration = new ExtendedClientConfiguration()
                 .withLargePayloadSupportEnabled(this.mockS3, S3_BUCKET_NAME);
@@ -252,12 +305,994 @@ public class ExtendedSqsClientTest {
 
         extendedSqsWithDefaultConfig.deleteMessageBatch(deleteMessageBatchRequest);
 
-        ArgumentCaptor<DeleteObjectRequest> captor = ArgumentCaptor.forClass(DeleteObjectRequest.class);
-        verify(mockS3).deleteObject(captor.capture());
+        ArgumentCaptor<DeleteObjectsRequest> captor = ArgumentCaptor.forClass(DeleteObjectsRequest.class);
+        verify(mockS3).deleteObjects(captor.capture());
+        verify(mockS3, never()).deleteObject(any(DeleteObjectRequest.class));
 
-        DeleteObjectRequest deleteObjectRequest = captor.getValue();
-        assertThat(deleteObjectRequest.bucket(), is(S3_BUCKET_NAME));
-        assertThat(deleteObjectRequest.key(), is(S3_KEY));
+        DeleteObjectsRequest deleteObjectsRequest = captor.getValue();
+        assertThat(deleteObjectsRequest.bucket(), is(S3_BUCKET_NAME));
+        assertThat(deleteObjectsRequest.delete().objects().size(), is(1));
+        assertThat(deleteObjectsRequest.delete().objects().get(0).key(), is(S3_KEY));
+    }
+
+    @Test
+    public void testThatDeleteMessageBatchDeletesAllS3ObjectsInOneCallAndSendsTheOriginalReceiptHandles() {
+        String otherKey = "other-key";
+        DeleteMessageBatchRequest deleteMessageBatchRequest = DeleteMessageBatchRequest.builder()
+                .queueUrl(SQS_QUEUE_URL)
+                .entries(DeleteMessageBatchRequestEntry.builder().id("1").receiptHandle(RECEIPT_HANDLE).build(),
+                        DeleteMessageBatchRequestEntry.builder().id("2")
+                                .receiptHandle(RECEIPT_HANDLE.replace(S3_KEY, otherKey)).build(),
+                        DeleteMessageBatchRequestEntry.builder().id("3").receiptHandle("plain-handle").build())
+                .build();
+
+        extendedSqsWithDefaultConfig.deleteMessageBatch(deleteMessageBatchRequest);
+
+        ArgumentCaptor<DeleteObjectsRequest> s3Captor = ArgumentCaptor.forClass(DeleteObjectsRequest.class);
+        verify(mockS3, times(1)).deleteObjects(s3Captor.capture());
+        assertThat(s3Captor.getValue().delete().objects().size(), is(2));
+
+        ArgumentCaptor<DeleteMessageBatchRequest> sqsCaptor = ArgumentCaptor.forClass(DeleteMessageBatchRequest.class);
+        verify(mockSqsBackend).deleteMessageBatch(sqsCaptor.capture());
+        String origReceiptHandle = S3ReceiptHandle.decode(RECEIPT_HANDLE).getReceiptHandle();
+        assertThat(sqsCaptor.getValue().entries().get(0).receiptHandle(), is(origReceiptHandle));
+        assertThat(sqsCaptor.getValue().entries().get(1).receiptHandle(), is(origReceiptHandle));
+        assertThat(sqsCaptor.getValue().entries().get(2).receiptHandle(), is("plain-handle"));
+    }
+
+    @Test
+    public void testThatDeleteMessageBatchReportsEntriesWhoseS3ObjectCouldNotBeDeleted() {
+        when(mockS3.deleteObjects(isA(DeleteObjectsRequest.class))).thenReturn(DeleteObjectsResponse.builder()
+                .errors(S3Error.builder().key(S3_KEY).code("AccessDenied").message("Access Denied").build())
+                .build());
+        when(mockSqsBackend.deleteMessageBatch(isA(DeleteMessageBatchRequest.class)))
+                .thenReturn(DeleteMessageBatchResponse.builder().build());
+        DeleteMessageBatchRequest deleteMessageBatchRequest = DeleteMessageBatchRequest.builder()
+                .queueUrl(SQS_QUEUE_URL)
+                .entries(DeleteMessageBatchRequestEntry.builder().id("1").receiptHandle(RECEIPT_HANDLE).build(),
+                        DeleteMessageBatchRequestEntry.builder().id("2").receiptHandle("plain-handle").build())
+                .build();
+
+        DeleteMessageBatchResponse response = extendedSqsWithDefaultConfig.deleteMessageBatch(deleteMessageBatchRequest);
+
+        assertThat(response.failed().size(), is(1));
+        assertThat(response.failed().get(0).id(), is("1"));
+        assertThat(response.failed().get(0).code(), is(SQSExtendedClientConstants.S3_PAYLOAD_FAILURE_CODE));
+        ArgumentCaptor<DeleteMessageBatchRequest> sqsCaptor = ArgumentCaptor.forClass(DeleteMessageBatchRequest.class);
+        verify(mockSqsBackend).deleteMessageBatch(sqsCaptor.capture());
+        assertThat(sqsCaptor.getValue().entries().size(), is(1));
+        assertThat(sqsCaptor.getValue().entries().get(0).id(), is("2"));
+    }
+
+    @Test
+    public void testWhenSendMessageBatchWithLargeEntryThenOnlyThatEntryIsStoredInS3() throws Exception {
+        when(mockSqsBackend.sendMessageBatch(isA(SendMessageBatchRequest.class)))
+                .thenReturn(SendMessageBatchResponse.builder().build());
+        SendMessageBatchRequest batchRequest = SendMessageBatchRequest.builder()
+                .queueUrl(SQS_QUEUE_URL)
+                .entries(getSendMessageBatchRequestEntry("small", LESS_THAN_SQS_SIZE_LIMIT),
+                        getSendMessageBatchRequestEntry("large", MORE_THAN_SQS_SIZE_LIMIT))
+                .build();
+
+        extendedSqsWithDefaultConfig.sendMessageBatch(batchRequest);
+
+        verify(mockS3, times(1)).putObject(isA(PutObjectRequest.class), isA(RequestBody.class));
+        ArgumentCaptor<SendMessageBatchRequest> captor = ArgumentCaptor.forClass(SendMessageBatchRequest.class);
+        verify(mockSqsBackend).sendMessageBatch(captor.capture());
+
+        SendMessageBatchRequestEntry smallEntry = captor.getValue().entries().get(0);
+        SendMessageBatchRequestEntry largeEntry = captor.getValue().entries().get(1);
+        assertThat(smallEntry.messageBody(), is(generateStringWithLength(LESS_THAN_SQS_SIZE_LIMIT)));
+        MessageS3Pointer messageS3Pointer = new JsonDataConverter()
+                .deserializeFromJson(largeEntry.messageBody(), MessageS3Pointer.class);
+        assertThat(messageS3Pointer.getS3BucketName(), equalTo(S3_BUCKET_NAME));
+        assertThat(largeEntry.messageAttributes().containsKey(SQSExtendedClientConstants.RESERVED_ATTRIBUTE_NAME), is(true));
+    }
+
+    @Test
+    public void testWhenS3PutObjectFailsForBatchEntryThenItIsReportedAsFailedAndTheRestIsSent() {
+        when(mockS3.putObject(any(PutObjectRequest.class), any(RequestBody.class)))
+                .thenThrow(SdkException.create("test", new Exception()));
+        when(mockSqsBackend.sendMessageBatch(isA(SendMessageBatchRequest.class)))
+                .thenReturn(SendMessageBatchResponse.builder().build());
+        SendMessageBatchRequest batchRequest = SendMessageBatchRequest.builder()
+                .queueUrl(SQS_QUEUE_URL)
+                .entries(getSendMessageBatchRequestEntry("small", LESS_THAN_SQS_SIZE_LIMIT),
+                        getSendMessageBatchRequestEntry("large", MORE_THAN_SQS_SIZE_LIMIT))
+                .build();
+
+        SendMessageBatchResponse response = extendedSqsWithDefaultConfig.sendMessageBatch(batchRequest);
+
+        assertThat(response.failed().size(), is(1));
+        assertThat(response.failed().get(0).id(), is("large"));
+        assertThat(response.failed().get(0).code(), is(SQSExtendedClientConstants.S3_PAYLOAD_FAILURE_CODE));
+        ArgumentCaptor<SendMessageBatchRequest> captor = ArgumentCaptor.forClass(SendMessageBatchRequest.class);
+        verify(mockSqsBackend).sendMessageBatch(captor.capture());
+        assertThat(captor.getValue().entries().size(), is(1));
+        assertThat(captor.getValue().entries().get(0).id(), is("small"));
+    }
+
+    @Test
+    public void testThatReceiveMessageReadsAllPayloadsFromS3AndKeepsTheMessageOrder() {
+        List<Message> messages = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            if (i % 3 == 0) {
+                messages.add(Message.builder().body("inline-" + i).receiptHandle("handle-" + i).build());
+            } else {
+                messages.add(Message.builder()
+                        .body("{\"s3BucketName\":\"" + S3_BUCKET_NAME + "\",\"s3Key\":\"key-" + i + "\"}")
+                        .receiptHandle("handle-" + i)
+                        .messageAttributes(Collections.singletonMap(SQSExtendedClientConstants.RESERVED_ATTRIBUTE_NAME,
+                                MessageAttributeValue.builder().dataType("Number").stringValue("9").build()))
+                        .build());
+            }
+        }
+        when(mockSqsBackend.receiveMessage(isA(ReceiveMessageRequest.class)))
+                .thenReturn(ReceiveMessageResponse.builder().messages(messages).build());
+        when(mockS3.getObject(isA(GetObjectRequest.class), any(ResponseTransformer.class))).thenAnswer(invocation -> {
+            GetObjectRequest getObjectRequest = (GetObjectRequest) invocation.getArguments()[0];
+            return ResponseBytes.fromByteArray(GetObjectResponse.builder().build(),
+                    ("payload-" + getObjectRequest.key()).getBytes(StandardCharsets.UTF_8));
+        });
+
+        ReceiveMessageResponse response = extendedSqsWithDefaultConfig.receiveMessage(ReceiveMessageRequest.builder()
+                .queueUrl(SQS_QUEUE_URL)
+                .maxNumberOfMessages(10)
+                .build());
+
+        verify(mockS3, times(6)).getObject(isA(GetObjectRequest.class), any(ResponseTransformer.class));
+        for (int i = 0; i < 10; i++) {
+            Message message = response.messages().get(i);
+            if (i % 3 == 0) {
+                assertThat(message.body(), is("inline-" + i));
+                assertThat(message.receiptHandle(), is("handle-" + i));
+            } else {
+                assertThat(message.body(), is("payload-key-" + i));
+                assertThat(S3ReceiptHandle.decode(message.receiptHandle()).getReceiptHandle(), is("handle-" + i));
+            }
+        }
+    }
+
+    @Test(expected = SdkException.class)
+    public void testThatReceiveMessageFailsIfAPayloadCannotBeReadFromS3() {
+        Message message = Message.builder()
+                .body("{\"s3BucketName\":\"" + S3_BUCKET_NAME + "\",\"s3Key\":\"" + S3_KEY + "\"}")
+                .receiptHandle("handle")
+                .messageAttributes(Collections.singletonMap(SQSExtendedClientConstants.RESERVED_ATTRIBUTE_NAME,
+                        MessageAttributeValue.builder().dataType("Number").stringValue("9").build()))
+                .build();
+        when(mockSqsBackend.receiveMessage(isA(ReceiveMessageRequest.class)))
+                .thenReturn(ReceiveMessageResponse.builder().messages(message).build());
+        when(mockS3.getObject(isA(GetObjectRequest.class), any(ResponseTransformer.class)))
+                .thenThrow(SdkException.create("test", new Exception()));
+
+        extendedSqsWithDefaultConfig.receiveMessage(ReceiveMessageRequest.builder().queueUrl(SQS_QUEUE_URL).build());
+    }
+
+    @Test
+    public void testThatDeferredPayloadDeletionDeletesTheS3ObjectInTheBackground() {
+        ExtendedClientConfiguration extendedClientConfiguration = new ExtendedClientConfiguration()
+                .withLargePayloadSupportEnabled(mockS3, S3_BUCKET_NAME)
+                .withDeferredPayloadDeletionEnabled(true);
+        ExtendedSqsClient extendedSqsClient = new ExtendedSqsClient(mockSqsBackend, extendedClientConfiguration);
+
+        extendedSqsClient.deleteMessage(DeleteMessageRequest.builder()
+                .queueUrl(SQS_QUEUE_URL)
+                .receiptHandle(RECEIPT_HANDLE)
+                .build());
+        extendedSqsClient.deleteMessageBatch(DeleteMessageBatchRequest.builder()
+                .queueUrl(SQS_QUEUE_URL)
+                .entries(DeleteMessageBatchRequestEntry.builder().id("1")
+                        .receiptHandle(RECEIPT_HANDLE.replace(S3_KEY, "other-key")).build())
+                .build());
+
+        verify(mockS3, never()).deleteObject(any(DeleteObjectRequest.class));
+        ArgumentCaptor<DeleteMessageRequest> sqsCaptor = ArgumentCaptor.forClass(DeleteMessageRequest.class);
+        verify(mockSqsBackend).deleteMessage(sqsCaptor.capture());
+        assertThat(sqsCaptor.getValue().receiptHandle(), is(S3ReceiptHandle.decode(RECEIPT_HANDLE).getReceiptHandle()));
+
+        extendedSqsClient.close();
+
+        ArgumentCaptor<DeleteObjectsRequest> s3Captor = ArgumentCaptor.forClass(DeleteObjectsRequest.class);
+        verify(mockS3, atLeastOnce()).deleteObjects(s3Captor.capture());
+        List<String> deletedKeys = new ArrayList<>();
+        for (DeleteObjectsRequest deleteObjectsRequest : s3Captor.getAllValues()) {
+            assertThat(deleteObjectsRequest.bucket(), is(S3_BUCKET_NAME));
+            deleteObjectsRequest.delete().objects().forEach(object -> deletedKeys.add(object.key()));
+        }
+        assertThat(deletedKeys.size(), is(2));
+        assertThat(deletedKeys.contains(S3_KEY), is(true));
+        assertThat(deletedKeys.contains("other-key"), is(true));
+        assertThat(extendedSqsClient.getPendingS3PayloadDeletions(), is(0L));
+        assertThat(extendedSqsClient.getFailedS3PayloadDeletions(), is(0L));
+    }
+
+    @Test
+    public void testThatAStreamedPayloadIsStoredInS3WithItsSize() throws Exception {
+        byte[] payload = "streamed payload".getBytes(StandardCharsets.UTF_8);
+        ExtendedSqsClient extendedSqsClient = new ExtendedSqsClient(mockSqsBackend, new ExtendedClientConfiguration()
+                .withLargePayloadSupportEnabled(mockS3, S3_BUCKET_NAME));
+
+        extendedSqsClient.sendMessage(SendMessageRequest.builder().queueUrl(SQS_QUEUE_URL).build(),
+                new ByteArrayInputStream(payload), payload.length);
+
+        assertStoredPayloadAndSize(payload);
+    }
+
+    @Test
+    public void testThatAStreamedPayloadOfUnknownLengthIsStoredInS3WithItsSize() throws Exception {
+        byte[] payload = "streamed payload of unknown length".getBytes(StandardCharsets.UTF_8);
+        ExtendedSqsClient extendedSqsClient = new ExtendedSqsClient(mockSqsBackend, new ExtendedClientConfiguration()
+                .withLargePayloadSupportEnabled(mockS3, S3_BUCKET_NAME));
+
+        extendedSqsClient.sendMessage(SendMessageRequest.builder().queueUrl(SQS_QUEUE_URL).build(),
+                new ByteArrayInputStream(payload));
+
+        assertStoredPayloadAndSize(payload);
+    }
+
+    @Test
+    public void testThatAByteBufferPayloadIsStoredInS3WithoutMovingTheBuffer() throws Exception {
+        byte[] payload = "buffered payload".getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.wrap(payload);
+        ExtendedSqsClient extendedSqsClient = new ExtendedSqsClient(mockSqsBackend, new ExtendedClientConfiguration()
+                .withLargePayloadSupportEnabled(mockS3, S3_BUCKET_NAME));
+
+        extendedSqsClient.sendMessage(SendMessageRequest.builder().queueUrl(SQS_QUEUE_URL).build(), buffer);
+
+        assertStoredPayloadAndSize(payload);
+        assertThat(buffer.position(), is(0));
+    }
+
+    @Test
+    public void testThatAFilePayloadIsStoredInS3WithItsSize() throws Exception {
+        byte[] payload = "file payload".getBytes(StandardCharsets.UTF_8);
+        Path file = Files.createTempFile("payload", ".txt");
+        Files.write(file, payload);
+        ExtendedSqsClient extendedSqsClient = new ExtendedSqsClient(mockSqsBackend, new ExtendedClientConfiguration()
+                .withLargePayloadSupportEnabled(mockS3, S3_BUCKET_NAME));
+
+        try {
+            extendedSqsClient.sendMessage(SendMessageRequest.builder().queueUrl(SQS_QUEUE_URL).build(), file);
+            assertStoredPayloadAndSize(payload);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test(expected = SdkClientException.class)
+    public void testThatAStreamedPayloadCannotBeSentWithAMessageBody() {
+        ExtendedSqsClient extendedSqsClient = new ExtendedSqsClient(mockSqsBackend, new ExtendedClientConfiguration()
+                .withLargePayloadSupportEnabled(mockS3, S3_BUCKET_NAME));
+
+        extendedSqsClient.sendMessage(SendMessageRequest.builder().queueUrl(SQS_QUEUE_URL).messageBody("body").build(),
+                ByteBuffer.allocate(1));
+    }
+
+    @Test(expected = SdkClientException.class)
+    public void testThatAStreamedPayloadCannotBeSentWithLargePayloadSupportDisabled() {
+        ExtendedSqsClient extendedSqsClient = new ExtendedSqsClient(mockSqsBackend, new ExtendedClientConfiguration()
+                .withLargePayloadSupportDisabled());
+
+        extendedSqsClient.sendMessage(SendMessageRequest.builder().queueUrl(SQS_QUEUE_URL).build(), ByteBuffer.allocate(1));
+    }
+
+    private void assertStoredPayloadAndSize(byte[] payload) throws Exception {
+        ArgumentCaptor<RequestBody> bodyCaptor = ArgumentCaptor.forClass(RequestBody.class);
+        verify(mockS3).putObject(isA(PutObjectRequest.class), bodyCaptor.capture());
+        RequestBody requestBody = bodyCaptor.getValue();
+        assertThat(requestBody.contentLength(), is((long) payload.length));
+        try (InputStream stream = requestBody.contentStreamProvider().newStream()) {
+            assertThat(IoUtils.toByteArray(stream), equalTo(payload));
+        }
+
+        ArgumentCaptor<SendMessageRequest> sqsCaptor = ArgumentCaptor.forClass(SendMessageRequest.class);
+        verify(mockSqsBackend).sendMessage(sqsCaptor.capture());
+        MessageAttributeValue sizeAttribute = sqsCaptor.getValue().messageAttributes()
+                .get(SQSExtendedClientConstants.RESERVED_ATTRIBUTE_NAME);
+        assertThat(sizeAttribute.stringValue(), is(Integer.toString(payload.length)));
+        assertThat(sqsCaptor.getValue().messageBody().contains(S3_BUCKET_NAME), is(true));
+    }
+
+    @Test
+    public void testThatReceiveStreamingMessagesOpensTheS3PayloadOnlyWhenAsked() throws Exception {
+        byte[] payload = "payload from s3".getBytes(StandardCharsets.UTF_8);
+        Message s3Message = Message.builder()
+                .body("{\"s3BucketName\":\"" + S3_BUCKET_NAME + "\",\"s3Key\":\"" + S3_KEY + "\"}")
+                .receiptHandle("handle")
+                .messageAttributes(Collections.singletonMap(SQSExtendedClientConstants.RESERVED_ATTRIBUTE_NAME,
+                        MessageAttributeValue.builder().dataType("Number").stringValue(Integer.toString(payload.length)).build()))
+                .build();
+        Message inlineMessage = Message.builder().body("inline").receiptHandle("inline-handle").build();
+        when(mockSqsBackend.receiveMessage(isA(ReceiveMessageRequest.class)))
+                .thenReturn(ReceiveMessageResponse.builder().messages(s3Message, inlineMessage).build());
+        when(mockS3.getObject(isA(GetObjectRequest.class))).thenReturn(new ResponseInputStream<>(
+                GetObjectResponse.builder().build(), AbortableInputStream.create(new ByteArrayInputStream(payload))));
+        ExtendedSqsClient extendedSqsClient = new ExtendedSqsClient(mockSqsBackend, new ExtendedClientConfiguration()
+                .withLargePayloadSupportEnabled(mockS3, S3_BUCKET_NAME));
+
+        List<StreamingMessage> messages = extendedSqsClient.receiveStreamingMessages(
+                ReceiveMessageRequest.builder().queueUrl(SQS_QUEUE_URL).build());
+
+        verify(mockS3, never()).getObject(isA(GetObjectRequest.class));
+        verify(mockS3, never()).getObject(isA(GetObjectRequest.class), any(ResponseTransformer.class));
+        assertThat(messages.size(), is(2));
+
+        StreamingMessage s3StreamingMessage = messages.get(0);
+        assertThat(s3StreamingMessage.isPayloadInS3(), is(true));
+        assertThat(s3StreamingMessage.getPayloadSize(), is((long) payload.length));
+        assertThat(s3StreamingMessage.getMessage().messageAttributes()
+                .containsKey(SQSExtendedClientConstants.RESERVED_ATTRIBUTE_NAME), is(false));
+        assertThat(S3ReceiptHandle.decode(s3StreamingMessage.getMessage().receiptHandle()) != null, is(true));
+        try (InputStream stream = s3StreamingMessage.openPayload()) {
+            assertThat(IoUtils.toByteArray(stream), equalTo(payload));
+        }
+
+        StreamingMessage inlineStreamingMessage = messages.get(1);
+        assertThat(inlineStreamingMessage.isPayloadInS3(), is(false));
+        assertThat(inlineStreamingMessage.getPayloadSize(), is(6L));
+        assertThat(inlineStreamingMessage.getMessage().receiptHandle(), is("inline-handle"));
+        try (InputStream stream = inlineStreamingMessage.openPayload()) {
+            assertThat(IoUtils.toByteArray(stream), equalTo("inline".getBytes(StandardCharsets.UTF_8)));
+        }
+    }
+
+    @Test
+    public void testThatACompressiblePayloadIsSentInlineAndDecompressedOnReceive() {
+        String messageBody = generateStringWithLength(MORE_THAN_SQS_SIZE_LIMIT);
+        ExtendedSqsClient extendedSqsClient = new ExtendedSqsClient(mockSqsBackend, new ExtendedClientConfiguration()
+                .withLargePayloadSupportEnabled(mockS3, S3_BUCKET_NAME)
+                .withPayloadCodec(new GzipPayloadCodec()));
+
+        extendedSqsClient.sendMessage(SendMessageRequest.builder().queueUrl(SQS_QUEUE_URL).messageBody(messageBody).build());
+
+        verify(mockS3, never()).putObject(isA(PutObjectRequest.class), isA(RequestBody.class));
+        ArgumentCaptor<SendMessageRequest> sqsCaptor = ArgumentCaptor.forClass(SendMessageRequest.class);
+        verify(mockSqsBackend).sendMessage(sqsCaptor.capture());
+        SendMessageRequest sentRequest = sqsCaptor.getValue();
+        assertThat(sentRequest.messageAttributes().get(SQSExtendedClientConstants.RESERVED_CODEC_ATTRIBUTE_NAME).stringValue(),
+                is(GzipPayloadCodec.NAME));
+        assertThat(sentRequest.messageAttributes().containsKey(SQSExtendedClientConstants.RESERVED_ATTRIBUTE_NAME), is(false));
+        assertThat(sentRequest.messageBody().length() < messageBody.length(), is(true));
+
+        Message sentMessage = Message.builder()
+                .body(sentRequest.messageBody())
+                .messageAttributes(sentRequest.messageAttributes())
+                .receiptHandle("handle")
+                .build();
+        when(mockSqsBackend.receiveMessage(isA(ReceiveMessageRequest.class)))
+                .thenReturn(ReceiveMessageResponse.builder().messages(sentMessage).build());
+
+        Message receivedMessage = extendedSqsClient.receiveMessage(
+                ReceiveMessageRequest.builder().queueUrl(SQS_QUEUE_URL).build()).messages().get(0);
+
+        assertThat(receivedMessage.body(), is(messageBody));
+        assertThat(receivedMessage.messageAttributes().isEmpty(), is(true));
+        assertThat(receivedMessage.receiptHandle(), is("handle"));
+    }
+
+    @Test
+    public void testThatACompressedPayloadStoredInS3IsDecompressedOnReceive() throws Exception {
+        String messageBody = generateStringWithLength(MORE_THAN_SQS_SIZE_LIMIT);
+        ExtendedSqsClient extendedSqsClient = new ExtendedSqsClient(mockSqsBackend, new ExtendedClientConfiguration()
+                .withLargePayloadSupportEnabled(mockS3, S3_BUCKET_NAME)
+                .withAlwaysThroughS3(true)
+                .withPayloadCodec(new GzipPayloadCodec()));
+
+        extendedSqsClient.sendMessage(SendMessageRequest.builder().queueUrl(SQS_QUEUE_URL).messageBody(messageBody).build());
+
+        ArgumentCaptor<RequestBody> bodyCaptor = ArgumentCaptor.forClass(RequestBody.class);
+        verify(mockS3).putObject(isA(PutObjectRequest.class), bodyCaptor.capture());
+        byte[] storedPayload = IoUtils.toByteArray(bodyCaptor.getValue().contentStreamProvider().newStream());
+        ArgumentCaptor<SendMessageRequest> sqsCaptor = ArgumentCaptor.forClass(SendMessageRequest.class);
+        verify(mockSqsBackend).sendMessage(sqsCaptor.capture());
+        SendMessageRequest sentRequest = sqsCaptor.getValue();
+        assertThat(sentRequest.messageAttributes().get(SQSExtendedClientConstants.RESERVED_ATTRIBUTE_NAME).stringValue(),
+                is(Integer.toString(MORE_THAN_SQS_SIZE_LIMIT)));
+        assertThat(storedPayload.length < messageBody.length(), is(true));
+
+        when(mockSqsBackend.receiveMessage(isA(ReceiveMessageRequest.class))).thenReturn(ReceiveMessageResponse.builder()
+                .messages(Message.builder()
+                        .body(sentRequest.messageBody())
+                        .messageAttributes(sentRequest.messageAttributes())
+                        .receiptHandle("handle")
+                        .build())
+                .build());
+        when(mockS3.getObject(isA(GetObjectRequest.class), any(ResponseTransformer.class)))
+                .thenReturn(ResponseBytes.fromByteArray(GetObjectResponse.builder().build(), storedPayload));
+
+        Message receivedMessage = extendedSqsClient.receiveMessage(
+                ReceiveMessageRequest.builder().queueUrl(SQS_QUEUE_URL).build()).messages().get(0);
+
+        assertThat(receivedMessage.body(), is(messageBody));
+        assertThat(receivedMessage.messageAttributes().isEmpty(), is(true));
+    }
+
+    @Test
+    public void testThatAPoorlyCompressiblePayloadIsSentUncompressed() {
+        byte[] randomBytes = new byte[SQS_SIZE_LIMIT];
+        new Random(1).nextBytes(randomBytes);
+        String messageBody = Base64.getEncoder().encodeToString(randomBytes);
+        ExtendedSqsClient extendedSqsClient = new ExtendedSqsClient(mockSqsBackend, new ExtendedClientConfiguration()
+                .withLargePayloadSupportEnabled(mockS3, S3_BUCKET_NAME)
+                .withPayloadCodec(new GzipPayloadCodec())
+                .withMaxPayloadCompressionRatio(0.5));
+
+        extendedSqsClient.sendMessage(SendMessageRequest.builder().queueUrl(SQS_QUEUE_URL).messageBody(messageBody).build());
+
+        verify(mockS3).putObject(isA(PutObjectRequest.class), isA(RequestBody.class));
+        ArgumentCaptor<SendMessageRequest> sqsCaptor = ArgumentCaptor.forClass(SendMessageRequest.class);
+        verify(mockSqsBackend).sendMessage(sqsCaptor.capture());
+        assertThat(sqsCaptor.getValue().messageAttributes()
+                .containsKey(SQSExtendedClientConstants.RESERVED_CODEC_ATTRIBUTE_NAME), is(false));
+    }
+
+    @Test
+    public void testThatAPayloadAboveTheMultipartThresholdIsUploadedInParts() {
+        int partSize = (int) SQSExtendedClientConstants.MIN_MULTIPART_UPLOAD_PART_SIZE;
+        ByteBuffer payload = ByteBuffer.allocate(2 * partSize + 1);
+        when(mockS3.createMultipartUpload(isA(CreateMultipartUploadRequest.class)))
+                .thenReturn(CreateMultipartUploadResponse.builder().uploadId("upload-id").build());
+        when(mockS3.uploadPart(isA(UploadPartRequest.class), isA(RequestBody.class)))
+                .thenReturn(UploadPartResponse.builder().eTag("etag").build());
+        ExtendedSqsClient extendedSqsClient = new ExtendedSqsClient(mockSqsBackend, new ExtendedClientConfiguration()
+                .withLargePayloadSupportEnabled(mockS3, S3_BUCKET_NAME)
+                .withMultipartUploadThreshold(partSize)
+                .withMultipartUploadPartSize(partSize));
+
+        extendedSqsClient.sendMessage(SendMessageRequest.builder().queueUrl(SQS_QUEUE_URL).build(), payload);
+
+        verify(mockS3, never()).putObject(isA(PutObjectRequest.class), isA(RequestBody.class));
+        ArgumentCaptor<UploadPartRequest> partCaptor = ArgumentCaptor.forClass(UploadPartRequest.class);
+        verify(mockS3, times(3)).uploadPart(partCaptor.capture(), isA(RequestBody.class));
+        long uploadedBytes = 0;
+        for (UploadPartRequest uploadPartRequest : partCaptor.getAllValues()) {
+            assertThat(uploadPartRequest.uploadId(), is("upload-id"));
+            uploadedBytes += uploadPartRequest.contentLength();
+        }
+        assertThat(uploadedBytes, is((long) payload.remaining()));
+
+        ArgumentCaptor<CompleteMultipartUploadRequest> completeCaptor = ArgumentCaptor.forClass(CompleteMultipartUploadRequest.class);
+        verify(mockS3).completeMultipartUpload(completeCaptor.capture());
+        List<CompletedPart> parts = completeCaptor.getValue().multipartUpload().parts();
+        assertThat(parts.size(), is(3));
+        for (int i = 0; i < parts.size(); i++) {
+            assertThat(parts.get(i).partNumber(), is(i + 1));
+        }
+        verify(mockSqsBackend).sendMessage(isA(SendMessageRequest.class));
+        extendedSqsClient.close();
+    }
+
+    @Test
+    public void testThatAFailedMultipartUploadIsAbortedAndTheMessageIsNotSent() {
+        int partSize = (int) SQSExtendedClientConstants.MIN_MULTIPART_UPLOAD_PART_SIZE;
+        when(mockS3.createMultipartUpload(isA(CreateMultipartUploadRequest.class)))
+                .thenReturn(CreateMultipartUploadResponse.builder().uploadId("upload-id").build());
+        when(mockS3.uploadPart(isA(UploadPartRequest.class), isA(RequestBody.class)))
+                .thenThrow(SdkException.create("test", new Exception()));
+        ExtendedSqsClient extendedSqsClient = new ExtendedSqsClient(mockSqsBackend, new ExtendedClientConfiguration()
+                .withLargePayloadSupportEnabled(mockS3, S3_BUCKET_NAME)
+                .withMultipartUploadThreshold(partSize)
+                .withMultipartUploadPartSize(partSize));
+
+        try {
+            extendedSqsClient.sendMessage(SendMessageRequest.builder().queueUrl(SQS_QUEUE_URL).build(),
+                    ByteBuffer.allocate(2 * partSize));
+            fail("Expected the send to fail");
+        } catch (SdkClientException e) {
+            // expected
+        }
+
+        ArgumentCaptor<AbortMultipartUploadRequest> abortCaptor = ArgumentCaptor.forClass(AbortMultipartUploadRequest.class);
+        verify(mockS3).abortMultipartUpload(abortCaptor.capture());
+        assertThat(abortCaptor.getValue().uploadId(), is("upload-id"));
+        verify(mockS3, never()).completeMultipartUpload(isA(CompleteMultipartUploadRequest.class));
+        verify(mockSqsBackend, never()).sendMessage(isA(SendMessageRequest.class));
+        extendedSqsClient.close();
+    }
+
+    @Test(timeout = 30000)
+    public void testThatFailedMultipartUploadsDoNotBlockLaterUploads() {
+        int partSize = (int) SQSExtendedClientConstants.MIN_MULTIPART_UPLOAD_PART_SIZE;
+        int concurrency = 2;
+        when(mockS3.createMultipartUpload(isA(CreateMultipartUploadRequest.class)))
+                .thenReturn(CreateMultipartUploadResponse.builder().uploadId("upload-id").build());
+        when(mockS3.uploadPart(isA(UploadPartRequest.class), isA(RequestBody.class)))
+                .thenThrow(SdkException.create("test", new Exception()));
+        ExtendedSqsClient extendedSqsClient = new ExtendedSqsClient(mockSqsBackend, new ExtendedClientConfiguration()
+                .withLargePayloadSupportEnabled(mockS3, S3_BUCKET_NAME)
+                .withMultipartUploadThreshold(partSize)
+                .withMultipartUploadPartSize(partSize)
+                .withMultipartUploadConcurrency(concurrency));
+
+        // each payload has more parts than permits, so that a failed part is
+        // always noticed while the next one is about to be buffered.
+        for (int i = 0; i <= concurrency; i++) {
+            try {
+                extendedSqsClient.sendMessage(SendMessageRequest.builder().queueUrl(SQS_QUEUE_URL).build(),
+                        ByteBuffer.allocate((concurrency + 1) * partSize));
+                fail("Expected the send to fail");
+            } catch (SdkClientException e) {
+                // expected
+            }
+        }
+
+        doReturn(UploadPartResponse.builder().eTag("etag").build())
+                .when(mockS3).uploadPart(isA(UploadPartRequest.class), isA(RequestBody.class));
+        extendedSqsClient.sendMessage(SendMessageRequest.builder().queueUrl(SQS_QUEUE_URL).build(),
+                ByteBuffer.allocate((concurrency + 1) * partSize));
+
+        verify(mockS3).completeMultipartUpload(isA(CompleteMultipartUploadRequest.class));
+        verify(mockSqsBackend).sendMessage(isA(SendMessageRequest.class));
+        extendedSqsClient.close();
+    }
+
+    @Test
+    public void testThatALargePayloadIsDownloadedInRanges() throws Exception {
+        int partSize = (int) SQSExtendedClientConstants.MIN_RANGED_DOWNLOAD_PART_SIZE;
+        byte[] payload = new byte[2 * partSize + 10];
+        for (int i = 0; i < payload.length; i++) {
+            payload[i] = (byte) ('a' + i % 26);
+        }
+        Message message = Message.builder()
+                .body("{\"s3BucketName\":\"" + S3_BUCKET_NAME + "\",\"s3Key\":\"" + S3_KEY + "\"}")
+                .receiptHandle("handle")
+                .messageAttributes(Collections.singletonMap(SQSExtendedClientConstants.RESERVED_ATTRIBUTE_NAME,
+                        MessageAttributeValue.builder().dataType("Number").stringValue(Integer.toString(payload.length)).build()))
+                .build();
+        when(mockSqsBackend.receiveMessage(isA(ReceiveMessageRequest.class)))
+                .thenReturn(ReceiveMessageResponse.builder().messages(message).build());
+        when(mockS3.getObject(isA(GetObjectRequest.class))).thenAnswer(invocation -> {
+            String range = ((GetObjectRequest) invocation.getArguments()[0]).range();
+            String[] bounds = range.substring("bytes=".length()).split("-");
+            int start = Integer.parseInt(bounds[0]);
+            int end = Integer.parseInt(bounds[1]);
+            return new ResponseInputStream<>(GetObjectResponse.builder().contentLength((long) (end - start + 1)).build(),
+                    AbortableInputStream.create(new ByteArrayInputStream(payload, start, end - start + 1)));
+        });
+        ExtendedSqsClient extendedSqsClient = new ExtendedSqsClient(mockSqsBackend, new ExtendedClientConfiguration()
+                .withLargePayloadSupportEnabled(mockS3, S3_BUCKET_NAME)
+                .withRangedDownloadThreshold(partSize)
+                .withRangedDownloadPartSize(partSize));
+
+        Message receivedMessage = extendedSqsClient.receiveMessage(
+                ReceiveMessageRequest.builder().queueUrl(SQS_QUEUE_URL).build()).messages().get(0);
+
+        assertThat(receivedMessage.body(), is(new String(payload, StandardCharsets.UTF_8)));
+        verify(mockS3, times(3)).getObject(isA(GetObjectRequest.class));
+        verify(mockS3, never()).getObject(isA(GetObjectRequest.class), any(ResponseTransformer.class));
+
+        StreamingMessage streamingMessage = extendedSqsClient.receiveStreamingMessages(
+                ReceiveMessageRequest.builder().queueUrl(SQS_QUEUE_URL).build()).get(0);
+        Path file = Files.createTempFile("payload", ".txt");
+        try {
+            streamingMessage.downloadPayload(file);
+            assertThat(Files.readAllBytes(file), equalTo(payload));
+        } finally {
+            Files.delete(file);
+        }
+        verify(mockS3, times(6)).getObject(isA(GetObjectRequest.class));
+    }
+
+    @Test
+    public void testThatARedeliveredPayloadIsReadFromTheCacheUntilItIsDeleted() {
+        Message message = Message.builder()
+                .body("{\"s3BucketName\":\"" + S3_BUCKET_NAME + "\",\"s3Key\":\"" + S3_KEY + "\"}")
+                .receiptHandle("handle")
+                .messageAttributes(Collections.singletonMap(SQSExtendedClientConstants.RESERVED_ATTRIBUTE_NAME,
+                        MessageAttributeValue.builder().dataType("Number").stringValue("7").build()))
+                .build();
+        when(mockSqsBackend.receiveMessage(isA(ReceiveMessageRequest.class)))
+                .thenReturn(ReceiveMessageResponse.builder().messages(message).build());
+        when(mockS3.getObject(isA(GetObjectRequest.class), any(ResponseTransformer.class)))
+                .thenReturn(ResponseBytes.fromByteArray(GetObjectResponse.builder().build(),
+                        "payload".getBytes(StandardCharsets.UTF_8)));
+        ExtendedSqsClient extendedSqsClient = new ExtendedSqsClient(mockSqsBackend, new ExtendedClientConfiguration()
+                .withLargePayloadSupportEnabled(mockS3, S3_BUCKET_NAME)
+                .withPayloadCacheMaxBytes(1024));
+        ReceiveMessageRequest receiveMessageRequest = ReceiveMessageRequest.builder().queueUrl(SQS_QUEUE_URL).build();
+
+        Message firstDelivery = extendedSqsClient.receiveMessage(receiveMessageRequest).messages().get(0);
+        Message secondDelivery = extendedSqsClient.receiveMessage(receiveMessageRequest).messages().get(0);
+
+        assertThat(firstDelivery.body(), is("payload"));
+        assertThat(secondDelivery.body(), is("payload"));
+        verify(mockS3, times(1)).getObject(isA(GetObjectRequest.class), any(ResponseTransformer.class));
+
+        extendedSqsClient.deleteMessage(DeleteMessageRequest.builder()
+                .queueUrl(SQS_QUEUE_URL)
+                .receiptHandle(secondDelivery.receiptHandle())
+                .build());
+        extendedSqsClient.receiveMessage(receiveMessageRequest);
+
+        verify(mockS3, times(2)).getObject(isA(GetObjectRequest.class), any(ResponseTransformer.class));
+    }
+
+    @Test
+    public void testThatACachedPayloadLeftToExpireIsInvalidatedWhenItsMessageIsDeleted() {
+        Message message = Message.builder()
+                .body("{\"s3BucketName\":\"" + S3_BUCKET_NAME + "\",\"s3Key\":\"" + S3_KEY + "\"}")
+                .receiptHandle("handle")
+                .messageAttributes(Collections.singletonMap(SQSExtendedClientConstants.RESERVED_ATTRIBUTE_NAME,
+                        MessageAttributeValue.builder().dataType("Number").stringValue("7").build()))
+                .build();
+        when(mockSqsBackend.receiveMessage(isA(ReceiveMessageRequest.class)))
+                .thenReturn(ReceiveMessageResponse.builder().messages(message).build());
+        when(mockSqsBackend.deleteMessageBatch(isA(DeleteMessageBatchRequest.class)))
+                .thenReturn(DeleteMessageBatchResponse.builder().build());
+        when(mockS3.getObject(isA(GetObjectRequest.class), any(ResponseTransformer.class)))
+                .thenReturn(ResponseBytes.fromByteArray(GetObjectResponse.builder().build(),
+                        "payload".getBytes(StandardCharsets.UTF_8)));
+        ExtendedSqsClient extendedSqsClient = new ExtendedSqsClient(mockSqsBackend, new ExtendedClientConfiguration()
+                .withLargePayloadSupportEnabled(mockS3, S3_BUCKET_NAME)
+                .withLifecyclePayloadExpiryEnabled(true)
+                .withPayloadCacheMaxBytes(1024));
+        ReceiveMessageRequest receiveMessageRequest = ReceiveMessageRequest.builder().queueUrl(SQS_QUEUE_URL).build();
+
+        Message firstDelivery = extendedSqsClient.receiveMessage(receiveMessageRequest).messages().get(0);
+        extendedSqsClient.deleteMessage(DeleteMessageRequest.builder()
+                .queueUrl(SQS_QUEUE_URL)
+                .receiptHandle(firstDelivery.receiptHandle())
+                .build());
+        Message secondDelivery = extendedSqsClient.receiveMessage(receiveMessageRequest).messages().get(0);
+        extendedSqsClient.deleteMessageBatch(DeleteMessageBatchRequest.builder()
+                .queueUrl(SQS_QUEUE_URL)
+                .entries(DeleteMessageBatchRequestEntry.builder()
+                        .id("0")
+                        .receiptHandle(secondDelivery.receiptHandle())
+                        .build())
+                .build());
+        extendedSqsClient.receiveMessage(receiveMessageRequest);
+
+        verify(mockS3, times(3)).getObject(isA(GetObjectRequest.class), any(ResponseTransformer.class));
+        verify(mockS3, never()).deleteObject(isA(DeleteObjectRequest.class));
+    }
+
+    @Test
+    public void testThatIdenticalContentAddressedPayloadsAreUploadedOnce() {
+        when(mockS3.headObject(isA(HeadObjectRequest.class))).thenThrow(NoSuchKeyException.builder().build());
+        ExtendedSqsClient extendedSqsClient = new ExtendedSqsClient(mockSqsBackend, new ExtendedClientConfiguration()
+                .withLargePayloadSupportEnabled(mockS3, S3_BUCKET_NAME)
+                .withContentAddressedPayloadKeysEnabled(true));
+        SendMessageRequest messageRequest = getSendMessageRequest(MORE_THAN_SQS_SIZE_LIMIT);
+
+        extendedSqsClient.sendMessage(messageRequest);
+        extendedSqsClient.sendMessage(messageRequest);
+
+        verify(mockS3, times(1)).headObject(isA(HeadObjectRequest.class));
+        verify(mockS3, times(1)).putObject(isA(PutObjectRequest.class), isA(RequestBody.class));
+        ArgumentCaptor<SendMessageRequest> captor = ArgumentCaptor.forClass(SendMessageRequest.class);
+        verify(mockSqsBackend, times(2)).sendMessage(captor.capture());
+        String s3Key = ExtendedClientUtils.getContentAddressedS3Key(
+                messageRequest.messageBody().getBytes(StandardCharsets.UTF_8));
+        for (SendMessageRequest sentRequest : captor.getAllValues()) {
+            assertThat(ExtendedClientUtils.readMessageS3PointerFromJSON(sentRequest.messageBody()).getS3Key(), is(s3Key));
+        }
+    }
+
+    @Test
+    public void testThatAContentAddressedPayloadAnsweredWithA404IsUploaded() {
+        when(mockS3.headObject(isA(HeadObjectRequest.class)))
+                .thenThrow(S3Exception.builder().statusCode(404).build());
+        ExtendedSqsClient extendedSqsClient = new ExtendedSqsClient(mockSqsBackend, new ExtendedClientConfiguration()
+                .withLargePayloadSupportEnabled(mockS3, S3_BUCKET_NAME)
+                .withContentAddressedPayloadKeysEnabled(true));
+
+        extendedSqsClient.sendMessage(getSendMessageRequest(MORE_THAN_SQS_SIZE_LIMIT));
+
+        verify(mockS3, times(1)).headObject(isA(HeadObjectRequest.class));
+        verify(mockS3, times(1)).putObject(isA(PutObjectRequest.class), isA(RequestBody.class));
+        verify(mockSqsBackend, times(1)).sendMessage(isA(SendMessageRequest.class));
+    }
+
+    @Test
+    public void testThatARecentlyWrittenContentAddressedPayloadIsNotUploadedAgain() {
+        when(mockS3.headObject(isA(HeadObjectRequest.class)))
+                .thenReturn(HeadObjectResponse.builder().lastModified(Instant.now()).build());
+        ExtendedSqsClient extendedSqsClient = new ExtendedSqsClient(mockSqsBackend, new ExtendedClientConfiguration()
+                .withLargePayloadSupportEnabled(mockS3, S3_BUCKET_NAME)
+                .withContentAddressedPayloadKeysEnabled(true));
+
+        extendedSqsClient.sendMessage(getSendMessageRequest(MORE_THAN_SQS_SIZE_LIMIT));
+
+        verify(mockS3, never()).putObject(isA(PutObjectRequest.class), isA(RequestBody.class));
+        verify(mockSqsBackend).sendMessage(isA(SendMessageRequest.class));
+    }
+
+    @Test
+    public void testThatAnOldContentAddressedPayloadIsUploadedAgain() {
+        when(mockS3.headObject(isA(HeadObjectRequest.class)))
+                .thenReturn(HeadObjectResponse.builder().lastModified(Instant.now().minusSeconds(120)).build());
+        ExtendedSqsClient extendedSqsClient = new ExtendedSqsClient(mockSqsBackend, new ExtendedClientConfiguration()
+                .withLargePayloadSupportEnabled(mockS3, S3_BUCKET_NAME)
+                .withContentAddressedPayloadKeysEnabled(true)
+                .withPayloadReuseMaxAgeMillis(60000));
+
+        extendedSqsClient.sendMessage(getSendMessageRequest(MORE_THAN_SQS_SIZE_LIMIT));
+
+        verify(mockS3).putObject(isA(PutObjectRequest.class), isA(RequestBody.class));
+    }
+
+    @Test
+    public void testThatContentAddressedPayloadsAreNotDeletedWithTheirMessages() {
+        ExtendedSqsClient extendedSqsClient = new ExtendedSqsClient(mockSqsBackend, new ExtendedClientConfiguration()
+                .withLargePayloadSupportEnabled(mockS3, S3_BUCKET_NAME)
+                .withContentAddressedPayloadKeysEnabled(true));
+
+        extendedSqsClient.deleteMessage(DeleteMessageRequest.builder()
+                .queueUrl(SQS_QUEUE_URL)
+                .receiptHandle(RECEIPT_HANDLE)
+                .build());
+        extendedSqsClient.deleteMessageBatch(DeleteMessageBatchRequest.builder()
+                .queueUrl(SQS_QUEUE_URL)
+                .entries(DeleteMessageBatchRequestEntry.builder().id("1").receiptHandle(RECEIPT_HANDLE).build())
+                .build());
+
+        verify(mockS3, never()).deleteObject(isA(DeleteObjectRequest.class));
+        verify(mockS3, never()).deleteObjects(isA(DeleteObjectsRequest.class));
+        ArgumentCaptor<DeleteMessageRequest> captor = ArgumentCaptor.forClass(DeleteMessageRequest.class);
+        verify(mockSqsBackend).deleteMessage(captor.capture());
+        assertThat(captor.getValue().receiptHandle(), is(S3ReceiptHandle.decode(RECEIPT_HANDLE).getReceiptHandle()));
+    }
+
+    @Test
+    public void testThatPayloadsLeftToExpireAreStoredUnderADatedPrefixWithTheirTags() {
+        ExtendedSqsClient extendedSqsClient = new ExtendedSqsClient(mockSqsBackend, new ExtendedClientConfiguration()
+                .withLargePayloadSupportEnabled(mockS3, S3_BUCKET_NAME)
+                .withLifecyclePayloadExpiryEnabled(true)
+                .withPayloadTagging("expiry=4d"));
+
+        extendedSqsClient.sendMessage(getSendMessageRequest(MORE_THAN_SQS_SIZE_LIMIT));
+
+        ArgumentCaptor<PutObjectRequest> captor = ArgumentCaptor.forClass(PutObjectRequest.class);
+        verify(mockS3).putObject(captor.capture(), isA(RequestBody.class));
+        String expectedPrefix = SQSExtendedClientConstants.DEFAULT_LIFECYCLE_PAYLOAD_KEY_PREFIX + LocalDate.now(ZoneOffset.UTC) + "/";
+        assertThat(captor.getValue().key().startsWith(expectedPrefix), is(true));
+        assertThat(captor.getValue().key().substring(expectedPrefix.length()), matchesThePatternOfAUUID());
+        assertThat(captor.getValue().tagging(), is("expiry=4d"));
+    }
+
+    @Test
+    public void testThatPayloadsAreSpreadOverBucketsAndReadFromTheBucketInTheirPointer() {
+        S3Client otherRegionS3 = mock(S3Client.class);
+        when(otherRegionS3.getObject(isA(GetObjectRequest.class), any(ResponseTransformer.class)))
+                .thenReturn(ResponseBytes.fromByteArray(GetObjectResponse.builder().build(),
+                        "payload".getBytes(StandardCharsets.UTF_8)));
+        ExtendedSqsClient extendedSqsClient = new ExtendedSqsClient(mockSqsBackend, new ExtendedClientConfiguration()
+                .withLargePayloadSupportEnabled(mockS3, S3_BUCKET_NAME)
+                .withPayloadBuckets(Arrays.asList(new PayloadBucket("bucket-a"), new PayloadBucket(otherRegionS3, "bucket-b"))));
+
+        for (int i = 0; i < 20; i++) {
+            extendedSqsClient.sendMessage(getSendMessageRequest(MORE_THAN_SQS_SIZE_LIMIT));
+        }
+
+        ArgumentCaptor<SendMessageRequest> sendCaptor = ArgumentCaptor.forClass(SendMessageRequest.class);
+        verify(mockSqsBackend, times(20)).sendMessage(sendCaptor.capture());
+        JsonDataConverter jsonDataConverter = new JsonDataConverter();
+        int otherRegionPayloads = 0;
+        for (SendMessageRequest sendMessageRequest : sendCaptor.getAllValues()) {
+            MessageS3Pointer s3Pointer = jsonDataConverter.deserializeFromJson(sendMessageRequest.messageBody(),
+                    MessageS3Pointer.class);
+            assertThat(Arrays.asList("bucket-a", "bucket-b").contains(s3Pointer.getS3BucketName()), is(true));
+            if (s3Pointer.getS3BucketName().equals("bucket-b")) {
+                otherRegionPayloads++;
+            }
+        }
+        verify(otherRegionS3, times(otherRegionPayloads)).putObject(isA(PutObjectRequest.class), isA(RequestBody.class));
+        verify(mockS3, times(20 - otherRegionPayloads)).putObject(isA(PutObjectRequest.class), isA(RequestBody.class));
+
+        Message message = Message.builder()
+                .body("{\"s3BucketName\":\"bucket-b\",\"s3Key\":\"" + S3_KEY + "\"}")
+                .receiptHandle("handle")
+                .messageAttributes(Collections.singletonMap(SQSExtendedClientConstants.RESERVED_ATTRIBUTE_NAME,
+                        MessageAttributeValue.builder().dataType("Number").stringValue("7").build()))
+                .build();
+        when(mockSqsBackend.receiveMessage(isA(ReceiveMessageRequest.class)))
+                .thenReturn(ReceiveMessageResponse.builder().messages(message).build());
+
+        ReceiveMessageResponse receiveMessageResponse = extendedSqsClient.receiveMessage(
+                ReceiveMessageRequest.builder().queueUrl(SQS_QUEUE_URL).build());
+
+        assertThat(receiveMessageResponse.messages().get(0).body(), is("payload"));
+        verify(otherRegionS3).getObject(isA(GetObjectRequest.class), any(ResponseTransformer.class));
+    }
+
+    @Test
+    public void testThatPayloadsAreStoredUnderTheKeyOfTheConfiguredStrategy() {
+        ExtendedSqsClient extendedSqsClient = new ExtendedSqsClient(mockSqsBackend, new ExtendedClientConfiguration()
+                .withLargePayloadSupportEnabled(mockS3, S3_BUCKET_NAME)
+                .withPayloadKeyStrategy(new HashPrefixedPayloadKeyStrategy(2)));
+
+        extendedSqsClient.sendMessage(getSendMessageRequest(MORE_THAN_SQS_SIZE_LIMIT));
+
+        ArgumentCaptor<PutObjectRequest> captor = ArgumentCaptor.forClass(PutObjectRequest.class);
+        verify(mockS3).putObject(captor.capture(), isA(RequestBody.class));
+        String s3Key = captor.getValue().key();
+        assertThat(s3Key.matches("[0-9a-f]{2}/.*"), is(true));
+        assertThat(s3Key.substring(3), matchesThePatternOfAUUID());
+    }
+
+    @Test
+    public void testThatPayloadsLeftToExpireAreNotDeletedWithTheirMessages() {
+        ExtendedSqsClient extendedSqsClient = new ExtendedSqsClient(mockSqsBackend, new ExtendedClientConfiguration()
+                .withLargePayloadSupportEnabled(mockS3, S3_BUCKET_NAME)
+                .withLifecyclePayloadExpiryEnabled(true));
+
+        extendedSqsClient.deleteMessage(DeleteMessageRequest.builder()
+                .queueUrl(SQS_QUEUE_URL)
+                .receiptHandle(RECEIPT_HANDLE)
+                .build());
+
+        verify(mockS3, never()).deleteObject(isA(DeleteObjectRequest.class));
+        ArgumentCaptor<DeleteMessageRequest> captor = ArgumentCaptor.forClass(DeleteMessageRequest.class);
+        verify(mockSqsBackend).deleteMessage(captor.capture());
+        assertThat(captor.getValue().receiptHandle(), is(S3ReceiptHandle.decode(RECEIPT_HANDLE).getReceiptHandle()));
+    }
+
+    @Test
+    public void testThatChangeMessageVisibilitySendsTheOriginalReceiptHandles() {
+        String origReceiptHandle = S3ReceiptHandle.decode(RECEIPT_HANDLE).getReceiptHandle();
+
+        extendedSqsWithDefaultConfig.changeMessageVisibility(ChangeMessageVisibilityRequest.builder()
+                .queueUrl(SQS_QUEUE_URL)
+                .receiptHandle(S3ReceiptHandle.encode(origReceiptHandle, S3_BUCKET_NAME, S3_KEY))
+                .visibilityTimeout(30)
+                .build());
+        extendedSqsWithDefaultConfig.changeMessageVisibilityBatch(ChangeMessageVisibilityBatchRequest.builder()
+                .queueUrl(SQS_QUEUE_URL)
+                .entries(ChangeMessageVisibilityBatchRequestEntry.builder().id("1").receiptHandle(RECEIPT_HANDLE).build(),
+                        ChangeMessageVisibilityBatchRequestEntry.builder().id("2").receiptHandle("handle").build())
+                .build());
+
+        ArgumentCaptor<ChangeMessageVisibilityRequest> captor = ArgumentCaptor.forClass(ChangeMessageVisibilityRequest.class);
+        verify(mockSqsBackend).changeMessageVisibility(captor.capture());
+        assertThat(captor.getValue().receiptHandle(), is(origReceiptHandle));
+        ArgumentCaptor<ChangeMessageVisibilityBatchRequest> batchCaptor =
+                ArgumentCaptor.forClass(ChangeMessageVisibilityBatchRequest.class);
+        verify(mockSqsBackend).changeMessageVisibilityBatch(batchCaptor.capture());
+        assertThat(batchCaptor.getValue().entries().get(0).receiptHandle(), is(origReceiptHandle));
+        assertThat(batchCaptor.getValue().entries().get(1).receiptHandle(), is("handle"));
+    }
+
+    @Test
+    public void testThatOffloadedAndInlinedPayloadsAreRecorded() {
+        MetricsPublisher metricsPublisher = mock(MetricsPublisher.class);
+        ExtendedSqsClient extendedSqsClient = new ExtendedSqsClient(mockSqsBackend, new ExtendedClientConfiguration()
+                .withLargePayloadSupportEnabled(mockS3, S3_BUCKET_NAME)
+                .withMetricsPublisher(metricsPublisher));
+
+        extendedSqsClient.sendMessage(getSendMessageRequest(MORE_THAN_SQS_SIZE_LIMIT));
+        extendedSqsClient.sendMessage(getSendMessageRequest(LESS_THAN_SQS_SIZE_LIMIT));
+
+        verify(metricsPublisher).recordS3Put(anyLong(), eq((long) MORE_THAN_SQS_SIZE_LIMIT), eq(true));
+        verify(metricsPublisher).recordPayloadOffloaded(MORE_THAN_SQS_SIZE_LIMIT);
+        verify(metricsPublisher).recordPayloadInlined(LESS_THAN_SQS_SIZE_LIMIT);
+    }
+
+    @Test
+    public void testThatAFailedPayloadReadIsRecorded() {
+        MetricsPublisher metricsPublisher = mock(MetricsPublisher.class);
+        Message message = Message.builder()
+                .body("{\"s3BucketName\":\"" + S3_BUCKET_NAME + "\",\"s3Key\":\"" + S3_KEY + "\"}")
+                .receiptHandle("handle")
+                .messageAttributes(Collections.singletonMap(SQSExtendedClientConstants.RESERVED_ATTRIBUTE_NAME,
+                        MessageAttributeValue.builder().dataType("Number").stringValue("7").build()))
+                .build();
+        when(mockSqsBackend.receiveMessage(isA(ReceiveMessageRequest.class)))
+                .thenReturn(ReceiveMessageResponse.builder().messages(message).build());
+        when(mockS3.getObject(isA(GetObjectRequest.class), any(ResponseTransformer.class)))
+                .thenThrow(NoSuchKeyException.builder().build());
+        ExtendedSqsClient extendedSqsClient = new ExtendedSqsClient(mockSqsBackend, new ExtendedClientConfiguration()
+                .withLargePayloadSupportEnabled(mockS3, S3_BUCKET_NAME)
+                .withMetricsPublisher(metricsPublisher));
+
+        try {
+            extendedSqsClient.receiveMessage(ReceiveMessageRequest.builder().queueUrl(SQS_QUEUE_URL).build());
+            fail("expected the receive to fail");
+        } catch (SdkException e) {
+            // expected
+        }
+
+        verify(metricsPublisher).recordS3Get(anyLong(), eq(0L), eq(false));
+        verify(metricsPublisher).recordHydrationFailure();
+    }
+
+    @Test
+    public void testThatTheMBeanExposesCountersAndConfigurationUntilTheClientIsClosed() throws Exception {
+        ExtendedSqsClient extendedSqsClient = new ExtendedSqsClient(mockSqsBackend, new ExtendedClientConfiguration()
+                .withLargePayloadSupportEnabled(mockS3, S3_BUCKET_NAME)
+                .withJmxEnabled(true)
+                .withJmxName("test-client"));
+        ObjectName objectName = new ObjectName("software.amazon.awssdk.services.sqs:type=ExtendedSqsClient,name=\"test-client\"");
+        MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+
+        extendedSqsClient.sendMessage(getSendMessageRequest(MORE_THAN_SQS_SIZE_LIMIT));
+        extendedSqsClient.sendMessage(getSendMessageRequest(LESS_THAN_SQS_SIZE_LIMIT));
+
+        assertThat(mBeanServer.getAttribute(objectName, "Uploads"), is(1L));
+        assertThat(mBeanServer.getAttribute(objectName, "InFlightUploads"), is(0L));
+        assertThat(mBeanServer.getAttribute(objectName, "BytesOffloaded"), is((long) MORE_THAN_SQS_SIZE_LIMIT));
+        assertThat(mBeanServer.getAttribute(objectName, "PayloadsInlined"), is(1L));
+        assertThat(mBeanServer.getAttribute(objectName, "S3BucketName"), is(S3_BUCKET_NAME));
+        assertThat(mBeanServer.getAttribute(objectName, "MessageSizeThreshold"), is(SQS_SIZE_LIMIT));
+
+        extendedSqsClient.close();
+
+        assertThat(mBeanServer.isRegistered(objectName), is(false));
+    }
+
+    @Test
+    public void testThatAnUnexpectedUploadFailureEndsTheInFlightUpload() throws Exception {
+        when(mockS3.putObject(isA(PutObjectRequest.class), isA(RequestBody.class)))
+                .thenThrow(new UncheckedIOException(new IOException("The payload stream failed.")));
+        ExtendedSqsClient extendedSqsClient = new ExtendedSqsClient(mockSqsBackend, new ExtendedClientConfiguration()
+                .withLargePayloadSupportEnabled(mockS3, S3_BUCKET_NAME)
+                .withJmxEnabled(true)
+                .withJmxName("failing-client"));
+        ObjectName objectName = new ObjectName("software.amazon.awssdk.services.sqs:type=ExtendedSqsClient,name=\"failing-client\"");
+        MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+
+        try {
+            extendedSqsClient.sendMessage(getSendMessageRequest(MORE_THAN_SQS_SIZE_LIMIT));
+            fail("Expected the upload to fail.");
+        } catch (UncheckedIOException e) {
+            // passed on unchanged.
+        }
+
+        assertThat(mBeanServer.getAttribute(objectName, "InFlightUploads"), is(0L));
+        assertThat(mBeanServer.getAttribute(objectName, "UploadFailures"), is(1L));
+        extendedSqsClient.close();
+    }
+
+    @Test
+    public void testThatReceiveLatenciesAreRecordedByPayloadPlacement() {
+        String sentTimestamp = String.valueOf(System.currentTimeMillis() - 5000);
+        Message offloadedMessage = Message.builder()
+                .body("{\"s3BucketName\":\"" + S3_BUCKET_NAME + "\",\"s3Key\":\"" + S3_KEY + "\"}")
+                .receiptHandle("handle")
+                .attributesWithStrings(Collections.singletonMap("SentTimestamp", sentTimestamp))
+                .messageAttributes(Collections.singletonMap(SQSExtendedClientConstants.RESERVED_ATTRIBUTE_NAME,
+                        MessageAttributeValue.builder().dataType("Number").stringValue("7").build()))
+                .build();
+        Message inlineMessage = Message.builder()
+                .body("inline")
+                .receiptHandle("other-handle")
+                .attributesWithStrings(Collections.singletonMap("SentTimestamp", sentTimestamp))
+                .build();
+        when(mockSqsBackend.receiveMessage(isA(ReceiveMessageRequest.class)))
+                .thenReturn(ReceiveMessageResponse.builder().messages(offloadedMessage, inlineMessage).build());
+        when(mockS3.getObject(isA(GetObjectRequest.class), any(ResponseTransformer.class)))
+                .thenReturn(ResponseBytes.fromByteArray(GetObjectResponse.builder().build(),
+                        "payload".getBytes(StandardCharsets.UTF_8)));
+        ExtendedSqsClient extendedSqsClient = new ExtendedSqsClient(mockSqsBackend, new ExtendedClientConfiguration()
+                .withLargePayloadSupportEnabled(mockS3, S3_BUCKET_NAME)
+                .withReceiveLatencyTrackingEnabled(true));
+
+        extendedSqsClient.receiveMessage(ReceiveMessageRequest.builder().queueUrl(SQS_QUEUE_URL).build());
+
+        ArgumentCaptor<ReceiveMessageRequest> captor = ArgumentCaptor.forClass(ReceiveMessageRequest.class);
+        verify(mockSqsBackend).receiveMessage(captor.capture());
+        assertThat(captor.getValue().attributeNamesAsStrings().contains("SentTimestamp"), is(true));
+
+        ReceiveLatencySnapshot snapshot = extendedSqsClient.getReceiveLatencySnapshot();
+        assertThat(snapshot.getOffloadedDwellTime().getCount(), is(1L));
+        assertThat(snapshot.getInlineDwellTime().getCount(), is(1L));
+        assertThat(snapshot.getS3FetchTime().getCount(), is(1L));
+        assertThat(snapshot.getOffloadedTimeToHydrated().getCount(), is(1L));
+        assertThat(snapshot.getInlineDwellTime().getMax() >= 5000000L, is(true));
+    }
+
+    @Test(expected = SdkClientException.class)
+    public void testThatAConfigurationWithOnlyAnS3AsyncClientIsRejected() {
+        new ExtendedSqsClient(mockSqsBackend, new ExtendedClientConfiguration()
+                .withLargePayloadSupportEnabled(mock(S3AsyncClient.class), S3_BUCKET_NAME));
+    }
+
+    private SendMessageBatchRequestEntry getSendMessageBatchRequestEntry(String id, int length) {
+        return SendMessageBatchRequestEntry.builder()
+                .id(id)
+                .messageBody(generateStringWithLength(length))
+                .build();
     }
 
     private SendMessageRequest getSendMessageRequest(int length) {
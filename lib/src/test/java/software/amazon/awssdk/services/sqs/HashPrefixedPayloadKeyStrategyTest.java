@@ -0,0 +1,79 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package software.amazon.awssdk.services.sqs;
+
+import org.junit.Test;
+import software.amazon.awssdk.core.exception.SdkClientException;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.*;
+import static software.amazon.awssdk.services.sqs.matchers.StringMatchesUUIDPattern.matchesThePatternOfAUUID;
+
+public class HashPrefixedPayloadKeyStrategyTest {
+
+    @Test
+    public void testThatRandomKeysAreUniqueVersion4Uuids() {
+        Set<String> s3Keys = new HashSet<>();
+        for (int i = 0; i < 10000; i++) {
+            String s3Key = PayloadKeyStrategy.RANDOM_UUID.newS3Key();
+            assertThat(s3Key, matchesThePatternOfAUUID());
+            assertEquals('4', s3Key.charAt(14));
+            assertTrue(s3Keys.add(s3Key));
+        }
+    }
+
+    @Test
+    public void testThatKeysAreSpreadEvenlyOverThePrefixes() {
+        HashPrefixedPayloadKeyStrategy keyStrategy = new HashPrefixedPayloadKeyStrategy(1);
+        Map<Character, Integer> keysByPrefix = new HashMap<>();
+        for (int i = 0; i < 16000; i++) {
+            String s3Key = keyStrategy.newS3Key();
+            assertEquals('/', s3Key.charAt(1));
+            assertThat(s3Key.substring(2), matchesThePatternOfAUUID());
+            keysByPrefix.merge(s3Key.charAt(0), 1, Integer::sum);
+        }
+
+        assertEquals(16, keysByPrefix.size());
+        for (int keys : keysByPrefix.values()) {
+            assertTrue(keys > 800 && keys < 1200);
+        }
+    }
+
+    @Test
+    public void testThatTheKeysOfTheGivenStrategyArePrefixed() {
+        HashPrefixedPayloadKeyStrategy keyStrategy = new HashPrefixedPayloadKeyStrategy(() -> "payload", 8);
+
+        String s3Key = keyStrategy.newS3Key();
+
+        assertTrue(s3Key.matches("[0-9a-f]{8}/payload"));
+        assertEquals(s3Key, keyStrategy.newS3Key());
+    }
+
+    @Test(expected = SdkClientException.class)
+    public void testThatAPrefixLongerThanTheHashIsRejected() {
+        new HashPrefixedPayloadKeyStrategy(9);
+    }
+
+    @Test(expected = SdkClientException.class)
+    public void testThatAnEmptyPrefixIsRejected() {
+        new HashPrefixedPayloadKeyStrategy(0);
+    }
+}
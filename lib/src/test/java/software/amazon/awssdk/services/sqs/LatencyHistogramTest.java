@@ -0,0 +1,74 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package software.amazon.awssdk.services.sqs;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void testThatEveryValueFallsInTheBucketCoveringIt() {
+        Random random = new Random(42);
+        for (int i = 0; i < 100000; i++) {
+            long value = random.nextLong() >>> random.nextInt(64);
+            int bucketIndex = LatencyHistogram.bucketIndex(value);
+            long lowestEquivalentValue = bucketIndex == 0 ? 0 : LatencyHistogram.highestEquivalentValue(bucketIndex - 1) + 1;
+
+            assertTrue(value >= lowestEquivalentValue);
+            assertTrue(value <= LatencyHistogram.highestEquivalentValue(bucketIndex));
+        }
+        assertEquals(Long.MAX_VALUE, LatencyHistogram.highestEquivalentValue(LatencyHistogram.BUCKET_COUNT - 1));
+    }
+
+    @Test
+    public void testThatPercentilesAreWithinThePrecisionOfTheBuckets() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 10000; i++) {
+            histogram.record(i * 100L);
+        }
+
+        LatencyHistogramSnapshot snapshot = histogram.snapshot();
+
+        assertEquals(10000, snapshot.getCount());
+        assertEquals(500050, snapshot.getMean(), 0.001);
+        assertEquals(1000000, snapshot.getMax());
+        assertEquals(500000, snapshot.getValueAtPercentile(50), 500000 * 0.04);
+        assertEquals(990000, snapshot.getValueAtPercentile(99), 990000 * 0.04);
+        assertEquals(1000000, snapshot.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void testThatAnEmptyHistogramReportsZeros() {
+        LatencyHistogramSnapshot snapshot = new LatencyHistogram().snapshot();
+
+        assertEquals(0, snapshot.getCount());
+        assertEquals(0, snapshot.getMean(), 0);
+        assertEquals(0, snapshot.getValueAtPercentile(99));
+    }
+
+    @Test
+    public void testThatNegativeLatenciesAreRecordedAsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+
+        assertEquals(1, histogram.snapshot().getCount());
+        assertEquals(0, histogram.snapshot().getValueAtPercentile(100));
+    }
+}
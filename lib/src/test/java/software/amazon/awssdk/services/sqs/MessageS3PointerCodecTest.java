@@ -0,0 +1,97 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package software.amazon.awssdk.services.sqs;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class MessageS3PointerCodecTest {
+
+    private static final String S3_BUCKET_NAME = "test-bucket-name";
+    private static final String S3_KEY = "2ede0e0f-50cc-4464-800e-72d6497ec063";
+
+    @Test
+    public void testThatPointersAreEncodedLikeTheJsonDataConverter() throws Exception {
+        JsonDataConverter jsonDataConverter = new JsonDataConverter();
+        String[] s3Keys = {S3_KEY, "quote\"backslash\\slash/", "tab\tnewline\ncontrol\u0001", "unicode-\u00e9\u4e2d\ud83d\ude00", null};
+
+        for (String s3Key : s3Keys) {
+            MessageS3Pointer s3Pointer = new MessageS3Pointer(S3_BUCKET_NAME, s3Key);
+            assertEquals(jsonDataConverter.serializeToJson(s3Pointer), MessageS3PointerCodec.encode(s3Pointer));
+        }
+    }
+
+    @Test
+    public void testThatPointersWrittenByTheJsonDataConverterAreDecoded() throws Exception {
+        String s3Key = "quote\"backslash\\tab\tcontrol\u0001unicode-\u00e9\ud83d\ude00";
+        String json = new JsonDataConverter().serializeToJson(new MessageS3Pointer(S3_BUCKET_NAME, s3Key));
+
+        MessageS3Pointer s3Pointer = MessageS3PointerCodec.decode(json);
+
+        assertEquals(S3_BUCKET_NAME, s3Pointer.getS3BucketName());
+        assertEquals(s3Key, s3Pointer.getS3Key());
+    }
+
+    @Test
+    public void testThatDecodedPointersCanBeReadByTheJsonDataConverter() throws Exception {
+        String json = MessageS3PointerCodec.encode(new MessageS3Pointer(S3_BUCKET_NAME, S3_KEY));
+
+        MessageS3Pointer s3Pointer = new JsonDataConverter().deserializeFromJson(json, MessageS3Pointer.class);
+
+        assertEquals(S3_BUCKET_NAME, s3Pointer.getS3BucketName());
+        assertEquals(S3_KEY, s3Pointer.getS3Key());
+    }
+
+    @Test
+    public void testThatBarePointersAndOtherTypeIdsAreDecoded() {
+        String bare = " {\"s3Key\" : \"" + S3_KEY + "\", \"s3BucketName\":\"" + S3_BUCKET_NAME + "\"} ";
+        String other = "[\"com.amazon.sqs.javamessaging.MessageS3Pointer\",{\"s3BucketName\":\"" + S3_BUCKET_NAME
+                + "\",\"s3Key\":\"" + S3_KEY + "\"}]";
+
+        for (String json : new String[] {bare, other}) {
+            MessageS3Pointer s3Pointer = MessageS3PointerCodec.decode(json);
+            assertEquals(S3_BUCKET_NAME, s3Pointer.getS3BucketName());
+            assertEquals(S3_KEY, s3Pointer.getS3Key());
+        }
+    }
+
+    @Test
+    public void testThatUnknownPropertiesAreIgnored() {
+        String json = "{\"version\":2,\"s3BucketName\":\"" + S3_BUCKET_NAME + "\",\"extra\":{\"a\":[1,\"}\"],\"b\":null},"
+                + "\"s3Key\":\"\\u0041" + S3_KEY + "\",\"flag\":true}";
+
+        MessageS3Pointer s3Pointer = MessageS3PointerCodec.decode(json);
+
+        assertEquals(S3_BUCKET_NAME, s3Pointer.getS3BucketName());
+        assertEquals("A" + S3_KEY, s3Pointer.getS3Key());
+    }
+
+    @Test
+    public void testThatMalformedPointersAreRejected() {
+        String[] malformed = {null, "", "plain text", "{", "{\"s3Key\"}", "{\"s3Key\":\"abc}",
+                "[\"type\"]", "[\"type\",{}", "{}x", "{\"s3Key\":\"\\x\"}", "{\"s3Key\":\"\\u00\"}"};
+
+        for (String json : malformed) {
+            try {
+                MessageS3PointerCodec.decode(json);
+                fail("Decoded " + json);
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+}
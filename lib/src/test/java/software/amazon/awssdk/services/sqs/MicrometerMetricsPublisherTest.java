@@ -0,0 +1,81 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package software.amazon.awssdk.services.sqs;
+
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class MicrometerMetricsPublisherTest {
+
+    private SimpleMeterRegistry registry;
+    private MicrometerMetricsPublisher metricsPublisher;
+
+    @Before
+    public void setup() {
+        registry = new SimpleMeterRegistry();
+        metricsPublisher = new MicrometerMetricsPublisher(registry, Tags.of("queue", "test-queue"));
+    }
+
+    @Test
+    public void testThatS3RequestsAreTimedByOperationAndOutcome() {
+        metricsPublisher.recordS3Put(TimeUnit.MILLISECONDS.toNanos(20), 1024, true);
+        metricsPublisher.recordS3Put(TimeUnit.MILLISECONDS.toNanos(30), 2048, false);
+        metricsPublisher.recordS3Get(TimeUnit.MILLISECONDS.toNanos(10), 1024, true);
+        metricsPublisher.recordS3Delete(TimeUnit.MILLISECONDS.toNanos(5), 3, true);
+
+        assertThat(registry.get("sqs.extended.s3.requests").tags("operation", "put", "outcome", "success", "queue", "test-queue")
+                .timer().totalTime(TimeUnit.MILLISECONDS), is(20.0));
+        assertThat(registry.get("sqs.extended.s3.requests").tags("operation", "put", "outcome", "failure")
+                .timer().count(), is(1L));
+        assertThat(registry.get("sqs.extended.s3.requests").tags("operation", "get", "outcome", "success")
+                .timer().count(), is(1L));
+        assertThat(registry.get("sqs.extended.s3.transferred").tag("operation", "put")
+                .summary().totalAmount(), is(1024.0));
+        assertThat(registry.get("sqs.extended.s3.deleted").counter().count(), is(3.0));
+    }
+
+    @Test
+    public void testThatPayloadsAreRecordedByPlacement() {
+        metricsPublisher.recordPayloadInlined(100);
+        metricsPublisher.recordPayloadCompressed(300000, 40000);
+        metricsPublisher.recordPayloadOffloaded(500000);
+        metricsPublisher.recordPayloadOffloaded(600000);
+
+        assertThat(registry.get("sqs.extended.payloads").tag("placement", "inline").summary().totalAmount(), is(100.0));
+        assertThat(registry.get("sqs.extended.payloads").tag("placement", "compressed").summary().totalAmount(), is(300000.0));
+        assertThat(registry.get("sqs.extended.payloads.compressed").summary().totalAmount(), is(40000.0));
+        assertThat(registry.get("sqs.extended.payloads").tag("placement", "s3").summary().count(), is(2L));
+    }
+
+    @Test
+    public void testThatHydrationFailuresAndCacheLookupsAreCounted() {
+        metricsPublisher.recordHydrationFailure();
+        metricsPublisher.recordPayloadCacheHit();
+        metricsPublisher.recordPayloadCacheHit();
+        metricsPublisher.recordPayloadCacheMiss();
+
+        assertThat(registry.get("sqs.extended.hydration.failures").counter().count(), is(1.0));
+        assertThat(registry.get("sqs.extended.payload.cache").tag("result", "hit").counter().count(), is(2.0));
+        assertThat(registry.get("sqs.extended.payload.cache").tag("result", "miss").counter().count(), is(1.0));
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package software.amazon.awssdk.services.sqs;
+
+import org.junit.Test;
+import software.amazon.awssdk.awscore.exception.AwsErrorDetails;
+import org.mockito.ArgumentCaptor;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.core.sync.ResponseTransformer;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.isA;
+import static org.mockito.Mockito.*;
+
+public class PayloadBucketRouterTest {
+
+    private static final int KEYS = 30000;
+
+    @Test
+    public void testThatKeysAreSpreadEvenlyOverTheBuckets() {
+        PayloadBucketRouter router = new PayloadBucketRouter(mock(S3Client.class), Arrays.asList(
+                new PayloadBucket("bucket-a"), new PayloadBucket("bucket-b"), new PayloadBucket("bucket-c")));
+
+        Map<String, Integer> keysByBucket = new HashMap<>();
+        for (int i = 0; i < KEYS; i++) {
+            keysByBucket.merge(router.selectBucket(PayloadKeyStrategy.RANDOM_UUID.newS3Key()), 1, Integer::sum);
+        }
+
+        assertEquals(3, keysByBucket.size());
+        for (int keys : keysByBucket.values()) {
+            assertTrue(keys > KEYS / 3 * 0.8 && keys < KEYS / 3 * 1.2);
+        }
+    }
+
+    @Test
+    public void testThatAddingABucketOnlyMovesKeysToIt() {
+        PayloadBucketRouter router = new PayloadBucketRouter(mock(S3Client.class), Arrays.asList(
+                new PayloadBucket("bucket-a"), new PayloadBucket("bucket-b")));
+        PayloadBucketRouter routerWithNewBucket = new PayloadBucketRouter(mock(S3Client.class), Arrays.asList(
+                new PayloadBucket("bucket-a"), new PayloadBucket("bucket-b"), new PayloadBucket("bucket-c")));
+
+        int movedKeys = 0;
+        for (int i = 0; i < KEYS; i++) {
+            String s3Key = "payload-" + i;
+            String s3BucketName = router.selectBucket(s3Key);
+            String newS3BucketName = routerWithNewBucket.selectBucket(s3Key);
+            if (!newS3BucketName.equals(s3BucketName)) {
+                assertEquals("bucket-c", newS3BucketName);
+                movedKeys++;
+            }
+        }
+
+        assertTrue(movedKeys > KEYS / 3 * 0.8 && movedKeys < KEYS / 3 * 1.2);
+    }
+
+    @Test
+    public void testThatRequestsGoToTheClientOfTheirBucket() {
+        S3Client defaultS3 = mock(S3Client.class);
+        S3Client otherRegionS3 = mock(S3Client.class);
+        PayloadBucketRouter router = new PayloadBucketRouter(defaultS3, Arrays.asList(
+                new PayloadBucket("bucket-a"), new PayloadBucket(otherRegionS3, "bucket-b")));
+
+        router.putObject(PutObjectRequest.builder().bucket("bucket-b").key("a").build(), RequestBody.fromString("a"));
+        router.putObject(PutObjectRequest.builder().bucket("bucket-a").key("b").build(), RequestBody.fromString("b"));
+        router.headObject(HeadObjectRequest.builder().bucket("old-bucket").key("c").build());
+
+        ArgumentCaptor<PutObjectRequest> otherRegionCaptor = ArgumentCaptor.forClass(PutObjectRequest.class);
+        verify(otherRegionS3).putObject(otherRegionCaptor.capture(), isA(RequestBody.class));
+        assertEquals("a", otherRegionCaptor.getValue().key());
+        ArgumentCaptor<PutObjectRequest> defaultCaptor = ArgumentCaptor.forClass(PutObjectRequest.class);
+        verify(defaultS3).putObject(defaultCaptor.capture(), isA(RequestBody.class));
+        assertEquals("b", defaultCaptor.getValue().key());
+        verify(defaultS3).headObject(isA(HeadObjectRequest.class));
+        verifyNoMoreInteractions(otherRegionS3);
+    }
+
+    @Test
+    public void testThatAThrottlingBucketIsSkippedForNewPayloads() {
+        S3Client throttlingS3 = mock(S3Client.class);
+        when(throttlingS3.getObject(isA(GetObjectRequest.class), any(ResponseTransformer.class))).thenThrow(S3Exception.builder()
+                .awsErrorDetails(AwsErrorDetails.builder().errorCode("SlowDown").build())
+                .statusCode(503)
+                .build());
+        PayloadBucketRouter router = new PayloadBucketRouter(mock(S3Client.class), Arrays.asList(
+                new PayloadBucket(throttlingS3, "bucket-a"), new PayloadBucket("bucket-b")));
+
+        for (int i = 0; i < SQSExtendedClientConstants.PAYLOAD_BUCKET_THROTTLING_THRESHOLD; i++) {
+            assertTrue(router.isHealthy("bucket-a"));
+            try {
+                router.getObject(GetObjectRequest.builder().bucket("bucket-a").key("a").build(),
+                        ResponseTransformer.toBytes());
+                fail("Expected the request to be throttled.");
+            } catch (S3Exception e) {
+                assertEquals(503, e.statusCode());
+            }
+        }
+
+        assertFalse(router.isHealthy("bucket-a"));
+        assertTrue(router.isHealthy("bucket-b"));
+        for (int i = 0; i < 1000; i++) {
+            assertEquals("bucket-b", router.selectBucket("payload-" + i));
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package software.amazon.awssdk.services.sqs;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class PayloadCacheTest {
+
+    private static final String S3_BUCKET_NAME = "test-bucket-name";
+
+    @Test
+    public void testThatTheLeastRecentlyUsedPayloadsAreEvictedFirst() {
+        PayloadCache payloadCache = new PayloadCache(10);
+        AtomicInteger loads = new AtomicInteger();
+
+        payloadCache.get(S3_BUCKET_NAME, "a", 4, () -> "a" + loads.incrementAndGet());
+        payloadCache.get(S3_BUCKET_NAME, "b", 4, () -> "b" + loads.incrementAndGet());
+        // touch "a" so that "b" is the least recently used.
+        payloadCache.get(S3_BUCKET_NAME, "a", 4, () -> "a" + loads.incrementAndGet());
+        payloadCache.get(S3_BUCKET_NAME, "c", 4, () -> "c" + loads.incrementAndGet());
+
+        assertEquals(3, loads.get());
+        assertEquals(8, payloadCache.getCurrentBytes());
+        assertEquals("a1", payloadCache.get(S3_BUCKET_NAME, "a", 4, () -> "a" + loads.incrementAndGet()));
+        assertEquals("b4", payloadCache.get(S3_BUCKET_NAME, "b", 4, () -> "b" + loads.incrementAndGet()));
+    }
+
+    @Test
+    public void testThatPayloadsLargerThanTheCacheAreNotCached() {
+        PayloadCache payloadCache = new PayloadCache(10);
+
+        payloadCache.get(S3_BUCKET_NAME, "a", 11, () -> "a");
+
+        assertEquals(0, payloadCache.getCurrentBytes());
+    }
+
+    @Test
+    public void testThatConcurrentReadsOfOnePayloadShareOneLoad() throws Exception {
+        PayloadCache payloadCache = new PayloadCache(10);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+
+        try {
+            Future<String> first = executorService.submit(() -> payloadCache.get(S3_BUCKET_NAME, "a", 1, () -> {
+                loads.incrementAndGet();
+                loading.countDown();
+                awaitQuietly(release);
+                return "a";
+            }));
+            assertTrue(loading.await(10, TimeUnit.SECONDS));
+
+            Thread second = new Thread(() -> payloadCache.get(S3_BUCKET_NAME, "a", 1, () -> "a" + loads.incrementAndGet()));
+            second.start();
+            release.countDown();
+            second.join(10000);
+
+            assertEquals("a", first.get(10, TimeUnit.SECONDS));
+            assertEquals(1, loads.get());
+        } finally {
+            executorService.shutdown();
+        }
+    }
+
+    @Test
+    public void testThatAnInvalidatedPayloadIsLoadedAgain() {
+        PayloadCache payloadCache = new PayloadCache(10);
+        AtomicInteger loads = new AtomicInteger();
+
+        payloadCache.get(S3_BUCKET_NAME, "a", 1, () -> "a" + loads.incrementAndGet());
+        payloadCache.invalidate(S3_BUCKET_NAME, "a");
+
+        assertEquals(0, payloadCache.getCurrentBytes());
+        assertEquals("a2", payloadCache.get(S3_BUCKET_NAME, "a", 1, () -> "a" + loads.incrementAndGet()));
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
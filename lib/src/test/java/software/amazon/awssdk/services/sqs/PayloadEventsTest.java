@@ -0,0 +1,96 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package software.amazon.awssdk.services.sqs;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class PayloadEventsTest {
+
+    private static final String QUEUE_URL = "test-queue-url";
+    private static final String S3_BUCKET_NAME = "test-bucket-name";
+
+    @Test
+    public void testThatAnUploadIsRecordedWithItsPayload() throws Exception {
+        List<RecordedEvent> events = record("software.amazon.awssdk.services.sqs.PayloadUpload", () -> {
+            PayloadUploadEvent event = PayloadEvents.beginUpload();
+            PayloadEvents.commitUpload(event, QUEUE_URL, S3_BUCKET_NAME, "key", 1024, true);
+        });
+
+        assertEquals(1, events.size());
+        RecordedEvent event = events.get(0);
+        assertEquals(QUEUE_URL, event.getString("queueUrl"));
+        assertEquals(S3_BUCKET_NAME, event.getString("s3BucketName"));
+        assertEquals("key", event.getString("s3Key"));
+        assertEquals(1024, event.getLong("bytes"));
+        assertTrue(event.getBoolean("succeeded"));
+    }
+
+    @Test
+    public void testThatAnOffloadDecisionIsRecordedWithTheMessageSize() throws Exception {
+        List<RecordedEvent> events = record("software.amazon.awssdk.services.sqs.OffloadDecision",
+                () -> PayloadEvents.commitOffloadDecision(QUEUE_URL, "\u00e9\u00e9", 262144, false));
+
+        assertEquals(1, events.size());
+        assertEquals(4, events.get(0).getLong("bytes"));
+        assertEquals(262144, events.get(0).getLong("threshold"));
+        assertFalse(events.get(0).getBoolean("storedInS3"));
+    }
+
+    @Test
+    public void testThatNothingIsRecordedWhenTheEventIsDisabled() throws Exception {
+        Path file = Files.createTempFile("payload-events", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.disable("software.amazon.awssdk.services.sqs.PayloadDelete");
+            recording.start();
+            PayloadDeleteEvent event = PayloadEvents.beginDelete();
+            PayloadEvents.commitDelete(event, QUEUE_URL, S3_BUCKET_NAME, "key", 1, true);
+            recording.stop();
+            recording.dump(file);
+
+            for (RecordedEvent recordedEvent : RecordingFile.readAllEvents(file)) {
+                assertNotEquals("software.amazon.awssdk.services.sqs.PayloadDelete", recordedEvent.getEventType().getName());
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static List<RecordedEvent> record(String eventName, Runnable emitter) throws Exception {
+        Path file = Files.createTempFile("payload-events", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(eventName);
+            recording.start();
+            emitter.run();
+            recording.stop();
+            recording.dump(file);
+
+            List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+            events.removeIf(event -> !event.getEventType().getName().equals(eventName));
+            return events;
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
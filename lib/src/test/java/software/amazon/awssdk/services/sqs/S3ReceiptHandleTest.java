@@ -0,0 +1,81 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package software.amazon.awssdk.services.sqs;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class S3ReceiptHandleTest {
+
+    private static final String S3_BUCKET_NAME = "test-bucket-name";
+    private static final String S3_KEY = "2ede0e0f-50cc-4464-800e-72d6497ec063";
+    private static final String RECEIPT_HANDLE = "AQEBzDYhwQBHp+NIlvgL6WFKHNtoVpeCCQjmLep47yPr5dM5TmD1GWbneikO57LJ";
+
+    @Test
+    public void testThatAnEncodedReceiptHandleIsDecoded() {
+        S3ReceiptHandle s3ReceiptHandle = S3ReceiptHandle.decode(
+                S3ReceiptHandle.encode(RECEIPT_HANDLE, S3_BUCKET_NAME, S3_KEY));
+
+        assertEquals(S3_BUCKET_NAME, s3ReceiptHandle.getS3BucketName());
+        assertEquals(S3_KEY, s3ReceiptHandle.getS3Key());
+        assertEquals(RECEIPT_HANDLE, s3ReceiptHandle.getReceiptHandle());
+    }
+
+    @Test
+    public void testThatKeysContainingSeparatorsAndMarkersAreDecoded() {
+        String s3Key = "expiring/2020-03-31/12:34" + SQSExtendedClientConstants.S3_KEY_MARKER + "-..v2..-";
+        S3ReceiptHandle s3ReceiptHandle = S3ReceiptHandle.decode(
+                S3ReceiptHandle.encode(RECEIPT_HANDLE, S3_BUCKET_NAME, s3Key));
+
+        assertEquals(S3_BUCKET_NAME, s3ReceiptHandle.getS3BucketName());
+        assertEquals(s3Key, s3ReceiptHandle.getS3Key());
+        assertEquals(RECEIPT_HANDLE, s3ReceiptHandle.getReceiptHandle());
+    }
+
+    @Test
+    public void testThatAMarkedReceiptHandleIsDecoded() {
+        String markedReceiptHandle = SQSExtendedClientConstants.S3_BUCKET_NAME_MARKER + S3_BUCKET_NAME
+                + SQSExtendedClientConstants.S3_BUCKET_NAME_MARKER + SQSExtendedClientConstants.S3_KEY_MARKER
+                + S3_KEY + SQSExtendedClientConstants.S3_KEY_MARKER + RECEIPT_HANDLE;
+
+        S3ReceiptHandle s3ReceiptHandle = S3ReceiptHandle.decode(markedReceiptHandle);
+
+        assertEquals(S3_BUCKET_NAME, s3ReceiptHandle.getS3BucketName());
+        assertEquals(S3_KEY, s3ReceiptHandle.getS3Key());
+        assertEquals(RECEIPT_HANDLE, s3ReceiptHandle.getReceiptHandle());
+    }
+
+    @Test
+    public void testThatAPlainReceiptHandleIsNotDecoded() {
+        assertNull(S3ReceiptHandle.decode(RECEIPT_HANDLE));
+        assertNull(S3ReceiptHandle.decode(""));
+        assertNull(S3ReceiptHandle.decode(null));
+    }
+
+    @Test
+    public void testThatMalformedReceiptHandlesAreNotDecoded() {
+        String prefix = SQSExtendedClientConstants.S3_RECEIPT_HANDLE_PREFIX;
+
+        assertNull(S3ReceiptHandle.decode(prefix));
+        assertNull(S3ReceiptHandle.decode(prefix + ":bucket"));
+        assertNull(S3ReceiptHandle.decode(prefix + "x:bucket"));
+        assertNull(S3ReceiptHandle.decode(prefix + "99:bucket3:key"));
+        assertNull(S3ReceiptHandle.decode(prefix + "6:bucket99:key"));
+        assertNull(S3ReceiptHandle.decode(prefix + "9999999999:bucket"));
+        assertNull(S3ReceiptHandle.decode(SQSExtendedClientConstants.S3_BUCKET_NAME_MARKER + S3_BUCKET_NAME));
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package software.amazon.awssdk.services.sqs;
+
+import software.amazon.awssdk.awscore.exception.AwsErrorDetails;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.core.sync.ResponseTransformer;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.CreateBucketRequest;
+import software.amazon.awssdk.services.s3.model.CreateBucketResponse;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectResponse;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsResponse;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectResponse;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartResponse;
+
+/**
+ * An Amazon S3 client which adds the latency and faults of a
+ * {@link FaultInjector} to the requests it passes on to another client.
+ * Decorators compose, so a client can be wrapped more than once to combine
+ * sources of latency. Only the operations the extended client and
+ * {@link InMemoryS3Client} use are passed on.
+ */
+public class FaultInjectingS3Client implements S3Client {
+
+    private final S3Client s3Client;
+    private final FaultInjector faultInjector;
+
+    public FaultInjectingS3Client(S3Client s3Client, FaultInjector faultInjector) {
+        this.s3Client = s3Client;
+        this.faultInjector = faultInjector;
+    }
+
+    @Override
+    public String serviceName() {
+        return s3Client.serviceName();
+    }
+
+    @Override
+    public void close() {
+        s3Client.close();
+    }
+
+    @Override
+    public CreateBucketResponse createBucket(CreateBucketRequest createBucketRequest) {
+        inject("CreateBucket");
+        return s3Client.createBucket(createBucketRequest);
+    }
+
+    @Override
+    public PutObjectResponse putObject(PutObjectRequest putObjectRequest, RequestBody requestBody) {
+        inject("PutObject");
+        return s3Client.putObject(putObjectRequest, requestBody);
+    }
+
+    @Override
+    public <ReturnT> ReturnT getObject(GetObjectRequest getObjectRequest,
+                                       ResponseTransformer<GetObjectResponse, ReturnT> responseTransformer) {
+        inject("GetObject");
+        return s3Client.getObject(getObjectRequest, responseTransformer);
+    }
+
+    @Override
+    public HeadObjectResponse headObject(HeadObjectRequest headObjectRequest) {
+        inject("HeadObject");
+        return s3Client.headObject(headObjectRequest);
+    }
+
+    @Override
+    public DeleteObjectResponse deleteObject(DeleteObjectRequest deleteObjectRequest) {
+        inject("DeleteObject");
+        return s3Client.deleteObject(deleteObjectRequest);
+    }
+
+    @Override
+    public DeleteObjectsResponse deleteObjects(DeleteObjectsRequest deleteObjectsRequest) {
+        inject("DeleteObjects");
+        return s3Client.deleteObjects(deleteObjectsRequest);
+    }
+
+    @Override
+    public ListObjectsV2Response listObjectsV2(ListObjectsV2Request listObjectsV2Request) {
+        inject("ListObjectsV2");
+        return s3Client.listObjectsV2(listObjectsV2Request);
+    }
+
+    @Override
+    public CreateMultipartUploadResponse createMultipartUpload(CreateMultipartUploadRequest createMultipartUploadRequest) {
+        inject("CreateMultipartUpload");
+        return s3Client.createMultipartUpload(createMultipartUploadRequest);
+    }
+
+    @Override
+    public UploadPartResponse uploadPart(UploadPartRequest uploadPartRequest, RequestBody requestBody) {
+        inject("UploadPart");
+        return s3Client.uploadPart(uploadPartRequest, requestBody);
+    }
+
+    @Override
+    public CompleteMultipartUploadResponse completeMultipartUpload(
+            CompleteMultipartUploadRequest completeMultipartUploadRequest) {
+        inject("CompleteMultipartUpload");
+        return s3Client.completeMultipartUpload(completeMultipartUploadRequest);
+    }
+
+    @Override
+    public AbortMultipartUploadResponse abortMultipartUpload(AbortMultipartUploadRequest abortMultipartUploadRequest) {
+        inject("AbortMultipartUpload");
+        return s3Client.abortMultipartUpload(abortMultipartUploadRequest);
+    }
+
+    private void inject(String operationName) {
+        faultInjector.inject(operationName, () -> S3Exception.builder()
+                .message("Please reduce your request rate.")
+                .awsErrorDetails(AwsErrorDetails.builder()
+                        .errorCode("SlowDown")
+                        .errorMessage("Please reduce your request rate.")
+                        .serviceName("S3")
+                        .build())
+                .statusCode(503)
+                .build());
+    }
+}
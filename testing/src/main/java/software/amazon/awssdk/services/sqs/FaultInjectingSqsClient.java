@@ -0,0 +1,157 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package software.amazon.awssdk.services.sqs;
+
+import software.amazon.awssdk.awscore.exception.AwsErrorDetails;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityBatchRequest;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityBatchResponse;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityRequest;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityResponse;
+import software.amazon.awssdk.services.sqs.model.CreateQueueRequest;
+import software.amazon.awssdk.services.sqs.model.CreateQueueResponse;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchRequest;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchResponse;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageRequest;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageResponse;
+import software.amazon.awssdk.services.sqs.model.DeleteQueueRequest;
+import software.amazon.awssdk.services.sqs.model.DeleteQueueResponse;
+import software.amazon.awssdk.services.sqs.model.GetQueueAttributesRequest;
+import software.amazon.awssdk.services.sqs.model.GetQueueAttributesResponse;
+import software.amazon.awssdk.services.sqs.model.GetQueueUrlRequest;
+import software.amazon.awssdk.services.sqs.model.GetQueueUrlResponse;
+import software.amazon.awssdk.services.sqs.model.PurgeQueueRequest;
+import software.amazon.awssdk.services.sqs.model.PurgeQueueResponse;
+import software.amazon.awssdk.services.sqs.model.ReceiveMessageRequest;
+import software.amazon.awssdk.services.sqs.model.ReceiveMessageResponse;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequest;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchResponse;
+import software.amazon.awssdk.services.sqs.model.SendMessageRequest;
+import software.amazon.awssdk.services.sqs.model.SendMessageResponse;
+import software.amazon.awssdk.services.sqs.model.SqsException;
+
+/**
+ * An Amazon SQS client which adds the latency and faults of a
+ * {@link FaultInjector} to the requests it passes on to another client.
+ * Decorators compose, so a client can be wrapped more than once to combine
+ * sources of latency. Only the operations the extended client and
+ * {@link InMemorySqsClient} use are passed on.
+ */
+public class FaultInjectingSqsClient implements SqsClient {
+
+    private final SqsClient sqsClient;
+    private final FaultInjector faultInjector;
+
+    public FaultInjectingSqsClient(SqsClient sqsClient, FaultInjector faultInjector) {
+        this.sqsClient = sqsClient;
+        this.faultInjector = faultInjector;
+    }
+
+    @Override
+    public String serviceName() {
+        return sqsClient.serviceName();
+    }
+
+    @Override
+    public void close() {
+        sqsClient.close();
+    }
+
+    @Override
+    public CreateQueueResponse createQueue(CreateQueueRequest createQueueRequest) {
+        inject("CreateQueue");
+        return sqsClient.createQueue(createQueueRequest);
+    }
+
+    @Override
+    public GetQueueUrlResponse getQueueUrl(GetQueueUrlRequest getQueueUrlRequest) {
+        inject("GetQueueUrl");
+        return sqsClient.getQueueUrl(getQueueUrlRequest);
+    }
+
+    @Override
+    public DeleteQueueResponse deleteQueue(DeleteQueueRequest deleteQueueRequest) {
+        inject("DeleteQueue");
+        return sqsClient.deleteQueue(deleteQueueRequest);
+    }
+
+    @Override
+    public PurgeQueueResponse purgeQueue(PurgeQueueRequest purgeQueueRequest) {
+        inject("PurgeQueue");
+        return sqsClient.purgeQueue(purgeQueueRequest);
+    }
+
+    @Override
+    public GetQueueAttributesResponse getQueueAttributes(GetQueueAttributesRequest getQueueAttributesRequest) {
+        inject("GetQueueAttributes");
+        return sqsClient.getQueueAttributes(getQueueAttributesRequest);
+    }
+
+    @Override
+    public SendMessageResponse sendMessage(SendMessageRequest sendMessageRequest) {
+        inject("SendMessage");
+        return sqsClient.sendMessage(sendMessageRequest);
+    }
+
+    @Override
+    public SendMessageBatchResponse sendMessageBatch(SendMessageBatchRequest sendMessageBatchRequest) {
+        inject("SendMessageBatch");
+        return sqsClient.sendMessageBatch(sendMessageBatchRequest);
+    }
+
+    @Override
+    public ReceiveMessageResponse receiveMessage(ReceiveMessageRequest receiveMessageRequest) {
+        inject("ReceiveMessage");
+        return sqsClient.receiveMessage(receiveMessageRequest);
+    }
+
+    @Override
+    public DeleteMessageResponse deleteMessage(DeleteMessageRequest deleteMessageRequest) {
+        inject("DeleteMessage");
+        return sqsClient.deleteMessage(deleteMessageRequest);
+    }
+
+    @Override
+    public DeleteMessageBatchResponse deleteMessageBatch(DeleteMessageBatchRequest deleteMessageBatchRequest) {
+        inject("DeleteMessageBatch");
+        return sqsClient.deleteMessageBatch(deleteMessageBatchRequest);
+    }
+
+    @Override
+    public ChangeMessageVisibilityResponse changeMessageVisibility(
+            ChangeMessageVisibilityRequest changeMessageVisibilityRequest) {
+        inject("ChangeMessageVisibility");
+        return sqsClient.changeMessageVisibility(changeMessageVisibilityRequest);
+    }
+
+    @Override
+    public ChangeMessageVisibilityBatchResponse changeMessageVisibilityBatch(
+            ChangeMessageVisibilityBatchRequest changeMessageVisibilityBatchRequest) {
+        inject("ChangeMessageVisibilityBatch");
+        return sqsClient.changeMessageVisibilityBatch(changeMessageVisibilityBatchRequest);
+    }
+
+    private void inject(String operationName) {
+        faultInjector.inject(operationName, () -> SqsException.builder()
+                .message("Rate exceeded")
+                .awsErrorDetails(AwsErrorDetails.builder()
+                        .errorCode("ThrottlingException")
+                        .errorMessage("Rate exceeded")
+                        .serviceName("Sqs")
+                        .build())
+                .statusCode(400)
+                .build());
+    }
+}
@@ -0,0 +1,225 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package software.amazon.awssdk.services.sqs;
+
+import software.amazon.awssdk.core.exception.AbortedException;
+import software.amazon.awssdk.core.exception.SdkClientException;
+
+import java.net.SocketException;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Decides the latency and the faults injected into each request made through
+ * a {@link FaultInjectingSqsClient} or {@link FaultInjectingS3Client}.
+ * Settings apply to every operation unless they are overridden for an
+ * operation by its API name, such as "PutObject" or "SendMessage".
+ *
+ * <p>
+ * Faults are injected before the request reaches the wrapped client, so a
+ * failed request has no effect. The decorators sit where the whole SDK client
+ * would, beneath its retries, so without {@link #withRetries} an injected
+ * fault is one the extended client sees as it is; with it, each attempt draws
+ * its own latency and faults and failed attempts wait for a backoff, the way
+ * the SDK retries throttling and connection errors.
+ * </p>
+ */
+public class FaultInjector {
+
+    private final Settings defaults = new Settings();
+    private final Map<String, Settings> operationSettings = new ConcurrentHashMap<>();
+    private volatile int maxRetries = 0;
+    private volatile LatencyDistribution retryBackoff = LatencyDistribution.none();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong injectedThrottles = new AtomicLong();
+    private final AtomicLong injectedConnectionResets = new AtomicLong();
+
+    /**
+     * Sets the latency of every operation.
+     */
+    public FaultInjector withLatency(LatencyDistribution latency) {
+        defaults.latency = latency;
+        return this;
+    }
+
+    /**
+     * Sets the latency of one operation.
+     */
+    public FaultInjector withLatency(String operationName, LatencyDistribution latency) {
+        settings(operationName).latency = latency;
+        return this;
+    }
+
+    /**
+     * Sets the fraction of requests of every operation, from 0 to 1, which
+     * fail with a throttling error: 503 SlowDown for Amazon S3, and
+     * ThrottlingException for Amazon SQS.
+     */
+    public FaultInjector withThrottlingRate(double throttlingRate) {
+        defaults.throttlingRate = checkRate(throttlingRate);
+        return this;
+    }
+
+    /**
+     * Sets the fraction of requests of one operation which fail with a
+     * throttling error.
+     */
+    public FaultInjector withThrottlingRate(String operationName, double throttlingRate) {
+        settings(operationName).throttlingRate = checkRate(throttlingRate);
+        return this;
+    }
+
+    /**
+     * Sets the fraction of requests of every operation, from 0 to 1, which
+     * fail with a connection reset.
+     */
+    public FaultInjector withConnectionResetRate(double connectionResetRate) {
+        defaults.connectionResetRate = checkRate(connectionResetRate);
+        return this;
+    }
+
+    /**
+     * Sets the fraction of requests of one operation which fail with a
+     * connection reset.
+     */
+    public FaultInjector withConnectionResetRate(String operationName, double connectionResetRate) {
+        settings(operationName).connectionResetRate = checkRate(connectionResetRate);
+        return this;
+    }
+
+    /**
+     * Retries requests which drew a fault, the way the SDK would, up to
+     * maxRetries times after waiting for a backoff drawn from the given
+     * distribution.
+     */
+    public FaultInjector withRetries(int maxRetries, LatencyDistribution backoff) {
+        if (maxRetries < 0) {
+            throw new IllegalArgumentException("The maximum number of retries must not be negative.");
+        }
+        this.maxRetries = maxRetries;
+        this.retryBackoff = backoff;
+        return this;
+    }
+
+    /**
+     * @return The number of requests made, not counting retries.
+     */
+    public long getRequests() {
+        return requests.get();
+    }
+
+    /**
+     * @return The number of attempts failed with a throttling error,
+     *         including attempts which were retried.
+     */
+    public long getInjectedThrottles() {
+        return injectedThrottles.get();
+    }
+
+    /**
+     * @return The number of attempts failed with a connection reset,
+     *         including attempts which were retried.
+     */
+    public long getInjectedConnectionResets() {
+        return injectedConnectionResets.get();
+    }
+
+    /**
+     * Waits for the latency of a request and throws the fault it draws, if
+     * any.
+     *
+     * @param operationName The API name of the operation.
+     * @param throttlingError Creates the throttling error of the service.
+     */
+    void inject(String operationName, Supplier<? extends RuntimeException> throttlingError) {
+        requests.incrementAndGet();
+        Settings settings = operationSettings.get(operationName);
+        LatencyDistribution latency = settings != null && settings.latency != null ? settings.latency : defaults.latency;
+        double throttlingRate = settings != null && settings.throttlingRate >= 0
+                ? settings.throttlingRate : defaults.throttlingRate;
+        double connectionResetRate = settings != null && settings.connectionResetRate >= 0
+                ? settings.connectionResetRate : defaults.connectionResetRate;
+
+        Random random = ThreadLocalRandom.current();
+        for (int attempt = 0; ; attempt++) {
+            sleep(latency.sampleNanos(random));
+
+            RuntimeException fault = null;
+            double draw = random.nextDouble();
+            if (draw < throttlingRate) {
+                injectedThrottles.incrementAndGet();
+                fault = throttlingError.get();
+            } else if (draw < throttlingRate + connectionResetRate) {
+                injectedConnectionResets.incrementAndGet();
+                fault = SdkClientException.create("Unable to execute HTTP request: Connection reset",
+                        new SocketException("Connection reset"));
+            }
+
+            if (fault == null) {
+                return;
+            }
+            if (attempt >= maxRetries) {
+                throw fault;
+            }
+            sleep(retryBackoff.sampleNanos(random));
+        }
+    }
+
+    private Settings settings(String operationName) {
+        return operationSettings.computeIfAbsent(operationName, name -> {
+            Settings settings = new Settings();
+            settings.latency = null;
+            settings.throttlingRate = -1;
+            settings.connectionResetRate = -1;
+            return settings;
+        });
+    }
+
+    private static double checkRate(double rate) {
+        if (rate < 0 || rate > 1) {
+            throw new IllegalArgumentException("The rate must be between 0 and 1.");
+        }
+        return rate;
+    }
+
+    private static void sleep(long nanos) {
+        if (nanos <= 0) {
+            return;
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw AbortedException.builder().message("Thread was interrupted while waiting for the injected latency.").build();
+        }
+    }
+
+    /**
+     * The settings of every operation, or of one operation, where unset
+     * values (a null latency and negative rates) fall back to the settings of
+     * every operation.
+     */
+    private static final class Settings {
+        private volatile LatencyDistribution latency = LatencyDistribution.none();
+        private volatile double throttlingRate = 0;
+        private volatile double connectionResetRate = 0;
+    }
+}
@@ -0,0 +1,458 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package software.amazon.awssdk.services.sqs;
+
+import software.amazon.awssdk.awscore.exception.AwsErrorDetails;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.core.sync.ResponseTransformer;
+import software.amazon.awssdk.http.AbortableInputStream;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CreateBucketRequest;
+import software.amazon.awssdk.services.s3.model.CreateBucketResponse;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectResponse;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsResponse;
+import software.amazon.awssdk.services.s3.model.DeletedObject;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+import software.amazon.awssdk.services.s3.model.NoSuchBucketException;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.NoSuchUploadException;
+import software.amazon.awssdk.services.s3.model.ObjectIdentifier;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectResponse;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.model.S3Object;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartResponse;
+import software.amazon.awssdk.utils.BinaryUtils;
+import software.amazon.awssdk.utils.IoUtils;
+import software.amazon.awssdk.utils.Md5Utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * A thread-safe Amazon S3 client which keeps its buckets in memory, for
+ * running the extended client in tests, load tests and benchmarks without
+ * AWS.
+ *
+ * <p>
+ * Supports the object operations the extended client uses: single-request and
+ * multipart uploads, GETs of whole objects and of byte ranges, HEAD, and
+ * deletes of single objects and of up to 1000 objects at once, along with
+ * ListObjectsV2 for inspecting what is stored. Buckets have to be created
+ * before they are used. Multipart uploads enforce the 5 MB minimum size of
+ * every part but the last; versioning, object ACLs and storage classes are not
+ * modelled.
+ * </p>
+ */
+public class InMemoryS3Client implements S3Client {
+
+    public static final long MIN_MULTIPART_UPLOAD_PART_SIZE = 5L * 1024 * 1024;
+    public static final int MAX_DELETE_OBJECTS_KEYS = 1000;
+
+    private final ConcurrentMap<String, NavigableMap<String, StoredObject>> buckets = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, MultipartUpload> multipartUploads = new ConcurrentHashMap<>();
+
+    @Override
+    public String serviceName() {
+        return SERVICE_NAME;
+    }
+
+    @Override
+    public void close() {
+    }
+
+    /**
+     * Removes all objects and pending multipart uploads, keeping the buckets.
+     */
+    public void clear() {
+        for (NavigableMap<String, StoredObject> objects : buckets.values()) {
+            objects.clear();
+        }
+        multipartUploads.clear();
+    }
+
+    @Override
+    public CreateBucketResponse createBucket(CreateBucketRequest createBucketRequest) {
+        buckets.putIfAbsent(createBucketRequest.bucket(), new ConcurrentSkipListMap<>());
+        return CreateBucketResponse.builder().location("/" + createBucketRequest.bucket()).build();
+    }
+
+    @Override
+    public PutObjectResponse putObject(PutObjectRequest putObjectRequest, RequestBody requestBody) {
+        NavigableMap<String, StoredObject> objects = bucket(putObjectRequest.bucket());
+        StoredObject object = new StoredObject(read(requestBody), putObjectRequest.contentType(),
+                putObjectRequest.metadata(), putObjectRequest.tagging());
+        objects.put(putObjectRequest.key(), object);
+        return PutObjectResponse.builder().eTag(object.eTag).build();
+    }
+
+    @Override
+    public <ReturnT> ReturnT getObject(GetObjectRequest getObjectRequest,
+                                       ResponseTransformer<GetObjectResponse, ReturnT> responseTransformer) {
+        StoredObject object = object(getObjectRequest.bucket(), getObjectRequest.key());
+        int length = object.content.length;
+        int start = 0;
+        int end = length;
+        if (getObjectRequest.range() != null) {
+            long[] range = parseRange(getObjectRequest.range(), length);
+            start = (int) range[0];
+            end = (int) range[1];
+        }
+
+        GetObjectResponse.Builder response = GetObjectResponse.builder()
+                .contentLength((long) (end - start))
+                .contentType(object.contentType)
+                .eTag(object.eTag)
+                .lastModified(object.lastModified)
+                .metadata(object.metadata);
+        if (getObjectRequest.range() != null) {
+            response.contentRange("bytes " + start + "-" + (end - 1) + "/" + length);
+        }
+        try {
+            return responseTransformer.transform(response.build(),
+                    AbortableInputStream.create(new ByteArrayInputStream(object.content, start, end - start)));
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw SdkClientException.create("Failed to transform the object content.", e);
+        }
+    }
+
+    @Override
+    public HeadObjectResponse headObject(HeadObjectRequest headObjectRequest) {
+        StoredObject object = object(headObjectRequest.bucket(), headObjectRequest.key());
+        return HeadObjectResponse.builder()
+                .contentLength((long) object.content.length)
+                .contentType(object.contentType)
+                .eTag(object.eTag)
+                .lastModified(object.lastModified)
+                .metadata(object.metadata)
+                .build();
+    }
+
+    @Override
+    public DeleteObjectResponse deleteObject(DeleteObjectRequest deleteObjectRequest) {
+        bucket(deleteObjectRequest.bucket()).remove(deleteObjectRequest.key());
+        return DeleteObjectResponse.builder().build();
+    }
+
+    @Override
+    public DeleteObjectsResponse deleteObjects(DeleteObjectsRequest deleteObjectsRequest) {
+        NavigableMap<String, StoredObject> objects = bucket(deleteObjectsRequest.bucket());
+        List<ObjectIdentifier> objectIdentifiers = deleteObjectsRequest.delete().objects();
+        if (objectIdentifiers.isEmpty() || objectIdentifiers.size() > MAX_DELETE_OBJECTS_KEYS) {
+            throw s3Exception("MalformedXML", "The XML you provided was not well-formed or did not validate against our published schema.", 400);
+        }
+
+        boolean quiet = Boolean.TRUE.equals(deleteObjectsRequest.delete().quiet());
+        List<DeletedObject> deleted = new ArrayList<>();
+        for (ObjectIdentifier objectIdentifier : objectIdentifiers) {
+            objects.remove(objectIdentifier.key());
+            if (!quiet) {
+                deleted.add(DeletedObject.builder().key(objectIdentifier.key()).build());
+            }
+        }
+        return DeleteObjectsResponse.builder().deleted(deleted).build();
+    }
+
+    /**
+     * Lists objects in key order. The continuation token is the last key of
+     * the previous page.
+     */
+    @Override
+    public ListObjectsV2Response listObjectsV2(ListObjectsV2Request listObjectsV2Request) {
+        NavigableMap<String, StoredObject> objects = bucket(listObjectsV2Request.bucket());
+        String prefix = listObjectsV2Request.prefix() == null ? "" : listObjectsV2Request.prefix();
+        int maxKeys = listObjectsV2Request.maxKeys() == null ? MAX_DELETE_OBJECTS_KEYS : listObjectsV2Request.maxKeys();
+
+        NavigableMap<String, StoredObject> candidates = listObjectsV2Request.continuationToken() == null
+                ? objects.tailMap(prefix, true)
+                : objects.tailMap(listObjectsV2Request.continuationToken(), false);
+        List<S3Object> contents = new ArrayList<>();
+        String lastKey = null;
+        boolean truncated = false;
+        for (Map.Entry<String, StoredObject> entry : candidates.entrySet()) {
+            if (!entry.getKey().startsWith(prefix)) {
+                break;
+            }
+            if (contents.size() == maxKeys) {
+                truncated = true;
+                break;
+            }
+            StoredObject object = entry.getValue();
+            contents.add(S3Object.builder()
+                    .key(entry.getKey())
+                    .size((long) object.content.length)
+                    .eTag(object.eTag)
+                    .lastModified(object.lastModified)
+                    .build());
+            lastKey = entry.getKey();
+        }
+
+        return ListObjectsV2Response.builder()
+                .name(listObjectsV2Request.bucket())
+                .prefix(listObjectsV2Request.prefix())
+                .contents(contents)
+                .keyCount(contents.size())
+                .maxKeys(maxKeys)
+                .isTruncated(truncated)
+                .nextContinuationToken(truncated ? lastKey : null)
+                .build();
+    }
+
+    @Override
+    public CreateMultipartUploadResponse createMultipartUpload(CreateMultipartUploadRequest createMultipartUploadRequest) {
+        bucket(createMultipartUploadRequest.bucket());
+        String uploadId = UUID.randomUUID().toString();
+        multipartUploads.put(uploadId, new MultipartUpload(createMultipartUploadRequest.bucket(),
+                createMultipartUploadRequest.key(), createMultipartUploadRequest.contentType(),
+                createMultipartUploadRequest.metadata(), createMultipartUploadRequest.tagging()));
+        return CreateMultipartUploadResponse.builder()
+                .bucket(createMultipartUploadRequest.bucket())
+                .key(createMultipartUploadRequest.key())
+                .uploadId(uploadId)
+                .build();
+    }
+
+    @Override
+    public UploadPartResponse uploadPart(UploadPartRequest uploadPartRequest, RequestBody requestBody) {
+        MultipartUpload upload = multipartUpload(uploadPartRequest.uploadId());
+        byte[] content = read(requestBody);
+        String eTag = eTag(content);
+        upload.parts.put(uploadPartRequest.partNumber(), new UploadedPart(content, eTag));
+        return UploadPartResponse.builder().eTag(eTag).build();
+    }
+
+    @Override
+    public CompleteMultipartUploadResponse completeMultipartUpload(
+            CompleteMultipartUploadRequest completeMultipartUploadRequest) {
+        MultipartUpload upload = multipartUpload(completeMultipartUploadRequest.uploadId());
+        List<CompletedPart> completedParts = completeMultipartUploadRequest.multipartUpload().parts();
+
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        int previousPartNumber = 0;
+        for (int i = 0; i < completedParts.size(); i++) {
+            CompletedPart completedPart = completedParts.get(i);
+            UploadedPart part = upload.parts.get(completedPart.partNumber());
+            if (part == null || !part.eTag.equals(completedPart.eTag())) {
+                throw s3Exception("InvalidPart", "One or more of the specified parts could not be found.", 400);
+            }
+            if (completedPart.partNumber() <= previousPartNumber) {
+                throw s3Exception("InvalidPartOrder", "The list of parts was not in ascending order.", 400);
+            }
+            if (i < completedParts.size() - 1 && part.content.length < MIN_MULTIPART_UPLOAD_PART_SIZE) {
+                throw s3Exception("EntityTooSmall", "Your proposed upload is smaller than the minimum allowed object size.", 400);
+            }
+            content.write(part.content, 0, part.content.length);
+            previousPartNumber = completedPart.partNumber();
+        }
+
+        StoredObject object = new StoredObject(content.toByteArray(), upload.contentType, upload.metadata, upload.tagging);
+        bucket(upload.bucket).put(upload.key, object);
+        multipartUploads.remove(completeMultipartUploadRequest.uploadId());
+        return CompleteMultipartUploadResponse.builder()
+                .bucket(upload.bucket)
+                .key(upload.key)
+                .eTag(object.eTag)
+                .build();
+    }
+
+    @Override
+    public AbortMultipartUploadResponse abortMultipartUpload(AbortMultipartUploadRequest abortMultipartUploadRequest) {
+        if (multipartUploads.remove(abortMultipartUploadRequest.uploadId()) == null) {
+            throw noSuchUpload();
+        }
+        return AbortMultipartUploadResponse.builder().build();
+    }
+
+    /**
+     * @return The tags set on an object, in the URL query form they were
+     *         given in, or null if the object has none.
+     */
+    public String getObjectTagging(String bucket, String key) {
+        return object(bucket, key).tagging;
+    }
+
+    /**
+     * @return The number of multipart uploads which were started and neither
+     *         completed nor aborted.
+     */
+    public int getPendingMultipartUploadCount() {
+        return multipartUploads.size();
+    }
+
+    private NavigableMap<String, StoredObject> bucket(String bucket) {
+        NavigableMap<String, StoredObject> objects = bucket == null ? null : buckets.get(bucket);
+        if (objects == null) {
+            throw NoSuchBucketException.builder()
+                    .message("The specified bucket does not exist.")
+                    .statusCode(404)
+                    .build();
+        }
+        return objects;
+    }
+
+    private StoredObject object(String bucket, String key) {
+        StoredObject object = bucket(bucket).get(key);
+        if (object == null) {
+            throw NoSuchKeyException.builder()
+                    .message("The specified key does not exist.")
+                    .statusCode(404)
+                    .build();
+        }
+        return object;
+    }
+
+    private MultipartUpload multipartUpload(String uploadId) {
+        MultipartUpload upload = uploadId == null ? null : multipartUploads.get(uploadId);
+        if (upload == null) {
+            throw noSuchUpload();
+        }
+        return upload;
+    }
+
+    private static NoSuchUploadException noSuchUpload() {
+        return NoSuchUploadException.builder()
+                .message("The specified multipart upload does not exist.")
+                .statusCode(404)
+                .build();
+    }
+
+    private static S3Exception s3Exception(String errorCode, String errorMessage, int statusCode) {
+        return S3Exception.builder()
+                .message(errorMessage)
+                .awsErrorDetails(AwsErrorDetails.builder()
+                        .errorCode(errorCode)
+                        .errorMessage(errorMessage)
+                        .serviceName("S3")
+                        .build())
+                .statusCode(statusCode)
+                .build();
+    }
+
+    /**
+     * @return The start and end (exclusive) of a "bytes=first-last",
+     *         "bytes=first-" or "bytes=-suffixLength" range.
+     */
+    private static long[] parseRange(String range, int length) {
+        String spec = range.startsWith("bytes=") ? range.substring("bytes=".length()) : "";
+        int dash = spec.indexOf('-');
+        try {
+            if (dash < 0) {
+                throw new NumberFormatException(range);
+            }
+            long start;
+            long end;
+            if (dash == 0) {
+                start = Math.max(0, length - Long.parseLong(spec.substring(1)));
+                end = length;
+            } else {
+                start = Long.parseLong(spec.substring(0, dash));
+                end = dash == spec.length() - 1 ? length : Math.min(length, Long.parseLong(spec.substring(dash + 1)) + 1);
+            }
+            if (start >= length || start >= end) {
+                throw s3Exception("InvalidRange", "The requested range is not satisfiable.", 416);
+            }
+            return new long[] {start, end};
+        } catch (NumberFormatException e) {
+            // Amazon S3 ignores a range it cannot parse and returns the whole object.
+            return new long[] {0, length};
+        }
+    }
+
+    private static byte[] read(RequestBody requestBody) {
+        try (InputStream in = requestBody.contentStreamProvider().newStream()) {
+            return IoUtils.toByteArray(in);
+        } catch (IOException e) {
+            throw SdkClientException.create("Failed to read the request body.", e);
+        }
+    }
+
+    private static String eTag(byte[] content) {
+        return "\"" + BinaryUtils.toHex(Md5Utils.computeMD5Hash(content)) + "\"";
+    }
+
+    private static final class StoredObject {
+        private final byte[] content;
+        private final String eTag;
+        private final String contentType;
+        private final Map<String, String> metadata;
+        private final String tagging;
+        private final Instant lastModified = Instant.now();
+
+        StoredObject(byte[] content, String contentType, Map<String, String> metadata, String tagging) {
+            this.content = content;
+            this.eTag = eTag(content);
+            this.contentType = contentType;
+            this.metadata = metadata;
+            this.tagging = tagging;
+        }
+    }
+
+    private static final class MultipartUpload {
+        private final String bucket;
+        private final String key;
+        private final String contentType;
+        private final Map<String, String> metadata;
+        private final String tagging;
+        private final ConcurrentMap<Integer, UploadedPart> parts = new ConcurrentHashMap<>();
+
+        MultipartUpload(String bucket, String key, String contentType, Map<String, String> metadata, String tagging) {
+            this.bucket = bucket;
+            this.key = key;
+            this.contentType = contentType;
+            this.metadata = metadata;
+            this.tagging = tagging;
+        }
+    }
+
+    private static final class UploadedPart {
+        private final byte[] content;
+        private final String eTag;
+
+        UploadedPart(byte[] content, String eTag) {
+            this.content = content;
+            this.eTag = eTag;
+        }
+    }
+}
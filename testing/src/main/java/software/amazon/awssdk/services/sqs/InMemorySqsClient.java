@@ -0,0 +1,612 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package software.amazon.awssdk.services.sqs;
+
+import software.amazon.awssdk.core.exception.AbortedException;
+import software.amazon.awssdk.services.sqs.model.BatchEntryIdsNotDistinctException;
+import software.amazon.awssdk.services.sqs.model.BatchRequestTooLongException;
+import software.amazon.awssdk.services.sqs.model.BatchResultErrorEntry;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityBatchRequest;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityBatchRequestEntry;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityBatchResponse;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityBatchResultEntry;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityRequest;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityResponse;
+import software.amazon.awssdk.services.sqs.model.CreateQueueRequest;
+import software.amazon.awssdk.services.sqs.model.CreateQueueResponse;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchRequest;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchRequestEntry;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchResponse;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchResultEntry;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageRequest;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageResponse;
+import software.amazon.awssdk.services.sqs.model.DeleteQueueRequest;
+import software.amazon.awssdk.services.sqs.model.DeleteQueueResponse;
+import software.amazon.awssdk.services.sqs.model.EmptyBatchRequestException;
+import software.amazon.awssdk.services.sqs.model.GetQueueAttributesRequest;
+import software.amazon.awssdk.services.sqs.model.GetQueueAttributesResponse;
+import software.amazon.awssdk.services.sqs.model.GetQueueUrlRequest;
+import software.amazon.awssdk.services.sqs.model.GetQueueUrlResponse;
+import software.amazon.awssdk.services.sqs.model.Message;
+import software.amazon.awssdk.services.sqs.model.MessageAttributeValue;
+import software.amazon.awssdk.services.sqs.model.MessageNotInflightException;
+import software.amazon.awssdk.services.sqs.model.PurgeQueueRequest;
+import software.amazon.awssdk.services.sqs.model.PurgeQueueResponse;
+import software.amazon.awssdk.services.sqs.model.QueueAttributeName;
+import software.amazon.awssdk.services.sqs.model.QueueDoesNotExistException;
+import software.amazon.awssdk.services.sqs.model.ReceiptHandleIsInvalidException;
+import software.amazon.awssdk.services.sqs.model.ReceiveMessageRequest;
+import software.amazon.awssdk.services.sqs.model.ReceiveMessageResponse;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequest;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequestEntry;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchResponse;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchResultEntry;
+import software.amazon.awssdk.services.sqs.model.SendMessageRequest;
+import software.amazon.awssdk.services.sqs.model.SendMessageResponse;
+import software.amazon.awssdk.services.sqs.model.SqsException;
+import software.amazon.awssdk.services.sqs.model.TooManyEntriesInBatchRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * A thread-safe Amazon SQS client which keeps its queues in memory, for
+ * running the extended client in tests, load tests and benchmarks without
+ * AWS.
+ *
+ * <p>
+ * Queues follow the standard queue semantics the extended client relies on:
+ * every receive issues a new receipt handle and invalidates the previous one,
+ * received messages stay hidden for the visibility timeout of the request or
+ * of the queue, messages reappear when that timeout passes, and receives long
+ * poll for up to their wait time. Messages and batches larger than 256 KB are
+ * rejected, as are empty batches, batches of more than ten entries and
+ * batches with duplicate entry IDs. Delivery delays, dead-letter queues and
+ * FIFO queues are not modelled.
+ * </p>
+ */
+public class InMemorySqsClient implements SqsClient {
+
+    public static final int DEFAULT_VISIBILITY_TIMEOUT_SECONDS = 30;
+    public static final int MAX_MESSAGE_SIZE = 262144;
+    public static final int MAX_BATCH_ENTRIES = 10;
+
+    private static final String QUEUE_URL_PREFIX = "https://sqs.us-east-1.amazonaws.com/000000000000/";
+    private static final String ALL = "All";
+
+    private final ConcurrentMap<String, InMemoryQueue> queues = new ConcurrentHashMap<>();
+
+    @Override
+    public String serviceName() {
+        return SERVICE_NAME;
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public CreateQueueResponse createQueue(CreateQueueRequest createQueueRequest) {
+        String visibilityTimeout = createQueueRequest.attributes().get(QueueAttributeName.VISIBILITY_TIMEOUT);
+        int visibilityTimeoutSeconds = visibilityTimeout == null
+                ? DEFAULT_VISIBILITY_TIMEOUT_SECONDS : Integer.parseInt(visibilityTimeout);
+
+        String queueUrl = QUEUE_URL_PREFIX + createQueueRequest.queueName();
+        queues.putIfAbsent(queueUrl, new InMemoryQueue(visibilityTimeoutSeconds));
+        return CreateQueueResponse.builder().queueUrl(queueUrl).build();
+    }
+
+    @Override
+    public GetQueueUrlResponse getQueueUrl(GetQueueUrlRequest getQueueUrlRequest) {
+        String queueUrl = QUEUE_URL_PREFIX + getQueueUrlRequest.queueName();
+        queue(queueUrl);
+        return GetQueueUrlResponse.builder().queueUrl(queueUrl).build();
+    }
+
+    @Override
+    public DeleteQueueResponse deleteQueue(DeleteQueueRequest deleteQueueRequest) {
+        if (queues.remove(deleteQueueRequest.queueUrl()) == null) {
+            throw queueDoesNotExist();
+        }
+        return DeleteQueueResponse.builder().build();
+    }
+
+    @Override
+    public PurgeQueueResponse purgeQueue(PurgeQueueRequest purgeQueueRequest) {
+        queue(purgeQueueRequest.queueUrl()).purge();
+        return PurgeQueueResponse.builder().build();
+    }
+
+    /**
+     * Reports ApproximateNumberOfMessages, ApproximateNumberOfMessagesNotVisible
+     * and VisibilityTimeout, which are exact here.
+     */
+    @Override
+    public GetQueueAttributesResponse getQueueAttributes(GetQueueAttributesRequest getQueueAttributesRequest) {
+        Map<QueueAttributeName, String> attributes = queue(getQueueAttributesRequest.queueUrl()).getAttributes();
+        List<QueueAttributeName> attributeNames = getQueueAttributesRequest.attributeNames();
+        if (!attributeNames.contains(QueueAttributeName.ALL)) {
+            attributes.keySet().retainAll(attributeNames);
+        }
+        return GetQueueAttributesResponse.builder().attributes(attributes).build();
+    }
+
+    @Override
+    public SendMessageResponse sendMessage(SendMessageRequest sendMessageRequest) {
+        InMemoryQueue queue = queue(sendMessageRequest.queueUrl());
+        if (getMessageSize(sendMessageRequest.messageBody(), sendMessageRequest.messageAttributes()) > MAX_MESSAGE_SIZE) {
+            throw SqsException.builder()
+                    .message("One or more parameters are invalid. Reason: Message must be shorter than "
+                            + MAX_MESSAGE_SIZE + " bytes.")
+                    .statusCode(400)
+                    .build();
+        }
+        String messageId = queue.send(sendMessageRequest.messageBody(), sendMessageRequest.messageAttributes());
+        return SendMessageResponse.builder().messageId(messageId).build();
+    }
+
+    @Override
+    public SendMessageBatchResponse sendMessageBatch(SendMessageBatchRequest sendMessageBatchRequest) {
+        InMemoryQueue queue = queue(sendMessageBatchRequest.queueUrl());
+        List<SendMessageBatchRequestEntry> entries = sendMessageBatchRequest.entries();
+        validateBatch(entries, SendMessageBatchRequestEntry::id);
+        long batchSize = 0;
+        for (SendMessageBatchRequestEntry entry : entries) {
+            batchSize += getMessageSize(entry.messageBody(), entry.messageAttributes());
+        }
+        if (batchSize > MAX_MESSAGE_SIZE) {
+            throw BatchRequestTooLongException.builder()
+                    .message("Batch requests cannot be longer than " + MAX_MESSAGE_SIZE + " bytes.")
+                    .statusCode(400)
+                    .build();
+        }
+
+        List<SendMessageBatchResultEntry> successful = new ArrayList<>(entries.size());
+        for (SendMessageBatchRequestEntry entry : entries) {
+            String messageId = queue.send(entry.messageBody(), entry.messageAttributes());
+            successful.add(SendMessageBatchResultEntry.builder().id(entry.id()).messageId(messageId).build());
+        }
+        return SendMessageBatchResponse.builder()
+                .successful(successful)
+                .failed(Collections.<BatchResultErrorEntry>emptyList())
+                .build();
+    }
+
+    @Override
+    public ReceiveMessageResponse receiveMessage(ReceiveMessageRequest receiveMessageRequest) {
+        InMemoryQueue queue = queue(receiveMessageRequest.queueUrl());
+        int maxNumberOfMessages = receiveMessageRequest.maxNumberOfMessages() == null
+                ? 1 : Math.max(1, Math.min(MAX_BATCH_ENTRIES, receiveMessageRequest.maxNumberOfMessages()));
+        long visibilityTimeoutMillis = TimeUnit.SECONDS.toMillis(receiveMessageRequest.visibilityTimeout() == null
+                ? queue.visibilityTimeoutSeconds : receiveMessageRequest.visibilityTimeout());
+        long waitTimeNanos = receiveMessageRequest.waitTimeSeconds() == null
+                ? 0 : TimeUnit.SECONDS.toNanos(receiveMessageRequest.waitTimeSeconds());
+
+        List<StoredMessage> received = queue.receive(maxNumberOfMessages, visibilityTimeoutMillis, waitTimeNanos);
+        List<Message> messages = new ArrayList<>(received.size());
+        for (StoredMessage message : received) {
+            messages.add(Message.builder()
+                    .messageId(message.messageId)
+                    .receiptHandle(message.receiptHandle)
+                    .body(message.body)
+                    .messageAttributes(filterMessageAttributes(message.messageAttributes,
+                            receiveMessageRequest.messageAttributeNames()))
+                    .attributesWithStrings(filterSystemAttributes(message.getSystemAttributes(),
+                            receiveMessageRequest.attributeNamesAsStrings()))
+                    .build());
+        }
+        return ReceiveMessageResponse.builder().messages(messages).build();
+    }
+
+    /**
+     * Deleting with a receipt handle which has been superseded by a later
+     * receive, or whose message is already deleted, succeeds without deleting
+     * anything, as it does in Amazon SQS.
+     */
+    @Override
+    public DeleteMessageResponse deleteMessage(DeleteMessageRequest deleteMessageRequest) {
+        queue(deleteMessageRequest.queueUrl()).delete(deleteMessageRequest.receiptHandle());
+        return DeleteMessageResponse.builder().build();
+    }
+
+    @Override
+    public DeleteMessageBatchResponse deleteMessageBatch(DeleteMessageBatchRequest deleteMessageBatchRequest) {
+        InMemoryQueue queue = queue(deleteMessageBatchRequest.queueUrl());
+        List<DeleteMessageBatchRequestEntry> entries = deleteMessageBatchRequest.entries();
+        validateBatch(entries, DeleteMessageBatchRequestEntry::id);
+
+        List<DeleteMessageBatchResultEntry> successful = new ArrayList<>(entries.size());
+        for (DeleteMessageBatchRequestEntry entry : entries) {
+            queue.delete(entry.receiptHandle());
+            successful.add(DeleteMessageBatchResultEntry.builder().id(entry.id()).build());
+        }
+        return DeleteMessageBatchResponse.builder()
+                .successful(successful)
+                .failed(Collections.<BatchResultErrorEntry>emptyList())
+                .build();
+    }
+
+    @Override
+    public ChangeMessageVisibilityResponse changeMessageVisibility(
+            ChangeMessageVisibilityRequest changeMessageVisibilityRequest) {
+        queue(changeMessageVisibilityRequest.queueUrl()).changeVisibility(changeMessageVisibilityRequest.receiptHandle(),
+                TimeUnit.SECONDS.toMillis(changeMessageVisibilityRequest.visibilityTimeout()));
+        return ChangeMessageVisibilityResponse.builder().build();
+    }
+
+    @Override
+    public ChangeMessageVisibilityBatchResponse changeMessageVisibilityBatch(
+            ChangeMessageVisibilityBatchRequest changeMessageVisibilityBatchRequest) {
+        InMemoryQueue queue = queue(changeMessageVisibilityBatchRequest.queueUrl());
+        List<ChangeMessageVisibilityBatchRequestEntry> entries = changeMessageVisibilityBatchRequest.entries();
+        validateBatch(entries, ChangeMessageVisibilityBatchRequestEntry::id);
+
+        List<ChangeMessageVisibilityBatchResultEntry> successful = new ArrayList<>();
+        List<BatchResultErrorEntry> failed = new ArrayList<>();
+        for (ChangeMessageVisibilityBatchRequestEntry entry : entries) {
+            try {
+                queue.changeVisibility(entry.receiptHandle(), TimeUnit.SECONDS.toMillis(entry.visibilityTimeout()));
+                successful.add(ChangeMessageVisibilityBatchResultEntry.builder().id(entry.id()).build());
+            } catch (SqsException e) {
+                failed.add(BatchResultErrorEntry.builder()
+                        .id(entry.id())
+                        .code(e.getClass().getSimpleName())
+                        .message(e.getMessage())
+                        .senderFault(true)
+                        .build());
+            }
+        }
+        return ChangeMessageVisibilityBatchResponse.builder()
+                .successful(successful)
+                .failed(failed)
+                .build();
+    }
+
+    private InMemoryQueue queue(String queueUrl) {
+        InMemoryQueue queue = queueUrl == null ? null : queues.get(queueUrl);
+        if (queue == null) {
+            throw queueDoesNotExist();
+        }
+        return queue;
+    }
+
+    private static QueueDoesNotExistException queueDoesNotExist() {
+        return QueueDoesNotExistException.builder()
+                .message("The specified queue does not exist for this wsdl version.")
+                .statusCode(400)
+                .build();
+    }
+
+    private static <T> void validateBatch(List<T> entries, Function<T, String> id) {
+        if (entries.isEmpty()) {
+            throw EmptyBatchRequestException.builder()
+                    .message("There should be at least one entry in the request.")
+                    .statusCode(400)
+                    .build();
+        }
+        if (entries.size() > MAX_BATCH_ENTRIES) {
+            throw TooManyEntriesInBatchRequestException.builder()
+                    .message("Maximum number of entries per request are " + MAX_BATCH_ENTRIES + ".")
+                    .statusCode(400)
+                    .build();
+        }
+        Set<String> ids = new HashSet<>();
+        for (T entry : entries) {
+            if (!ids.add(id.apply(entry))) {
+                throw BatchEntryIdsNotDistinctException.builder()
+                        .message("Id " + id.apply(entry) + " repeated.")
+                        .statusCode(400)
+                        .build();
+            }
+        }
+    }
+
+    private static long getMessageSize(String messageBody, Map<String, MessageAttributeValue> messageAttributes) {
+        long size = messageBody.getBytes(StandardCharsets.UTF_8).length;
+        for (Map.Entry<String, MessageAttributeValue> entry : messageAttributes.entrySet()) {
+            MessageAttributeValue value = entry.getValue();
+            size += entry.getKey().getBytes(StandardCharsets.UTF_8).length;
+            size += value.dataType().getBytes(StandardCharsets.UTF_8).length;
+            if (value.stringValue() != null) {
+                size += value.stringValue().getBytes(StandardCharsets.UTF_8).length;
+            }
+            if (value.binaryValue() != null) {
+                size += value.binaryValue().asByteArray().length;
+            }
+        }
+        return size;
+    }
+
+    private static Map<String, MessageAttributeValue> filterMessageAttributes(
+            Map<String, MessageAttributeValue> messageAttributes, List<String> attributeNames) {
+        if (attributeNames.contains(ALL) || attributeNames.contains(".*")) {
+            return messageAttributes;
+        }
+        Map<String, MessageAttributeValue> filtered = new HashMap<>();
+        for (String attributeName : attributeNames) {
+            if (attributeName.endsWith(".*")) {
+                String prefix = attributeName.substring(0, attributeName.length() - 1);
+                for (Map.Entry<String, MessageAttributeValue> entry : messageAttributes.entrySet()) {
+                    if (entry.getKey().startsWith(prefix)) {
+                        filtered.put(entry.getKey(), entry.getValue());
+                    }
+                }
+            } else if (messageAttributes.containsKey(attributeName)) {
+                filtered.put(attributeName, messageAttributes.get(attributeName));
+            }
+        }
+        return filtered;
+    }
+
+    private static Map<String, String> filterSystemAttributes(Map<String, String> systemAttributes,
+                                                              List<String> attributeNames) {
+        if (!attributeNames.contains(ALL)) {
+            systemAttributes.keySet().retainAll(attributeNames);
+        }
+        return systemAttributes;
+    }
+
+    private static final class InMemoryQueue {
+        private final int visibilityTimeoutSeconds;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition messagesVisible = lock.newCondition();
+
+        // deleted messages and superseded visibility deadlines are skipped
+        // lazily, rather than searched for and removed.
+        private final Deque<StoredMessage> visible = new ArrayDeque<>();
+        private final PriorityQueue<VisibilityDeadline> visibilityDeadlines = new PriorityQueue<>();
+        private final Map<String, StoredMessage> messagesByReceiptHandle = new HashMap<>();
+        private int messageCount;
+        private int inFlightCount;
+
+        InMemoryQueue(int visibilityTimeoutSeconds) {
+            this.visibilityTimeoutSeconds = visibilityTimeoutSeconds;
+        }
+
+        String send(String body, Map<String, MessageAttributeValue> messageAttributes) {
+            StoredMessage message = new StoredMessage(body, messageAttributes);
+            lock.lock();
+            try {
+                visible.addLast(message);
+                messageCount++;
+                messagesVisible.signal();
+            } finally {
+                lock.unlock();
+            }
+            return message.messageId;
+        }
+
+        List<StoredMessage> receive(int maxNumberOfMessages, long visibilityTimeoutMillis, long waitTimeNanos) {
+            long waitDeadline = System.nanoTime() + waitTimeNanos;
+            lock.lock();
+            try {
+                while (true) {
+                    long now = System.currentTimeMillis();
+                    releaseExpired(now);
+
+                    List<StoredMessage> received = new ArrayList<>(maxNumberOfMessages);
+                    while (received.size() < maxNumberOfMessages && !visible.isEmpty()) {
+                        StoredMessage message = visible.pollFirst();
+                        if (!message.deleted) {
+                            hide(message, now, visibilityTimeoutMillis);
+                            received.add(message.copy());
+                        }
+                    }
+
+                    long remaining = waitDeadline - System.nanoTime();
+                    if (!received.isEmpty() || remaining <= 0) {
+                        return received;
+                    }
+                    VisibilityDeadline next = visibilityDeadlines.peek();
+                    if (next != null) {
+                        remaining = Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(Math.max(1, next.visibleAt - now)));
+                    }
+                    messagesVisible.awaitNanos(remaining);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw AbortedException.builder().message("Thread was interrupted while receiving messages.").build();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void delete(String receiptHandle) {
+            lock.lock();
+            try {
+                StoredMessage message = messagesByReceiptHandle.remove(receiptHandle);
+                if (message == null || message.deleted) {
+                    return;
+                }
+                message.deleted = true;
+                messageCount--;
+                if (message.inFlight) {
+                    message.inFlight = false;
+                    inFlightCount--;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void changeVisibility(String receiptHandle, long visibilityTimeoutMillis) {
+            lock.lock();
+            try {
+                StoredMessage message = messagesByReceiptHandle.get(receiptHandle);
+                if (message == null || message.deleted) {
+                    throw ReceiptHandleIsInvalidException.builder()
+                            .message("The receipt handle \"" + receiptHandle + "\" is not valid.")
+                            .statusCode(400)
+                            .build();
+                }
+                long now = System.currentTimeMillis();
+                releaseExpired(now);
+                if (!message.inFlight) {
+                    throw MessageNotInflightException.builder()
+                            .message("Message does not exist or is not available for visibility timeout change.")
+                            .statusCode(400)
+                            .build();
+                }
+                message.visibleAt = now + visibilityTimeoutMillis;
+                if (visibilityTimeoutMillis == 0) {
+                    release(message);
+                } else {
+                    visibilityDeadlines.add(new VisibilityDeadline(message, message.visibleAt));
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void purge() {
+            lock.lock();
+            try {
+                visible.clear();
+                visibilityDeadlines.clear();
+                for (StoredMessage message : messagesByReceiptHandle.values()) {
+                    message.deleted = true;
+                }
+                messagesByReceiptHandle.clear();
+                messageCount = 0;
+                inFlightCount = 0;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        Map<QueueAttributeName, String> getAttributes() {
+            lock.lock();
+            try {
+                releaseExpired(System.currentTimeMillis());
+                Map<QueueAttributeName, String> attributes = new HashMap<>();
+                attributes.put(QueueAttributeName.APPROXIMATE_NUMBER_OF_MESSAGES,
+                        Integer.toString(messageCount - inFlightCount));
+                attributes.put(QueueAttributeName.APPROXIMATE_NUMBER_OF_MESSAGES_NOT_VISIBLE,
+                        Integer.toString(inFlightCount));
+                attributes.put(QueueAttributeName.VISIBILITY_TIMEOUT, Integer.toString(visibilityTimeoutSeconds));
+                return attributes;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void hide(StoredMessage message, long now, long visibilityTimeoutMillis) {
+            if (message.receiptHandle != null) {
+                messagesByReceiptHandle.remove(message.receiptHandle);
+            }
+            message.receiptHandle = UUID.randomUUID().toString();
+            messagesByReceiptHandle.put(message.receiptHandle, message);
+            message.receiveCount++;
+            if (message.firstReceivedAt == 0) {
+                message.firstReceivedAt = now;
+            }
+            message.inFlight = true;
+            message.visibleAt = now + visibilityTimeoutMillis;
+            inFlightCount++;
+            visibilityDeadlines.add(new VisibilityDeadline(message, message.visibleAt));
+        }
+
+        private void releaseExpired(long now) {
+            VisibilityDeadline deadline;
+            while ((deadline = visibilityDeadlines.peek()) != null && deadline.visibleAt <= now) {
+                visibilityDeadlines.poll();
+                StoredMessage message = deadline.message;
+                if (message.inFlight && !message.deleted && message.visibleAt == deadline.visibleAt) {
+                    release(message);
+                }
+            }
+        }
+
+        private void release(StoredMessage message) {
+            // the receipt handle stays valid for deleting the message until
+            // it is received again.
+            message.inFlight = false;
+            inFlightCount--;
+            visible.addLast(message);
+            messagesVisible.signal();
+        }
+    }
+
+    private static final class StoredMessage {
+        private final String messageId;
+        private final String body;
+        private final Map<String, MessageAttributeValue> messageAttributes;
+        private final long sentAt = System.currentTimeMillis();
+        private String receiptHandle;
+        private int receiveCount;
+        private long firstReceivedAt;
+        private long visibleAt;
+        private boolean inFlight;
+        private boolean deleted;
+
+        StoredMessage(String body, Map<String, MessageAttributeValue> messageAttributes) {
+            this(UUID.randomUUID().toString(), body, messageAttributes);
+        }
+
+        private StoredMessage(String messageId, String body, Map<String, MessageAttributeValue> messageAttributes) {
+            this.messageId = messageId;
+            this.body = body;
+            this.messageAttributes = messageAttributes;
+        }
+
+        StoredMessage copy() {
+            StoredMessage copy = new StoredMessage(messageId, body, messageAttributes);
+            copy.receiptHandle = receiptHandle;
+            copy.receiveCount = receiveCount;
+            copy.firstReceivedAt = firstReceivedAt;
+            return copy;
+        }
+
+        Map<String, String> getSystemAttributes() {
+            Map<String, String> attributes = new HashMap<>();
+            attributes.put("SentTimestamp", Long.toString(sentAt));
+            attributes.put("ApproximateReceiveCount", Integer.toString(receiveCount));
+            attributes.put("ApproximateFirstReceiveTimestamp", Long.toString(firstReceivedAt));
+            return attributes;
+        }
+    }
+
+    private static final class VisibilityDeadline implements Comparable<VisibilityDeadline> {
+        private final StoredMessage message;
+        private final long visibleAt;
+
+        VisibilityDeadline(StoredMessage message, long visibleAt) {
+            this.message = message;
+            this.visibleAt = visibleAt;
+        }
+
+        @Override
+        public int compareTo(VisibilityDeadline other) {
+            return Long.compare(visibleAt, other.visibleAt);
+        }
+    }
+}
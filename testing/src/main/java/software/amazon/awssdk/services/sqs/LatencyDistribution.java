@@ -0,0 +1,77 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package software.amazon.awssdk.services.sqs;
+
+import java.time.Duration;
+import java.util.Random;
+
+/**
+ * A distribution of request latencies for {@link FaultInjector} to sample
+ * from.
+ */
+public interface LatencyDistribution {
+
+    /**
+     * @return The next latency, in nanoseconds.
+     */
+    long sampleNanos(Random random);
+
+    /**
+     * @return A distribution without latency.
+     */
+    static LatencyDistribution none() {
+        return random -> 0;
+    }
+
+    /**
+     * @return A distribution which always has the given latency.
+     */
+    static LatencyDistribution fixed(Duration latency) {
+        long latencyNanos = latency.toNanos();
+        return random -> latencyNanos;
+    }
+
+    /**
+     * @return A distribution of latencies spread evenly between min and max.
+     */
+    static LatencyDistribution uniform(Duration min, Duration max) {
+        long minNanos = min.toNanos();
+        long rangeNanos = max.toNanos() - minNanos;
+        if (rangeNanos < 0) {
+            throw new IllegalArgumentException("The maximum latency must not be less than the minimum latency.");
+        }
+        return random -> minNanos + (long) (random.nextDouble() * rangeNanos);
+    }
+
+    /**
+     * Returns a log-normal distribution, the usual shape of network service
+     * latencies: most requests take about the median, and a long tail reaches
+     * the 99th percentile and beyond.
+     *
+     * @param median The median latency.
+     * @param p99    The 99th percentile latency, at least the median.
+     */
+    static LatencyDistribution logNormal(Duration median, Duration p99) {
+        if (median.isNegative() || median.isZero() || p99.compareTo(median) < 0) {
+            throw new IllegalArgumentException("The median latency must be positive and not more than the p99 latency.");
+        }
+        // the 99th percentile of a standard normal distribution.
+        double p99ZScore = 2.3263478740408408;
+        double mu = Math.log(median.toNanos());
+        double sigma = Math.log((double) p99.toNanos() / median.toNanos()) / p99ZScore;
+        return random -> (long) Math.exp(mu + sigma * random.nextGaussian());
+    }
+}
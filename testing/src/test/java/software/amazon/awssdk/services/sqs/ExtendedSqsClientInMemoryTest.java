@@ -0,0 +1,117 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package software.amazon.awssdk.services.sqs;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import software.amazon.awssdk.services.sqs.model.CreateQueueRequest;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchRequestEntry;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageRequest;
+import software.amazon.awssdk.services.sqs.model.Message;
+import software.amazon.awssdk.services.sqs.model.ReceiveMessageRequest;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequestEntry;
+import software.amazon.awssdk.services.sqs.model.SendMessageRequest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ExtendedSqsClientInMemoryTest {
+
+    private static final String S3_BUCKET_NAME = "test-bucket-name";
+    private static final int LARGE_MESSAGE_SIZE = 300 * 1024;
+
+    private InMemoryS3Client s3;
+    private ExtendedSqsClient extendedSqsWithDefaultConfig;
+    private String queueUrl;
+
+    @Before
+    public void setupClients() {
+        s3 = new InMemoryS3Client();
+        s3.createBucket(b -> b.bucket(S3_BUCKET_NAME));
+        InMemorySqsClient sqs = new InMemorySqsClient();
+        queueUrl = sqs.createQueue(CreateQueueRequest.builder().queueName("test-queue").build()).queueUrl();
+
+        extendedSqsWithDefaultConfig = new ExtendedSqsClientBuilder()
+                .withSqsClient(sqs)
+                .withExtendedClientConfiguration(new ExtendedClientConfiguration()
+                        .withLargePayloadSupportEnabled(s3, S3_BUCKET_NAME))
+                .build();
+    }
+
+    @After
+    public void closeClients() {
+        extendedSqsWithDefaultConfig.close();
+    }
+
+    @Test
+    public void testThatALargeMessageIsStoredInS3AndDeletedWithTheMessage() {
+        String messageBody = generateStringWithLength(LARGE_MESSAGE_SIZE);
+        extendedSqsWithDefaultConfig.sendMessage(SendMessageRequest.builder()
+                .queueUrl(queueUrl).messageBody(messageBody).build());
+        assertEquals(1, (int) s3.listObjectsV2(b -> b.bucket(S3_BUCKET_NAME)).keyCount());
+
+        Message message = receiveOne();
+        assertEquals(messageBody, message.body());
+
+        extendedSqsWithDefaultConfig.deleteMessage(DeleteMessageRequest.builder()
+                .queueUrl(queueUrl).receiptHandle(message.receiptHandle()).build());
+        assertEquals(0, (int) s3.listObjectsV2(b -> b.bucket(S3_BUCKET_NAME)).keyCount());
+    }
+
+    @Test
+    public void testThatAMixedBatchIsSentReceivedAndDeleted() {
+        List<String> messageBodies = Arrays.asList("small", generateStringWithLength(LARGE_MESSAGE_SIZE),
+                generateStringWithLength(LARGE_MESSAGE_SIZE + 1));
+        List<SendMessageBatchRequestEntry> sendEntries = new ArrayList<>();
+        for (int i = 0; i < messageBodies.size(); i++) {
+            sendEntries.add(SendMessageBatchRequestEntry.builder().id(Integer.toString(i)).messageBody(messageBodies.get(i)).build());
+        }
+        extendedSqsWithDefaultConfig.sendMessageBatch(b -> b.queueUrl(queueUrl).entries(sendEntries));
+        assertEquals(2, (int) s3.listObjectsV2(b -> b.bucket(S3_BUCKET_NAME)).keyCount());
+
+        List<Message> messages = extendedSqsWithDefaultConfig.receiveMessage(ReceiveMessageRequest.builder()
+                .queueUrl(queueUrl).maxNumberOfMessages(10).build()).messages();
+        assertEquals(messageBodies.size(), messages.size());
+        List<DeleteMessageBatchRequestEntry> deleteEntries = new ArrayList<>();
+        for (Message message : messages) {
+            assertTrue(messageBodies.contains(message.body()));
+            deleteEntries.add(DeleteMessageBatchRequestEntry.builder()
+                    .id(message.messageId()).receiptHandle(message.receiptHandle()).build());
+        }
+        extendedSqsWithDefaultConfig.deleteMessageBatch(b -> b.queueUrl(queueUrl).entries(deleteEntries));
+
+        assertEquals(0, (int) s3.listObjectsV2(b -> b.bucket(S3_BUCKET_NAME)).keyCount());
+        assertTrue(extendedSqsWithDefaultConfig.receiveMessage(ReceiveMessageRequest.builder()
+                .queueUrl(queueUrl).build()).messages().isEmpty());
+    }
+
+    private Message receiveOne() {
+        List<Message> messages = extendedSqsWithDefaultConfig.receiveMessage(ReceiveMessageRequest.builder()
+                .queueUrl(queueUrl).build()).messages();
+        assertEquals(1, messages.size());
+        return messages.get(0);
+    }
+
+    private static String generateStringWithLength(int messageLength) {
+        char[] charArray = new char[messageLength];
+        Arrays.fill(charArray, 'x');
+        return new String(charArray);
+    }
+}
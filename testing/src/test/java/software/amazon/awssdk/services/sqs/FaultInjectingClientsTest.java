@@ -0,0 +1,121 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package software.amazon.awssdk.services.sqs;
+
+import org.junit.Before;
+import org.junit.Test;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.sqs.model.Message;
+import software.amazon.awssdk.services.sqs.model.ReceiveMessageRequest;
+import software.amazon.awssdk.services.sqs.model.SendMessageRequest;
+import software.amazon.awssdk.services.sqs.model.SqsException;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class FaultInjectingClientsTest {
+
+    private static final String S3_BUCKET_NAME = "test-bucket-name";
+    private static final int LARGE_MESSAGE_SIZE = 300 * 1024;
+
+    private InMemoryS3Client s3;
+    private FaultInjector s3Faults;
+    private FaultInjector sqsFaults;
+    private ExtendedSqsClient extendedSqsWithDefaultConfig;
+    private String queueUrl;
+
+    @Before
+    public void setupClients() {
+        s3 = new InMemoryS3Client();
+        s3.createBucket(b -> b.bucket(S3_BUCKET_NAME));
+        InMemorySqsClient sqs = new InMemorySqsClient();
+        queueUrl = sqs.createQueue(b -> b.queueName("test-queue")).queueUrl();
+        s3Faults = new FaultInjector();
+        sqsFaults = new FaultInjector();
+
+        extendedSqsWithDefaultConfig = new ExtendedSqsClientBuilder()
+                .withSqsClient(new FaultInjectingSqsClient(sqs, sqsFaults))
+                .withExtendedClientConfiguration(new ExtendedClientConfiguration()
+                        .withLargePayloadSupportEnabled(new FaultInjectingS3Client(s3, s3Faults), S3_BUCKET_NAME))
+                .build();
+    }
+
+    @Test
+    public void testThatAThrottledUploadFailsTheSend() {
+        s3Faults.withThrottlingRate("PutObject", 1);
+
+        try {
+            extendedSqsWithDefaultConfig.sendMessage(SendMessageRequest.builder()
+                    .queueUrl(queueUrl).messageBody(generateStringWithLength(LARGE_MESSAGE_SIZE)).build());
+            fail("expected SdkClientException");
+        } catch (SdkClientException e) {
+            S3Exception cause = (S3Exception) e.getCause();
+            assertEquals(503, cause.statusCode());
+            assertEquals("SlowDown", cause.awsErrorDetails().errorCode());
+        }
+
+        assertEquals(0, (int) s3.listObjectsV2(b -> b.bucket(S3_BUCKET_NAME)).keyCount());
+        assertTrue(receive().isEmpty());
+    }
+
+    @Test
+    public void testThatAThrottledSendLeavesTheUploadedPayload() {
+        sqsFaults.withThrottlingRate("SendMessage", 1);
+
+        try {
+            extendedSqsWithDefaultConfig.sendMessage(SendMessageRequest.builder()
+                    .queueUrl(queueUrl).messageBody(generateStringWithLength(LARGE_MESSAGE_SIZE)).build());
+            fail("expected SqsException");
+        } catch (SqsException e) {
+            assertEquals("ThrottlingException", e.awsErrorDetails().errorCode());
+        }
+
+        assertEquals(1, (int) s3.listObjectsV2(b -> b.bucket(S3_BUCKET_NAME)).keyCount());
+    }
+
+    @Test
+    public void testThatAThrottledDownloadFailsTheReceive() {
+        String messageBody = generateStringWithLength(LARGE_MESSAGE_SIZE);
+        extendedSqsWithDefaultConfig.sendMessage(SendMessageRequest.builder()
+                .queueUrl(queueUrl).messageBody(messageBody).build());
+        s3Faults.withThrottlingRate("GetObject", 1);
+
+        try {
+            receive();
+            fail("expected SdkException");
+        } catch (SdkException e) {
+            assertTrue(e.getCause() instanceof S3Exception);
+        }
+
+        s3Faults.withThrottlingRate("GetObject", 0);
+        assertEquals(messageBody, receive().get(0).body());
+    }
+
+    private List<Message> receive() {
+        return extendedSqsWithDefaultConfig.receiveMessage(ReceiveMessageRequest.builder()
+                .queueUrl(queueUrl).visibilityTimeout(0).build()).messages();
+    }
+
+    private static String generateStringWithLength(int messageLength) {
+        char[] charArray = new char[messageLength];
+        Arrays.fill(charArray, 'x');
+        return new String(charArray);
+    }
+}
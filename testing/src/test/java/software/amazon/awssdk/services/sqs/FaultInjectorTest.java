@@ -0,0 +1,137 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package software.amazon.awssdk.services.sqs;
+
+import org.junit.Test;
+import software.amazon.awssdk.core.exception.SdkClientException;
+
+import java.net.SocketException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class FaultInjectorTest {
+
+    private static final String OPERATION_NAME = "PutObject";
+
+    @Test
+    public void testThatNoFaultsAreInjectedByDefault() {
+        FaultInjector faultInjector = new FaultInjector();
+
+        for (int i = 0; i < 1000; i++) {
+            faultInjector.inject(OPERATION_NAME, IllegalStateException::new);
+        }
+
+        assertEquals(1000, faultInjector.getRequests());
+        assertEquals(0, faultInjector.getInjectedThrottles());
+        assertEquals(0, faultInjector.getInjectedConnectionResets());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testThatAThrottlingErrorIsThrown() {
+        new FaultInjector().withThrottlingRate(1).inject(OPERATION_NAME, IllegalStateException::new);
+    }
+
+    @Test
+    public void testThatAConnectionResetIsThrown() {
+        try {
+            new FaultInjector().withConnectionResetRate(1).inject(OPERATION_NAME, IllegalStateException::new);
+            fail("expected SdkClientException");
+        } catch (SdkClientException e) {
+            assertTrue(e.getCause() instanceof SocketException);
+        }
+    }
+
+    @Test
+    public void testThatOperationSettingsOverrideTheDefaults() {
+        FaultInjector faultInjector = new FaultInjector()
+                .withThrottlingRate(1)
+                .withThrottlingRate(OPERATION_NAME, 0);
+
+        faultInjector.inject(OPERATION_NAME, IllegalStateException::new);
+        try {
+            faultInjector.inject("GetObject", IllegalStateException::new);
+            fail("expected IllegalStateException");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testThatTheThrottlingRateIsApproximatelyHonored() {
+        FaultInjector faultInjector = new FaultInjector().withThrottlingRate(0.1);
+        int failures = 0;
+        for (int i = 0; i < 10000; i++) {
+            try {
+                faultInjector.inject(OPERATION_NAME, IllegalStateException::new);
+            } catch (IllegalStateException e) {
+                failures++;
+            }
+        }
+
+        assertEquals(failures, faultInjector.getInjectedThrottles());
+        assertTrue("failures: " + failures, failures > 800 && failures < 1200);
+    }
+
+    @Test
+    public void testThatRetriesHideMostFaults() {
+        FaultInjector faultInjector = new FaultInjector()
+                .withThrottlingRate(0.5)
+                .withRetries(10, LatencyDistribution.none());
+        int failures = 0;
+        for (int i = 0; i < 1000; i++) {
+            try {
+                faultInjector.inject(OPERATION_NAME, IllegalStateException::new);
+            } catch (IllegalStateException e) {
+                failures++;
+            }
+        }
+
+        assertTrue("failures: " + failures, failures < 10);
+        assertTrue(faultInjector.getInjectedThrottles() > 300);
+    }
+
+    @Test
+    public void testThatLatencyIsInjected() {
+        FaultInjector faultInjector = new FaultInjector().withLatency(LatencyDistribution.fixed(Duration.ofMillis(50)));
+
+        long start = System.nanoTime();
+        faultInjector.inject(OPERATION_NAME, IllegalStateException::new);
+
+        assertTrue(System.nanoTime() - start >= Duration.ofMillis(50).toNanos());
+    }
+
+    @Test
+    public void testThatALogNormalDistributionHasTheGivenPercentiles() {
+        LatencyDistribution latency = LatencyDistribution.logNormal(Duration.ofMillis(20), Duration.ofSeconds(2));
+        Random random = new Random(42);
+        long[] samples = new long[100000];
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = latency.sampleNanos(random);
+        }
+        Arrays.sort(samples);
+
+        assertEquals(Duration.ofMillis(20).toNanos(), samples[samples.length / 2], Duration.ofMillis(1).toNanos());
+        assertEquals(Duration.ofSeconds(2).toNanos(), samples[samples.length * 99 / 100], Duration.ofMillis(200).toNanos());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testThatAnInvalidRateIsRejected() {
+        new FaultInjector().withThrottlingRate(1.5);
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package software.amazon.awssdk.services.sqs;
+
+import org.junit.Before;
+import org.junit.Test;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.core.sync.ResponseTransformer;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.Delete;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+import software.amazon.awssdk.services.s3.model.NoSuchBucketException;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.ObjectIdentifier;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class InMemoryS3ClientTest {
+
+    private static final String S3_BUCKET_NAME = "test-bucket-name";
+    private static final String S3_KEY = "test-key";
+
+    private InMemoryS3Client s3;
+
+    @Before
+    public void setupClient() {
+        s3 = new InMemoryS3Client();
+        s3.createBucket(b -> b.bucket(S3_BUCKET_NAME));
+    }
+
+    @Test
+    public void testThatAPutObjectIsRead() {
+        s3.putObject(b -> b.bucket(S3_BUCKET_NAME).key(S3_KEY).tagging("expiry=short"), RequestBody.fromString("payload"));
+
+        String content = s3.getObject(GetObjectRequest.builder().bucket(S3_BUCKET_NAME).key(S3_KEY).build(),
+                ResponseTransformer.toBytes()).asUtf8String();
+
+        assertEquals("payload", content);
+        assertEquals(7L, (long) s3.headObject(b -> b.bucket(S3_BUCKET_NAME).key(S3_KEY)).contentLength());
+        assertEquals("expiry=short", s3.getObjectTagging(S3_BUCKET_NAME, S3_KEY));
+    }
+
+    @Test
+    public void testThatRangesAreRead() {
+        s3.putObject(b -> b.bucket(S3_BUCKET_NAME).key(S3_KEY), RequestBody.fromString("0123456789"));
+
+        assertEquals("234", getRange("bytes=2-4"));
+        assertEquals("789", getRange("bytes=7-"));
+        assertEquals("89", getRange("bytes=-2"));
+        assertEquals("89", getRange("bytes=8-100"));
+        assertEquals("0123456789", getRange("lines=1-2"));
+    }
+
+    @Test
+    public void testThatAnUnsatisfiableRangeFails() {
+        s3.putObject(b -> b.bucket(S3_BUCKET_NAME).key(S3_KEY), RequestBody.fromString("0123456789"));
+
+        try {
+            getRange("bytes=10-20");
+            fail("expected S3Exception");
+        } catch (S3Exception e) {
+            assertEquals(416, e.statusCode());
+        }
+    }
+
+    @Test(expected = NoSuchKeyException.class)
+    public void testThatReadingAMissingObjectFails() {
+        s3.headObject(b -> b.bucket(S3_BUCKET_NAME).key(S3_KEY));
+    }
+
+    @Test(expected = NoSuchBucketException.class)
+    public void testThatWritingToAMissingBucketFails() {
+        s3.putObject(b -> b.bucket("missing-bucket").key(S3_KEY), RequestBody.fromString("payload"));
+    }
+
+    @Test
+    public void testThatObjectsAreDeleted() {
+        for (String key : Arrays.asList("a", "b", "c")) {
+            s3.putObject(b -> b.bucket(S3_BUCKET_NAME).key(key), RequestBody.fromString(key));
+        }
+
+        s3.deleteObject(b -> b.bucket(S3_BUCKET_NAME).key("a"));
+        s3.deleteObjects(b -> b.bucket(S3_BUCKET_NAME).delete(Delete.builder()
+                .objects(ObjectIdentifier.builder().key("b").build(), ObjectIdentifier.builder().key("missing").build())
+                .build()));
+
+        assertEquals(1, (int) s3.listObjectsV2(b -> b.bucket(S3_BUCKET_NAME)).keyCount());
+    }
+
+    @Test
+    public void testThatListingIsPaginated() {
+        for (int i = 0; i < 5; i++) {
+            String key = "prefix/" + i;
+            s3.putObject(b -> b.bucket(S3_BUCKET_NAME).key(key), RequestBody.fromString(key));
+        }
+        s3.putObject(b -> b.bucket(S3_BUCKET_NAME).key("other"), RequestBody.fromString("other"));
+
+        ListObjectsV2Response first = s3.listObjectsV2(b -> b.bucket(S3_BUCKET_NAME).prefix("prefix/").maxKeys(3));
+        ListObjectsV2Response second = s3.listObjectsV2(b -> b.bucket(S3_BUCKET_NAME).prefix("prefix/").maxKeys(3)
+                .continuationToken(first.nextContinuationToken()));
+
+        assertEquals(3, first.contents().size());
+        assertTrue(first.isTruncated());
+        assertEquals(2, second.contents().size());
+        assertFalse(second.isTruncated());
+        assertEquals("prefix/4", second.contents().get(1).key());
+    }
+
+    @Test
+    public void testThatAMultipartUploadIsAssembledInPartOrder() {
+        byte[] firstPart = new byte[(int) InMemoryS3Client.MIN_MULTIPART_UPLOAD_PART_SIZE];
+        Arrays.fill(firstPart, (byte) 'a');
+        String uploadId = s3.createMultipartUpload(b -> b.bucket(S3_BUCKET_NAME).key(S3_KEY)).uploadId();
+
+        String secondETag = s3.uploadPart(b -> b.bucket(S3_BUCKET_NAME).key(S3_KEY).uploadId(uploadId).partNumber(2),
+                RequestBody.fromString("b")).eTag();
+        String firstETag = s3.uploadPart(b -> b.bucket(S3_BUCKET_NAME).key(S3_KEY).uploadId(uploadId).partNumber(1),
+                RequestBody.fromBytes(firstPart)).eTag();
+        s3.completeMultipartUpload(b -> b.bucket(S3_BUCKET_NAME).key(S3_KEY).uploadId(uploadId)
+                .multipartUpload(m -> m.parts(CompletedPart.builder().partNumber(1).eTag(firstETag).build(),
+                        CompletedPart.builder().partNumber(2).eTag(secondETag).build())));
+
+        byte[] content = s3.getObjectAsBytes(b -> b.bucket(S3_BUCKET_NAME).key(S3_KEY)).asByteArray();
+        assertEquals(firstPart.length + 1, content.length);
+        assertEquals('b', content[content.length - 1]);
+        assertEquals(0, s3.getPendingMultipartUploadCount());
+    }
+
+    @Test
+    public void testThatAMultipartUploadWithASmallPartFails() {
+        String uploadId = s3.createMultipartUpload(b -> b.bucket(S3_BUCKET_NAME).key(S3_KEY)).uploadId();
+        List<CompletedPart> parts = new ArrayList<>();
+        for (int partNumber = 1; partNumber <= 2; partNumber++) {
+            int part = partNumber;
+            String eTag = s3.uploadPart(b -> b.bucket(S3_BUCKET_NAME).key(S3_KEY).uploadId(uploadId).partNumber(part),
+                    RequestBody.fromString("part")).eTag();
+            parts.add(CompletedPart.builder().partNumber(partNumber).eTag(eTag).build());
+        }
+
+        try {
+            s3.completeMultipartUpload(b -> b.bucket(S3_BUCKET_NAME).key(S3_KEY).uploadId(uploadId)
+                    .multipartUpload(m -> m.parts(parts)));
+            fail("expected S3Exception");
+        } catch (S3Exception e) {
+            assertEquals("EntityTooSmall", e.awsErrorDetails().errorCode());
+        }
+
+        s3.abortMultipartUpload(b -> b.bucket(S3_BUCKET_NAME).key(S3_KEY).uploadId(uploadId));
+        assertEquals(0, s3.getPendingMultipartUploadCount());
+    }
+
+    private String getRange(String range) {
+        return new String(s3.getObjectAsBytes(b -> b.bucket(S3_BUCKET_NAME).key(S3_KEY).range(range)).asByteArray(),
+                StandardCharsets.UTF_8);
+    }
+}
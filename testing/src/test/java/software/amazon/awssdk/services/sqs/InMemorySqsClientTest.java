@@ -0,0 +1,270 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package software.amazon.awssdk.services.sqs;
+
+import org.junit.Before;
+import org.junit.Test;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityRequest;
+import software.amazon.awssdk.services.sqs.model.CreateQueueRequest;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchRequestEntry;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageRequest;
+import software.amazon.awssdk.services.sqs.model.EmptyBatchRequestException;
+import software.amazon.awssdk.services.sqs.model.GetQueueAttributesRequest;
+import software.amazon.awssdk.services.sqs.model.GetQueueAttributesResponse;
+import software.amazon.awssdk.services.sqs.model.Message;
+import software.amazon.awssdk.services.sqs.model.MessageAttributeValue;
+import software.amazon.awssdk.services.sqs.model.MessageNotInflightException;
+import software.amazon.awssdk.services.sqs.model.QueueAttributeName;
+import software.amazon.awssdk.services.sqs.model.QueueDoesNotExistException;
+import software.amazon.awssdk.services.sqs.model.ReceiptHandleIsInvalidException;
+import software.amazon.awssdk.services.sqs.model.ReceiveMessageRequest;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequestEntry;
+import software.amazon.awssdk.services.sqs.model.SendMessageRequest;
+import software.amazon.awssdk.services.sqs.model.SqsException;
+import software.amazon.awssdk.services.sqs.model.TooManyEntriesInBatchRequestException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class InMemorySqsClientTest {
+
+    private InMemorySqsClient sqs;
+    private String queueUrl;
+
+    @Before
+    public void setupClient() {
+        sqs = new InMemorySqsClient();
+        queueUrl = sqs.createQueue(CreateQueueRequest.builder().queueName("test-queue").build()).queueUrl();
+    }
+
+    @Test
+    public void testThatASentMessageIsReceived() {
+        Map<String, MessageAttributeValue> attributes = new HashMap<>();
+        attributes.put("color", MessageAttributeValue.builder().dataType("String").stringValue("blue").build());
+        String messageId = sqs.sendMessage(SendMessageRequest.builder()
+                .queueUrl(queueUrl).messageBody("body").messageAttributes(attributes).build()).messageId();
+
+        List<Message> messages = sqs.receiveMessage(ReceiveMessageRequest.builder()
+                .queueUrl(queueUrl).messageAttributeNames("All").attributeNamesWithStrings("ApproximateReceiveCount").build())
+                .messages();
+
+        assertEquals(1, messages.size());
+        assertEquals(messageId, messages.get(0).messageId());
+        assertEquals("body", messages.get(0).body());
+        assertEquals(attributes, messages.get(0).messageAttributes());
+        assertEquals("1", messages.get(0).attributesAsStrings().get("ApproximateReceiveCount"));
+        assertNotNull(messages.get(0).receiptHandle());
+    }
+
+    @Test
+    public void testThatOnlyRequestedMessageAttributesAreReturned() {
+        Map<String, MessageAttributeValue> attributes = new HashMap<>();
+        attributes.put("color", MessageAttributeValue.builder().dataType("String").stringValue("blue").build());
+        attributes.put("size.width", MessageAttributeValue.builder().dataType("Number").stringValue("1").build());
+        attributes.put("size.height", MessageAttributeValue.builder().dataType("Number").stringValue("2").build());
+        sqs.sendMessage(SendMessageRequest.builder().queueUrl(queueUrl).messageBody("body").messageAttributes(attributes).build());
+
+        Message message = sqs.receiveMessage(ReceiveMessageRequest.builder()
+                .queueUrl(queueUrl).messageAttributeNames("size.*").build()).messages().get(0);
+
+        assertEquals(new HashSet<>(Arrays.asList("size.width", "size.height")), message.messageAttributes().keySet());
+    }
+
+    @Test
+    public void testThatAReceivedMessageIsHiddenUntilItsVisibilityTimeoutPasses() {
+        sqs.sendMessage(SendMessageRequest.builder().queueUrl(queueUrl).messageBody("body").build());
+
+        Message message = receiveOne();
+        assertTrue(receive().isEmpty());
+        assertEquals("0", getQueueAttribute(QueueAttributeName.APPROXIMATE_NUMBER_OF_MESSAGES));
+        assertEquals("1", getQueueAttribute(QueueAttributeName.APPROXIMATE_NUMBER_OF_MESSAGES_NOT_VISIBLE));
+
+        sqs.changeMessageVisibility(ChangeMessageVisibilityRequest.builder()
+                .queueUrl(queueUrl).receiptHandle(message.receiptHandle()).visibilityTimeout(0).build());
+
+        Message redelivered = receiveOne();
+        assertEquals(message.messageId(), redelivered.messageId());
+        assertNotEquals(message.receiptHandle(), redelivered.receiptHandle());
+    }
+
+    @Test
+    public void testThatAMessageReceivedWithAZeroVisibilityTimeoutStaysVisible() {
+        sqs.sendMessage(SendMessageRequest.builder().queueUrl(queueUrl).messageBody("body").build());
+
+        for (int i = 0; i < 3; i++) {
+            List<Message> messages = sqs.receiveMessage(ReceiveMessageRequest.builder()
+                    .queueUrl(queueUrl).visibilityTimeout(0).build()).messages();
+            assertEquals(1, messages.size());
+        }
+    }
+
+    @Test
+    public void testThatASupersededReceiptHandleDoesNotDeleteTheMessage() {
+        sqs.sendMessage(SendMessageRequest.builder().queueUrl(queueUrl).messageBody("body").build());
+        Message first = sqs.receiveMessage(ReceiveMessageRequest.builder()
+                .queueUrl(queueUrl).visibilityTimeout(0).build()).messages().get(0);
+        Message second = receiveOne();
+
+        sqs.deleteMessage(DeleteMessageRequest.builder().queueUrl(queueUrl).receiptHandle(first.receiptHandle()).build());
+        assertEquals("1", getQueueAttribute(QueueAttributeName.APPROXIMATE_NUMBER_OF_MESSAGES_NOT_VISIBLE));
+
+        sqs.deleteMessage(DeleteMessageRequest.builder().queueUrl(queueUrl).receiptHandle(second.receiptHandle()).build());
+        assertEquals("0", getQueueAttribute(QueueAttributeName.APPROXIMATE_NUMBER_OF_MESSAGES_NOT_VISIBLE));
+        assertEquals("0", getQueueAttribute(QueueAttributeName.APPROXIMATE_NUMBER_OF_MESSAGES));
+    }
+
+    @Test
+    public void testThatADeletedMessageIsNotRedelivered() {
+        sqs.sendMessage(SendMessageRequest.builder().queueUrl(queueUrl).messageBody("body").build());
+        Message message = sqs.receiveMessage(ReceiveMessageRequest.builder()
+                .queueUrl(queueUrl).visibilityTimeout(0).build()).messages().get(0);
+
+        sqs.deleteMessage(DeleteMessageRequest.builder().queueUrl(queueUrl).receiptHandle(message.receiptHandle()).build());
+
+        assertTrue(receive().isEmpty());
+    }
+
+    @Test
+    public void testThatChangingTheVisibilityOfAnUnknownOrVisibleMessageFails() {
+        sqs.sendMessage(SendMessageRequest.builder().queueUrl(queueUrl).messageBody("body").build());
+        Message message = sqs.receiveMessage(ReceiveMessageRequest.builder()
+                .queueUrl(queueUrl).visibilityTimeout(0).build()).messages().get(0);
+
+        try {
+            sqs.changeMessageVisibility(ChangeMessageVisibilityRequest.builder()
+                    .queueUrl(queueUrl).receiptHandle("unknown").visibilityTimeout(10).build());
+            fail("expected ReceiptHandleIsInvalidException");
+        } catch (ReceiptHandleIsInvalidException e) {
+            // expected
+        }
+        try {
+            sqs.changeMessageVisibility(ChangeMessageVisibilityRequest.builder()
+                    .queueUrl(queueUrl).receiptHandle(message.receiptHandle()).visibilityTimeout(10).build());
+            fail("expected MessageNotInflightException");
+        } catch (MessageNotInflightException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testThatAReceiveLongPollsUntilAMessageIsSent() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<List<Message>> received = executor.submit(() -> sqs.receiveMessage(ReceiveMessageRequest.builder()
+                    .queueUrl(queueUrl).waitTimeSeconds(10).build()).messages());
+            Thread.sleep(100);
+            assertFalse(received.isDone());
+
+            sqs.sendMessage(SendMessageRequest.builder().queueUrl(queueUrl).messageBody("body").build());
+
+            assertEquals(1, received.get(5, TimeUnit.SECONDS).size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testThatConcurrentConsumersReceiveEveryMessageOnce() throws Exception {
+        int messageCount = 1000;
+        for (int i = 0; i < messageCount; i += 10) {
+            List<SendMessageBatchRequestEntry> entries = new ArrayList<>();
+            for (int j = i; j < i + 10; j++) {
+                entries.add(SendMessageBatchRequestEntry.builder().id(Integer.toString(j)).messageBody(Integer.toString(j)).build());
+            }
+            sqs.sendMessageBatch(b -> b.queueUrl(queueUrl).entries(entries));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        Set<String> bodies = Collections.synchronizedSet(new HashSet<>());
+        List<CompletableFuture<Void>> consumers = new ArrayList<>();
+        for (int c = 0; c < 8; c++) {
+            consumers.add(CompletableFuture.runAsync(() -> {
+                List<Message> messages;
+                while (!(messages = sqs.receiveMessage(ReceiveMessageRequest.builder()
+                        .queueUrl(queueUrl).maxNumberOfMessages(10).build()).messages()).isEmpty()) {
+                    List<DeleteMessageBatchRequestEntry> entries = new ArrayList<>();
+                    for (Message message : messages) {
+                        assertTrue(bodies.add(message.body()));
+                        entries.add(DeleteMessageBatchRequestEntry.builder()
+                                .id(message.messageId()).receiptHandle(message.receiptHandle()).build());
+                    }
+                    sqs.deleteMessageBatch(b -> b.queueUrl(queueUrl).entries(entries));
+                }
+            }, executor));
+        }
+        CompletableFuture.allOf(consumers.toArray(new CompletableFuture[0])).get(30, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        assertEquals(messageCount, bodies.size());
+        assertEquals("0", getQueueAttribute(QueueAttributeName.APPROXIMATE_NUMBER_OF_MESSAGES));
+        assertEquals("0", getQueueAttribute(QueueAttributeName.APPROXIMATE_NUMBER_OF_MESSAGES_NOT_VISIBLE));
+    }
+
+    @Test(expected = SqsException.class)
+    public void testThatAMessageOverTheSizeLimitIsRejected() {
+        char[] body = new char[InMemorySqsClient.MAX_MESSAGE_SIZE + 1];
+        Arrays.fill(body, 'x');
+        sqs.sendMessage(SendMessageRequest.builder().queueUrl(queueUrl).messageBody(new String(body)).build());
+    }
+
+    @Test(expected = EmptyBatchRequestException.class)
+    public void testThatAnEmptyBatchIsRejected() {
+        sqs.sendMessageBatch(b -> b.queueUrl(queueUrl).entries(new ArrayList<SendMessageBatchRequestEntry>()));
+    }
+
+    @Test(expected = TooManyEntriesInBatchRequestException.class)
+    public void testThatABatchOfMoreThanTenEntriesIsRejected() {
+        List<SendMessageBatchRequestEntry> entries = new ArrayList<>();
+        for (int i = 0; i <= InMemorySqsClient.MAX_BATCH_ENTRIES; i++) {
+            entries.add(SendMessageBatchRequestEntry.builder().id(Integer.toString(i)).messageBody("body").build());
+        }
+        sqs.sendMessageBatch(b -> b.queueUrl(queueUrl).entries(entries));
+    }
+
+    @Test(expected = QueueDoesNotExistException.class)
+    public void testThatSendingToAnUnknownQueueFails() {
+        sqs.sendMessage(SendMessageRequest.builder().queueUrl(queueUrl + "-unknown").messageBody("body").build());
+    }
+
+    private List<Message> receive() {
+        return sqs.receiveMessage(ReceiveMessageRequest.builder().queueUrl(queueUrl).build()).messages();
+    }
+
+    private Message receiveOne() {
+        List<Message> messages = receive();
+        assertEquals(1, messages.size());
+        return messages.get(0);
+    }
+
+    private String getQueueAttribute(QueueAttributeName attributeName) {
+        GetQueueAttributesResponse response = sqs.getQueueAttributes(GetQueueAttributesRequest.builder()
+                .queueUrl(queueUrl).attributeNames(attributeName).build());
+        return response.attributes().get(attributeName);
+    }
+}